@@ -0,0 +1,57 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link IOcrEngine} which reads input images anyway and can share them
+ * with {@link OcrPdfCreator} together with recognized text, so that
+ * input images are not read and decoded once more when the result
+ * document is created. Page images are expected to be created from the
+ * already read bytes with {@link InputImageDataList}. {@link OcrPdfCreator}
+ * places the pages of each input image right after it's recognized and
+ * drops them, so only one input image is kept in memory at a time.
+ */
+public interface IImageDataSharingOcrEngine extends IOcrEngine {
+
+    /**
+     * Reads data from the provided input image file and returns retrieved
+     * text together with images of its pages.
+     *
+     * @param input input image {@link java.io.File}
+     * @param imageRotationHandler {@link IImageRotationHandler} to be
+     *                             applied to page images, null if rotation
+     *                             isn't required
+     * @param resultPages {@link java.util.Map} to put text of each page to
+     *                    right after the page is recognized, see
+     *                    {@link IPageStreamingOcrEngine}, null if the
+     *                    engine should create the map itself
+     * @return {@link OcrImageResult} with recognized text and page images
+     */
+    OcrImageResult doImageOcrWithImageData(File input,
+            IImageRotationHandler imageRotationHandler,
+            Map<Integer, List<TextInfo>> resultPages);
+}
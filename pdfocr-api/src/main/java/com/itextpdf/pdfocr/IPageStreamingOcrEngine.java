@@ -0,0 +1,51 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr;
+
+import java.io.File;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link IOcrEngine} which is able to pass text of each page to the caller
+ * as soon as the page is recognized, so that pages of multi-page images
+ * don't need to be kept in memory until the whole image is recognized.
+ * {@link OcrPdfCreator} passes a map which spills each page to
+ * {@link OcrResultSpillStore} if spill directory is set.
+ */
+public interface IPageStreamingOcrEngine extends IOcrEngine {
+
+    /**
+     * Reads data from the provided input image file putting text of each
+     * page to the given map right after the page is recognized.
+     *
+     * @param input input image {@link java.io.File}
+     * @param resultPages {@link java.util.Map} to put recognized pages to,
+     *                    where key is {@link java.lang.Integer}
+     *                    representing the number of the page and value is
+     *                    {@link java.util.List} of {@link TextInfo} elements
+     * @return the given map with all the recognized pages
+     */
+    Map<Integer, List<TextInfo>> doImageOcrWithResultPages(File input,
+            Map<Integer, List<TextInfo>> resultPages);
+}
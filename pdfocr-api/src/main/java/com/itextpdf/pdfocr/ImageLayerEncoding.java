@@ -0,0 +1,57 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr;
+
+/**
+ * Enumeration of the possible encodings of the images placed to the image
+ * layer of the output PDF document.
+ */
+public enum ImageLayerEncoding {
+    /**
+     * Images are embedded as they are created by
+     * {@link com.itextpdf.io.image.ImageDataFactory}.
+     */
+    ORIGINAL,
+    /**
+     * Images which contain only black and white pixels (e.g. black and
+     * white scans, including the ones with slight compression noise) are
+     * embedded as CCITT Group 4 compressed 1-bit images, other images are
+     * embedded as they are.
+     */
+    CCITT_G4_IF_BILEVEL,
+    /**
+     * All images are binarized using the threshold set with
+     * {@link OcrPdfCreatorProperties#setBinarizationThreshold(int)} and
+     * embedded as CCITT Group 4 compressed 1-bit images.
+     */
+    CCITT_G4,
+    /**
+     * Images are split into mixed raster content layers: low resolution
+     * background, low resolution foreground with text colors and full
+     * resolution CCITT Group 4 compressed 1-bit text mask of the foreground.
+     * Text pixels are detected using the threshold set with
+     * {@link OcrPdfCreatorProperties#setBinarizationThreshold(int)}.
+     * This is suitable for color scans with text.
+     */
+    MRC
+}
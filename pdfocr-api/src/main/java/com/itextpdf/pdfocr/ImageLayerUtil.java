@@ -0,0 +1,1240 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr;
+
+import com.itextpdf.io.codec.CCITTG4Encoder;
+import com.itextpdf.io.image.ImageData;
+import com.itextpdf.io.image.ImageDataFactory;
+import com.itextpdf.io.image.ImageType;
+import com.itextpdf.io.image.RawImageData;
+import com.itextpdf.io.util.MessageFormatUtil;
+import com.itextpdf.kernel.geom.Rectangle;
+
+import java.awt.image.BufferedImage;
+import java.awt.image.IndexColorModel;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.InflaterInputStream;
+import javax.imageio.IIOImage;
+import javax.imageio.ImageIO;
+import javax.imageio.ImageWriteParam;
+import javax.imageio.ImageWriter;
+import javax.imageio.stream.ImageOutputStream;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Utilities to encode images placed to the image layer of the output
+ * PDF document.
+ */
+class ImageLayerUtil {
+
+    /**
+     * The logger.
+     */
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(ImageLayerUtil.class);
+
+    /**
+     * Pixels with luminance below this value are considered to be black
+     * when image is checked to be bilevel.
+     */
+    private static final int BLACK_LUMINANCE = 64;
+
+    /**
+     * Pixels with luminance above this value are considered to be white
+     * when image is checked to be bilevel.
+     */
+    private static final int WHITE_LUMINANCE = 191;
+
+    /**
+     * Maximum difference between color components of a gray pixel.
+     */
+    private static final int GRAY_TOLERANCE = 24;
+
+    /**
+     * Image is considered to be bilevel if no more than one of this number
+     * of pixels is neither black nor white (e.g. because of compression
+     * noise on the edges of the glyphs).
+     */
+    private static final int BILEVEL_NOISE_RATIO = 100;
+
+    /**
+     * Maximum number of colors of a palette image.
+     */
+    private static final int MAX_PALETTE_SIZE = 256;
+
+    /**
+     * Maximum number of colors of a gray palette image, gray images with
+     * more colors are stored as grayscale images.
+     */
+    private static final int MAX_GRAY_PALETTE_SIZE = 16;
+
+    /**
+     * Quality of re-encoded JPEG images.
+     */
+    private static final float JPEG_QUALITY = 0.85f;
+
+    /**
+     * Number of points in one inch.
+     */
+    private static final float POINTS_PER_INCH = 72f;
+
+    /**
+     * Reduction factor of the resolution of the background and foreground
+     * layers of mixed raster content.
+     */
+    private static final int MRC_REDUCTION = 3;
+
+    /**
+     * White color.
+     */
+    private static final int WHITE = 0xffffff;
+
+    /**
+     * Creates new instance of {@link ImageLayerUtil}.
+     */
+    private ImageLayerUtil() {
+    }
+
+    /**
+     * Encodes image to be placed to the image layer according to the
+     * image layer policies set in the provided properties: the image is
+     * downsampled to the maximum resolution, encoded using
+     * {@link ImageLayerEncoding} and its colors are reduced.
+     *
+     * @param imageData input image or its one page as
+     *                  {@link com.itextpdf.io.image.ImageData}
+     * @param imageSize size of the image on the page
+     * @param properties {@link OcrPdfCreatorProperties}
+     * @return encoded {@link com.itextpdf.io.image.ImageData} or the
+     * original one if it cannot or should not be encoded
+     */
+    static ImageData encodeImage(final ImageData imageData,
+            final Rectangle imageSize,
+            final OcrPdfCreatorProperties properties) {
+        final ImageLayerEncoding encoding = properties.getImageLayerEncoding();
+        final boolean ccittEncoding = encoding == ImageLayerEncoding.CCITT_G4
+                || encoding == ImageLayerEncoding.CCITT_G4_IF_BILEVEL;
+        if (imageData == null || isBilevelEncoded(imageData)
+                || (!ccittEncoding && properties.getMaxImageDpi() <= 0
+                && !properties.isReducingImageColors())) {
+            return imageData;
+        }
+        try {
+            PixelSource source = createPixelSource(imageData);
+            if (source == null) {
+                return imageData;
+            }
+            final PixelSource originalSource = source;
+            source = limitResolution(source, imageData, imageSize,
+                    properties.getMaxImageDpi());
+            final boolean downsampled = source != originalSource;
+            ImageData result = null;
+            if (ccittEncoding) {
+                final byte[] bits = toBilevel(source,
+                        properties.getBinarizationThreshold(),
+                        encoding == ImageLayerEncoding.CCITT_G4_IF_BILEVEL);
+                if (bits != null) {
+                    result = ImageDataFactory.create(
+                            source.getWidth(), source.getHeight(), false,
+                            RawImageData.CCITTG4, 0,
+                            CCITTG4Encoder.compress(bits, source.getWidth(),
+                                    source.getHeight()), null);
+                }
+            }
+            if (result == null && properties.isReducingImageColors()) {
+                result = reduceColors(source, imageData, downsampled,
+                        properties.getPngEncoder());
+            }
+            if (result == null && downsampled) {
+                result = createImage(source,
+                        imageData.getOriginalType() == ImageType.JPEG, false,
+                        properties.getPngEncoder());
+            }
+            if (result == null) {
+                return imageData;
+            }
+            final float resultScale = source.getWidth() / imageData.getWidth();
+            result.setDpi(Math.round(imageData.getDpiX() * resultScale),
+                    Math.round(imageData.getDpiY() * resultScale));
+            result.setRotation(imageData.getRotation());
+            return result;
+        } catch (IOException | RuntimeException e) { // NOSONAR
+            LOGGER.info(MessageFormatUtil.format(
+                    PdfOcrLogMessageConstant.CANNOT_ENCODE_IMAGE_LAYER,
+                    e.getMessage()));
+            return imageData;
+        }
+    }
+
+    /**
+     * Encodes image to be placed to the image layer according to the
+     * image layer policies set in the provided properties. Several images
+     * which should be placed one over another are returned if
+     * {@link ImageLayerEncoding#MRC} is used.
+     *
+     * @param imageData input image or its one page as
+     *                  {@link com.itextpdf.io.image.ImageData}
+     * @param imageSize size of the image on the page
+     * @param properties {@link OcrPdfCreatorProperties}
+     * @return list of encoded {@link com.itextpdf.io.image.ImageData}
+     * to be placed from bottom to top
+     */
+    static List<ImageData> encodeImageLayers(final ImageData imageData,
+            final Rectangle imageSize,
+            final OcrPdfCreatorProperties properties) {
+        if (imageData != null && !isBilevelEncoded(imageData)
+                && properties.getImageLayerEncoding() == ImageLayerEncoding.MRC) {
+            try {
+                final PixelSource source = createPixelSource(imageData);
+                if (source != null) {
+                    final List<ImageData> layers = createMrcLayers(
+                            limitResolution(source, imageData, imageSize,
+                                    properties.getMaxImageDpi()),
+                            properties.getBinarizationThreshold(),
+                            properties.getPngEncoder());
+                    for (ImageData layer : layers) {
+                        layer.setRotation(imageData.getRotation());
+                    }
+                    return layers;
+                }
+            } catch (IOException | RuntimeException e) { // NOSONAR
+                LOGGER.info(MessageFormatUtil.format(
+                        PdfOcrLogMessageConstant.CANNOT_ENCODE_IMAGE_LAYER,
+                        e.getMessage()));
+            }
+        }
+        return Collections.<ImageData>singletonList(
+                encodeImage(imageData, imageSize, properties));
+    }
+
+    /**
+     * Splits image into mixed raster content layers: low resolution
+     * background without text, low resolution foreground with text colors
+     * and full resolution CCITT compressed text mask of the foreground.
+     *
+     * @param source {@link PixelSource} of the image
+     * @param threshold luminance threshold, darker pixels are text
+     * @param pngEncoder {@link ParallelPngEncoder} to encode PNG images
+     * @return background and masked foreground
+     * {@link com.itextpdf.io.image.ImageData}, or only background if
+     * there is no text
+     * @throws IOException if image cannot be encoded
+     */
+    private static List<ImageData> createMrcLayers(final PixelSource source,
+            final int threshold, final ParallelPngEncoder pngEncoder)
+            throws IOException {
+        final int width = source.getWidth();
+        final int height = source.getHeight();
+        final int rowLength = (width + 7) / 8;
+        final byte[] bits = new byte[rowLength * height];
+        final int layerWidth = (width + MRC_REDUCTION - 1) / MRC_REDUCTION;
+        final int layerHeight = (height + MRC_REDUCTION - 1) / MRC_REDUCTION;
+        final int[] background = new int[layerWidth * layerHeight];
+        final int[] foreground = new int[layerWidth * layerHeight];
+        final long[] backgroundSums = new long[layerWidth * 3];
+        final long[] foregroundSums = new long[layerWidth * 3];
+        final int[] backgroundCounts = new int[layerWidth];
+        final int[] foregroundCounts = new int[layerWidth];
+        final int[] row = new int[width];
+        boolean hasText = false;
+        boolean gray = true;
+        for (int y = 0; y < height; ++y) {
+            source.readRow(y, row);
+            for (int x = 0; x < width; ++x) {
+                final int rgb = toOpaque(row[x]);
+                gray = gray && isGray(rgb);
+                final int layerX = x / MRC_REDUCTION;
+                if (getOpaqueLuminance(rgb) < threshold) {
+                    bits[y * rowLength + (x >> 3)] |= (byte) (0x80 >> (x & 7));
+                    addColor(foregroundSums, foregroundCounts, layerX, rgb);
+                    hasText = true;
+                } else {
+                    addColor(backgroundSums, backgroundCounts, layerX, rgb);
+                }
+            }
+            if (y % MRC_REDUCTION == MRC_REDUCTION - 1 || y == height - 1) {
+                final int offset = y / MRC_REDUCTION * layerWidth;
+                for (int x = 0; x < layerWidth; ++x) {
+                    // background under the text is taken from the
+                    // neighbour block to avoid text halos
+                    final int neighbour = x > 0 ? background[offset + x - 1]
+                            : offset > 0 ? background[offset - layerWidth]
+                            : WHITE;
+                    background[offset + x] = getAverageColor(backgroundSums,
+                            backgroundCounts, x, neighbour);
+                    foreground[offset + x] = getAverageColor(foregroundSums,
+                            foregroundCounts, x, 0);
+                }
+                Arrays.fill(backgroundSums, 0);
+                Arrays.fill(foregroundSums, 0);
+                Arrays.fill(backgroundCounts, 0);
+                Arrays.fill(foregroundCounts, 0);
+            }
+        }
+        final List<ImageData> layers = new ArrayList<>(2);
+        layers.add(createImage(new ArrayPixelSource(background, layerWidth,
+                layerHeight), true, gray, pngEncoder));
+        if (hasText) {
+            // mask samples equal to 1 are not painted, so set bits should
+            // mark background pixels
+            for (int i = 0; i < bits.length; ++i) {
+                bits[i] = (byte) ~bits[i];
+            }
+            final ImageData mask = ImageDataFactory.create(width, height,
+                    false, RawImageData.CCITTG4, RawImageData.CCITT_BLACKIS1,
+                    CCITTG4Encoder.compress(bits, width, height), null);
+            mask.makeMask();
+            final ImageData foregroundImage = createImage(
+                    new ArrayPixelSource(foreground, layerWidth, layerHeight),
+                    false, gray, pngEncoder);
+            foregroundImage.setImageMask(mask);
+            layers.add(foregroundImage);
+        }
+        return layers;
+    }
+
+    /**
+     * Adds opaque color to the sums of the layer block.
+     *
+     * @param sums sums of color components of the blocks
+     * @param counts numbers of pixels of the blocks
+     * @param index block index
+     * @param rgb opaque pixel color
+     */
+    private static void addColor(final long[] sums, final int[] counts,
+            final int index, final int rgb) {
+        sums[index * 3] += (rgb >> 16) & 0xff;
+        sums[index * 3 + 1] += (rgb >> 8) & 0xff;
+        sums[index * 3 + 2] += rgb & 0xff;
+        ++counts[index];
+    }
+
+    /**
+     * Gets average opaque color of the layer block.
+     *
+     * @param sums sums of color components of the blocks
+     * @param counts numbers of pixels of the blocks
+     * @param index block index
+     * @param defaultColor color used if block has no pixels
+     * @return average color
+     */
+    private static int getAverageColor(final long[] sums, final int[] counts,
+            final int index, final int defaultColor) {
+        final int count = counts[index];
+        if (count == 0) {
+            return 0xff000000 | defaultColor;
+        }
+        return 0xff000000
+                | (int) ((sums[index * 3] + count / 2) / count) << 16
+                | (int) ((sums[index * 3 + 1] + count / 2) / count) << 8
+                | (int) ((sums[index * 3 + 2] + count / 2) / count);
+    }
+
+    /**
+     * Downsamples image if its resolution exceeds the maximum one.
+     *
+     * @param source {@link PixelSource} of the image
+     * @param imageData {@link com.itextpdf.io.image.ImageData}
+     * @param imageSize size of the image on the page
+     * @param maxDpi maximum resolution, 0 or negative value means
+     *               that image is not downsampled
+     * @return {@link PixelSource} of the downsampled image or the
+     * provided one if the image should not be downsampled
+     */
+    private static PixelSource limitResolution(final PixelSource source,
+            final ImageData imageData, final Rectangle imageSize,
+            final int maxDpi) {
+        final float dpi = getImageDpi(imageData, source, imageSize);
+        if (maxDpi <= 0 || dpi <= maxDpi) {
+            return source;
+        }
+        final float scale = maxDpi / dpi;
+        return downsample(source,
+                Math.max(1, Math.round(source.getWidth() * scale)),
+                Math.max(1, Math.round(source.getHeight() * scale)));
+    }
+
+    /**
+     * Gets horizontal resolution of the image. Resolution from the image
+     * metadata is used if it is present, otherwise it is calculated from
+     * the size of the image on the page.
+     *
+     * @param imageData {@link com.itextpdf.io.image.ImageData}
+     * @param source {@link PixelSource} of the image
+     * @param imageSize size of the image on the page
+     * @return resolution in dots per inch
+     */
+    private static float getImageDpi(final ImageData imageData,
+            final PixelSource source, final Rectangle imageSize) {
+        if (imageData.getDpiX() > 0) {
+            return imageData.getDpiX();
+        }
+        if (imageSize == null || imageSize.getWidth() <= 0) {
+            return 0;
+        }
+        // image size on the page is the size of the displayed, i.e.
+        // possibly rotated, image
+        final int displayedWidth = PdfCreatorUtil.isSideways(imageData)
+                ? source.getHeight() : source.getWidth();
+        return displayedWidth * POINTS_PER_INCH / imageSize.getWidth();
+    }
+
+    /**
+     * Downsamples image averaging source pixels covered by each
+     * target pixel.
+     *
+     * @param source {@link PixelSource} of the image
+     * @param width target width
+     * @param height target height
+     * @return {@link PixelSource} of the downsampled image
+     */
+    private static PixelSource downsample(final PixelSource source,
+            final int width, final int height) {
+        final int sourceWidth = source.getWidth();
+        final int sourceHeight = source.getHeight();
+        final int[] pixels = new int[width * height];
+        final int[] row = new int[sourceWidth];
+        final long[] sums = new long[width * 4];
+        final int[] counts = new int[width];
+        for (int y = 0; y < height; ++y) {
+            final int sy0 = (int) ((long) y * sourceHeight / height);
+            final int sy1 = Math.max(sy0 + 1,
+                    (int) ((long) (y + 1) * sourceHeight / height));
+            Arrays.fill(sums, 0);
+            Arrays.fill(counts, 0);
+            for (int sy = sy0; sy < sy1; ++sy) {
+                source.readRow(sy, row);
+                for (int x = 0; x < width; ++x) {
+                    final int sx0 = (int) ((long) x * sourceWidth / width);
+                    final int sx1 = Math.max(sx0 + 1,
+                            (int) ((long) (x + 1) * sourceWidth / width));
+                    for (int sx = sx0; sx < sx1; ++sx) {
+                        final int argb = row[sx];
+                        sums[x * 4] += (argb >>> 24) & 0xff;
+                        sums[x * 4 + 1] += (argb >> 16) & 0xff;
+                        sums[x * 4 + 2] += (argb >> 8) & 0xff;
+                        sums[x * 4 + 3] += argb & 0xff;
+                    }
+                    counts[x] += sx1 - sx0;
+                }
+            }
+            for (int x = 0; x < width; ++x) {
+                final long count = counts[x];
+                pixels[y * width + x] =
+                        (int) ((sums[x * 4] + count / 2) / count) << 24
+                        | (int) ((sums[x * 4 + 1] + count / 2) / count) << 16
+                        | (int) ((sums[x * 4 + 2] + count / 2) / count) << 8
+                        | (int) ((sums[x * 4 + 3] + count / 2) / count);
+            }
+        }
+        return new ArrayPixelSource(pixels, width, height);
+    }
+
+    /**
+     * Reduces colors of the image: effectively gray images are converted
+     * to grayscale and non-JPEG images with few colors are converted to
+     * palette images.
+     *
+     * @param source {@link PixelSource} of the image
+     * @param imageData original {@link com.itextpdf.io.image.ImageData}
+     * @param downsampled true if the image was downsampled
+     * @param pngEncoder {@link ParallelPngEncoder} to encode PNG images
+     * @return {@link com.itextpdf.io.image.ImageData} with reduced colors
+     * or null if colors cannot be reduced
+     * @throws IOException if image cannot be encoded
+     */
+    private static ImageData reduceColors(final PixelSource source,
+            final ImageData imageData, final boolean downsampled,
+            final ParallelPngEncoder pngEncoder) throws IOException {
+        final int width = source.getWidth();
+        final int height = source.getHeight();
+        final int[] row = new int[width];
+        final Palette palette = new Palette(MAX_PALETTE_SIZE);
+        boolean gray = true;
+        for (int y = 0; y < height; ++y) {
+            source.readRow(y, row);
+            for (int x = 0; x < width; ++x) {
+                final int rgb = toOpaque(row[x]);
+                gray = gray && isGray(rgb);
+                palette.add(rgb);
+            }
+            if (!gray && palette.isOverflowed()) {
+                return null;
+            }
+        }
+        final boolean jpeg = imageData.getOriginalType() == ImageType.JPEG;
+        if (!jpeg && !palette.isOverflowed()
+                && (!gray || palette.size() <= MAX_GRAY_PALETTE_SIZE)) {
+            return createPaletteImage(source, palette, pngEncoder);
+        }
+        if (gray && (downsampled || imageData.getColorSpace() != 1)) {
+            final ImageData grayImage = createImage(source, jpeg, true,
+                    pngEncoder);
+            // re-encoded JPEG is kept only if it is smaller than the original
+            if (jpeg && !downsampled && imageData.getData() != null
+                    && grayImage.getData().length >= imageData.getData().length) {
+                return null;
+            }
+            return grayImage;
+        }
+        return null;
+    }
+
+    /**
+     * Creates JPEG or PNG image from pixels.
+     *
+     * @param source {@link PixelSource} of the image
+     * @param jpeg if true, JPEG image is created
+     * @param gray if true, grayscale image is created
+     * @param pngEncoder {@link ParallelPngEncoder} to encode PNG images
+     * @return created {@link com.itextpdf.io.image.ImageData}
+     * @throws IOException if image cannot be encoded
+     */
+    private static ImageData createImage(final PixelSource source,
+            final boolean jpeg, final boolean gray,
+            final ParallelPngEncoder pngEncoder) throws IOException {
+        final int width = source.getWidth();
+        final int height = source.getHeight();
+        final int[] row = new int[width];
+        if (jpeg) {
+            final BufferedImage image = new BufferedImage(width, height,
+                    gray ? BufferedImage.TYPE_BYTE_GRAY
+                            : BufferedImage.TYPE_INT_RGB);
+            for (int y = 0; y < height; ++y) {
+                source.readRow(y, row);
+                for (int x = 0; x < width; ++x) {
+                    final int rgb = toOpaque(row[x]);
+                    if (gray) {
+                        image.getRaster().setSample(x, y, 0,
+                                getOpaqueLuminance(rgb));
+                    } else {
+                        image.setRGB(x, y, rgb);
+                    }
+                }
+            }
+            return ImageDataFactory.create(writeJpeg(image));
+        }
+        final int components = gray ? 1 : 3;
+        final byte[] samples = new byte[width * height * components];
+        int offset = 0;
+        for (int y = 0; y < height; ++y) {
+            source.readRow(y, row);
+            for (int x = 0; x < width; ++x) {
+                final int rgb = toOpaque(row[x]);
+                if (gray) {
+                    samples[offset++] = (byte) getOpaqueLuminance(rgb);
+                } else {
+                    samples[offset++] = (byte) (rgb >> 16);
+                    samples[offset++] = (byte) (rgb >> 8);
+                    samples[offset++] = (byte) rgb;
+                }
+            }
+        }
+        // samples are deflated concurrently and embedded as they are
+        return ImageDataFactory.create(
+                pngEncoder.encode(samples, width, height, components));
+    }
+
+    /**
+     * Creates PNG palette image from pixels.
+     *
+     * @param source {@link PixelSource} of the image
+     * @param palette {@link Palette} with colors of the image
+     * @param pngEncoder {@link ParallelPngEncoder} to encode PNG images
+     * @return created {@link com.itextpdf.io.image.ImageData}
+     * @throws IOException if image cannot be encoded
+     */
+    private static ImageData createPaletteImage(final PixelSource source,
+            final Palette palette, final ParallelPngEncoder pngEncoder)
+            throws IOException {
+        int bits = 1;
+        while ((1 << bits) < palette.size()) {
+            bits <<= 1;
+        }
+        final byte[] r = new byte[palette.size()];
+        final byte[] g = new byte[palette.size()];
+        final byte[] b = new byte[palette.size()];
+        for (int i = 0; i < palette.size(); ++i) {
+            final int color = palette.getColor(i);
+            r[i] = (byte) (color >> 16);
+            g[i] = (byte) (color >> 8);
+            b[i] = (byte) color;
+        }
+        final int width = source.getWidth();
+        final int height = source.getHeight();
+        final BufferedImage image = new BufferedImage(width, height,
+                bits < 8 ? BufferedImage.TYPE_BYTE_BINARY
+                        : BufferedImage.TYPE_BYTE_INDEXED,
+                new IndexColorModel(bits, palette.size(), r, g, b));
+        final int[] row = new int[width];
+        for (int y = 0; y < height; ++y) {
+            source.readRow(y, row);
+            for (int x = 0; x < width; ++x) {
+                image.getRaster().setSample(x, y, 0,
+                        palette.indexOf(toOpaque(row[x])));
+            }
+        }
+        return ImageDataFactory.create(pngEncoder.encode(image));
+    }
+
+    /**
+     * Encodes image as JPEG.
+     *
+     * @param image {@link java.awt.image.BufferedImage} to encode
+     * @return JPEG bytes
+     * @throws IOException if image cannot be encoded
+     */
+    private static byte[] writeJpeg(final BufferedImage image)
+            throws IOException {
+        final ImageWriter writer = ImageIO
+                .getImageWritersByFormatName("jpeg").next();
+        final ImageWriteParam param = writer.getDefaultWriteParam();
+        param.setCompressionMode(ImageWriteParam.MODE_EXPLICIT);
+        param.setCompressionQuality(JPEG_QUALITY);
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        try (ImageOutputStream ios = ImageIO.createImageOutputStream(baos)) {
+            writer.setOutput(ios);
+            writer.write(null, new IIOImage(image, null, null), param);
+        } finally {
+            writer.dispose();
+        }
+        return baos.toByteArray();
+    }
+
+    /**
+     * Places pixel over white background.
+     *
+     * @param argb pixel color
+     * @return opaque pixel color
+     */
+    private static int toOpaque(final int argb) {
+        final int alpha = (argb >>> 24) & 0xff;
+        if (alpha == 0xff) {
+            return argb & 0xffffff;
+        }
+        final int white = 255 * (255 - alpha);
+        return ((((argb >> 16) & 0xff) * alpha + white) / 255) << 16
+                | ((((argb >> 8) & 0xff) * alpha + white) / 255) << 8
+                | ((argb & 0xff) * alpha + white) / 255;
+    }
+
+    /**
+     * Checks whether image is already encoded as 1-bit image using
+     * bilevel specific compression or consists of compressed TIFF strips
+     * which should be embedded as they are.
+     *
+     * @param imageData {@link com.itextpdf.io.image.ImageData}
+     * @return true if image is CCITT or JBIG2 encoded or is
+     * {@link TiffStripImageData}
+     */
+    private static boolean isBilevelEncoded(final ImageData imageData) {
+        return imageData instanceof TiffStripImageData
+                || imageData.getOriginalType() == ImageType.JBIG2
+                || (imageData instanceof RawImageData
+                && ((RawImageData) imageData).getTypeCcitt() != 0);
+    }
+
+    /**
+     * Creates {@link PixelSource} for the provided image.
+     *
+     * @param imageData {@link com.itextpdf.io.image.ImageData}
+     * @return {@link PixelSource} or null if pixels of the image
+     * cannot be read
+     * @throws IOException if image cannot be decoded
+     */
+    private static PixelSource createPixelSource(final ImageData imageData)
+            throws IOException {
+        if (imageData.isRawImage()) {
+            final byte[] samples = readRawSamples(imageData);
+            if (samples == null) {
+                return null;
+            }
+            byte[] alpha = null;
+            final ImageData mask = imageData.getImageMask();
+            if (mask != null) {
+                // only soft masks (e.g. png alpha channel) are supported
+                if (!mask.isSoftMask() || mask.getBpc() != 8
+                        || mask.getWidth() != imageData.getWidth()
+                        || mask.getHeight() != imageData.getHeight()) {
+                    return null;
+                }
+                alpha = readRawSamples(mask);
+                if (alpha == null) {
+                    return null;
+                }
+            }
+            return new RawPixelSource(samples, alpha,
+                    (int) imageData.getWidth(), (int) imageData.getHeight(),
+                    imageData.getColorSpace(), imageData.getBpc());
+        }
+        final BufferedImage image = imageData.getData() == null
+                ? ImageIO.read(imageData.getUrl())
+                : ImageIO.read(new ByteArrayInputStream(imageData.getData()));
+        return image == null ? null : new BufferedImagePixelSource(image);
+    }
+
+    /**
+     * Reads samples of the raw image (e.g. tiff page or png image).
+     * 1-bit gray, 8-bit gray and 8-bit rgb samples are supported,
+     * they may be deflated and use png predictors.
+     *
+     * @param imageData raw {@link com.itextpdf.io.image.ImageData}
+     * @return samples or null if they are not supported
+     * @throws IOException if samples cannot be read
+     */
+    private static byte[] readRawSamples(final ImageData imageData)
+            throws IOException {
+        final int components = imageData.getColorSpace();
+        final int bpc = imageData.getBpc();
+        if (imageData.getTransparency() != null
+                || imageData.getDecode() != null
+                || (imageData instanceof RawImageData
+                && ((RawImageData) imageData).getTypeCcitt() != 0)
+                || (imageData.getImageAttributes() != null && imageData
+                .getImageAttributes().containsKey("ColorSpace"))
+                || !((bpc == 8 && (components == 1 || components == 3))
+                || (bpc == 1 && components == 1))) {
+            return null;
+        }
+        final byte[] samples = imageData.isDeflated()
+                ? inflate(imageData.getData()) : imageData.getData();
+        final Map<String, Object> decodeParms = imageData.getDecodeParms();
+        if (decodeParms == null) {
+            return samples;
+        }
+        final Object predictor = decodeParms.get("Predictor");
+        if (!(predictor instanceof Number)) {
+            return samples;
+        } else if (((Number) predictor).intValue() <= 1) {
+            return samples;
+        } else if (((Number) predictor).intValue() >= 10) {
+            return removePngPredictor(samples, components, bpc,
+                    (int) imageData.getWidth());
+        }
+        return null;
+    }
+
+    /**
+     * Reverts png row filters.
+     *
+     * @param data filtered rows, each starting with filter type
+     * @param colors number of color components
+     * @param bpc bits per component
+     * @param columns number of samples in a row
+     * @return unfiltered rows
+     * @throws IOException if filter type is unknown
+     */
+    private static byte[] removePngPredictor(final byte[] data,
+            final int colors, final int bpc, final int columns)
+            throws IOException {
+        final int bytesPerPixel = Math.max(1, colors * bpc / 8);
+        final int rowLength = (colors * bpc * columns + 7) / 8;
+        final int rows = data.length / (rowLength + 1);
+        final byte[] result = new byte[rows * rowLength];
+        for (int y = 0; y < rows; ++y) {
+            final int filter = data[y * (rowLength + 1)];
+            final int in = y * (rowLength + 1) + 1;
+            final int out = y * rowLength;
+            for (int i = 0; i < rowLength; ++i) {
+                final int left = i >= bytesPerPixel
+                        ? result[out + i - bytesPerPixel] & 0xff : 0;
+                final int up = y > 0 ? result[out + i - rowLength] & 0xff : 0;
+                final int upLeft = y > 0 && i >= bytesPerPixel
+                        ? result[out + i - rowLength - bytesPerPixel] & 0xff
+                        : 0;
+                final int predicted;
+                switch (filter) {
+                    case 0:
+                        predicted = 0;
+                        break;
+                    case 1:
+                        predicted = left;
+                        break;
+                    case 2:
+                        predicted = up;
+                        break;
+                    case 3:
+                        predicted = (left + up) / 2;
+                        break;
+                    case 4:
+                        predicted = paeth(left, up, upLeft);
+                        break;
+                    default:
+                        throw new IOException("Unknown png filter " + filter);
+                }
+                result[out + i] = (byte) (data[in + i] + predicted);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Calculates png paeth predictor.
+     *
+     * @param left left byte
+     * @param up upper byte
+     * @param upLeft upper left byte
+     * @return predicted byte
+     */
+    static int paeth(final int left, final int up, final int upLeft) {
+        final int p = left + up - upLeft;
+        final int pLeft = Math.abs(p - left);
+        final int pUp = Math.abs(p - up);
+        final int pUpLeft = Math.abs(p - upLeft);
+        if (pLeft <= pUp && pLeft <= pUpLeft) {
+            return left;
+        }
+        return pUp <= pUpLeft ? up : upLeft;
+    }
+
+    /**
+     * Converts image to packed 1-bit rows where set bits are black pixels.
+     *
+     * @param source {@link PixelSource} of the image
+     * @param threshold luminance threshold, darker pixels become black
+     * @param bilevelOnly if true, null is returned for images which
+     *                    are not bilevel
+     * @return packed rows or null if image is not bilevel
+     */
+    private static byte[] toBilevel(final PixelSource source,
+            final int threshold, final boolean bilevelOnly) {
+        final int width = source.getWidth();
+        final int height = source.getHeight();
+        final int rowLength = (width + 7) / 8;
+        final byte[] bits = new byte[rowLength * height];
+        final int[] row = new int[width];
+        final long maxNoise = (long) width * height / BILEVEL_NOISE_RATIO;
+        long noise = 0;
+        for (int y = 0; y < height; ++y) {
+            source.readRow(y, row);
+            final int offset = y * rowLength;
+            for (int x = 0; x < width; ++x) {
+                final int luminance = getLuminance(row[x]);
+                if (bilevelOnly && (!isGray(row[x])
+                        || (luminance >= BLACK_LUMINANCE
+                        && luminance <= WHITE_LUMINANCE))
+                        && ++noise > maxNoise) {
+                    return null;
+                }
+                if (luminance < threshold) {
+                    bits[offset + (x >> 3)] |= (byte) (0x80 >> (x & 7));
+                }
+            }
+        }
+        return bits;
+    }
+
+    /**
+     * Calculates luminance of the pixel placed over white background.
+     *
+     * @param argb pixel color
+     * @return luminance 0-255
+     */
+    private static int getLuminance(final int argb) {
+        return getOpaqueLuminance(toOpaque(argb));
+    }
+
+    /**
+     * Calculates luminance of the opaque pixel.
+     *
+     * @param rgb pixel color
+     * @return luminance 0-255
+     */
+    private static int getOpaqueLuminance(final int rgb) {
+        return (((rgb >> 16) & 0xff) * 299 + ((rgb >> 8) & 0xff) * 587
+                + (rgb & 0xff) * 114) / 1000;
+    }
+
+    /**
+     * Checks whether color components of the pixel are almost equal.
+     *
+     * @param argb pixel color
+     * @return true if pixel is gray
+     */
+    private static boolean isGray(final int argb) {
+        final int r = (argb >> 16) & 0xff;
+        final int g = (argb >> 8) & 0xff;
+        final int b = argb & 0xff;
+        return Math.max(r, Math.max(g, b)) - Math.min(r, Math.min(g, b))
+                <= GRAY_TOLERANCE;
+    }
+
+    /**
+     * Inflates deflated image samples.
+     *
+     * @param data deflated samples
+     * @return inflated samples
+     * @throws IOException if samples cannot be inflated
+     */
+    private static byte[] inflate(final byte[] data) throws IOException {
+        try (InputStream is = new InflaterInputStream(
+                new ByteArrayInputStream(data))) {
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream(
+                    data.length * 4);
+            final byte[] buffer = new byte[8192];
+            int read;
+            while ((read = is.read(buffer)) != -1) {
+                baos.write(buffer, 0, read);
+            }
+            return baos.toByteArray();
+        }
+    }
+
+    /**
+     * Source of image pixels read row by row.
+     */
+    private abstract static class PixelSource {
+
+        /**
+         * Gets image width in pixels.
+         *
+         * @return width
+         */
+        abstract int getWidth();
+
+        /**
+         * Gets image height in pixels.
+         *
+         * @return height
+         */
+        abstract int getHeight();
+
+        /**
+         * Reads one row of pixels as ARGB colors.
+         *
+         * @param y row index
+         * @param row array to put pixels to
+         */
+        abstract void readRow(int y, int[] row);
+    }
+
+    /**
+     * {@link PixelSource} based on a decoded
+     * {@link java.awt.image.BufferedImage}.
+     */
+    private static class BufferedImagePixelSource extends PixelSource {
+
+        /**
+         * Decoded image.
+         */
+        private final BufferedImage image;
+
+        /**
+         * Creates new instance of {@link BufferedImagePixelSource}.
+         *
+         * @param image decoded image
+         */
+        BufferedImagePixelSource(final BufferedImage image) {
+            this.image = image;
+        }
+
+        @Override
+        int getWidth() {
+            return image.getWidth();
+        }
+
+        @Override
+        int getHeight() {
+            return image.getHeight();
+        }
+
+        @Override
+        void readRow(final int y, final int[] row) {
+            image.getRGB(0, y, row.length, 1, row, 0, row.length);
+        }
+    }
+
+    /**
+     * {@link PixelSource} based on raw 1-bit gray, 8-bit gray or rgb samples
+     * with optional 8-bit alpha samples.
+     */
+    private static class RawPixelSource extends PixelSource {
+
+        /**
+         * Image samples.
+         */
+        private final byte[] samples;
+
+        /**
+         * Alpha samples, null if image is opaque.
+         */
+        private final byte[] alpha;
+
+        /**
+         * Image width.
+         */
+        private final int width;
+
+        /**
+         * Image height.
+         */
+        private final int height;
+
+        /**
+         * Number of color components.
+         */
+        private final int components;
+
+        /**
+         * Bits per component.
+         */
+        private final int bpc;
+
+        /**
+         * Creates new instance of {@link RawPixelSource}.
+         *
+         * @param samples image samples
+         * @param alpha alpha samples, null if image is opaque
+         * @param width image width
+         * @param height image height
+         * @param components number of color components
+         * @param bpc bits per component, 1 or 8
+         * @throws IOException if there are not enough samples
+         */
+        RawPixelSource(final byte[] samples, final byte[] alpha,
+                final int width, final int height, final int components,
+                final int bpc) throws IOException {
+            if ((long) (width * components * bpc + 7) / 8 * height
+                    > samples.length
+                    || (alpha != null && (long) width * height > alpha.length)) {
+                throw new IOException("Unexpected end of image data");
+            }
+            this.samples = samples;
+            this.alpha = alpha;
+            this.width = width;
+            this.height = height;
+            this.components = components;
+            this.bpc = bpc;
+        }
+
+        @Override
+        int getWidth() {
+            return width;
+        }
+
+        @Override
+        int getHeight() {
+            return height;
+        }
+
+        @Override
+        void readRow(final int y, final int[] row) {
+            if (bpc == 1) {
+                final int offset = y * ((width + 7) / 8);
+                for (int x = 0; x < width; ++x) {
+                    row[x] = (samples[offset + (x >> 3)] & (0x80 >> (x & 7))) == 0
+                            ? 0xff000000 : 0xffffffff;
+                }
+                return;
+            }
+            int offset = y * width * components;
+            for (int x = 0; x < width; ++x) {
+                final int a = alpha == null
+                        ? 0xff : alpha[y * width + x] & 0xff;
+                final int r = samples[offset] & 0xff;
+                if (components == 1) {
+                    row[x] = (a << 24) | (r << 16) | (r << 8) | r;
+                } else {
+                    row[x] = (a << 24) | (r << 16)
+                            | ((samples[offset + 1] & 0xff) << 8)
+                            | (samples[offset + 2] & 0xff);
+                }
+                offset += components;
+            }
+        }
+    }
+
+    /**
+     * {@link PixelSource} based on an array of ARGB pixels.
+     */
+    private static class ArrayPixelSource extends PixelSource {
+
+        /**
+         * Image pixels.
+         */
+        private final int[] pixels;
+
+        /**
+         * Image width.
+         */
+        private final int width;
+
+        /**
+         * Image height.
+         */
+        private final int height;
+
+        /**
+         * Creates new instance of {@link ArrayPixelSource}.
+         *
+         * @param pixels image pixels
+         * @param width image width
+         * @param height image height
+         */
+        ArrayPixelSource(final int[] pixels, final int width,
+                final int height) {
+            this.pixels = pixels;
+            this.width = width;
+            this.height = height;
+        }
+
+        @Override
+        int getWidth() {
+            return width;
+        }
+
+        @Override
+        int getHeight() {
+            return height;
+        }
+
+        @Override
+        void readRow(final int y, final int[] row) {
+            System.arraycopy(pixels, y * width, row, 0, width);
+        }
+    }
+
+    /**
+     * Opaque colors of the image mapped to their indexes in the order they
+     * were found. Colors are kept in an open addressing hash table of
+     * primitives, so pixels are not boxed while they are counted.
+     */
+    private static class Palette {
+
+        /**
+         * Colors by their indexes.
+         */
+        private final int[] colors;
+
+        /**
+         * Hash table slots: index of the color plus one, 0 if slot is empty.
+         */
+        private final int[] slots;
+
+        /**
+         * Number of colors.
+         */
+        private int size;
+
+        /**
+         * True if the image has more colors than the palette may contain.
+         */
+        private boolean overflowed;
+
+        /**
+         * Creates new instance of {@link Palette}.
+         *
+         * @param maxSize maximum number of colors
+         */
+        Palette(final int maxSize) {
+            this.colors = new int[maxSize];
+            // load factor is kept below 1/4 to keep probe sequences short
+            this.slots = new int[Integer.highestOneBit(maxSize) * 4];
+        }
+
+        /**
+         * Adds color to the palette if it isn't there yet.
+         *
+         * @param rgb opaque pixel color
+         */
+        void add(final int rgb) {
+            if (overflowed) {
+                return;
+            }
+            final int slot = findSlot(rgb);
+            if (slots[slot] != 0) {
+                return;
+            }
+            if (size == colors.length) {
+                overflowed = true;
+                return;
+            }
+            colors[size] = rgb;
+            slots[slot] = ++size;
+        }
+
+        /**
+         * Gets index of the color.
+         *
+         * @param rgb opaque pixel color
+         * @return index of the color, -1 if it isn't in the palette
+         */
+        int indexOf(final int rgb) {
+            return slots[findSlot(rgb)] - 1;
+        }
+
+        /**
+         * Gets color by its index.
+         *
+         * @param index index of the color
+         * @return opaque color
+         */
+        int getColor(final int index) {
+            return colors[index];
+        }
+
+        /**
+         * Gets number of colors.
+         *
+         * @return number of colors in the palette
+         */
+        int size() {
+            return size;
+        }
+
+        /**
+         * Checks whether the image has more colors than the palette may
+         * contain.
+         *
+         * @return true if some colors were not added
+         */
+        boolean isOverflowed() {
+            return overflowed;
+        }
+
+        /**
+         * Finds slot of the color or the empty slot where it should be
+         * placed.
+         *
+         * @param rgb opaque pixel color
+         * @return slot index
+         */
+        private int findSlot(final int rgb) {
+            final int mask = slots.length - 1;
+            int slot = ((rgb * 0x9e3779b9) >>> 16) & mask;
+            while (slots[slot] != 0 && colors[slots[slot] - 1] != rgb) {
+                slot = (slot + 1) & mask;
+            }
+            return slot;
+        }
+    }
+}
@@ -0,0 +1,538 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr;
+
+import com.itextpdf.io.image.ImageType;
+import com.itextpdf.io.image.ImageTypeDetector;
+import com.itextpdf.io.image.TiffImageData;
+import com.itextpdf.io.source.RandomAccessFileOrArray;
+import com.itextpdf.io.source.RandomAccessSourceFactory;
+import com.itextpdf.io.util.MessageFormatUtil;
+import com.itextpdf.io.util.UrlUtil;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.apache.commons.imaging.FormatCompliance;
+import org.apache.commons.imaging.ImageInfo;
+import org.apache.commons.imaging.Imaging;
+import org.apache.commons.imaging.common.ImageMetadata;
+import org.apache.commons.imaging.common.bytesource.ByteSource;
+import org.apache.commons.imaging.common.bytesource.ByteSourceArray;
+import org.apache.commons.imaging.common.bytesource.ByteSourceFile;
+import org.apache.commons.imaging.formats.jpeg.JpegImageMetadata;
+import org.apache.commons.imaging.formats.tiff.TiffContents;
+import org.apache.commons.imaging.formats.tiff.TiffDirectory;
+import org.apache.commons.imaging.formats.tiff.TiffField;
+import org.apache.commons.imaging.formats.tiff.TiffImageMetadata;
+import org.apache.commons.imaging.formats.tiff.TiffReader;
+import org.apache.commons.imaging.formats.tiff.constants.TiffTagConstants;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Basic properties of an input image which are read from its header
+ * without decoding image data: image type, number of pages, dimensions
+ * of each page, bit depth, resolution, EXIF orientation and compression.
+ *
+ * Probing allows to estimate resources needed to process an image
+ * and to reject huge images (e.g. decompression bombs) before they are
+ * decoded. Probes are cached per file, so the header of an input image is
+ * parsed only once however many times its properties are requested.
+ */
+public class ImageProbe {
+
+    /**
+     * EXIF orientation of images which don't need to be rotated.
+     */
+    public static final int DEFAULT_ORIENTATION = 1;
+
+    /**
+     * Maximal number of cached probes.
+     */
+    private static final int CACHE_SIZE = 64;
+
+    /**
+     * The logger.
+     */
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(ImageProbe.class);
+
+    /**
+     * Recently probed files by their absolute path.
+     */
+    private static final Map<String, ImageProbe> CACHE =
+            new LinkedHashMap<String, ImageProbe>(16, 0.75f, true) {
+                @Override
+                protected boolean removeEldestEntry(
+                        final Map.Entry<String, ImageProbe> eldest) {
+                    return size() > CACHE_SIZE;
+                }
+            };
+
+    /**
+     * Type of the image.
+     */
+    private final ImageType imageType;
+
+    /**
+     * Widths of the pages in pixels.
+     */
+    private final int[] pageWidths;
+
+    /**
+     * Heights of the pages in pixels.
+     */
+    private final int[] pageHeights;
+
+    /**
+     * Number of pages.
+     */
+    private final int numberOfPages;
+
+    /**
+     * Number of bits per pixel.
+     */
+    private final int bitsPerPixel;
+
+    /**
+     * Horizontal resolution in dots per inch.
+     */
+    private final int horizontalDpi;
+
+    /**
+     * Vertical resolution in dots per inch.
+     */
+    private final int verticalDpi;
+
+    /**
+     * EXIF orientation.
+     */
+    private final int orientation;
+
+    /**
+     * Name of compression algorithm.
+     */
+    private final String compression;
+
+    /**
+     * Name of image format.
+     */
+    private final String format;
+
+    /**
+     * Size of image file in bytes.
+     */
+    private final long fileSize;
+
+    /**
+     * Last modification time of image file, used to validate cached probe.
+     */
+    private final long lastModified;
+
+    /**
+     * Creates a new {@link ImageProbe} instance.
+     *
+     * @param imageType type of the image
+     * @param pageWidths widths of the pages in pixels
+     * @param pageHeights heights of the pages in pixels
+     * @param numberOfPages number of pages
+     * @param bitsPerPixel number of bits per pixel
+     * @param horizontalDpi horizontal resolution in dots per inch
+     * @param verticalDpi vertical resolution in dots per inch
+     * @param orientation EXIF orientation
+     * @param compression name of compression algorithm
+     * @param format name of image format
+     * @param fileSize size of image file in bytes
+     * @param lastModified last modification time of image file
+     */
+    ImageProbe(final ImageType imageType, final int[] pageWidths,
+            final int[] pageHeights, final int numberOfPages,
+            final int bitsPerPixel, final int horizontalDpi,
+            final int verticalDpi, final int orientation,
+            final String compression, final String format,
+            final long fileSize, final long lastModified) {
+        this.imageType = imageType;
+        this.pageWidths = pageWidths;
+        this.pageHeights = pageHeights;
+        this.numberOfPages = numberOfPages;
+        this.bitsPerPixel = bitsPerPixel;
+        this.horizontalDpi = horizontalDpi;
+        this.verticalDpi = verticalDpi;
+        this.orientation = orientation;
+        this.compression = compression;
+        this.format = format;
+        this.fileSize = fileSize;
+        this.lastModified = lastModified;
+    }
+
+    /**
+     * Probes provided image file reading only its header. The result is
+     * cached until the file is modified.
+     *
+     * @param inputImage input image {@link java.io.File}
+     * @return {@link ImageProbe} of the image
+     * @throws OcrException if image file cannot be read
+     */
+    public static ImageProbe forFile(final File inputImage) {
+        String key = inputImage.getAbsolutePath();
+        long fileSize = inputImage.length();
+        long lastModified = inputImage.lastModified();
+        synchronized (CACHE) {
+            ImageProbe cached = CACHE.get(key);
+            if (cached != null && cached.fileSize == fileSize
+                    && cached.lastModified == lastModified) {
+                return cached;
+            }
+        }
+        ImageProbe probe = probe(inputImage, fileSize, lastModified);
+        synchronized (CACHE) {
+            CACHE.put(key, probe);
+        }
+        return probe;
+    }
+
+    /**
+     * Gets type of the image.
+     *
+     * @return {@link com.itextpdf.io.image.ImageType} of the image,
+     * {@link com.itextpdf.io.image.ImageType#NONE} if it's unknown
+     */
+    public ImageType getImageType() {
+        return imageType;
+    }
+
+    /**
+     * Checks whether dimensions of the image were read from its header.
+     * They may be unavailable if the header isn't supported.
+     *
+     * @return true if dimensions are known
+     */
+    public boolean hasDimensions() {
+        return pageWidths.length > 0;
+    }
+
+    /**
+     * Gets width of the first page in pixels.
+     *
+     * @return width in pixels, 0 if it's unknown
+     */
+    public int getWidth() {
+        return getPageWidth(1);
+    }
+
+    /**
+     * Gets height of the first page in pixels.
+     *
+     * @return height in pixels, 0 if it's unknown
+     */
+    public int getHeight() {
+        return getPageHeight(1);
+    }
+
+    /**
+     * Gets width of provided page in pixels.
+     *
+     * @param page number of the page (starting from 1)
+     * @return width in pixels, 0 if it's unknown
+     */
+    public int getPageWidth(final int page) {
+        return page >= 1 && page <= pageWidths.length
+                ? pageWidths[page - 1] : 0;
+    }
+
+    /**
+     * Gets height of provided page in pixels.
+     *
+     * @param page number of the page (starting from 1)
+     * @return height in pixels, 0 if it's unknown
+     */
+    public int getPageHeight(final int page) {
+        return page >= 1 && page <= pageHeights.length
+                ? pageHeights[page - 1] : 0;
+    }
+
+    /**
+     * Gets number of pixels of the largest page.
+     *
+     * @return number of pixels
+     */
+    public long getPixelsPerPage() {
+        long pixels = 0;
+        for (int i = 0; i < pageWidths.length; i++) {
+            pixels = Math.max(pixels, (long) pageWidths[i] * pageHeights[i]);
+        }
+        return pixels;
+    }
+
+    /**
+     * Gets number of bits per pixel.
+     *
+     * @return number of bits per pixel
+     */
+    public int getBitsPerPixel() {
+        return bitsPerPixel;
+    }
+
+    /**
+     * Gets number of pages, 1 for single page image formats.
+     *
+     * @return number of pages
+     */
+    public int getNumberOfPages() {
+        return numberOfPages;
+    }
+
+    /**
+     * Gets horizontal resolution of the (first) page.
+     *
+     * @return resolution in dots per inch, 0 or negative if it's unknown
+     */
+    public int getHorizontalDpi() {
+        return horizontalDpi;
+    }
+
+    /**
+     * Gets vertical resolution of the (first) page.
+     *
+     * @return resolution in dots per inch, 0 or negative if it's unknown
+     */
+    public int getVerticalDpi() {
+        return verticalDpi;
+    }
+
+    /**
+     * Gets EXIF orientation of the image.
+     *
+     * @return EXIF orientation, {@link #DEFAULT_ORIENTATION} if the image
+     * doesn't have it
+     */
+    public int getOrientation() {
+        return orientation;
+    }
+
+    /**
+     * Gets name of compression algorithm.
+     *
+     * @return compression algorithm
+     */
+    public String getCompression() {
+        return compression;
+    }
+
+    /**
+     * Gets name of image format.
+     *
+     * @return image format
+     */
+    public String getFormat() {
+        return format;
+    }
+
+    /**
+     * Gets size of image file in bytes.
+     *
+     * @return file size
+     */
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    /**
+     * Reads header of provided image file.
+     *
+     * @param inputImage input image {@link java.io.File}
+     * @param fileSize size of the file
+     * @param lastModified last modification time of the file
+     * @return {@link ImageProbe} of the image
+     * @throws OcrException if image file cannot be read
+     */
+    private static ImageProbe probe(final File inputImage,
+            final long fileSize, final long lastModified) {
+        ImageType imageType;
+        int numberOfPages = 1;
+        try {
+            imageType = ImageTypeDetector.detectImageType(
+                    UrlUtil.toURL(inputImage.getAbsolutePath()));
+            if (imageType == ImageType.TIFF) {
+                RandomAccessFileOrArray raf = new RandomAccessFileOrArray(
+                        new RandomAccessSourceFactory().createBestSource(
+                                inputImage.getAbsolutePath()));
+                try {
+                    numberOfPages = TiffImageData.getNumberOfPages(raf);
+                } finally {
+                    raf.close();
+                }
+            }
+        } catch (Exception e) { // NOSONAR
+            LOGGER.error(MessageFormatUtil.format(
+                    PdfOcrLogMessageConstant.CANNOT_READ_INPUT_IMAGE,
+                    e.getMessage()));
+            throw new OcrException(OcrException.CANNOT_READ_INPUT_IMAGE, e);
+        }
+
+        List<Integer> widths = new ArrayList<Integer>();
+        List<Integer> heights = new ArrayList<Integer>();
+        int bitsPerPixel = 0;
+        int horizontalDpi = 0;
+        int verticalDpi = 0;
+        int orientation = DEFAULT_ORIENTATION;
+        String compression = null;
+        String format = null;
+        try {
+            // header can't be parsed for unsupported formats, image type
+            // is enough to reject them later
+            ImageInfo info = Imaging.getImageInfo(inputImage);
+            bitsPerPixel = info.getBitsPerPixel();
+            horizontalDpi = info.getPhysicalWidthDpi();
+            verticalDpi = info.getPhysicalHeightDpi();
+            compression = String.valueOf(info.getCompressionAlgorithm());
+            format = info.getFormat().getName();
+            if (imageType == ImageType.TIFF) {
+                orientation = readTiffPages(new ByteSourceFile(inputImage),
+                        widths, heights);
+            } else if (imageType == ImageType.JPEG) {
+                orientation = readOrientation(
+                        Imaging.getMetadata(inputImage));
+            }
+            if (widths.isEmpty()) {
+                widths.add(info.getWidth());
+                heights.add(info.getHeight());
+            }
+        } catch (Exception e) { // NOSONAR
+            LOGGER.info(MessageFormatUtil.format(
+                    PdfOcrLogMessageConstant.CANNOT_READ_IMAGE_HEADER,
+                    e.getMessage()));
+        }
+        return new ImageProbe(imageType, toArray(widths), toArray(heights),
+                numberOfPages, bitsPerPixel, horizontalDpi, verticalDpi,
+                orientation, compression, format, fileSize, lastModified);
+    }
+
+    /**
+     * Reads dimensions of all the pages of TIFF image and orientation of
+     * its first page from its directories skipping image data.
+     *
+     * @param byteSource source of TIFF image
+     * @param widths list to add widths of the pages to
+     * @param heights list to add heights of the pages to
+     * @return orientation of the first page, {@link #DEFAULT_ORIENTATION}
+     * if it isn't set
+     * @throws Exception if TIFF directories cannot be read
+     */
+    private static int readTiffPages(final ByteSource byteSource,
+            final List<Integer> widths, final List<Integer> heights)
+            throws Exception {
+        // neither image data nor thumbnails are read
+        TiffContents contents = new TiffReader(true).readDirectories(
+                byteSource, false, FormatCompliance.getDefault());
+        int orientation = DEFAULT_ORIENTATION;
+        for (TiffDirectory directory : contents.directories) {
+            TiffField width = directory.findField(
+                    TiffTagConstants.TIFF_TAG_IMAGE_WIDTH);
+            TiffField height = directory.findField(
+                    TiffTagConstants.TIFF_TAG_IMAGE_LENGTH);
+            // EXIF and GPS sub-directories are not pages
+            if (directory.type >= 0 && width != null && height != null) {
+                if (widths.isEmpty()) {
+                    TiffField field = directory.findField(
+                            TiffTagConstants.TIFF_TAG_ORIENTATION);
+                    if (field != null) {
+                        orientation = field.getIntValue();
+                    }
+                }
+                widths.add(width.getIntValue());
+                heights.add(height.getIntValue());
+            }
+        }
+        return orientation;
+    }
+
+    /**
+     * Reads EXIF orientation from the encoded image.
+     *
+     * @param imageBytes encoded image
+     * @return EXIF orientation, {@link #DEFAULT_ORIENTATION} if the image
+     * doesn't contain it or it cannot be read
+     */
+    static int readOrientation(final byte[] imageBytes) {
+        try {
+            final ImageType imageType =
+                    ImageTypeDetector.detectImageType(imageBytes);
+            if (imageType == ImageType.TIFF) {
+                return readTiffPages(new ByteSourceArray(imageBytes),
+                        new ArrayList<Integer>(), new ArrayList<Integer>());
+            } else if (imageType == ImageType.JPEG) {
+                return readOrientation(Imaging.getMetadata(imageBytes));
+            }
+            return DEFAULT_ORIENTATION;
+        } catch (Exception e) { // NOSONAR
+            LOGGER.info(MessageFormatUtil.format(
+                    PdfOcrLogMessageConstant.CANNOT_READ_IMAGE_HEADER,
+                    e.getMessage()));
+            return DEFAULT_ORIENTATION;
+        }
+    }
+
+    /**
+     * Reads EXIF orientation from JPEG image metadata. TIFF orientation is
+     * read by {@link #readTiffPages}, as TIFF metadata would contain image
+     * data.
+     *
+     * @param metadata image metadata
+     * @return EXIF orientation, {@link #DEFAULT_ORIENTATION} if metadata
+     * doesn't contain it
+     * @throws Exception if metadata cannot be read
+     */
+    private static int readOrientation(final ImageMetadata metadata)
+            throws Exception {
+        TiffImageMetadata tiffImageMetadata = null;
+        if (metadata instanceof JpegImageMetadata) {
+            tiffImageMetadata = ((JpegImageMetadata) metadata).getExif();
+        }
+        if (tiffImageMetadata != null) {
+            TiffField field = tiffImageMetadata.findField(
+                    TiffTagConstants.TIFF_TAG_ORIENTATION);
+            if (field != null) {
+                return field.getIntValue();
+            }
+        }
+        return DEFAULT_ORIENTATION;
+    }
+
+    /**
+     * Converts list of integers to array.
+     *
+     * @param list list of integers
+     * @return array of integers
+     */
+    private static int[] toArray(final List<Integer> list) {
+        int[] array = new int[list.size()];
+        for (int i = 0; i < array.length; i++) {
+            array[i] = list.get(i);
+        }
+        return array;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr;
+
+import com.itextpdf.io.image.ImageData;
+import com.itextpdf.io.image.ImageDataFactory;
+import com.itextpdf.io.image.ImageType;
+import com.itextpdf.io.image.ImageTypeDetector;
+import com.itextpdf.io.image.TiffImageData;
+import com.itextpdf.io.source.RandomAccessFileOrArray;
+import com.itextpdf.io.source.RandomAccessSourceFactory;
+import com.itextpdf.io.util.MessageFormatUtil;
+
+import java.io.IOException;
+import java.util.AbstractList;
+import java.util.Collections;
+import java.util.List;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Page images of an input image created from its bytes, e.g. from the
+ * bytes already read by the {@link IOcrEngine} during OCR, so that the
+ * input image isn't read once more when the result document is assembled.
+ *
+ * Pages of TIFF images are decoded lazily one by one when they are
+ * requested, as {@link TiffPageImageDataList} does, other images are
+ * decoded once when the list is created. The list keeps the bytes of the
+ * input image, so it should be dropped as soon as its pages are placed:
+ * {@link OcrPdfCreator} places the pages of each input image right after
+ * the image is recognized.
+ */
+public class InputImageDataList extends AbstractList<ImageData> {
+
+    /**
+     * The logger.
+     */
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(InputImageDataList.class);
+
+    /**
+     * Page images of the input image.
+     */
+    private final List<ImageData> pages;
+
+    /**
+     * Creates a new {@link InputImageDataList} instance.
+     *
+     * @param inputBytes bytes of the input image
+     * @param imageRotationHandler {@link IImageRotationHandler} to be
+     *                             applied to each page, null if rotation
+     *                             isn't required
+     * @throws OcrException if the input image cannot be read
+     */
+    public InputImageDataList(final byte[] inputBytes,
+            final IImageRotationHandler imageRotationHandler) {
+        try {
+            if (ImageTypeDetector.detectImageType(inputBytes)
+                    == ImageType.TIFF) {
+                pages = new TiffPageImageDataList(inputBytes,
+                        getNumberOfTiffPages(inputBytes),
+                        imageRotationHandler);
+            } else {
+                ImageData imageData = ImageDataFactory.create(inputBytes);
+                if (imageRotationHandler != null) {
+                    imageData = imageRotationHandler.applyRotation(imageData);
+                }
+                pages = Collections.singletonList(imageData);
+            }
+        } catch (IOException | com.itextpdf.io.IOException e) {
+            LOGGER.error(MessageFormatUtil.format(
+                    PdfOcrLogMessageConstant.CANNOT_READ_INPUT_IMAGE,
+                    e.getMessage()));
+            throw new OcrException(OcrException.CANNOT_READ_INPUT_IMAGE, e);
+        }
+    }
+
+    /**
+     * Gets {@link com.itextpdf.io.image.ImageData} of the requested page.
+     * Pages of TIFF images are decoded on each call.
+     *
+     * @param index index of the page (starting from 0)
+     * @return {@link com.itextpdf.io.image.ImageData} of the page
+     * @throws OcrException if the page cannot be read
+     */
+    @Override
+    public ImageData get(final int index) {
+        return pages.get(index);
+    }
+
+    /**
+     * Gets number of pages.
+     *
+     * @return number of pages of the input image
+     */
+    @Override
+    public int size() {
+        return pages.size();
+    }
+
+    /**
+     * Reads number of pages from the header of TIFF image.
+     *
+     * @param tiffBytes bytes of the TIFF image
+     * @return number of pages
+     * @throws IOException if the header cannot be read
+     */
+    private static int getNumberOfTiffPages(final byte[] tiffBytes)
+            throws IOException {
+        RandomAccessFileOrArray raf = new RandomAccessFileOrArray(
+                new RandomAccessSourceFactory().createSource(tiffBytes));
+        try {
+            return TiffImageData.getNumberOfPages(raf);
+        } finally {
+            raf.close();
+        }
+    }
+}
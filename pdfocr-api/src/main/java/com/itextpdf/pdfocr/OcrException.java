@@ -38,6 +38,10 @@ public class OcrException extends RuntimeException {
             + "any of provided fonts. Please check provided FontProvider.";
     public static final String CANNOT_CREATE_PDF_DOCUMENT = "Cannot create "
             + "PDF document: {0}";
+    public static final String CANNOT_CREATE_TXT_FILE = "Cannot create "
+            + "text file: {0}";
+    public static final String CANNOT_READ_OCR_RESULT = "Cannot read "
+            + "OCR result: {0}";
     private List<String> messageParams;
 
     /**
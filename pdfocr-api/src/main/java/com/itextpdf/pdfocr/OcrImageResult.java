@@ -0,0 +1,102 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr;
+
+import com.itextpdf.io.image.ImageData;
+
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Result of OCR of a single input image: text recognized on each page and,
+ * optionally, page images provided by the {@link IOcrEngine}, e.g.
+ * {@link InputImageDataList} created from the bytes the engine has already
+ * read. Page images are kept by {@link OcrPdfCreator} only until the pages
+ * of the input image are placed to the result document.
+ */
+public class OcrImageResult {
+
+    /**
+     * Recognized text: page number -> list of {@link TextInfo}.
+     */
+    private final Map<Integer, List<TextInfo>> textInfos;
+
+    /**
+     * Page images ready to be placed to the result document, null if they
+     * weren't provided.
+     */
+    private final List<ImageData> imageData;
+
+    /**
+     * Creates a new {@link OcrImageResult} instance without page images.
+     *
+     * @param textInfos {@link java.util.Map} where key is
+     *                  {@link java.lang.Integer} representing the number of
+     *                  the page and value is {@link java.util.List} of
+     *                  {@link TextInfo} elements
+     */
+    public OcrImageResult(final Map<Integer, List<TextInfo>> textInfos) {
+        this(textInfos, null);
+    }
+
+    /**
+     * Creates a new {@link OcrImageResult} instance.
+     *
+     * @param textInfos {@link java.util.Map} where key is
+     *                  {@link java.lang.Integer} representing the number of
+     *                  the page and value is {@link java.util.List} of
+     *                  {@link TextInfo} elements
+     * @param imageData {@link java.util.List} of
+     *                  {@link com.itextpdf.io.image.ImageData} for each page
+     *                  of the input image (with rotation already applied if
+     *                  it was requested) or null if page images aren't
+     *                  provided
+     */
+    public OcrImageResult(final Map<Integer, List<TextInfo>> textInfos,
+            final List<ImageData> imageData) {
+        this.textInfos = textInfos;
+        this.imageData = imageData;
+    }
+
+    /**
+     * Gets recognized text.
+     *
+     * @return {@link java.util.Map} where key is {@link java.lang.Integer}
+     * representing the number of the page and value is
+     * {@link java.util.List} of {@link TextInfo} elements
+     */
+    public Map<Integer, List<TextInfo>> getTextInfos() {
+        return textInfos;
+    }
+
+    /**
+     * Gets page images.
+     *
+     * @return {@link java.util.List} of
+     * {@link com.itextpdf.io.image.ImageData} for each page of the input
+     * image or null if page images aren't provided
+     */
+    public List<ImageData> getImageData() {
+        return imageData;
+    }
+}
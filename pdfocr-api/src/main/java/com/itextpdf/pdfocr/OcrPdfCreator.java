@@ -48,6 +48,7 @@ import com.itextpdf.kernel.pdf.PdfWriter;
 import com.itextpdf.kernel.pdf.canvas.PdfCanvas;
 import com.itextpdf.kernel.pdf.canvas.PdfCanvasConstants.TextRenderingMode;
 import com.itextpdf.kernel.pdf.layer.PdfLayer;
+import com.itextpdf.kernel.pdf.xobject.PdfImageXObject;
 import com.itextpdf.layout.Canvas;
 import com.itextpdf.layout.Document;
 import com.itextpdf.layout.element.Paragraph;
@@ -59,7 +60,13 @@ import com.itextpdf.pdfocr.OcrPdfCreatorMetaInfo.PdfDocumentType;
 import com.itextpdf.pdfocr.events.IThreadLocalMetaInfoAware;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.HashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -182,26 +189,24 @@ public class OcrPdfCreator {
                             null != pdfOutputIntent ? PdfDocumentType.PDFA : PdfDocumentType.PDF));
         }
 
-        // map contains:
-        // keys: image files
-        // values:
-        // map pageNumber -> retrieved text data(text and its coordinates)
-        Map<File, Map<Integer, List<TextInfo>>> imagesTextData =
-                new LinkedHashMap<File, Map<Integer, List<TextInfo>>>();
+        // recognized text is spilled off-heap until it's placed if spill
+        // directory is set
+        final OcrResultSpillStore spillStore = createSpillStore();
         try {
-            for (File inputImage : inputImages) {
-                imagesTextData.put(inputImage,
-                        ocrEngine.doImageOcr(inputImage));
-            }
+            // create PdfDocument, pages of each image are placed right
+            // after the image is recognized
+            final PdfDocument pdfDocument =
+                    createPdfDocument(pdfWriter, pdfOutputIntent);
+            doImagesOcr(inputImages, spillStore, pdfDocument,
+                    pdfOutputIntent != null,
+                    new HashMap<String, List<PdfImageXObject>>());
+            return pdfDocument;
         } finally {
             if (ocrEngine instanceof IThreadLocalMetaInfoAware) {
                 ((IThreadLocalMetaInfoAware)ocrEngine).setThreadLocalMetaInfo(storedMetaInfo);
             }
+            closeSpillStore(spillStore);
         }
-
-
-        // create PdfDocument
-        return createPdfDocument(pdfWriter, pdfOutputIntent, imagesTextData);
     }
 
     /**
@@ -220,6 +225,334 @@ public class OcrPdfCreator {
         return createPdfA(inputImages, pdfWriter, null);
     }
 
+    /**
+     * Creates PDF/A-3u document (or PDF document if provided
+     * {@link com.itextpdf.kernel.pdf.PdfOutputIntent} is null) from
+     * already recognized images, {@link IOcrEngine} is not used.
+     * Results of {@link #recognize(List)} may be passed to this method
+     * any number of times.
+     *
+     * @param ocrResults {@link java.util.Map} with input image
+     *                   {@link java.io.File}s as keys and their
+     *                   {@link OcrImageResult}s as values, images are
+     *                   placed in the order of the map
+     * @param pdfWriter the {@link com.itextpdf.kernel.pdf.PdfWriter} object
+     *                  to write final PDF document to
+     * @param pdfOutputIntent {@link com.itextpdf.kernel.pdf.PdfOutputIntent}
+     *                        for PDF/A-3u document
+     * @return result PDF/A-3u {@link com.itextpdf.kernel.pdf.PdfDocument}
+     * object
+     * @throws OcrException if it was not possible to read provided or
+     * default font
+     */
+    public final PdfDocument createPdfA(
+            final Map<File, OcrImageResult> ocrResults,
+            final PdfWriter pdfWriter,
+            final PdfOutputIntent pdfOutputIntent)
+            throws OcrException {
+        final PdfDocument pdfDocument =
+                createPdfDocument(pdfWriter, pdfOutputIntent);
+        addDataToPdfDocument(ocrResults, pdfDocument,
+                pdfOutputIntent != null,
+                new HashMap<String, List<PdfImageXObject>>());
+        return pdfDocument;
+    }
+
+    /**
+     * Creates PDF document from already recognized images,
+     * {@link IOcrEngine} is not used.
+     *
+     * @param ocrResults {@link java.util.Map} with input image
+     *                   {@link java.io.File}s as keys and their
+     *                   {@link OcrImageResult}s as values
+     * @param pdfWriter the {@link com.itextpdf.kernel.pdf.PdfWriter} object
+     *                  to write final PDF document to
+     * @return result {@link com.itextpdf.kernel.pdf.PdfDocument} object
+     * @throws OcrException if provided font is incorrect
+     */
+    public final PdfDocument createPdf(
+            final Map<File, OcrImageResult> ocrResults,
+            final PdfWriter pdfWriter)
+            throws OcrException {
+        return createPdfA(ocrResults, pdfWriter, null);
+    }
+
+    /**
+     * Performs OCR of the input images using provided {@link IOcrEngine}
+     * without creating any document. Returned results may be passed to
+     * {@link #createPdf(Map, PdfWriter)},
+     * {@link #createPdfA(Map, PdfWriter, PdfOutputIntent)} and
+     * {@link #createTxtFile(Map, File)} any number of times, so each
+     * image is recognized only once. Page images aren't kept in the
+     * results, they are read when the document is created.
+     *
+     * @param inputImages {@link java.util.List} of images to be OCRed
+     * @return {@link java.util.Map} with input image {@link java.io.File}s
+     * as keys and their {@link OcrImageResult}s as values in the order of
+     * input images
+     */
+    public final Map<File, OcrImageResult> recognize(
+            final List<File> inputImages) {
+        LOGGER.info(MessageFormatUtil.format(
+                PdfOcrLogMessageConstant.START_OCR_FOR_IMAGES,
+                inputImages.size()));
+        return doImagesOcr(inputImages, null, null, false, null);
+    }
+
+    /**
+     * Saves text of already recognized images to a text file: each
+     * {@link TextInfo} is written on a separate line and pages are
+     * separated with empty lines.
+     *
+     * @param ocrResults {@link java.util.Map} with input image
+     *                   {@link java.io.File}s as keys and their
+     *                   {@link OcrImageResult}s as values
+     * @param txtFile file to be created
+     * @throws OcrException if text file cannot be written
+     */
+    public final void createTxtFile(final Map<File, OcrImageResult> ocrResults,
+            final File txtFile) throws OcrException {
+        final StringBuilder content = new StringBuilder();
+        for (OcrImageResult ocrResult : ocrResults.values()) {
+            for (List<TextInfo> pageTextInfos
+                    : ocrResult.getTextInfos().values()) {
+                for (TextInfo textInfo : pageTextInfos) {
+                    content.append(textInfo.getText());
+                    content.append(System.lineSeparator());
+                }
+                content.append(System.lineSeparator());
+            }
+        }
+        try (Writer writer = new OutputStreamWriter(
+                new FileOutputStream(txtFile), StandardCharsets.UTF_8)) {
+            writer.write(content.toString());
+        } catch (IOException e) {
+            throw new OcrException(OcrException.CANNOT_CREATE_TXT_FILE, e)
+                    .setMessageParams(e.getMessage());
+        }
+    }
+
+    /**
+     * Performs OCR of the input images. Identical images are recognized
+     * only once if
+     * {@link OcrPdfCreatorProperties#isReusingDuplicateImages()} is true.
+     * If the result document is passed, pages of each image are placed to
+     * it right after the image is recognized, so page images shared by
+     * the engine are dropped before the next image is recognized.
+     *
+     * @param inputImages {@link java.util.List} of images to be OCRed
+     * @param spillStore {@link OcrResultSpillStore} to spill recognized
+     *                   text to, null if it should be kept in memory
+     * @param pdfDocument result {@link com.itextpdf.kernel.pdf.PdfDocument}
+     *                    to place the images to, null if the results
+     *                    should be returned
+     * @param createPdfA3u true if PDF/A3u document is being created
+     * @param imageXObjects image XObjects already added to the document
+     *                      mapped to content hash of their page images
+     * @return {@link java.util.Map} with input images as keys and their
+     * {@link OcrImageResult}s as values, if the result document is passed
+     * it contains only text of the images which may be reused
+     */
+    private Map<File, OcrImageResult> doImagesOcr(
+            final List<File> inputImages,
+            final OcrResultSpillStore spillStore,
+            final PdfDocument pdfDocument,
+            final boolean createPdfA3u,
+            final Map<String, List<PdfImageXObject>> imageXObjects) {
+        final Map<File, OcrImageResult> imagesTextData =
+                new LinkedHashMap<File, OcrImageResult>();
+        final boolean reusing =
+                ocrPdfCreatorProperties.isReusingDuplicateImages();
+        // file size -> recognized images of this size
+        final Map<Long, List<File>> imagesBySize =
+                new HashMap<Long, List<File>>();
+        // content hashes of the images, calculated only for images of the
+        // same size
+        final Map<File, String> hashes = new HashMap<File, String>();
+        for (File inputImage : inputImages) {
+            final File original = reusing
+                    ? findDuplicate(inputImage, imagesBySize, hashes) : null;
+            OcrImageResult ocrImageResult;
+            if (original == null) {
+                // page images are requested only if they are placed
+                // right away, pages are spilled while they are recognized
+                // if the engine is able to pass them one by one
+                ocrImageResult = spill(doImageOcr(inputImage,
+                        pdfDocument != null, spillStore == null
+                                ? null : spillStore.createResult()),
+                        spillStore);
+                if (reusing) {
+                    List<File> sameSize = imagesBySize.get(inputImage.length());
+                    if (sameSize == null) {
+                        sameSize = new ArrayList<File>();
+                        imagesBySize.put(inputImage.length(), sameSize);
+                    }
+                    sameSize.add(inputImage);
+                }
+            } else {
+                LOGGER.info(MessageFormatUtil.format(
+                        PdfOcrLogMessageConstant
+                                .DUPLICATE_IMAGE_IS_NOT_RECOGNIZED,
+                        inputImage, original));
+                ocrImageResult = new OcrImageResult(
+                        imagesTextData.get(original).getTextInfos());
+            }
+            if (pdfDocument == null) {
+                imagesTextData.put(inputImage, ocrImageResult);
+            } else {
+                addImageToPdfDocument(inputImage, ocrImageResult,
+                        pdfDocument, createPdfA3u, imageXObjects);
+                if (reusing && original == null) {
+                    imagesTextData.put(inputImage, new OcrImageResult(
+                            ocrImageResult.getTextInfos()));
+                }
+            }
+        }
+        return imagesTextData;
+    }
+
+    /**
+     * Finds an already recognized image whose content is identical to the
+     * input image. Content hashes are calculated only if there are
+     * recognized images of the same size, so unique images are not read
+     * once more.
+     *
+     * @param inputImage input image {@link java.io.File}
+     * @param imagesBySize recognized images mapped to their file size
+     * @param hashes content hashes of the images calculated so far
+     * @return identical recognized image or null if there is no such image
+     */
+    private static File findDuplicate(final File inputImage,
+            final Map<Long, List<File>> imagesBySize,
+            final Map<File, String> hashes) {
+        final List<File> candidates = imagesBySize.get(inputImage.length());
+        if (candidates == null) {
+            return null;
+        }
+        final String hash = getContentHash(inputImage, hashes);
+        if (hash == null) {
+            return null;
+        }
+        for (File candidate : candidates) {
+            if (hash.equals(getContentHash(candidate, hashes))) {
+                return candidate;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Gets content hash of the image calculating it only once.
+     *
+     * @param image image {@link java.io.File}
+     * @param hashes content hashes of the images calculated so far
+     * @return hex encoded hash or null if the file cannot be read
+     */
+    private static String getContentHash(final File image,
+            final Map<File, String> hashes) {
+        if (!hashes.containsKey(image)) {
+            hashes.put(image, PdfCreatorUtil.getContentHash(image));
+        }
+        return hashes.get(image);
+    }
+
+    /**
+     * Creates {@link OcrResultSpillStore} in the spill directory set in
+     * {@link OcrPdfCreatorProperties}.
+     *
+     * @return created {@link OcrResultSpillStore} or null if spill
+     * directory isn't set or the store cannot be created
+     */
+    private OcrResultSpillStore createSpillStore() {
+        final File spillDirectory =
+                ocrPdfCreatorProperties.getResultSpillDirectory();
+        if (spillDirectory == null) {
+            return null;
+        }
+        try {
+            return new OcrResultSpillStore(spillDirectory);
+        } catch (IOException e) {
+            LOGGER.warn(MessageFormatUtil.format(
+                    PdfOcrLogMessageConstant.CANNOT_SPILL_OCR_RESULT,
+                    e.getMessage()));
+            return null;
+        }
+    }
+
+    /**
+     * Closes {@link OcrResultSpillStore} and deletes its file.
+     *
+     * @param spillStore {@link OcrResultSpillStore} to close, may be null
+     */
+    private static void closeSpillStore(
+            final OcrResultSpillStore spillStore) {
+        if (spillStore != null) {
+            try {
+                spillStore.close();
+            } catch (IOException e) {
+                LOGGER.warn(MessageFormatUtil.format(
+                        PdfOcrLogMessageConstant.CANNOT_CLOSE_OCR_RESULT_SPILL_FILE,
+                        e.getMessage()));
+            }
+        }
+    }
+
+    /**
+     * Moves recognized text of the image to the spill store unless it's
+     * already spilled while the image was recognized.
+     *
+     * @param ocrImageResult {@link OcrImageResult} of the image
+     * @param spillStore {@link OcrResultSpillStore}, null if text should
+     *                   be kept in memory
+     * @return {@link OcrImageResult} whose text is read from the store or
+     * the original result if it cannot be spilled
+     */
+    private static OcrImageResult spill(final OcrImageResult ocrImageResult,
+            final OcrResultSpillStore spillStore) {
+        if (spillStore == null || ocrImageResult.getTextInfos() == null) {
+            return ocrImageResult;
+        }
+        try {
+            return new OcrImageResult(
+                    spillStore.spill(ocrImageResult.getTextInfos()),
+                    ocrImageResult.getImageData());
+        } catch (IOException e) {
+            LOGGER.warn(MessageFormatUtil.format(
+                    PdfOcrLogMessageConstant.CANNOT_SPILL_OCR_RESULT,
+                    e.getMessage()));
+            return ocrImageResult;
+        }
+    }
+
+    /**
+     * Performs OCR of the input image. Page images are requested from the
+     * engine if it is able to share them and they are required.
+     *
+     * @param inputImage input image {@link java.io.File}
+     * @param sharingImages true if page images should be requested
+     * @param resultPages {@link java.util.Map} to put recognized pages to
+     *                    if the engine is able to pass them one by one,
+     *                    null if the engine should create the map itself
+     * @return {@link OcrImageResult} of the image
+     */
+    private OcrImageResult doImageOcr(final File inputImage,
+            final boolean sharingImages,
+            final Map<Integer, List<TextInfo>> resultPages) {
+        if (sharingImages
+                && ocrEngine instanceof IImageDataSharingOcrEngine) {
+            return ((IImageDataSharingOcrEngine) ocrEngine)
+                    .doImageOcrWithImageData(inputImage,
+                            ocrPdfCreatorProperties.getImageRotationHandler(),
+                            resultPages);
+        }
+        if (resultPages != null
+                && ocrEngine instanceof IPageStreamingOcrEngine) {
+            return new OcrImageResult(((IPageStreamingOcrEngine) ocrEngine)
+                    .doImageOcrWithResultPages(inputImage, resultPages));
+        }
+        return new OcrImageResult(ocrEngine.doImageOcr(inputImage));
+    }
+
     /**
      * Gets used {@link IOcrEngine}.
      *
@@ -248,13 +581,17 @@ public class OcrPdfCreator {
      * @param imageData input image if it is a single page or its one page if
      *                 this is a multi-page image
      * @param createPdfA3u true if PDF/A3u document is being created
+     * @param imageXObjects image XObjects already added to the document
+     *                      mapped to content hash of their page images
      * @throws OcrException if PDF/A3u document is being created and provided
      * font contains notdef glyphs
      */
     private void addToCanvas(final PdfDocument pdfDocument,
             final Rectangle imageSize,
             final List<TextInfo> pageText, final ImageData imageData,
-            final boolean createPdfA3u) throws OcrException {
+            final boolean createPdfA3u,
+            final Map<String, List<PdfImageXObject>> imageXObjects)
+            throws OcrException {
         final Rectangle rectangleSize =
                 ocrPdfCreatorProperties.getPageSize() == null
                         ? imageSize : ocrPdfCreatorProperties.getPageSize();
@@ -269,7 +606,7 @@ public class OcrPdfCreator {
         if (layers[0] != null) {
             canvas.beginLayer(layers[0]);
         }
-        addImageToCanvas(imageData, imageSize, canvas);
+        addImageToCanvas(imageData, imageSize, canvas, imageXObjects);
         if (layers[0] != null && layers[0] != layers[1]) {
             canvas.endLayer();
         }
@@ -277,7 +614,8 @@ public class OcrPdfCreator {
         // how much the original image size changed
         float multiplier = imageData == null
                 ? 1 : imageSize.getWidth()
-                / PdfCreatorUtil.getPoints(imageData.getWidth());
+                / PdfCreatorUtil.getPoints(
+                        PdfCreatorUtil.getDisplayedWidth(imageData));
         if (layers[1] != null && layers[0] != layers[1]) {
             canvas.beginLayer(layers[1]);
         }
@@ -298,20 +636,17 @@ public class OcrPdfCreator {
     }
 
     /**
-     * Creates a new PDF document using provided properties, adds images with
-     * recognized text.
+     * Creates a new PDF document using provided properties, images with
+     * recognized text are added to it later.
      *
      * @param pdfWriter the {@link com.itextpdf.kernel.pdf.PdfWriter} object
      *                  to write final PDF document to
      * @param pdfOutputIntent {@link com.itextpdf.kernel.pdf.PdfOutputIntent}
      *                        for PDF/A-3u document
-     * @param imagesTextData map that contains input image files as keys,
-     *                       and as value: map pageNumber -> text for the page
      * @return result {@link com.itextpdf.kernel.pdf.PdfDocument} object
      */
     private PdfDocument createPdfDocument(final PdfWriter pdfWriter,
-            final PdfOutputIntent pdfOutputIntent,
-            final Map<File, Map<Integer, List<TextInfo>>> imagesTextData) {
+            final PdfOutputIntent pdfOutputIntent) {
         PdfDocument pdfDocument;
         boolean createPdfA3u = pdfOutputIntent != null;
         if (createPdfA3u) {
@@ -351,8 +686,6 @@ public class OcrPdfCreator {
         // reset passed font provider
         ocrPdfCreatorProperties.getFontProvider().reset();
 
-        addDataToPdfDocument(imagesTextData, pdfDocument, createPdfA3u);
-
         return pdfDocument;
     }
 
@@ -360,42 +693,72 @@ public class OcrPdfCreator {
      * Places provided images and recognized text to the result PDF document.
      *
      * @param imagesTextData map that contains input image
-     *                       files as keys, and as value:
-     *                       map pageNumber -> text for the page
+     *                       files as keys, and their {@link OcrImageResult}
+     *                       as value
      * @param pdfDocument result {@link com.itextpdf.kernel.pdf.PdfDocument}
      * @param createPdfA3u true if PDF/A3u document is being created
+     * @param imageXObjects image XObjects already added to the document
+     *                      mapped to content hash of their page images
      * @throws OcrException if input image cannot be read or provided font
      * contains NOTDEF glyphs
      */
     private void addDataToPdfDocument(
-            final Map<File, Map<Integer, List<TextInfo>>> imagesTextData,
+            final Map<File, OcrImageResult> imagesTextData,
             final PdfDocument pdfDocument,
-            final boolean createPdfA3u) throws OcrException {
-        for (Map.Entry<File, Map<Integer, List<TextInfo>>> entry
+            final boolean createPdfA3u,
+            final Map<String, List<PdfImageXObject>> imageXObjects)
+            throws OcrException {
+        for (Map.Entry<File, OcrImageResult> entry
                 : imagesTextData.entrySet()) {
-            File inputImage = entry.getKey();
-            List<ImageData> imageDataList =
-                    PdfCreatorUtil.getImageData(inputImage,
-                            ocrPdfCreatorProperties.getImageRotationHandler());
-            LOGGER.info(MessageFormatUtil.format(
-                    PdfOcrLogMessageConstant.NUMBER_OF_PAGES_IN_IMAGE,
-                    inputImage.toString(), imageDataList.size()));
-
-            Map<Integer, List<TextInfo>> imageTextData = entry.getValue();
-            if (imageTextData.keySet().size() > 0) {
-                for (int page = 0; page < imageDataList.size(); ++page) {
-                    ImageData imageData = imageDataList.get(page);
-                    final Rectangle imageSize =
-                            PdfCreatorUtil.calculateImageSize(
-                                    imageData,
-                                    ocrPdfCreatorProperties.getScaleMode(),
-                                    ocrPdfCreatorProperties.getPageSize());
-
-                    if (imageTextData.containsKey(page + 1)) {
-                        addToCanvas(pdfDocument, imageSize,
-                                imageTextData.get(page + 1),
-                                imageData, createPdfA3u);
-                    }
+            addImageToPdfDocument(entry.getKey(), entry.getValue(),
+                    pdfDocument, createPdfA3u, imageXObjects);
+        }
+    }
+
+    /**
+     * Places pages of the input image and their recognized text to the
+     * result PDF document.
+     *
+     * @param inputImage input image {@link java.io.File}
+     * @param ocrImageResult {@link OcrImageResult} of the image, its page
+     *                       images are used if they are provided
+     * @param pdfDocument result {@link com.itextpdf.kernel.pdf.PdfDocument}
+     * @param createPdfA3u true if PDF/A3u document is being created
+     * @param imageXObjects image XObjects already added to the document
+     *                      mapped to content hash of their page images
+     * @throws OcrException if input image cannot be read or provided font
+     * contains NOTDEF glyphs
+     */
+    private void addImageToPdfDocument(final File inputImage,
+            final OcrImageResult ocrImageResult,
+            final PdfDocument pdfDocument,
+            final boolean createPdfA3u,
+            final Map<String, List<PdfImageXObject>> imageXObjects)
+            throws OcrException {
+        List<ImageData> imageDataList = ocrImageResult.getImageData();
+        if (imageDataList == null) {
+            imageDataList = PdfCreatorUtil.getImageData(inputImage,
+                    ocrPdfCreatorProperties.getImageRotationHandler());
+        }
+        LOGGER.info(MessageFormatUtil.format(
+                PdfOcrLogMessageConstant.NUMBER_OF_PAGES_IN_IMAGE,
+                inputImage.toString(), imageDataList.size()));
+
+        Map<Integer, List<TextInfo>> imageTextData =
+                ocrImageResult.getTextInfos();
+        if (imageTextData.keySet().size() > 0) {
+            for (int page = 0; page < imageDataList.size(); ++page) {
+                ImageData imageData = imageDataList.get(page);
+                final Rectangle imageSize =
+                        PdfCreatorUtil.calculateImageSize(
+                                imageData,
+                                ocrPdfCreatorProperties.getScaleMode(),
+                                ocrPdfCreatorProperties.getPageSize());
+
+                if (imageTextData.containsKey(page + 1)) {
+                    addToCanvas(pdfDocument, imageSize,
+                            imageTextData.get(page + 1),
+                            imageData, createPdfA3u, imageXObjects);
                 }
             }
         }
@@ -403,28 +766,157 @@ public class OcrPdfCreator {
 
     /**
      * Places given image to canvas to background to a separate layer.
+     * Image is downsampled, encoded and its colors are reduced according
+     * to the image layer policies set in {@link OcrPdfCreatorProperties}.
+     * Image XObjects of identical page images are reused if
+     * {@link OcrPdfCreatorProperties#isReusingDuplicateImages()} is true.
      *
-     * @param imageData input image as {@link java.io.File}
+     * @param originalImageData input image as
+     *                          {@link com.itextpdf.io.image.ImageData}
      * @param imageSize size of the image according to the selected
      *                  {@link ScaleMode}
      * @param pdfCanvas canvas to place the image
+     * @param imageXObjects image XObjects already added to the document
+     *                      mapped to content hash of their page images
      */
-    private void addImageToCanvas(final ImageData imageData,
+    private void addImageToCanvas(final ImageData originalImageData,
             final Rectangle imageSize,
+            final PdfCanvas pdfCanvas,
+            final Map<String, List<PdfImageXObject>> imageXObjects) {
+        if (originalImageData == null) {
+            return;
+        }
+        Rectangle rect = imageSize;
+        if (ocrPdfCreatorProperties.getPageSize() != null) {
+            final Point coordinates =
+                    PdfCreatorUtil.calculateImageCoordinates(
+                    ocrPdfCreatorProperties.getPageSize(), imageSize);
+            rect = new Rectangle(
+                    (float)coordinates.x, (float)coordinates.y,
+                    imageSize.getWidth(), imageSize.getHeight());
+        }
+        // encoded images depend on the image size, e.g. if the resolution
+        // is limited
+        final String hash = ocrPdfCreatorProperties.isReusingDuplicateImages()
+                ? PdfCreatorUtil.getContentHash(originalImageData) : null;
+        final String key = hash == null ? null : MessageFormatUtil.format(
+                "{0}|{1}x{2}", hash, imageSize.getWidth(),
+                imageSize.getHeight());
+        if (originalImageData instanceof TiffStripImageData) {
+            addStripsToCanvas((TiffStripImageData) originalImageData, rect,
+                    key, pdfCanvas, imageXObjects);
+        } else {
+            for (PdfImageXObject xObject : getImageXObjects(
+                    originalImageData, imageSize, key, imageXObjects)) {
+                addRotatedImageToCanvas(xObject,
+                        originalImageData.getRotation(), rect, pdfCanvas);
+            }
+        }
+    }
+
+    /**
+     * Gets image XObjects of the image encoded according to the image
+     * layer policies set in {@link OcrPdfCreatorProperties}, image
+     * XObjects already added to the document are reused.
+     *
+     * @param imageData image as {@link com.itextpdf.io.image.ImageData}
+     * @param imageSize size of the image on the page
+     * @param key key of the image XObjects, null if they shouldn't be
+     *            reused
+     * @param imageXObjects image XObjects already added to the document
+     *                      mapped to their keys
+     * @return image XObjects to be placed from bottom to top
+     */
+    private List<PdfImageXObject> getImageXObjects(final ImageData imageData,
+            final Rectangle imageSize, final String key,
+            final Map<String, List<PdfImageXObject>> imageXObjects) {
+        List<PdfImageXObject> xObjects = key == null
+                ? null : imageXObjects.get(key);
+        if (xObjects == null) {
+            xObjects = new ArrayList<PdfImageXObject>();
+            for (ImageData encoded : ImageLayerUtil.encodeImageLayers(
+                    imageData, imageSize, ocrPdfCreatorProperties)) {
+                xObjects.add(new PdfImageXObject(encoded));
+            }
+            if (key != null) {
+                imageXObjects.put(key, xObjects);
+            }
+        }
+        return xObjects;
+    }
+
+    /**
+     * Places image to canvas so that it fills given rectangle after
+     * given rotation is applied. Only rotations by multiples of 90 degrees
+     * are supported.
+     *
+     * @param xObject {@link com.itextpdf.kernel.pdf.xobject.PdfImageXObject}
+     *                to place
+     * @param rotation rotation of the image in radians, see
+     *                 {@link ImageData#getRotation()}
+     * @param rect rectangle of the displayed image
+     * @param pdfCanvas canvas to place the image
+     */
+    private static void addRotatedImageToCanvas(final PdfImageXObject xObject,
+            final float rotation, final Rectangle rect,
             final PdfCanvas pdfCanvas) {
-        if (imageData != null) {
-            if (ocrPdfCreatorProperties.getPageSize() == null) {
-                pdfCanvas.addImage(imageData, imageSize, false);
-            } else {
-                final Point coordinates =
-                        PdfCreatorUtil.calculateImageCoordinates(
-                        ocrPdfCreatorProperties.getPageSize(), imageSize);
-                final Rectangle rect =
-                        new Rectangle(
-                                (float)coordinates.x, (float)coordinates.y,
-                                imageSize.getWidth(), imageSize.getHeight());
-                pdfCanvas.addImage(imageData, rect, false);
+        final float width = rect.getWidth();
+        final float height = rect.getHeight();
+        final long quarterTurns = Math.round(rotation / (Math.PI / 2)) % 4;
+        if (quarterTurns == 0) {
+            pdfCanvas.addXObjectWithTransformationMatrix(xObject,
+                    width, 0, 0, height, rect.getX(), rect.getY());
+        } else if (quarterTurns == 2 || quarterTurns == -2) {
+            pdfCanvas.addXObjectWithTransformationMatrix(xObject,
+                    -width, 0, 0, -height,
+                    rect.getX() + width, rect.getY() + height);
+        } else if (quarterTurns == 1 || quarterTurns == -3) {
+            pdfCanvas.addXObjectWithTransformationMatrix(xObject,
+                    0, height, -width, 0,
+                    rect.getX() + width, rect.getY());
+        } else {
+            pdfCanvas.addXObjectWithTransformationMatrix(xObject,
+                    0, -height, width, 0,
+                    rect.getX(), rect.getY() + height);
+        }
+    }
+
+    /**
+     * Places strips of the TIFF page to canvas, each strip to its own
+     * horizontal band of the given rectangle. Each strip is encoded
+     * according to the image layer policies set in
+     * {@link OcrPdfCreatorProperties} as a separate image of the size of
+     * its band.
+     *
+     * @param page {@link TiffStripImageData} of the TIFF page
+     * @param rect rectangle of the whole page image
+     * @param key key of the image XObjects of the page, null if they
+     *            shouldn't be reused
+     * @param pdfCanvas canvas to place the strips
+     * @param imageXObjects image XObjects already added to the document
+     *                      mapped to their keys
+     */
+    private void addStripsToCanvas(final TiffStripImageData page,
+            final Rectangle rect, final String key,
+            final PdfCanvas pdfCanvas,
+            final Map<String, List<PdfImageXObject>> imageXObjects) {
+        final float rowHeight = rect.getHeight() / page.getHeight();
+        final List<ImageData> strips = page.getStrips();
+        float top = rect.getTop();
+        for (int i = 0; i < strips.size(); ++i) {
+            final ImageData strip = strips.get(i);
+            // band height is taken from the original strip as encoded
+            // strip may be downsampled
+            final float stripHeight = strip.getHeight() * rowHeight;
+            final Rectangle band = new Rectangle(rect.getX(),
+                    top - stripHeight, rect.getWidth(), stripHeight);
+            for (PdfImageXObject xObject : getImageXObjects(strip, band,
+                    key == null ? null : key + "|" + i, imageXObjects)) {
+                pdfCanvas.addXObjectWithTransformationMatrix(xObject,
+                        band.getWidth(), 0, 0, band.getHeight(),
+                        band.getX(), band.getY());
             }
+            top -= stripHeight;
         }
     }
 
@@ -451,11 +943,21 @@ public class OcrPdfCreator {
             final Point imageCoordinates =
                     PdfCreatorUtil.calculateImageCoordinates(
                     ocrPdfCreatorProperties.getPageSize(), imageSize);
-            for (TextInfo item : pageText) {
-                String line = item.getText();
+            // coordinates are read without creating TextInfo views
+            final TextInfoList textInfos;
+            if (pageText instanceof TextInfoList) {
+                textInfos = (TextInfoList) pageText;
+            } else {
+                textInfos = new TextInfoList(pageText.size());
+                textInfos.addAll(pageText);
+            }
+            for (int index = 0; index < textInfos.size(); ++index) {
+                String line = textInfos.getText(index);
 
-                final float bboxWidthPt = getWidthPt(item, multiplier);
-                final float bboxHeightPt = getHeightPt(item, multiplier);
+                final float bboxWidthPt = getWidthPt(textInfos, index,
+                        multiplier);
+                final float bboxHeightPt = getHeightPt(textInfos, index,
+                        multiplier);
                 FontProvider fontProvider = getOcrPdfCreatorProperties()
                         .getFontProvider();
                 String fontFamily = getOcrPdfCreatorProperties()
@@ -472,8 +974,10 @@ public class OcrPdfCreator {
                     final float lineWidth = PdfCreatorUtil.getRealLineWidth(document,
                             line, fontFamily, fontSize);
 
-                    final float xOffset = getXOffsetPt(item, multiplier);
-                    final float yOffset = getYOffsetPt(item, multiplier, imageSize);
+                    final float xOffset = getXOffsetPt(textInfos, index,
+                            multiplier);
+                    final float yOffset = getYOffsetPt(textInfos, index,
+                            multiplier, imageSize);
 
                     Canvas canvas = new Canvas(pdfCanvas, pageMediaBox);
                     canvas.setFontProvider(fontProvider);
@@ -535,44 +1039,44 @@ public class OcrPdfCreator {
     /**
      * Get left bound of text chunk.
      */
-    private static float getLeft(TextInfo textInfo, float multiplier) {
-        if (textInfo.getBboxRect() == null) {
-            return textInfo.getBbox().get(LEFT_IDX) * multiplier;
+    private static float getLeft(TextInfoList textInfos, int index, float multiplier) {
+        if (!textInfos.hasBboxRect(index)) {
+            return textInfos.getBboxCoordinate(index, LEFT_IDX) * multiplier;
         } else {
-            return textInfo.getBboxRect().getLeft() * multiplier;
+            return textInfos.getLeft(index) * multiplier;
         }
     }
 
     /**
      * Get right bound of text chunk.
      */
-    private static float getRight(TextInfo textInfo, float multiplier) {
-        if (textInfo.getBboxRect() == null) {
-            return (textInfo.getBbox().get(RIGHT_IDX) + 1) * multiplier - 1;
+    private static float getRight(TextInfoList textInfos, int index, float multiplier) {
+        if (!textInfos.hasBboxRect(index)) {
+            return (textInfos.getBboxCoordinate(index, RIGHT_IDX) + 1) * multiplier - 1;
         } else {
-            return (textInfo.getBboxRect().getRight() + 1) * multiplier - 1;
+            return (textInfos.getRight(index) + 1) * multiplier - 1;
         }
     }
 
     /**
      * Get top bound of text chunk.
      */
-    private static float getTop(TextInfo textInfo, float multiplier) {
-        if (textInfo.getBboxRect() == null) {
-            return textInfo.getBbox().get(TOP_IDX) * multiplier;
+    private static float getTop(TextInfoList textInfos, int index, float multiplier) {
+        if (!textInfos.hasBboxRect(index)) {
+            return textInfos.getBboxCoordinate(index, TOP_IDX) * multiplier;
         } else {
-            return textInfo.getBboxRect().getTop() * multiplier;
+            return textInfos.getTop(index) * multiplier;
         }
     }
 
     /**
      * Get bottom bound of text chunk.
      */
-    private static float getBottom(TextInfo textInfo, float multiplier) {
-        if (textInfo.getBboxRect() == null) {
-            return (textInfo.getBbox().get(BOTTOM_IDX) + 1) * multiplier - 1;
+    private static float getBottom(TextInfoList textInfos, int index, float multiplier) {
+        if (!textInfos.hasBboxRect(index)) {
+            return (textInfos.getBboxCoordinate(index, BOTTOM_IDX) + 1) * multiplier - 1;
         } else {
-            return (textInfo.getBboxRect().getBottom() + 1) * multiplier - 1;
+            return (textInfos.getBottom(index) + 1) * multiplier - 1;
         }
     }
 
@@ -586,46 +1090,46 @@ public class OcrPdfCreator {
     /**
      * Get width of text chunk in points.
      */
-    private static float getWidthPt(TextInfo textInfo, float multiplier) {
-        if (textInfo.getBboxRect() == null) {
+    private static float getWidthPt(TextInfoList textInfos, int index, float multiplier) {
+        if (!textInfos.hasBboxRect(index)) {
             return PdfCreatorUtil.getPoints(
-                    getRight(textInfo, multiplier) - getLeft(textInfo, multiplier));
+                    getRight(textInfos, index, multiplier) - getLeft(textInfos, index, multiplier));
         } else {
-            return getRight(textInfo, multiplier) - getLeft(textInfo, multiplier);
+            return getRight(textInfos, index, multiplier) - getLeft(textInfos, index, multiplier);
         }
     }
 
     /**
      * Get height of text chunk in points.
      */
-    private static float getHeightPt(TextInfo textInfo, float multiplier) {
-        if (textInfo.getBboxRect() == null) {
+    private static float getHeightPt(TextInfoList textInfos, int index, float multiplier) {
+        if (!textInfos.hasBboxRect(index)) {
             return PdfCreatorUtil.getPoints(
-                    getBottom(textInfo, multiplier) - getTop(textInfo, multiplier));
+                    getBottom(textInfos, index, multiplier) - getTop(textInfos, index, multiplier));
         } else {
-            return getTop(textInfo, multiplier) - getBottom(textInfo, multiplier);
+            return getTop(textInfos, index, multiplier) - getBottom(textInfos, index, multiplier);
         }
     }
 
     /**
      * Get horizontal text offset in points.
      */
-    private static float getXOffsetPt(TextInfo textInfo, float multiplier) {
-        if (textInfo.getBboxRect() == null) {
-            return PdfCreatorUtil.getPoints(getLeft(textInfo, multiplier));
+    private static float getXOffsetPt(TextInfoList textInfos, int index, float multiplier) {
+        if (!textInfos.hasBboxRect(index)) {
+            return PdfCreatorUtil.getPoints(getLeft(textInfos, index, multiplier));
         } else {
-            return getLeft(textInfo, multiplier);
+            return getLeft(textInfos, index, multiplier);
         }
     }
 
     /**
      * Get vertical text offset in points.
      */
-    private static float getYOffsetPt(TextInfo textInfo, float multiplier, Rectangle imageSize) {
-        if (textInfo.getBboxRect() == null) {
-            return imageSize.getHeight() - PdfCreatorUtil.getPoints(getBottom(textInfo, multiplier));
+    private static float getYOffsetPt(TextInfoList textInfos, int index, float multiplier, Rectangle imageSize) {
+        if (!textInfos.hasBboxRect(index)) {
+            return imageSize.getHeight() - PdfCreatorUtil.getPoints(getBottom(textInfos, index, multiplier));
         } else {
-            return getBottom(textInfo, multiplier);
+            return getBottom(textInfos, index, multiplier);
         }
     }
 
@@ -24,6 +24,8 @@ package com.itextpdf.pdfocr;
 
 import com.itextpdf.layout.font.FontProvider;
 
+import java.io.File;
+
 /**
  * Properties that will be used by the {@link OcrPdfCreator}.
  */
@@ -96,6 +98,50 @@ public class OcrPdfCreatorProperties {
      */
     private IImageRotationHandler imageRotationHandler;
 
+    /**
+     * Encoding of the images placed to the image layer.
+     * {@link ImageLayerEncoding#ORIGINAL} by default.
+     */
+    private ImageLayerEncoding imageLayerEncoding = ImageLayerEncoding.ORIGINAL;
+
+    /**
+     * Luminance threshold (0-255) used to binarize images
+     * for CCITT encoding: darker pixels become black.
+     * 128 by default.
+     */
+    private int binarizationThreshold = 128;
+
+    /**
+     * Maximum resolution (in dots per inch) of the images placed to the
+     * image layer. Images are not downsampled by default.
+     */
+    private int maxImageDpi = 0;
+
+    /**
+     * If true, colors of the images placed to the image layer are reduced
+     * when possible. False by default.
+     */
+    private boolean reducingImageColors = false;
+
+    /**
+     * If true, identical input images are recognized only once and
+     * identical page images are embedded only once. False by default.
+     */
+    private boolean reusingDuplicateImages = false;
+
+    /**
+     * Directory where OCR results are spilled while the document is being
+     * created, null if they are kept in memory.
+     */
+    private File resultSpillDirectory = null;
+
+    /**
+     * {@link ParallelPngEncoder} used to encode PNG images placed to the
+     * image layer. Encodes images in the calling thread by default, so
+     * properties instances don't own any threads.
+     */
+    private ParallelPngEncoder pngEncoder = new ParallelPngEncoder(1);
+
     /**
      * Creates a new {@link OcrPdfCreatorProperties} instance.
      */
@@ -120,6 +166,13 @@ public class OcrPdfCreatorProperties {
         this.fontProvider = other.fontProvider;
         this.defaultFontFamily = other.defaultFontFamily;
         this.imageRotationHandler = other.imageRotationHandler;
+        this.imageLayerEncoding = other.imageLayerEncoding;
+        this.binarizationThreshold = other.binarizationThreshold;
+        this.maxImageDpi = other.maxImageDpi;
+        this.reducingImageColors = other.reducingImageColors;
+        this.reusingDuplicateImages = other.reusingDuplicateImages;
+        this.resultSpillDirectory = other.resultSpillDirectory;
+        this.pngEncoder = other.pngEncoder;
     }
 
     /**
@@ -366,4 +419,185 @@ public class OcrPdfCreatorProperties {
         return this;
     }
 
+    /**
+     * Gets encoding of the images placed to the image layer.
+     *
+     * @return selected {@link ImageLayerEncoding}
+     */
+    public final ImageLayerEncoding getImageLayerEncoding() {
+        return imageLayerEncoding;
+    }
+
+    /**
+     * Sets encoding of the images placed to the image layer using
+     * available options from {@link ImageLayerEncoding} enumeration.
+     * CCITT encodings can significantly reduce the size of the
+     * output PDF document for black and white scans.
+     *
+     * @param imageLayerEncoding selected {@link ImageLayerEncoding}
+     * @return the {@link OcrPdfCreatorProperties} instance
+     */
+    public final OcrPdfCreatorProperties setImageLayerEncoding(
+            final ImageLayerEncoding imageLayerEncoding) {
+        this.imageLayerEncoding = imageLayerEncoding;
+        return this;
+    }
+
+    /**
+     * Gets luminance threshold used to binarize images.
+     *
+     * @return binarization threshold
+     */
+    public final int getBinarizationThreshold() {
+        return binarizationThreshold;
+    }
+
+    /**
+     * Sets luminance threshold (0-255) used to binarize images for
+     * CCITT encodings: pixels darker than the threshold become black.
+     *
+     * @param binarizationThreshold binarization threshold
+     * @return the {@link OcrPdfCreatorProperties} instance
+     */
+    public final OcrPdfCreatorProperties setBinarizationThreshold(
+            final int binarizationThreshold) {
+        this.binarizationThreshold = binarizationThreshold;
+        return this;
+    }
+
+    /**
+     * Gets maximum resolution of the images placed to the image layer.
+     *
+     * @return maximum resolution in dots per inch, 0 if images are not
+     * downsampled
+     */
+    public final int getMaxImageDpi() {
+        return maxImageDpi;
+    }
+
+    /**
+     * Sets maximum resolution (in dots per inch) of the images placed to
+     * the image layer. Images with higher resolution are downsampled
+     * after OCR, so recognition still uses the original images.
+     * Resolution from the image metadata is used if it is present,
+     * otherwise it is calculated from the size of the image on the page.
+     *
+     * @param maxImageDpi maximum resolution, 0 or negative value means
+     *                    that images are not downsampled
+     * @return the {@link OcrPdfCreatorProperties} instance
+     */
+    public final OcrPdfCreatorProperties setMaxImageDpi(
+            final int maxImageDpi) {
+        this.maxImageDpi = maxImageDpi;
+        return this;
+    }
+
+    /**
+     * Checks whether colors of the images placed to the image layer
+     * are reduced.
+     *
+     * @return true if colors are reduced
+     */
+    public final boolean isReducingImageColors() {
+        return reducingImageColors;
+    }
+
+    /**
+     * Sets whether colors of the images placed to the image layer are
+     * reduced: effectively gray color images are stored as grayscale ones
+     * and non-JPEG images with at most 256 colors are stored as palette
+     * images. Colors are reduced after OCR, so recognition still uses
+     * the original images.
+     *
+     * @param reducingImageColors true if colors should be reduced
+     * @return the {@link OcrPdfCreatorProperties} instance
+     */
+    public final OcrPdfCreatorProperties setReducingImageColors(
+            final boolean reducingImageColors) {
+        this.reducingImageColors = reducingImageColors;
+        return this;
+    }
+
+    /**
+     * Checks whether duplicate images are reused.
+     *
+     * @return true if duplicate images are reused
+     */
+    public final boolean isReusingDuplicateImages() {
+        return reusingDuplicateImages;
+    }
+
+    /**
+     * Sets whether duplicate images are reused. If true, an input image
+     * whose content is identical to an earlier input image of the same
+     * document isn't recognized again, OCR result of the earlier image is
+     * used instead, and identical page images are embedded to the output
+     * document as one shared image XObject. Only input images of the same
+     * size are compared, so unique images are not read once more. False by
+     * default.
+     *
+     * @param reusingDuplicateImages true if duplicate images should be
+     *                               reused
+     * @return the {@link OcrPdfCreatorProperties} instance
+     */
+    public final OcrPdfCreatorProperties setReusingDuplicateImages(
+            final boolean reusingDuplicateImages) {
+        this.reusingDuplicateImages = reusingDuplicateImages;
+        return this;
+    }
+
+    /**
+     * Gets directory where OCR results are spilled while the document is
+     * being created.
+     *
+     * @return spill directory, null if OCR results are kept in memory
+     */
+    public final File getResultSpillDirectory() {
+        return resultSpillDirectory;
+    }
+
+    /**
+     * Sets directory where OCR results are spilled while the document is
+     * being created. If it is set, text recognized in each input image is
+     * written to a temporary memory-mapped file in this directory by
+     * {@link OcrResultSpillStore} and is read back page by page when the
+     * document is assembled, so heap usage doesn't grow with the number
+     * of pages. The file is deleted when the document is created. Null by
+     * default, meaning that all OCR results are kept in memory.
+     *
+     * @param resultSpillDirectory spill directory or null
+     * @return the {@link OcrPdfCreatorProperties} instance
+     */
+    public final OcrPdfCreatorProperties setResultSpillDirectory(
+            final File resultSpillDirectory) {
+        this.resultSpillDirectory = resultSpillDirectory;
+        return this;
+    }
+
+    /**
+     * Gets {@link ParallelPngEncoder} used to encode PNG images placed to
+     * the image layer.
+     *
+     * @return {@link ParallelPngEncoder}
+     */
+    public final ParallelPngEncoder getPngEncoder() {
+        return pngEncoder;
+    }
+
+    /**
+     * Sets {@link ParallelPngEncoder} used to encode PNG images placed to
+     * the image layer, e.g. to encode large images concurrently or to
+     * change the compression level. By default images are encoded in the
+     * calling thread with the default compression level. The encoder may be
+     * shared between properties instances, so one instance created with
+     * the required number of threads is enough for the whole application.
+     *
+     * @param pngEncoder {@link ParallelPngEncoder} to be used
+     * @return the {@link OcrPdfCreatorProperties} instance
+     */
+    public final OcrPdfCreatorProperties setPngEncoder(
+            final ParallelPngEncoder pngEncoder) {
+        this.pngEncoder = pngEncoder;
+        return this;
+    }
 }
@@ -0,0 +1,182 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr;
+
+/**
+ * Constants and helpers of the binary OCR result format shared by
+ * {@link OcrResultWriter} and {@link OcrResultReader}.
+ *
+ * The result starts with {@link #MAGIC} followed by the format version
+ * byte. Then pages follow, each one starts with {@link #PAGE_TAG}, page
+ * number and number of text chunks, the result ends with {@link #END_TAG}.
+ * Each text chunk consists of a flags byte, a reference to the string
+ * table, optional confidence, optional bbox {@link
+ * com.itextpdf.kernel.geom.Rectangle} and optional legacy bbox list.
+ * Integers are written as unsigned LEB128 varints, signed ones are
+ * zigzag encoded first. Coordinates are written as fixed point varints
+ * with the smallest scale which represents all four coordinates exactly,
+ * or as raw floats if there is no such scale.
+ */
+final class OcrResultFormat {
+
+    /**
+     * Bytes which start every serialized result.
+     */
+    static final byte[] MAGIC = {'O', 'C', 'R', 'B'};
+
+    /**
+     * Current version of the format.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * Tag which ends the result.
+     */
+    static final int END_TAG = 0;
+
+    /**
+     * Tag which starts a page.
+     */
+    static final int PAGE_TAG = 1;
+
+    /**
+     * String reference of null text.
+     */
+    static final int NULL_STRING = 0;
+
+    /**
+     * String reference of text which is written inline and added to the
+     * string table.
+     */
+    static final int NEW_STRING = 1;
+
+    /**
+     * Offset of the string table indices in string references.
+     */
+    static final int STRING_INDEX_OFFSET = 2;
+
+    /**
+     * Maximum number of strings in the string table, later strings are
+     * always written inline.
+     */
+    static final int MAX_STRING_TABLE_SIZE = 1 << 16;
+
+    /**
+     * Flag of text chunks which have bbox rectangle.
+     */
+    static final int HAS_RECT = 1;
+
+    /**
+     * Flag of text chunks which have legacy bbox list.
+     */
+    static final int HAS_BBOX = 1 << 1;
+
+    /**
+     * Flag of text chunks whose confidence is known.
+     */
+    static final int HAS_CONFIDENCE = 1 << 2;
+
+    /**
+     * Flag of text chunks whose confidence is a raw float, otherwise it is
+     * an unsigned varint.
+     */
+    static final int RAW_CONFIDENCE = 1 << 3;
+
+    /**
+     * Shift of the bbox rectangle scale index in the flags byte.
+     */
+    static final int RECT_SCALE_SHIFT = 4;
+
+    /**
+     * Shift of the legacy bbox list scale index in the flags byte.
+     */
+    static final int BBOX_SCALE_SHIFT = 6;
+
+    /**
+     * Mask of the scale index.
+     */
+    static final int SCALE_MASK = 3;
+
+    /**
+     * Fixed point scales which may be used for coordinates, raw floats
+     * are written for the index equal to the length of the array.
+     * Quarters cover point coordinates converted from pixels.
+     */
+    static final int[] SCALES = {1, 4, 256};
+
+    /**
+     * Creates new instance of {@link OcrResultFormat}.
+     */
+    private OcrResultFormat() {
+    }
+
+    /**
+     * Finds the smallest scale which represents all the values exactly.
+     *
+     * @param values coordinates
+     * @param count number of coordinates to check
+     * @return index of the scale in {@link #SCALES} or length of the array
+     * if values should be written as raw floats
+     */
+    static int getScaleIndex(final float[] values, final int count) {
+        for (int i = 0; i < SCALES.length; ++i) {
+            boolean exact = true;
+            for (int j = 0; j < count && exact; ++j) {
+                exact = isExact(values[j], SCALES[i]);
+            }
+            if (exact) {
+                return i;
+            }
+        }
+        return SCALES.length;
+    }
+
+    /**
+     * Checks if the value is represented exactly by the fixed point value
+     * with given scale.
+     *
+     * @param value coordinate
+     * @param scale fixed point scale
+     * @return true if the value is exact
+     */
+    static boolean isExact(final float value, final int scale) {
+        if (Float.isNaN(value) || Float.isInfinite(value)
+                || Math.abs(value) * scale > Integer.MAX_VALUE) {
+            return false;
+        }
+        final long fixed = Math.round((double) value * scale);
+        return Float.floatToIntBits(fromFixed(fixed, scale))
+                == Float.floatToIntBits(value);
+    }
+
+    /**
+     * Converts fixed point value to float.
+     *
+     * @param fixed fixed point value
+     * @param scale fixed point scale
+     * @return float value
+     */
+    static float fromFixed(final long fixed, final int scale) {
+        return (float) ((double) fixed / scale);
+    }
+}
@@ -0,0 +1,361 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr;
+
+import com.itextpdf.kernel.geom.Rectangle;
+
+import java.io.ByteArrayInputStream;
+import java.io.Closeable;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.AbstractMap;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Reads OCR results written by {@link OcrResultWriter}.
+ *
+ * Results are read page by page, so large results don't need to be kept
+ * in memory at once. The reader reads the stream byte by byte, so a
+ * buffered stream should be passed to it. Malformed results cause
+ * {@link OcrException}.
+ */
+public class OcrResultReader implements Closeable {
+
+    /**
+     * Number of bytes of the text which are allocated at once, so that
+     * corrupted text length cannot cause allocation of a huge array.
+     */
+    private static final int STRING_CHUNK_SIZE = 8192;
+
+    /**
+     * Stream the result is read from.
+     */
+    private final InputStream in;
+
+    /**
+     * String table: index -> text.
+     */
+    private final List<String> strings = new ArrayList<String>();
+
+    /**
+     * True if the end of the result is already read.
+     */
+    private boolean finished;
+
+    /**
+     * Creates a new {@link OcrResultReader} instance and reads the header
+     * of the result.
+     *
+     * @param in {@link java.io.InputStream} to read result from
+     * @throws IOException if the header cannot be read
+     */
+    public OcrResultReader(final InputStream in) throws IOException {
+        this.in = in;
+        for (byte b : OcrResultFormat.MAGIC) {
+            if (readByte() != (b & 0xff)) {
+                throw createException("invalid header");
+            }
+        }
+        final int version = readByte();
+        if (version != OcrResultFormat.VERSION) {
+            throw createException("unsupported format version " + version);
+        }
+    }
+
+    /**
+     * Deserializes OCR result from byte array.
+     *
+     * @param bytes serialized result
+     * @return {@link java.util.Map} where key is {@link java.lang.Integer}
+     * representing the number of the page and value is
+     * {@link java.util.List} of {@link TextInfo} elements
+     */
+    public static Map<Integer, List<TextInfo>> read(final byte[] bytes) {
+        try (OcrResultReader reader = new OcrResultReader(
+                new ByteArrayInputStream(bytes))) {
+            return reader.readAll();
+        } catch (EOFException e) {
+            throw createException("unexpected end of data");
+        } catch (IOException e) {
+            // cannot happen for in-memory streams
+            throw new OcrException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Reads all remaining pages of the OCR result.
+     *
+     * @return {@link java.util.Map} where key is {@link java.lang.Integer}
+     * representing the number of the page and value is
+     * {@link java.util.List} of {@link TextInfo} elements
+     * @throws IOException if result cannot be read
+     */
+    public Map<Integer, List<TextInfo>> readAll() throws IOException {
+        final Map<Integer, List<TextInfo>> result =
+                new LinkedHashMap<Integer, List<TextInfo>>();
+        Map.Entry<Integer, List<TextInfo>> page = readPage();
+        while (page != null) {
+            result.put(page.getKey(), page.getValue());
+            page = readPage();
+        }
+        return result;
+    }
+
+    /**
+     * Reads the next page of the OCR result.
+     *
+     * @return {@link java.util.Map.Entry} where key is the number of the
+     * page and value is {@link java.util.List} of {@link TextInfo}
+     * elements, null if there are no more pages
+     * @throws IOException if page cannot be read
+     */
+    public Map.Entry<Integer, List<TextInfo>> readPage() throws IOException {
+        if (finished) {
+            return null;
+        }
+        final int tag = readByte();
+        if (tag == OcrResultFormat.END_TAG) {
+            finished = true;
+            return null;
+        } else if (tag != OcrResultFormat.PAGE_TAG) {
+            throw createException("unknown tag " + tag);
+        }
+        final int page = readSignedVarint();
+        final int count = readVarint();
+        if (count < 0) {
+            throw createException("invalid number of text chunks " + count);
+        }
+        // count isn't trusted for preallocation
+        final TextInfoList textInfos =
+                new TextInfoList(Math.min(count, 1024));
+        for (int i = 0; i < count; ++i) {
+            readTextInfo(textInfos);
+        }
+        return new AbstractMap.SimpleImmutableEntry<Integer, List<TextInfo>>(
+                page, textInfos);
+    }
+
+    /**
+     * Closes the stream.
+     *
+     * @throws IOException if the stream cannot be closed
+     */
+    @Override
+    public void close() throws IOException {
+        in.close();
+    }
+
+    /**
+     * Reads a single text chunk and adds it to the list. Text chunks with
+     * bbox rectangle are added as primitives.
+     *
+     * @param textInfos {@link TextInfoList} to add text chunk to
+     * @throws IOException if text chunk cannot be read
+     */
+    @SuppressWarnings("deprecation")
+    private void readTextInfo(final TextInfoList textInfos)
+            throws IOException {
+        final int flags = readByte();
+        final String text = readString();
+        float confidence = TextInfo.UNKNOWN_CONFIDENCE;
+        if ((flags & OcrResultFormat.HAS_CONFIDENCE) != 0) {
+            confidence = (flags & OcrResultFormat.RAW_CONFIDENCE) != 0
+                    ? readFloat() : readVarint();
+        }
+        final boolean hasRect = (flags & OcrResultFormat.HAS_RECT) != 0;
+        final float[] rect = new float[4];
+        if (hasRect) {
+            final int scaleIndex = (flags >> OcrResultFormat.RECT_SCALE_SHIFT)
+                    & OcrResultFormat.SCALE_MASK;
+            for (int i = 0; i < rect.length; ++i) {
+                rect[i] = readCoordinate(scaleIndex);
+            }
+        }
+        List<Float> bbox = null;
+        if ((flags & OcrResultFormat.HAS_BBOX) != 0) {
+            final int scaleIndex = (flags >> OcrResultFormat.BBOX_SCALE_SHIFT)
+                    & OcrResultFormat.SCALE_MASK;
+            final int size = readVarint();
+            if (size < 0) {
+                throw createException("invalid bbox size " + size);
+            }
+            bbox = new ArrayList<Float>(Math.min(size, 4));
+            for (int i = 0; i < size; ++i) {
+                bbox.add(readCoordinate(scaleIndex));
+            }
+        }
+        if (hasRect && (bbox == null || bbox.size() == 4)) {
+            final int index = textInfos.add(text, rect[0], rect[1], rect[2],
+                    rect[3], confidence);
+            if (bbox != null) {
+                textInfos.setBbox(index, bbox.get(0), bbox.get(1),
+                        bbox.get(2), bbox.get(3));
+            }
+            return;
+        }
+        final TextInfo textInfo;
+        if (hasRect) {
+            textInfo = new TextInfo(text,
+                    new Rectangle(rect[0], rect[1], rect[2], rect[3]), bbox);
+        } else {
+            textInfo = new TextInfo();
+            textInfo.setText(text);
+            if (bbox != null) {
+                textInfo.setBbox(bbox);
+            }
+        }
+        textInfo.setConfidence(confidence);
+        textInfos.add(textInfo);
+    }
+
+    /**
+     * Reads text written as a reference to the string table.
+     *
+     * @return read text
+     * @throws IOException if text cannot be read
+     */
+    private String readString() throws IOException {
+        final int reference = readVarint();
+        if (reference == OcrResultFormat.NULL_STRING) {
+            return null;
+        } else if (reference == OcrResultFormat.NEW_STRING) {
+            final int length = readVarint();
+            if (length < 0) {
+                throw createException("invalid text length " + length);
+            }
+            // length isn't trusted for preallocation, the buffer grows
+            // while the text is actually read
+            byte[] bytes = new byte[Math.min(length, STRING_CHUNK_SIZE)];
+            int read = 0;
+            while (read < length) {
+                if (read == bytes.length) {
+                    bytes = Arrays.copyOf(bytes, (int) Math.min(length,
+                            (long) bytes.length + Math.max(bytes.length,
+                                    STRING_CHUNK_SIZE)));
+                }
+                final int n = in.read(bytes, read, bytes.length - read);
+                if (n < 0) {
+                    throw new EOFException();
+                }
+                read += n;
+            }
+            final String text = new String(bytes, StandardCharsets.UTF_8);
+            if (strings.size() < OcrResultFormat.MAX_STRING_TABLE_SIZE) {
+                strings.add(text);
+            }
+            return text;
+        }
+        final int index = reference - OcrResultFormat.STRING_INDEX_OFFSET;
+        if (index < 0 || index >= strings.size()) {
+            throw createException("invalid string reference " + reference);
+        }
+        return strings.get(index);
+    }
+
+    /**
+     * Reads coordinate with given scale.
+     *
+     * @param scaleIndex index of the scale in
+     * {@link OcrResultFormat#SCALES}
+     * @return read coordinate
+     * @throws IOException if coordinate cannot be read
+     */
+    private float readCoordinate(final int scaleIndex) throws IOException {
+        if (scaleIndex < OcrResultFormat.SCALES.length) {
+            return OcrResultFormat.fromFixed(readSignedVarint(),
+                    OcrResultFormat.SCALES[scaleIndex]);
+        }
+        return readFloat();
+    }
+
+    /**
+     * Reads float written as 4 big-endian bytes.
+     *
+     * @return read float
+     * @throws IOException if value cannot be read
+     */
+    private float readFloat() throws IOException {
+        return Float.intBitsToFloat((readByte() << 24) | (readByte() << 16)
+                | (readByte() << 8) | readByte());
+    }
+
+    /**
+     * Reads zigzag encoded signed varint.
+     *
+     * @return read integer
+     * @throws IOException if value cannot be read
+     */
+    private int readSignedVarint() throws IOException {
+        final int value = readVarint();
+        return (value >>> 1) ^ -(value & 1);
+    }
+
+    /**
+     * Reads unsigned LEB128 varint.
+     *
+     * @return read integer
+     * @throws IOException if value cannot be read
+     */
+    private int readVarint() throws IOException {
+        int value = 0;
+        for (int shift = 0; shift < 35; shift += 7) {
+            final int b = readByte();
+            value |= (b & 0x7f) << shift;
+            if ((b & 0x80) == 0) {
+                return value;
+            }
+        }
+        throw createException("invalid varint");
+    }
+
+    /**
+     * Reads single byte.
+     *
+     * @return read byte in range 0-255
+     * @throws IOException if byte cannot be read
+     */
+    private int readByte() throws IOException {
+        final int b = in.read();
+        if (b < 0) {
+            throw new EOFException();
+        }
+        return b;
+    }
+
+    /**
+     * Creates exception about malformed result.
+     *
+     * @param reason description of the problem
+     * @return {@link OcrException} to throw
+     */
+    private static OcrException createException(final String reason) {
+        return new OcrException(OcrException.CANNOT_READ_OCR_RESULT)
+                .setMessageParams(reason);
+    }
+}
@@ -0,0 +1,695 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr;
+
+import com.itextpdf.io.util.MessageFormatUtil;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.AbstractMap;
+import java.util.AbstractSet;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Off-heap store of OCR results of large documents.
+ *
+ * Spilled pages are appended to a temporary file in columnar form:
+ * flags, confidences, bbox rectangles, legacy bboxes and texts of all the
+ * text chunks of a page are stored one column after another. The file is
+ * memory-mapped for reading, and pages are returned as
+ * {@link TextInfoList}s which are decoded on each request and aren't kept
+ * by the store, so heap usage doesn't depend on the number of spilled
+ * pages.
+ *
+ * The temporary file is deleted when the store is closed. Mapped regions
+ * are released by the garbage collector, so on some platforms the file is
+ * deleted only on exit of the application.
+ */
+public class OcrResultSpillStore implements Closeable {
+
+    /**
+     * Default maximum size of a single mapped region of the file.
+     */
+    private static final long DEFAULT_REGION_SIZE = 64L * 1024 * 1024;
+
+    /**
+     * Number of coordinates of a single bbox.
+     */
+    private static final int COORDINATES = 4;
+
+    /**
+     * Size of the page segment header: segment size, number of text
+     * chunks and size of the text column.
+     */
+    private static final int HEADER_SIZE = 12;
+
+    /**
+     * Flag of text chunks which have bbox rectangle.
+     */
+    private static final byte HAS_RECT = 1;
+
+    /**
+     * Flag of text chunks which have legacy bbox.
+     */
+    private static final byte HAS_BBOX = 1 << 1;
+
+    /**
+     * Flag of text chunks whose text is null.
+     */
+    private static final byte NULL_TEXT = 1 << 2;
+
+    /**
+     * The temporary file.
+     */
+    private final File file;
+
+    /**
+     * Maximum size of a single mapped region of the file.
+     */
+    private final long regionSize;
+
+    /**
+     * Channel of the temporary file.
+     */
+    private final FileChannel channel;
+
+    /**
+     * Mapped regions of the file, null elements are not mapped yet.
+     */
+    private final List<MappedByteBuffer> regions =
+            new ArrayList<MappedByteBuffer>();
+
+    /**
+     * Size of the written data.
+     */
+    private long size;
+
+    /**
+     * True if the store is closed.
+     */
+    private boolean closed;
+
+    /**
+     * Creates a new {@link OcrResultSpillStore} with a temporary file in
+     * the given directory.
+     *
+     * @param directory directory of the temporary file, it is created if
+     *                  it doesn't exist, null for the default temporary
+     *                  directory
+     * @throws IOException if the temporary file cannot be created
+     */
+    public OcrResultSpillStore(final File directory) throws IOException {
+        this(directory, DEFAULT_REGION_SIZE);
+    }
+
+    /**
+     * Creates a new {@link OcrResultSpillStore} with a temporary file in
+     * the given directory.
+     *
+     * @param directory directory of the temporary file, null for the
+     *                  default temporary directory
+     * @param regionSize maximum size of a single mapped region
+     * @throws IOException if the temporary file cannot be created
+     */
+    OcrResultSpillStore(final File directory, final long regionSize)
+            throws IOException {
+        this.regionSize = regionSize;
+        if (directory != null) {
+            Files.createDirectories(directory.toPath());
+        }
+        this.file = File.createTempFile("pdfocr", ".spill", directory);
+        RandomAccessFile randomAccessFile = null;
+        try {
+            randomAccessFile = new RandomAccessFile(file, "rw");
+            this.channel = randomAccessFile.getChannel();
+        } catch (IOException e) {
+            if (randomAccessFile != null) {
+                randomAccessFile.close();
+            }
+            deleteFile();
+            throw e;
+        }
+    }
+
+    /**
+     * Spills all pages of the OCR result.
+     *
+     * @param result {@link java.util.Map} where key is
+     *               {@link java.lang.Integer} representing the number of
+     *               the page and value is {@link java.util.List} of
+     *               {@link TextInfo} elements
+     * @return {@link java.util.Map} with the same pages whose text chunks
+     * are read from the store on each request, see {@link #createResult()}.
+     * Results already created by this store are returned as is.
+     * @throws IOException if result cannot be written
+     */
+    public synchronized Map<Integer, List<TextInfo>> spill(
+            final Map<Integer, List<TextInfo>> result) throws IOException {
+        if (result instanceof SpilledResult
+                && ((SpilledResult) result).isCreatedBy(this)) {
+            return result;
+        }
+        final Map<Integer, Object> pages = new LinkedHashMap<Integer, Object>();
+        for (Map.Entry<Integer, List<TextInfo>> page : result.entrySet()) {
+            pages.put(page.getKey(), toSpilledPage(page.getValue()));
+        }
+        return new SpilledResult(pages);
+    }
+
+    /**
+     * Creates an empty OCR result which spills each page once it's put to
+     * the result, so that pages can be spilled while they are being
+     * recognized. Text chunks of the pages are read from the store on each
+     * request. Pages which have legacy bboxes of unusual size or which
+     * cannot be written are kept in memory.
+     *
+     * @return empty {@link java.util.Map} where key is
+     * {@link java.lang.Integer} representing the number of the page and
+     * value is {@link java.util.List} of {@link TextInfo} elements
+     */
+    public Map<Integer, List<TextInfo>> createResult() {
+        return new SpilledResult(new LinkedHashMap<Integer, Object>());
+    }
+
+    /**
+     * Gets size of the spilled data.
+     *
+     * @return size in bytes
+     */
+    public synchronized long getSize() {
+        return size;
+    }
+
+    /**
+     * Closes the store and deletes the temporary file. Results returned
+     * by {@link #spill(Map)} cannot be read after that.
+     *
+     * @throws IOException if the file cannot be closed
+     */
+    @Override
+    public synchronized void close() throws IOException {
+        if (closed) {
+            return;
+        }
+        closed = true;
+        regions.clear();
+        try {
+            channel.close();
+        } finally {
+            deleteFile();
+        }
+    }
+
+    /**
+     * Reads page from the store.
+     *
+     * @param offset offset of the page segment
+     * @return {@link TextInfoList} of the page
+     */
+    synchronized TextInfoList read(final long offset) {
+        if (closed) {
+            throw new OcrException(OcrException.CANNOT_READ_OCR_RESULT)
+                    .setMessageParams("spill store is closed");
+        }
+        try {
+            final ByteBuffer buffer = map(offset);
+            final int count = buffer.getInt(buffer.position() + 4);
+            final int textSize = buffer.getInt(buffer.position() + 8);
+            int position = buffer.position() + HEADER_SIZE;
+            final byte[] flags = new byte[count];
+            getBytes(buffer, position, flags);
+            position += align(count);
+            final float[] confidences = new float[count];
+            final float[] rects = new float[count * COORDINATES];
+            final float[] bboxes = new float[count * COORDINATES];
+            final int[] textEnds = new int[count];
+            position = getFloats(buffer, position, confidences);
+            position = getFloats(buffer, position, rects);
+            position = getFloats(buffer, position, bboxes);
+            for (int i = 0; i < count; ++i) {
+                textEnds[i] = buffer.getInt(position);
+                position += 4;
+            }
+            final byte[] texts = new byte[textSize];
+            getBytes(buffer, position, texts);
+
+            final TextInfoList textInfos = new TextInfoList(count);
+            int textStart = 0;
+            for (int i = 0; i < count; ++i) {
+                final String text = (flags[i] & NULL_TEXT) != 0 ? null
+                        : new String(texts, textStart,
+                                textEnds[i] - textStart,
+                                StandardCharsets.UTF_8);
+                textStart = textEnds[i];
+                final int c = i * COORDINATES;
+                if ((flags[i] & HAS_RECT) != 0) {
+                    final int index = textInfos.add(text, rects[c],
+                            rects[c + 1], rects[c + 2], rects[c + 3],
+                            confidences[i]);
+                    if ((flags[i] & HAS_BBOX) != 0) {
+                        textInfos.setBbox(index, bboxes[c], bboxes[c + 1],
+                                bboxes[c + 2], bboxes[c + 3]);
+                    }
+                } else {
+                    textInfos.add(createTextInfo(text, flags[i], bboxes, c,
+                            confidences[i]));
+                }
+            }
+            return textInfos;
+        } catch (IOException e) {
+            throw new OcrException(OcrException.CANNOT_READ_OCR_RESULT, e)
+                    .setMessageParams(e.getMessage());
+        }
+    }
+
+    /**
+     * Writes page to the store unless it has to be kept in memory.
+     *
+     * @param textInfos text chunks of the page
+     * @return offset of the page segment as {@link Long} or the original
+     * text chunks if they are kept in memory
+     * @throws IOException if page cannot be written
+     */
+    private synchronized Object toSpilledPage(final List<TextInfo> textInfos)
+            throws IOException {
+        final TextInfoList textInfoList = toTextInfoList(textInfos);
+        if (isRegular(textInfoList)) {
+            return Long.valueOf(write(textInfoList));
+        }
+        return textInfos;
+    }
+
+    /**
+     * Writes page segment to the end of the file.
+     *
+     * @param textInfos text chunks of the page
+     * @return offset of the page segment
+     * @throws IOException if page cannot be written
+     */
+    private long write(final TextInfoList textInfos) throws IOException {
+        if (closed) {
+            throw new IOException("Spill store is closed");
+        }
+        final int count = textInfos.size();
+        final byte[][] texts = new byte[count][];
+        int textSize = 0;
+        for (int i = 0; i < count; ++i) {
+            final String text = textInfos.getText(i);
+            texts[i] = text == null ? null
+                    : text.getBytes(StandardCharsets.UTF_8);
+            textSize += texts[i] == null ? 0 : texts[i].length;
+        }
+        final long segmentSize = (long) HEADER_SIZE + align(count)
+                + 4L * count * (1 + 2 * COORDINATES + 1) + textSize;
+        if (segmentSize > Integer.MAX_VALUE) {
+            throw new IOException("Page is too large to be spilled");
+        }
+        final ByteBuffer buffer = ByteBuffer.allocate((int) segmentSize);
+        buffer.putInt((int) segmentSize).putInt(count).putInt(textSize);
+        final float[] rect = new float[COORDINATES];
+        for (int i = 0; i < count; ++i) {
+            byte flags = 0;
+            if (textInfos.hasBboxRect(i)) {
+                flags |= HAS_RECT;
+            }
+            if (textInfos.hasBbox(i)) {
+                flags |= HAS_BBOX;
+            }
+            if (texts[i] == null) {
+                flags |= NULL_TEXT;
+            }
+            buffer.put(flags);
+        }
+        buffer.position(HEADER_SIZE + align(count));
+        for (int i = 0; i < count; ++i) {
+            buffer.putFloat(textInfos.getConfidence(i));
+        }
+        for (int i = 0; i < count; ++i) {
+            if (textInfos.hasBboxRect(i)) {
+                textInfos.getRect(i, rect);
+            } else {
+                Arrays.fill(rect, 0);
+            }
+            for (float coordinate : rect) {
+                buffer.putFloat(coordinate);
+            }
+        }
+        for (int i = 0; i < count; ++i) {
+            final boolean hasBbox = textInfos.hasBbox(i);
+            for (int j = 0; j < COORDINATES; ++j) {
+                buffer.putFloat(hasBbox
+                        ? textInfos.getBboxCoordinate(i, j) : 0);
+            }
+        }
+        int textEnd = 0;
+        for (int i = 0; i < count; ++i) {
+            textEnd += texts[i] == null ? 0 : texts[i].length;
+            buffer.putInt(textEnd);
+        }
+        for (byte[] text : texts) {
+            if (text != null) {
+                buffer.put(text);
+            }
+        }
+        buffer.flip();
+        final long offset = size;
+        while (buffer.hasRemaining()) {
+            channel.write(buffer, offset + buffer.position());
+        }
+        size += segmentSize;
+        return offset;
+    }
+
+    /**
+     * Gets buffer positioned at the page segment. Segments within one
+     * region are read from the mapped region, other segments are mapped
+     * separately.
+     *
+     * @param offset offset of the page segment
+     * @return {@link java.nio.ByteBuffer} positioned at the segment
+     * @throws IOException if the file cannot be mapped
+     */
+    private ByteBuffer map(final long offset) throws IOException {
+        final int regionIndex = (int) (offset / regionSize);
+        final long regionStart = regionIndex * regionSize;
+        final long regionEnd = Math.min(regionStart + regionSize, size);
+        while (regions.size() <= regionIndex) {
+            regions.add(null);
+        }
+        MappedByteBuffer region = regions.get(regionIndex);
+        // regions are remapped when pages are appended after mapping
+        if (region == null || region.capacity() < regionEnd - regionStart) {
+            region = channel.map(FileChannel.MapMode.READ_ONLY, regionStart,
+                    regionEnd - regionStart);
+            regions.set(regionIndex, region);
+        }
+        final int position = (int) (offset - regionStart);
+        final int segmentSize;
+        if (position + 4 <= region.capacity()) {
+            segmentSize = region.getInt(position);
+        } else {
+            // segment size itself crosses the region boundary
+            final ByteBuffer sizeBuffer = ByteBuffer.allocate(4);
+            while (sizeBuffer.hasRemaining()) {
+                if (channel.read(sizeBuffer,
+                        offset + sizeBuffer.position()) < 0) {
+                    throw new IOException("Unexpected end of spill file");
+                }
+            }
+            segmentSize = sizeBuffer.getInt(0);
+        }
+        if (position + (long) segmentSize <= region.capacity()) {
+            final ByteBuffer buffer = region.duplicate();
+            buffer.position(position);
+            return buffer;
+        }
+        // segment crosses the region boundary
+        return channel.map(FileChannel.MapMode.READ_ONLY, offset,
+                segmentSize);
+    }
+
+    /**
+     * Deletes the temporary file or schedules its deletion on exit if it
+     * is still mapped.
+     */
+    private void deleteFile() {
+        if (!file.delete() && file.exists()) {
+            file.deleteOnExit();
+        }
+    }
+
+    /**
+     * Converts list of text chunks to {@link TextInfoList} without copying
+     * if possible.
+     *
+     * @param textInfos text chunks of the page, may be null
+     * @return {@link TextInfoList} with the same text chunks
+     */
+    private static TextInfoList toTextInfoList(final List<TextInfo> textInfos) {
+        if (textInfos == null) {
+            return new TextInfoList(1);
+        } else if (textInfos instanceof TextInfoList) {
+            return (TextInfoList) textInfos;
+        }
+        final TextInfoList list = new TextInfoList(textInfos.size());
+        list.addAll(textInfos);
+        return list;
+    }
+
+    /**
+     * Checks if all text chunks can be stored in columns.
+     *
+     * @param textInfos text chunks of the page
+     * @return true if all text chunks are regular
+     */
+    private static boolean isRegular(final TextInfoList textInfos) {
+        for (int i = 0; i < textInfos.size(); ++i) {
+            if (!textInfos.isRegular(i)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Creates {@link TextInfo} of the text chunk without bbox rectangle.
+     *
+     * @param text text of the text chunk
+     * @param flags flags of the text chunk
+     * @param bboxes legacy bbox column
+     * @param offset offset of the text chunk in the column
+     * @param confidence confidence of the text chunk
+     * @return {@link TextInfo}
+     */
+    @SuppressWarnings("deprecation")
+    private static TextInfo createTextInfo(final String text, final byte flags,
+            final float[] bboxes, final int offset, final float confidence) {
+        final TextInfo textInfo = new TextInfo();
+        textInfo.setText(text);
+        if ((flags & HAS_BBOX) != 0) {
+            final List<Float> bbox = new ArrayList<Float>(COORDINATES);
+            for (int i = 0; i < COORDINATES; ++i) {
+                bbox.add(bboxes[offset + i]);
+            }
+            textInfo.setBbox(bbox);
+        }
+        textInfo.setConfidence(confidence);
+        return textInfo;
+    }
+
+    /**
+     * Rounds number of bytes up to a multiple of 4, so float columns
+     * are aligned.
+     *
+     * @param length number of bytes
+     * @return aligned number of bytes
+     */
+    private static int align(final int length) {
+        return (length + 3) & ~3;
+    }
+
+    /**
+     * Reads bytes at the given position of the buffer.
+     *
+     * @param buffer source buffer
+     * @param position position of the first byte
+     * @param target array to fill
+     */
+    private static void getBytes(final ByteBuffer buffer, final int position,
+            final byte[] target) {
+        final ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(position);
+        duplicate.get(target);
+    }
+
+    /**
+     * Reads float column at the given position of the buffer.
+     *
+     * @param buffer source buffer
+     * @param position position of the column
+     * @param target array to fill
+     * @return position after the column
+     */
+    private static int getFloats(final ByteBuffer buffer, final int position,
+            final float[] target) {
+        final ByteBuffer duplicate = buffer.duplicate();
+        duplicate.position(position);
+        duplicate.asFloatBuffer().get(target);
+        return position + 4 * target.length;
+    }
+
+    /**
+     * OCR result whose pages are read from the store. Pages are spilled
+     * once they are put to the result, other modifications aren't
+     * supported.
+     */
+    private final class SpilledResult
+            extends AbstractMap<Integer, List<TextInfo>> {
+
+        /**
+         * Page number -> offset of the page segment as {@link Long} or
+         * page text chunks kept in memory.
+         */
+        private final Map<Integer, Object> pages;
+
+        /**
+         * Creates a new {@link SpilledResult} instance.
+         *
+         * @param pages page number -> page offset or text chunks
+         */
+        SpilledResult(final Map<Integer, Object> pages) {
+            this.pages = pages;
+        }
+
+        /**
+         * Checks if the result was created by the given store.
+         *
+         * @param store {@link OcrResultSpillStore} to check
+         * @return true if pages of the result are read from the store
+         */
+        boolean isCreatedBy(final OcrResultSpillStore store) {
+            return OcrResultSpillStore.this == store;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public boolean containsKey(final Object key) {
+            return pages.containsKey(key);
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Set<Integer> keySet() {
+            return Collections.unmodifiableSet(pages.keySet());
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public int size() {
+            return pages.size();
+        }
+
+        /**
+         * Gets text chunks of the page, spilled pages are read from the
+         * store.
+         *
+         * @param key page number
+         * @return {@link java.util.List} of {@link TextInfo} elements or
+         * null if there is no such page
+         */
+        @Override
+        @SuppressWarnings("unchecked")
+        public List<TextInfo> get(final Object key) {
+            final Object page = pages.get(key);
+            if (page instanceof Long) {
+                return read(((Long) page).longValue());
+            }
+            return (List<TextInfo>) page;
+        }
+
+        /**
+         * Spills text chunks of the page to the store, only the offset of
+         * the page is kept in memory. If the page cannot be written, it is
+         * kept in memory.
+         *
+         * @param key page number
+         * @param value {@link java.util.List} of {@link TextInfo} elements
+         * @return text chunks of the previous page with this number or
+         * null if there was no such page
+         */
+        @Override
+        public List<TextInfo> put(final Integer key,
+                final List<TextInfo> value) {
+            final List<TextInfo> previous = get(key);
+            Object page;
+            try {
+                page = toSpilledPage(value);
+            } catch (IOException e) {
+                LoggerFactory.getLogger(OcrResultSpillStore.class)
+                        .warn(MessageFormatUtil.format(
+                                PdfOcrLogMessageConstant.CANNOT_SPILL_OCR_RESULT,
+                                e.getMessage()));
+                page = value;
+            }
+            pages.put(key, page);
+            return previous;
+        }
+
+        /**
+         * {@inheritDoc}
+         */
+        @Override
+        public Set<Map.Entry<Integer, List<TextInfo>>> entrySet() {
+            return new AbstractSet<Map.Entry<Integer, List<TextInfo>>>() {
+                @Override
+                public Iterator<Map.Entry<Integer, List<TextInfo>>> iterator() {
+                    final Iterator<Integer> keys = pages.keySet().iterator();
+                    return new Iterator<Map.Entry<Integer, List<TextInfo>>>() {
+                        @Override
+                        public boolean hasNext() {
+                            return keys.hasNext();
+                        }
+
+                        @Override
+                        public Map.Entry<Integer, List<TextInfo>> next() {
+                            final Integer key = keys.next();
+                            return new AbstractMap.SimpleImmutableEntry<
+                                    Integer, List<TextInfo>>(key, get(key));
+                        }
+
+                        @Override
+                        public void remove() {
+                            throw new UnsupportedOperationException();
+                        }
+                    };
+                }
+
+                @Override
+                public int size() {
+                    return pages.size();
+                }
+            };
+        }
+    }
+}
@@ -0,0 +1,376 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr;
+
+import com.itextpdf.kernel.geom.Rectangle;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Writes OCR results in the compact versioned binary format which can be
+ * read by {@link OcrResultReader}.
+ *
+ * Results are written page by page, so they can be streamed while OCR is
+ * in progress. Coordinates are written as varints, repeated texts are
+ * replaced with references to the string table and unknown confidence
+ * isn't written at all, so serialized results are usually many times
+ * smaller than hOCR.
+ */
+public class OcrResultWriter implements Closeable {
+
+    /**
+     * Size of the internal buffer.
+     */
+    private static final int BUFFER_SIZE = 8192;
+
+    /**
+     * Stream the result is written to.
+     */
+    private final OutputStream out;
+
+    /**
+     * String table: text -> index.
+     */
+    private final Map<String, Integer> strings = new HashMap<String, Integer>();
+
+    /**
+     * Buffer of not yet written bytes.
+     */
+    private final byte[] buffer = new byte[BUFFER_SIZE];
+
+    /**
+     * Coordinates of the currently written text chunk.
+     */
+    private final float[] coordinates = new float[4];
+
+    /**
+     * Number of bytes in the buffer.
+     */
+    private int position;
+
+    /**
+     * True if the end of the result is already written.
+     */
+    private boolean finished;
+
+    /**
+     * Creates a new {@link OcrResultWriter} instance and writes the header
+     * of the result.
+     *
+     * @param out {@link java.io.OutputStream} to write result to
+     * @throws IOException if the header cannot be written
+     */
+    public OcrResultWriter(final OutputStream out) throws IOException {
+        this.out = out;
+        for (byte b : OcrResultFormat.MAGIC) {
+            writeByte(b);
+        }
+        writeByte(OcrResultFormat.VERSION);
+    }
+
+    /**
+     * Serializes OCR result to byte array.
+     *
+     * @param result {@link java.util.Map} where key is
+     *               {@link java.lang.Integer} representing the number of
+     *               the page and value is {@link java.util.List} of
+     *               {@link TextInfo} elements
+     * @return serialized result
+     */
+    public static byte[] write(final Map<Integer, List<TextInfo>> result) {
+        final ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (OcrResultWriter writer = new OcrResultWriter(out)) {
+            writer.writeAll(result);
+        } catch (IOException e) {
+            // cannot happen for in-memory streams
+            throw new OcrException(e.getMessage(), e);
+        }
+        return out.toByteArray();
+    }
+
+    /**
+     * Writes all pages of the OCR result.
+     *
+     * @param result {@link java.util.Map} where key is
+     *               {@link java.lang.Integer} representing the number of
+     *               the page and value is {@link java.util.List} of
+     *               {@link TextInfo} elements
+     * @throws IOException if result cannot be written
+     */
+    public void writeAll(final Map<Integer, List<TextInfo>> result)
+            throws IOException {
+        for (Map.Entry<Integer, List<TextInfo>> page : result.entrySet()) {
+            writePage(page.getKey(), page.getValue());
+        }
+    }
+
+    /**
+     * Writes text recognized on a single page.
+     *
+     * @param page number of the page
+     * @param textInfos {@link java.util.List} of {@link TextInfo} elements,
+     *                  null is written as an empty list
+     * @throws IOException if page cannot be written
+     */
+    public void writePage(final int page, final List<TextInfo> textInfos)
+            throws IOException {
+        if (finished) {
+            throw new IOException("OCR result is already finished");
+        }
+        final List<TextInfo> pageTextInfos = textInfos == null
+                ? Collections.<TextInfo>emptyList() : textInfos;
+        writeByte(OcrResultFormat.PAGE_TAG);
+        writeSignedVarint(page);
+        writeVarint(pageTextInfos.size());
+        for (TextInfo textInfo : pageTextInfos) {
+            writeTextInfo(textInfo);
+        }
+        flushBuffer();
+    }
+
+    /**
+     * Writes the end of the result and flushes the stream. Stream is not
+     * closed, so other data may be written after the result.
+     *
+     * @throws IOException if the end cannot be written
+     */
+    public void finish() throws IOException {
+        if (!finished) {
+            writeByte(OcrResultFormat.END_TAG);
+            flushBuffer();
+            out.flush();
+            finished = true;
+        }
+    }
+
+    /**
+     * Finishes the result and closes the stream.
+     *
+     * @throws IOException if the result cannot be finished
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            finish();
+        } finally {
+            out.close();
+        }
+    }
+
+    /**
+     * Writes a single text chunk.
+     *
+     * @param textInfo {@link TextInfo} to write
+     * @throws IOException if text chunk cannot be written
+     */
+    @SuppressWarnings("deprecation")
+    private void writeTextInfo(final TextInfo textInfo) throws IOException {
+        final Rectangle rect = textInfo.getBboxRect();
+        final List<Float> bbox = textInfo.getBbox();
+        final float confidence = textInfo.getConfidence();
+        int flags = 0;
+        int rectScale = 0;
+        if (rect != null) {
+            flags |= OcrResultFormat.HAS_RECT;
+            coordinates[0] = rect.getX();
+            coordinates[1] = rect.getY();
+            coordinates[2] = rect.getWidth();
+            coordinates[3] = rect.getHeight();
+            rectScale = OcrResultFormat.getScaleIndex(coordinates, 4);
+            flags |= rectScale << OcrResultFormat.RECT_SCALE_SHIFT;
+        }
+        int bboxScale = 0;
+        if (!bbox.isEmpty()) {
+            flags |= OcrResultFormat.HAS_BBOX;
+            final float[] values = new float[bbox.size()];
+            for (int i = 0; i < values.length; ++i) {
+                values[i] = bbox.get(i);
+            }
+            bboxScale = OcrResultFormat.getScaleIndex(values, values.length);
+            flags |= bboxScale << OcrResultFormat.BBOX_SCALE_SHIFT;
+        }
+        final boolean integralConfidence = confidence >= 0
+                && confidence <= Integer.MAX_VALUE
+                && confidence == (int) confidence;
+        if (confidence != TextInfo.UNKNOWN_CONFIDENCE) {
+            flags |= OcrResultFormat.HAS_CONFIDENCE;
+            if (!integralConfidence) {
+                flags |= OcrResultFormat.RAW_CONFIDENCE;
+            }
+        }
+        writeByte(flags);
+        writeString(textInfo.getText());
+        if (confidence != TextInfo.UNKNOWN_CONFIDENCE) {
+            if (integralConfidence) {
+                writeVarint((int) confidence);
+            } else {
+                writeFloat(confidence);
+            }
+        }
+        if (rect != null) {
+            for (int i = 0; i < 4; ++i) {
+                writeCoordinate(coordinates[i], rectScale);
+            }
+        }
+        if (!bbox.isEmpty()) {
+            writeVarint(bbox.size());
+            for (Float value : bbox) {
+                writeCoordinate(value, bboxScale);
+            }
+        }
+    }
+
+    /**
+     * Writes text as a reference to the string table, new texts are
+     * written inline and added to the table.
+     *
+     * @param text text to write
+     * @throws IOException if text cannot be written
+     */
+    private void writeString(final String text) throws IOException {
+        if (text == null) {
+            writeVarint(OcrResultFormat.NULL_STRING);
+            return;
+        }
+        final Integer index = strings.get(text);
+        if (index != null) {
+            writeVarint(index + OcrResultFormat.STRING_INDEX_OFFSET);
+            return;
+        }
+        if (strings.size() < OcrResultFormat.MAX_STRING_TABLE_SIZE) {
+            strings.put(text, strings.size());
+        }
+        writeVarint(OcrResultFormat.NEW_STRING);
+        final byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+        writeVarint(bytes.length);
+        writeBytes(bytes);
+    }
+
+    /**
+     * Writes coordinate with given scale.
+     *
+     * @param value coordinate
+     * @param scaleIndex index of the scale in
+     * {@link OcrResultFormat#SCALES}
+     * @throws IOException if coordinate cannot be written
+     */
+    private void writeCoordinate(final float value, final int scaleIndex)
+            throws IOException {
+        if (scaleIndex < OcrResultFormat.SCALES.length) {
+            writeSignedVarint((int) Math.round(
+                    (double) value * OcrResultFormat.SCALES[scaleIndex]));
+        } else {
+            writeFloat(value);
+        }
+    }
+
+    /**
+     * Writes float as 4 big-endian bytes.
+     *
+     * @param value float to write
+     * @throws IOException if value cannot be written
+     */
+    private void writeFloat(final float value) throws IOException {
+        final int bits = Float.floatToIntBits(value);
+        writeByte(bits >>> 24);
+        writeByte(bits >>> 16);
+        writeByte(bits >>> 8);
+        writeByte(bits);
+    }
+
+    /**
+     * Writes zigzag encoded signed varint.
+     *
+     * @param value integer to write
+     * @throws IOException if value cannot be written
+     */
+    private void writeSignedVarint(final int value) throws IOException {
+        writeVarint((value << 1) ^ (value >> 31));
+    }
+
+    /**
+     * Writes unsigned LEB128 varint.
+     *
+     * @param value integer to write, treated as unsigned
+     * @throws IOException if value cannot be written
+     */
+    private void writeVarint(final int value) throws IOException {
+        int remaining = value;
+        while ((remaining & ~0x7f) != 0) {
+            writeByte((remaining & 0x7f) | 0x80);
+            remaining >>>= 7;
+        }
+        writeByte(remaining);
+    }
+
+    /**
+     * Writes bytes.
+     *
+     * @param bytes bytes to write
+     * @throws IOException if bytes cannot be written
+     */
+    private void writeBytes(final byte[] bytes) throws IOException {
+        if (bytes.length > buffer.length - position) {
+            flushBuffer();
+            if (bytes.length > buffer.length) {
+                out.write(bytes);
+                return;
+            }
+        }
+        System.arraycopy(bytes, 0, buffer, position, bytes.length);
+        position += bytes.length;
+    }
+
+    /**
+     * Writes single byte.
+     *
+     * @param value byte to write, only lower 8 bits are used
+     * @throws IOException if byte cannot be written
+     */
+    private void writeByte(final int value) throws IOException {
+        if (position == buffer.length) {
+            flushBuffer();
+        }
+        buffer[position++] = (byte) value;
+    }
+
+    /**
+     * Writes buffered bytes to the stream.
+     *
+     * @throws IOException if bytes cannot be written
+     */
+    private void flushBuffer() throws IOException {
+        if (position > 0) {
+            out.write(buffer, 0, position);
+            position = 0;
+        }
+    }
+}
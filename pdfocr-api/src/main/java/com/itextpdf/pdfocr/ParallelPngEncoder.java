@@ -0,0 +1,646 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr;
+
+import java.awt.color.ColorSpace;
+import java.awt.image.BufferedImage;
+import java.awt.image.ColorModel;
+import java.awt.image.IndexColorModel;
+import java.awt.image.Raster;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.zip.Adler32;
+import java.util.zip.CRC32;
+import java.util.zip.Deflater;
+
+/**
+ * PNG and zlib encoder which splits large images into bands of rows
+ * and filters and deflates the bands concurrently.
+ *
+ * Each band is compressed to a separate raw deflate stream which uses
+ * the end of the previous band as a preset dictionary and is byte aligned
+ * by a sync flush, so the streams are simply concatenated into one valid
+ * zlib stream. Compression ratio is almost the same as of single-threaded
+ * compression while the encoding time is divided by the number of
+ * threads. Small images are encoded in the calling thread.
+ *
+ * Encoder is immutable and may be shared between threads, e.g. via
+ * {@link OcrPdfCreatorProperties#setPngEncoder(ParallelPngEncoder)}.
+ */
+public final class ParallelPngEncoder {
+
+    /**
+     * Minimal size of the band in bytes, smaller inputs aren't split.
+     */
+    private static final int MIN_BAND_SIZE = 1 << 18;
+
+    /**
+     * Size of the deflate window, i.e. maximal size of a preset dictionary.
+     */
+    private static final int WINDOW_SIZE = 1 << 15;
+
+    /**
+     * Size of the buffer used to collect deflated bytes.
+     */
+    private static final int BUFFER_SIZE = 1 << 16;
+
+    /**
+     * Largest prime smaller than 65536, modulus of Adler-32 checksum.
+     */
+    private static final long ADLER_BASE = 65521;
+
+    /**
+     * PNG file signature.
+     */
+    private static final byte[] PNG_SIGNATURE = {(byte) 0x89, 'P', 'N', 'G',
+            '\r', '\n', 0x1a, '\n'};
+
+    /**
+     * PNG gray color type.
+     */
+    private static final int COLOR_TYPE_GRAY = 0;
+
+    /**
+     * PNG RGB color type.
+     */
+    private static final int COLOR_TYPE_RGB = 2;
+
+    /**
+     * PNG palette color type.
+     */
+    private static final int COLOR_TYPE_PALETTE = 3;
+
+    /**
+     * PNG RGB with alpha color type.
+     */
+    private static final int COLOR_TYPE_RGBA = 6;
+
+    /**
+     * Number of PNG row filter types.
+     */
+    private static final int FILTER_TYPES = 5;
+
+    /**
+     * Time in seconds after which idle encoding threads are stopped.
+     */
+    private static final long KEEP_ALIVE_SECONDS = 30;
+
+    /**
+     * Maximal number of bands encoded concurrently.
+     */
+    private final int threads;
+
+    /**
+     * Compression level, see {@link java.util.zip.Deflater}.
+     */
+    private final int compressionLevel;
+
+    /**
+     * Executor of this encoder, null if images are encoded in the calling
+     * thread. Its threads are stopped when they are idle, so the encoder
+     * doesn't need to be closed.
+     */
+    private final ExecutorService executor;
+
+    /**
+     * Creates new instance of {@link ParallelPngEncoder} with
+     * {@link Deflater#DEFAULT_COMPRESSION} compression level.
+     *
+     * @param threads maximal number of bands encoded concurrently, 1 means
+     *                that images are encoded in the calling thread
+     */
+    public ParallelPngEncoder(final int threads) {
+        this(threads, Deflater.DEFAULT_COMPRESSION);
+    }
+
+    /**
+     * Creates new instance of {@link ParallelPngEncoder}.
+     *
+     * @param threads maximal number of bands encoded concurrently, 1 means
+     *                that images are encoded in the calling thread
+     * @param compressionLevel compression level from 0 to 9 or
+     *                         {@link Deflater#DEFAULT_COMPRESSION}
+     */
+    public ParallelPngEncoder(final int threads, final int compressionLevel) {
+        this.threads = Math.max(1, threads);
+        this.compressionLevel = compressionLevel;
+        this.executor = this.threads == 1 ? null : createExecutor(this.threads);
+    }
+
+    /**
+     * Gets maximal number of bands encoded concurrently.
+     *
+     * @return number of threads
+     */
+    public int getThreads() {
+        return threads;
+    }
+
+    /**
+     * Gets compression level.
+     *
+     * @return compression level, see {@link java.util.zip.Deflater}
+     */
+    public int getCompressionLevel() {
+        return compressionLevel;
+    }
+
+    /**
+     * Encodes image as PNG. 8-bit gray and palette images are encoded as
+     * they are, other images are encoded as 8-bit RGB images with alpha
+     * channel if the image has it.
+     *
+     * @param image {@link java.awt.image.BufferedImage} to encode
+     * @return PNG bytes
+     * @throws IOException if image cannot be encoded
+     */
+    public byte[] encode(final BufferedImage image) throws IOException {
+        final int width = image.getWidth();
+        final int height = image.getHeight();
+        final ColorModel colorModel = image.getColorModel();
+        final Raster raster = image.getRaster();
+        if (colorModel instanceof IndexColorModel && !colorModel.hasAlpha()
+                && raster.getNumBands() == 1) {
+            final IndexColorModel indexColorModel = (IndexColorModel) colorModel;
+            int bitDepth = 1;
+            while ((1 << bitDepth) < indexColorModel.getMapSize()) {
+                bitDepth <<= 1;
+            }
+            if (bitDepth <= 8) {
+                final byte[] palette = new byte[indexColorModel.getMapSize() * 3];
+                for (int i = 0; i < indexColorModel.getMapSize(); ++i) {
+                    palette[i * 3] = (byte) indexColorModel.getRed(i);
+                    palette[i * 3 + 1] = (byte) indexColorModel.getGreen(i);
+                    palette[i * 3 + 2] = (byte) indexColorModel.getBlue(i);
+                }
+                return encodePng(packSamples(raster, bitDepth), width,
+                        height, bitDepth, COLOR_TYPE_PALETTE, palette);
+            }
+        }
+        if (colorModel.getColorSpace().getType() == ColorSpace.TYPE_GRAY
+                && !colorModel.hasAlpha() && raster.getNumBands() == 1
+                && raster.getSampleModel().getSampleSize(0) == 8) {
+            return encodePng(packSamples(raster, 8), width, height, 8,
+                    COLOR_TYPE_GRAY, null);
+        }
+        final boolean alpha = colorModel.hasAlpha();
+        final int components = alpha ? 4 : 3;
+        final byte[] samples = new byte[width * height * components];
+        final int[] row = new int[width];
+        int offset = 0;
+        for (int y = 0; y < height; ++y) {
+            image.getRGB(0, y, width, 1, row, 0, width);
+            for (int x = 0; x < width; ++x) {
+                final int argb = row[x];
+                samples[offset++] = (byte) (argb >> 16);
+                samples[offset++] = (byte) (argb >> 8);
+                samples[offset++] = (byte) argb;
+                if (alpha) {
+                    samples[offset++] = (byte) (argb >>> 24);
+                }
+            }
+        }
+        return encode(samples, width, height, components);
+    }
+
+    /**
+     * Encodes 8-bit samples as PNG.
+     *
+     * @param samples interleaved samples of the image rows
+     * @param width width of the image
+     * @param height height of the image
+     * @param components number of components: 1 for gray, 3 for RGB and
+     *                   4 for RGB with alpha
+     * @return PNG bytes
+     * @throws IOException if image cannot be encoded
+     */
+    public byte[] encode(final byte[] samples, final int width,
+            final int height, final int components) throws IOException {
+        final int colorType;
+        if (components == 1) {
+            colorType = COLOR_TYPE_GRAY;
+        } else if (components == 3) {
+            colorType = COLOR_TYPE_RGB;
+        } else if (components == 4) {
+            colorType = COLOR_TYPE_RGBA;
+        } else {
+            throw new IllegalArgumentException(
+                    "Unsupported number of components: " + components);
+        }
+        return encodePng(samples, width, height, 8, colorType, null);
+    }
+
+    /**
+     * Compresses data to zlib stream, i.e. the format of
+     * <code>FlateDecode</code> PDF filter.
+     *
+     * @param data data to compress
+     * @return compressed data
+     * @throws IOException if data cannot be compressed
+     */
+    public byte[] deflate(final byte[] data) throws IOException {
+        final int bandSize = Math.max(MIN_BAND_SIZE,
+                (data.length + threads - 1) / threads);
+        final int bandCount = Math.max(1,
+                (data.length + bandSize - 1) / bandSize);
+        final long[] checksums = new long[bandCount];
+        final List<Callable<byte[]>> tasks = new ArrayList<>(bandCount);
+        for (int band = 0; band < bandCount; ++band) {
+            final int index = band;
+            tasks.add(new Callable<byte[]>() {
+                @Override
+                public byte[] call() {
+                    final int start = index * bandSize;
+                    final int end = Math.min(data.length, start + bandSize);
+                    final Adler32 checksum = new Adler32();
+                    checksum.update(data, start, end - start);
+                    checksums[index] = checksum.getValue();
+                    return deflateBand(data, start, end);
+                }
+            });
+        }
+        final List<byte[]> bands = invokeAll(tasks);
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        // zlib header: deflate with 32K window, no dictionary
+        baos.write(0x78);
+        baos.write(0x9c);
+        long adler = 1;
+        for (int band = 0; band < bandCount; ++band) {
+            baos.write(bands.get(band));
+            adler = combineAdler32(adler, checksums[band],
+                    Math.min(bandSize, data.length - band * bandSize));
+        }
+        writeInt(baos, (int) adler);
+        return baos.toByteArray();
+    }
+
+    /**
+     * Combines Adler-32 checksums of two consecutive parts of data.
+     *
+     * @param adler1 checksum of the first part
+     * @param adler2 checksum of the second part
+     * @param length2 length of the second part
+     * @return checksum of the whole data
+     */
+    static long combineAdler32(final long adler1, final long adler2,
+            final long length2) {
+        final long remainder = length2 % ADLER_BASE;
+        long sum1 = adler1 & 0xffff;
+        long sum2 = (remainder * sum1) % ADLER_BASE;
+        sum1 += (adler2 & 0xffff) + ADLER_BASE - 1;
+        sum2 += ((adler1 >> 16) & 0xffff) + ((adler2 >> 16) & 0xffff)
+                + ADLER_BASE - remainder;
+        if (sum1 >= ADLER_BASE) {
+            sum1 -= ADLER_BASE;
+        }
+        if (sum1 >= ADLER_BASE) {
+            sum1 -= ADLER_BASE;
+        }
+        if (sum2 >= (ADLER_BASE << 1)) {
+            sum2 -= (ADLER_BASE << 1);
+        }
+        if (sum2 >= ADLER_BASE) {
+            sum2 -= ADLER_BASE;
+        }
+        return sum1 | (sum2 << 16);
+    }
+
+    /**
+     * Compresses one band of data to raw deflate stream. The stream is
+     * final if the band ends the data, otherwise it is byte aligned by
+     * sync flush.
+     *
+     * @param data all data
+     * @param start start of the band
+     * @param end end of the band
+     * @return compressed band
+     */
+    private byte[] deflateBand(final byte[] data, final int start,
+            final int end) {
+        final Deflater deflater = new Deflater(compressionLevel, true);
+        try {
+            if (start > 0) {
+                final int dictionaryStart = Math.max(0, start - WINDOW_SIZE);
+                deflater.setDictionary(data, dictionaryStart,
+                        start - dictionaryStart);
+            }
+            deflater.setInput(data, start, end - start);
+            final ByteArrayOutputStream baos = new ByteArrayOutputStream(
+                    (end - start) / 4 + 64);
+            final byte[] buffer = new byte[BUFFER_SIZE];
+            if (end == data.length) {
+                deflater.finish();
+                while (!deflater.finished()) {
+                    baos.write(buffer, 0, deflater.deflate(buffer));
+                }
+            } else {
+                int length;
+                do {
+                    length = deflater.deflate(buffer, 0, buffer.length,
+                            Deflater.SYNC_FLUSH);
+                    baos.write(buffer, 0, length);
+                } while (length == buffer.length);
+            }
+            return baos.toByteArray();
+        } finally {
+            deflater.end();
+        }
+    }
+
+    /**
+     * Creates PNG from unfiltered rows.
+     *
+     * @param rows packed samples of the rows
+     * @param width width of the image
+     * @param height height of the image
+     * @param bitDepth bits per sample
+     * @param colorType PNG color type
+     * @param palette RGB palette for palette images, null otherwise
+     * @return PNG bytes
+     * @throws IOException if image cannot be encoded
+     */
+    private byte[] encodePng(final byte[] rows, final int width,
+            final int height, final int bitDepth, final int colorType,
+            final byte[] palette) throws IOException {
+        final int rowLength = height == 0 ? 0 : rows.length / height;
+        final int bytesPerPixel = Math.max(1, rowLength / Math.max(1, width));
+        // filters are useless for palette and packed images
+        final boolean adaptiveFilters = colorType != COLOR_TYPE_PALETTE
+                && bitDepth == 8;
+        final byte[] filtered = new byte[(rowLength + 1) * height];
+        final int bandRows = Math.max(1, Math.max(
+                MIN_BAND_SIZE / Math.max(1, rowLength),
+                (height + threads - 1) / threads));
+        final List<Callable<byte[]>> tasks = new ArrayList<>();
+        for (int bandStart = 0; bandStart < height; bandStart += bandRows) {
+            final int firstRow = bandStart;
+            final int lastRow = Math.min(height, bandStart + bandRows);
+            tasks.add(new Callable<byte[]>() {
+                @Override
+                public byte[] call() {
+                    // the first row is filtered as if it was preceded by
+                    // the row of zeros
+                    final byte[] zeroRow = new byte[rowLength];
+                    for (int y = firstRow; y < lastRow; ++y) {
+                        filterRow(rows, y * rowLength,
+                                y == 0 ? zeroRow : rows,
+                                y == 0 ? 0 : (y - 1) * rowLength, rowLength,
+                                bytesPerPixel, adaptiveFilters, filtered,
+                                y * (rowLength + 1));
+                    }
+                    return null;
+                }
+            });
+        }
+        invokeAll(tasks);
+
+        final ByteArrayOutputStream baos = new ByteArrayOutputStream();
+        baos.write(PNG_SIGNATURE);
+        final ByteArrayOutputStream header = new ByteArrayOutputStream();
+        writeInt(header, width);
+        writeInt(header, height);
+        header.write(bitDepth);
+        header.write(colorType);
+        // deflate compression, adaptive filtering, no interlace
+        header.write(0);
+        header.write(0);
+        header.write(0);
+        writeChunk(baos, "IHDR", header.toByteArray());
+        if (palette != null) {
+            writeChunk(baos, "PLTE", palette);
+        }
+        writeChunk(baos, "IDAT", deflate(filtered));
+        writeChunk(baos, "IEND", new byte[0]);
+        return baos.toByteArray();
+    }
+
+    /**
+     * Runs tasks concurrently if there are several of them.
+     *
+     * @param tasks tasks to run
+     * @param <T> type of the result
+     * @return results of the tasks in the same order
+     * @throws IOException if any task failed
+     */
+    private <T> List<T> invokeAll(final List<Callable<T>> tasks)
+            throws IOException {
+        final List<T> results = new ArrayList<>(tasks.size());
+        try {
+            if (tasks.size() == 1 || threads == 1) {
+                for (Callable<T> task : tasks) {
+                    results.add(task.call());
+                }
+            } else {
+                for (Future<T> future : executor.invokeAll(tasks)) {
+                    results.add(future.get());
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new IOException(e);
+        } catch (ExecutionException e) {
+            throw new IOException(e.getCause());
+        } catch (Exception e) { // NOSONAR
+            throw new IOException(e);
+        }
+        return results;
+    }
+
+    /**
+     * Creates executor whose threads are stopped when they are idle.
+     *
+     * @param threads number of threads
+     * @return created {@link java.util.concurrent.ExecutorService}
+     */
+    private static ExecutorService createExecutor(final int threads) {
+        final ThreadPoolExecutor executor = new ThreadPoolExecutor(threads,
+                threads, KEEP_ALIVE_SECONDS, TimeUnit.SECONDS,
+                new LinkedBlockingQueue<Runnable>(),
+                new ThreadFactory() {
+                    @Override
+                    public Thread newThread(final Runnable runnable) {
+                        Thread thread = new Thread(runnable,
+                                "pdfocr-png-encoder");
+                        thread.setDaemon(true);
+                        return thread;
+                    }
+                });
+        executor.allowCoreThreadTimeOut(true);
+        return executor;
+    }
+
+    /**
+     * Packs samples of single band raster to PNG rows.
+     *
+     * @param raster {@link java.awt.image.Raster} of the image
+     * @param bitDepth bits per sample
+     * @return packed rows
+     */
+    private static byte[] packSamples(final Raster raster, final int bitDepth) {
+        final int width = raster.getWidth();
+        final int height = raster.getHeight();
+        final int rowLength = (width * bitDepth + 7) / 8;
+        final byte[] rows = new byte[rowLength * height];
+        final int[] samples = new int[width];
+        final int samplesPerByte = 8 / bitDepth;
+        for (int y = 0; y < height; ++y) {
+            raster.getSamples(raster.getMinX(), raster.getMinY() + y, width,
+                    1, 0, samples);
+            final int offset = y * rowLength;
+            for (int x = 0; x < width; ++x) {
+                final int shift = 8 - bitDepth * (x % samplesPerByte + 1);
+                rows[offset + x / samplesPerByte] |=
+                        (byte) (samples[x] << shift);
+            }
+        }
+        return rows;
+    }
+
+    /**
+     * Writes row filtered with the filter which produces the smallest sum
+     * of absolute values of filtered bytes, or with no filter.
+     *
+     * @param rows unfiltered rows
+     * @param offset offset of the row
+     * @param previousRows array containing the previous row
+     * @param previousOffset offset of the previous row
+     * @param rowLength length of the row in bytes
+     * @param bytesPerPixel bytes per pixel, at least 1
+     * @param adaptive if false, no filter is used
+     * @param output output array
+     * @param outputOffset offset of the filtered row in the output
+     */
+    private static void filterRow(final byte[] rows, final int offset,
+            final byte[] previousRows, final int previousOffset,
+            final int rowLength, final int bytesPerPixel,
+            final boolean adaptive, final byte[] output,
+            final int outputOffset) {
+        int bestFilter = 0;
+        if (adaptive) {
+            // sums of absolute values of bytes filtered with each filter
+            // are computed in one pass over the row
+            long none = 0;
+            long sub = 0;
+            long up = 0;
+            long average = 0;
+            long paeth = 0;
+            for (int i = 0; i < rowLength; ++i) {
+                final int value = rows[offset + i] & 0xff;
+                final int above = previousRows[previousOffset + i] & 0xff;
+                int left = 0;
+                int upLeft = 0;
+                if (i >= bytesPerPixel) {
+                    left = rows[offset + i - bytesPerPixel] & 0xff;
+                    upLeft = previousRows[previousOffset + i - bytesPerPixel]
+                            & 0xff;
+                }
+                none += Math.abs((byte) value);
+                sub += Math.abs((byte) (value - left));
+                up += Math.abs((byte) (value - above));
+                average += Math.abs((byte) (value - ((left + above) >> 1)));
+                paeth += Math.abs((byte) (value
+                        - ImageLayerUtil.paeth(left, above, upLeft)));
+            }
+            final long[] sums = {none, sub, up, average, paeth};
+            for (int filter = 1; filter < FILTER_TYPES; ++filter) {
+                if (sums[filter] < sums[bestFilter]) {
+                    bestFilter = filter;
+                }
+            }
+        }
+        output[outputOffset] = (byte) bestFilter;
+        final int out = outputOffset + 1;
+        for (int i = 0; i < rowLength; ++i) {
+            final int value = rows[offset + i] & 0xff;
+            final int left = i >= bytesPerPixel
+                    ? rows[offset + i - bytesPerPixel] & 0xff : 0;
+            final int up = previousRows[previousOffset + i] & 0xff;
+            switch (bestFilter) {
+                case 1:
+                    output[out + i] = (byte) (value - left);
+                    break;
+                case 2:
+                    output[out + i] = (byte) (value - up);
+                    break;
+                case 3:
+                    output[out + i] = (byte) (value - ((left + up) >> 1));
+                    break;
+                case 4:
+                    final int upLeft = i >= bytesPerPixel
+                            ? previousRows[previousOffset + i - bytesPerPixel]
+                            & 0xff : 0;
+                    output[out + i] = (byte) (value
+                            - ImageLayerUtil.paeth(left, up, upLeft));
+                    break;
+                default:
+                    output[out + i] = (byte) value;
+                    break;
+            }
+        }
+    }
+
+    /**
+     * Writes PNG chunk.
+     *
+     * @param baos output stream
+     * @param type chunk type
+     * @param data chunk data
+     * @throws IOException if chunk cannot be written
+     */
+    private static void writeChunk(final ByteArrayOutputStream baos,
+            final String type, final byte[] data) throws IOException {
+        final byte[] typeBytes = type.getBytes("US-ASCII");
+        writeInt(baos, data.length);
+        baos.write(typeBytes);
+        baos.write(data);
+        final CRC32 crc = new CRC32();
+        crc.update(typeBytes);
+        crc.update(data);
+        writeInt(baos, (int) crc.getValue());
+    }
+
+    /**
+     * Writes big endian integer.
+     *
+     * @param baos output stream
+     * @param value value to write
+     */
+    private static void writeInt(final ByteArrayOutputStream baos,
+            final int value) {
+        baos.write(value >>> 24);
+        baos.write(value >>> 16);
+        baos.write(value >>> 8);
+        baos.write(value);
+    }
+}
@@ -23,12 +23,6 @@
 package com.itextpdf.pdfocr;
 
 import com.itextpdf.io.image.ImageData;
-import com.itextpdf.io.image.ImageDataFactory;
-import com.itextpdf.io.image.ImageType;
-import com.itextpdf.io.image.ImageTypeDetector;
-import com.itextpdf.io.image.TiffImageData;
-import com.itextpdf.io.source.RandomAccessFileOrArray;
-import com.itextpdf.io.source.RandomAccessSourceFactory;
 import com.itextpdf.io.util.MessageFormatUtil;
 import com.itextpdf.io.util.UrlUtil;
 import com.itextpdf.kernel.geom.Rectangle;
@@ -41,12 +35,14 @@ import com.itextpdf.layout.renderer.IRenderer;
 import com.itextpdf.layout.renderer.ParagraphRenderer;
 
 import java.io.File;
-import java.io.FileInputStream;
 import java.io.FileNotFoundException;
 import java.io.IOException;
 import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
-import java.util.ArrayList;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
 import java.util.List;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -63,6 +59,16 @@ class PdfCreatorUtil {
      */
     private static final float POINTS_PER_INCH = 72.0f;
 
+    /**
+     * Algorithm used to hash image content.
+     */
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    /**
+     * Size of the buffer used to hash file content.
+     */
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+
     /**
      * The logger.
      */
@@ -170,45 +176,26 @@ class PdfCreatorUtil {
      * @param inputImage input image as {@link java.io.File}
      * @param imageRotationHandler image rotation handler {@link IImageRotationHandler}
      * @return list of {@link com.itextpdf.io.image.ImageData} objects
-     * (more than one element in the list if it is a multipage tiff)
+     * (more than one element in the list if it is a multipage tiff, its
+     * pages are created lazily when they are requested)
      * @throws OcrException if error occurred during reading a file
      * @throws IOException if error occurred during reading a file
      */
     static List<ImageData> getImageData(final File inputImage, IImageRotationHandler imageRotationHandler)
             throws OcrException {
-        List<ImageData> images = new ArrayList<ImageData>();
-
-        try (InputStream imageStream = new FileInputStream(inputImage)) {
-            ImageType imageType = ImageTypeDetector.detectImageType(imageStream);
-            if (ImageType.TIFF == imageType) {
-                int tiffPages = getNumberOfPageTiff(inputImage);
-
-                for (int page = 0; page < tiffPages; page++) {
-                    byte[] bytes = Files.readAllBytes(inputImage.toPath());
-                    ImageData imageData = ImageDataFactory
-                            .createTiff(bytes, true,
-                                    page + 1, true);
-                    if (imageRotationHandler != null) {
-                        imageData = imageRotationHandler.applyRotation(imageData);
-                    }
-                    images.add(imageData);
-                }
-            } else {
-                ImageData imageData = ImageDataFactory
-                        .create(inputImage.getAbsolutePath());
-                if (imageRotationHandler != null) {
-                    imageData = imageRotationHandler.applyRotation(imageData);
-                }
-                images.add(imageData);
-            }
-        } catch (IOException | com.itextpdf.io.IOException e) {
+        final byte[] inputBytes;
+        try {
+            inputBytes = Files.readAllBytes(inputImage.toPath());
+        } catch (IOException e) {
             LOGGER.error(MessageFormatUtil.format(
                     PdfOcrLogMessageConstant.CANNOT_READ_INPUT_IMAGE,
                     e.getMessage()));
             throw new OcrException(
                     OcrException.CANNOT_READ_INPUT_IMAGE, e);
         }
-        return images;
+        // pages of TIFF images are read lazily one by one from the bytes
+        // read once
+        return new InputImageDataList(inputBytes, imageRotationHandler);
     }
 
     /**
@@ -229,8 +216,8 @@ class PdfCreatorUtil {
             final ScaleMode scaleMode,
             final com.itextpdf.kernel.geom.Rectangle requiredSize) {
         if (imageData != null) {
-            float imgWidthPt = getPoints(imageData.getWidth());
-            float imgHeightPt = getPoints(imageData.getHeight());
+            float imgWidthPt = getPoints(getDisplayedWidth(imageData));
+            float imgHeightPt = getPoints(getDisplayedHeight(imageData));
             // page size will be equal to the image size if page size or
             // scale mode are not set
             if (requiredSize == null || scaleMode == null) {
@@ -265,32 +252,134 @@ class PdfCreatorUtil {
     }
 
     /**
-     * Converts value from pixels to points.
+     * Calculates SHA-256 hash of the file content.
      *
-     * @param pixels input value in pixels
-     * @return result value in points
+     * @param file input {@link java.io.File}
+     * @return hex encoded hash or null if the file cannot be read
      */
-    static float getPoints(final float pixels) {
-        return pixels * PX_TO_PT;
+    static String getContentHash(final File file) {
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            final MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
+            final byte[] buffer = new byte[HASH_BUFFER_SIZE];
+            int length;
+            while ((length = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, length);
+            }
+            return toHex(digest.digest());
+        } catch (IOException | NoSuchAlgorithmException e) { // NOSONAR
+            return null;
+        }
+    }
+
+    /**
+     * Calculates SHA-256 hash of the page image content, i.e. of its
+     * encoded or raw data, parameters and mask, so images with the same
+     * hash produce identical image XObjects.
+     *
+     * @param imageData page image as {@link com.itextpdf.io.image.ImageData}
+     * @return hex encoded hash or null if image data isn't available
+     */
+    static String getContentHash(final ImageData imageData) {
+        try {
+            final MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
+            return updateContentHash(digest, imageData)
+                    ? toHex(digest.digest()) : null;
+        } catch (NoSuchAlgorithmException e) { // NOSONAR
+            return null;
+        }
     }
 
     /**
-     * Counts number of pages in the provided tiff image.
+     * Updates the digest with the page image content.
      *
-     * @param inputImage input image {@link java.io.File}
-     * @return number of pages in the provided TIFF image
-     * @throws IOException if error occurred during creating a
-     * {@link com.itextpdf.io.source.IRandomAccessSource} based on a filename
-     * string
+     * @param digest {@link java.security.MessageDigest} to update
+     * @param imageData page image as {@link com.itextpdf.io.image.ImageData}
+     * @return false if image data isn't available
      */
-    private static int getNumberOfPageTiff(final File inputImage)
-            throws IOException {
-        RandomAccessFileOrArray raf = new RandomAccessFileOrArray(
-                new RandomAccessSourceFactory()
-                        .createBestSource(
-                                inputImage.getAbsolutePath()));
-        int numOfPages = TiffImageData.getNumberOfPages(raf);
-        raf.close();
-        return numOfPages;
+    private static boolean updateContentHash(final MessageDigest digest,
+            final ImageData imageData) {
+        if (imageData instanceof TiffStripImageData) {
+            for (ImageData strip
+                    : ((TiffStripImageData) imageData).getStrips()) {
+                if (!updateContentHash(digest, strip)) {
+                    return false;
+                }
+            }
+        } else if (imageData.getData() != null) {
+            digest.update(imageData.getData());
+        } else {
+            return false;
+        }
+        digest.update(MessageFormatUtil.format("{0}|{1}x{2}|{3}|{4}|{5}|{6}|{7}",
+                imageData.getOriginalType(), imageData.getWidth(),
+                imageData.getHeight(), imageData.getBpc(),
+                imageData.getColorSpace(), imageData.getRotation(),
+                Arrays.toString(imageData.getDecode()),
+                Arrays.toString(imageData.getTransparency()))
+                .getBytes(StandardCharsets.UTF_8));
+        if (imageData.getImageMask() != null) {
+            return updateContentHash(digest, imageData.getImageMask());
+        }
+        return true;
+    }
+
+    /**
+     * Converts bytes to lower case hex string.
+     *
+     * @param bytes bytes to convert
+     * @return hex string
+     */
+    private static String toHex(final byte[] bytes) {
+        final StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes) {
+            sb.append(Character.forDigit((b >> 4) & 0xf, 16))
+                    .append(Character.forDigit(b & 0xf, 16));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * Checks whether the image is rotated by 90 or 270 degrees, i.e. its
+     * width and height are swapped when the image is displayed.
+     *
+     * @param imageData input image as {@link com.itextpdf.io.image.ImageData}
+     * @return true if the image is displayed sideways
+     */
+    static boolean isSideways(final ImageData imageData) {
+        return Math.abs(Math.sin(imageData.getRotation())) > 0.5;
+    }
+
+    /**
+     * Gets width of the image as it is displayed, i.e. taking its rotation
+     * into account.
+     *
+     * @param imageData input image as {@link com.itextpdf.io.image.ImageData}
+     * @return displayed width in pixels
+     */
+    static float getDisplayedWidth(final ImageData imageData) {
+        return isSideways(imageData)
+                ? imageData.getHeight() : imageData.getWidth();
+    }
+
+    /**
+     * Gets height of the image as it is displayed, i.e. taking its rotation
+     * into account.
+     *
+     * @param imageData input image as {@link com.itextpdf.io.image.ImageData}
+     * @return displayed height in pixels
+     */
+    static float getDisplayedHeight(final ImageData imageData) {
+        return isSideways(imageData)
+                ? imageData.getWidth() : imageData.getHeight();
+    }
+
+    /**
+     * Converts value from pixels to points.
+     *
+     * @param pixels input value in pixels
+     * @return result value in points
+     */
+    static float getPoints(final float pixels) {
+        return pixels * PX_TO_PT;
     }
 }
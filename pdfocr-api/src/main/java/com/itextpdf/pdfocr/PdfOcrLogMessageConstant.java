@@ -25,6 +25,16 @@ package com.itextpdf.pdfocr;
 public class PdfOcrLogMessageConstant {
     public static final String CANNOT_READ_INPUT_IMAGE =
             "Cannot read input image {0}";
+    public static final String CANNOT_READ_IMAGE_HEADER =
+            "Cannot read header of input image: {0}";
+    public static final String CANNOT_ENCODE_IMAGE_LAYER =
+            "Cannot encode image layer, original image is used: {0}";
+    public static final String CANNOT_CLOSE_OCR_RESULT_SPILL_FILE =
+            "Cannot close OCR result spill file: {0}";
+    public static final String CANNOT_SPILL_OCR_RESULT =
+            "Cannot spill OCR result to disk, it is kept in memory: {0}";
+    public static final String DUPLICATE_IMAGE_IS_NOT_RECOGNIZED =
+            "Image {0} is identical to image {1}, its OCR result is reused";
     public static final String PROVIDED_FONT_PROVIDER_IS_INVALID =
             "Provided FontProvider is invalid. Please check that it contains "
                     + "valid fonts and default font family name.";
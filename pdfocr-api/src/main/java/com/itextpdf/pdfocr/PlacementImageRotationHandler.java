@@ -0,0 +1,84 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr;
+
+import com.itextpdf.io.image.ImageData;
+
+/**
+ * {@link IImageRotationHandler} which keeps the original encoded image and
+ * applies rotation specified by EXIF orientation when the image is placed
+ * to the page, using the image transformation matrix.
+ *
+ * Unlike handlers which rotate pixels, the image is neither decoded nor
+ * encoded again, so rotation is lossless and almost free. Recognized text
+ * is placed over the image as it is displayed, i.e. rotated.
+ * Mirrored EXIF orientations are not supported and such images are not
+ * rotated.
+ */
+public class PlacementImageRotationHandler implements IImageRotationHandler {
+
+    /**
+     * EXIF orientation of the image rotated by 180 degrees.
+     */
+    private static final int EXIF_ROTATION_180 = 3;
+
+    /**
+     * EXIF orientation of the image which should be rotated by 90 degrees
+     * clockwise.
+     */
+    private static final int EXIF_ROTATION_90 = 6;
+
+    /**
+     * EXIF orientation of the image which should be rotated by 90 degrees
+     * counterclockwise.
+     */
+    private static final int EXIF_ROTATION_270 = 8;
+
+    /**
+     * Sets rotation specified by EXIF orientation of the image to
+     * {@link com.itextpdf.io.image.ImageData#setRotation(float)}.
+     *
+     * @param imageData to apply rotation to
+     * @return the same {@link com.itextpdf.io.image.ImageData} instance
+     */
+    @Override
+    public ImageData applyRotation(final ImageData imageData) {
+        if (imageData.getData() == null) {
+            return imageData;
+        }
+        switch (ImageProbe.readOrientation(imageData.getData())) {
+            case EXIF_ROTATION_90:
+                imageData.setRotation((float) (-Math.PI / 2));
+                break;
+            case EXIF_ROTATION_180:
+                imageData.setRotation((float) Math.PI);
+                break;
+            case EXIF_ROTATION_270:
+                imageData.setRotation((float) (Math.PI / 2));
+                break;
+            default:
+                break;
+        }
+        return imageData;
+    }
+}
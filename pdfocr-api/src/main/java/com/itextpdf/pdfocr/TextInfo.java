@@ -35,6 +35,11 @@ import java.util.List;
  */
 public class TextInfo {
 
+    /**
+     * Value of the confidence for text chunks whose confidence is unknown.
+     */
+    public static final float UNKNOWN_CONFIDENCE = -1;
+
     /**
      * Contains any text.
      */
@@ -54,6 +59,12 @@ public class TextInfo {
     @Deprecated
     private List<Float> bbox = Collections.<Float>emptyList();
 
+    /**
+     * Recognition confidence of the text in range 0-100.
+     * {@link #UNKNOWN_CONFIDENCE} if OCR engine doesn't provide it.
+     */
+    private float confidence = UNKNOWN_CONFIDENCE;
+
     /**
      * Creates a new {@link TextInfo} instance.
      */
@@ -69,6 +80,7 @@ public class TextInfo {
         this.text = textInfo.text;
         this.bboxRect = new Rectangle(textInfo.bboxRect);
         this.bbox = Collections.<Float>unmodifiableList(textInfo.bbox);
+        this.confidence = textInfo.confidence;
     }
 
     /**
@@ -128,6 +140,26 @@ public class TextInfo {
         text = newText;
     }
 
+    /**
+     * Gets recognition confidence of the text.
+     *
+     * @return confidence in range 0-100 or {@link #UNKNOWN_CONFIDENCE}
+     * if it is unknown
+     */
+    public float getConfidence() {
+        return confidence;
+    }
+
+    /**
+     * Sets recognition confidence of the text.
+     *
+     * @param confidence confidence in range 0-100 or
+     *                   {@link #UNKNOWN_CONFIDENCE} if it is unknown
+     */
+    public void setConfidence(final float confidence) {
+        this.confidence = confidence;
+    }
+
     /**
      * Gets bbox coordinates.
      *
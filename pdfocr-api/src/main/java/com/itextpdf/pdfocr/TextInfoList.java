@@ -0,0 +1,640 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr;
+
+import com.itextpdf.kernel.geom.Rectangle;
+
+import java.util.AbstractList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.RandomAccess;
+
+/**
+ * {@link java.util.List} of {@link TextInfo} elements which keeps text
+ * chunks of a page in primitive arrays: texts, bbox coordinates and
+ * confidences are stored column by column, so a text chunk added with
+ * {@link #add(String, float, float, float, float, float)} doesn't
+ * allocate any objects except its text.
+ *
+ * {@link TextInfo} views are created lazily when elements are requested
+ * with {@link #get(int)}, and once created they are kept, so
+ * modifications of the returned {@link TextInfo} are visible through the
+ * list. Primitive accessors such as {@link #getLeft(int)} allow reading
+ * text chunks without creating the views.
+ */
+public class TextInfoList extends AbstractList<TextInfo>
+        implements RandomAccess {
+
+    /**
+     * Default initial capacity.
+     */
+    private static final int DEFAULT_CAPACITY = 16;
+
+    /**
+     * Number of coordinates of a single bbox.
+     */
+    private static final int COORDINATES = 4;
+
+    /**
+     * Flag of text chunks which have bbox rectangle.
+     */
+    private static final byte HAS_RECT = 1;
+
+    /**
+     * Flag of text chunks which have legacy bbox coordinates.
+     */
+    private static final byte HAS_BBOX = 1 << 1;
+
+    /**
+     * Number of text chunks.
+     */
+    private int size;
+
+    /**
+     * Texts of the text chunks.
+     */
+    private String[] texts;
+
+    /**
+     * Bbox rectangles: x, y, width and height of each text chunk in points.
+     */
+    private float[] rects;
+
+    /**
+     * Legacy bboxes: left, top, right and bottom of each text chunk in
+     * pixels, null until the first legacy bbox is set.
+     */
+    private float[] bboxes;
+
+    /**
+     * Confidences of the text chunks.
+     */
+    private float[] confidences;
+
+    /**
+     * {@link #HAS_RECT} and {@link #HAS_BBOX} flags of the text chunks.
+     */
+    private byte[] flags;
+
+    /**
+     * Created {@link TextInfo} views, null until the first view is
+     * created. Elements which have a view are read from it.
+     */
+    private TextInfo[] views;
+
+    /**
+     * Creates a new empty {@link TextInfoList} instance.
+     */
+    public TextInfoList() {
+        this(DEFAULT_CAPACITY);
+    }
+
+    /**
+     * Creates a new empty {@link TextInfoList} instance.
+     *
+     * @param initialCapacity number of text chunks which may be added
+     *                        without growing internal arrays
+     */
+    public TextInfoList(final int initialCapacity) {
+        final int capacity = Math.max(initialCapacity, 1);
+        texts = new String[capacity];
+        rects = new float[capacity * COORDINATES];
+        confidences = new float[capacity];
+        flags = new byte[capacity];
+    }
+
+    /**
+     * Creates a new {@link TextInfoList} which contains copies of the
+     * given text chunks, so the result is not affected by modifications
+     * of the original ones.
+     *
+     * @param textInfos {@link java.util.List} of {@link TextInfo} elements
+     *                  to copy
+     * @return {@link TextInfoList} with copied text chunks
+     */
+    public static TextInfoList copyOf(final List<TextInfo> textInfos) {
+        final TextInfoList copy = new TextInfoList(textInfos.size());
+        for (int i = 0; i < textInfos.size(); ++i) {
+            copy.addCopy(textInfos, i);
+        }
+        return copy;
+    }
+
+    /**
+     * Adds text chunk described by primitive values.
+     *
+     * @param text recognized text
+     * @param x left coordinate of the bbox in points
+     * @param y bottom coordinate of the bbox in points
+     * @param width width of the bbox in points
+     * @param height height of the bbox in points
+     * @param confidence confidence in range 0-100 or
+     *                   {@link TextInfo#UNKNOWN_CONFIDENCE}
+     * @return index of the added text chunk
+     */
+    public int add(final String text, final float x, final float y,
+            final float width, final float height, final float confidence) {
+        final int index = addChunk(text, confidence);
+        flags[index] = HAS_RECT;
+        setCoordinates(rects, index, x, y, width, height);
+        return index;
+    }
+
+    /**
+     * Sets legacy bbox coordinates of the text chunk, they are kept
+     * together with its bbox rectangle. Coordinates can be set only
+     * before the {@link TextInfo} view of the text chunk is created.
+     *
+     * @param index index of the text chunk
+     * @param left left coordinate in pixels
+     * @param top top coordinate in pixels
+     * @param right right coordinate in pixels
+     * @param bottom bottom coordinate in pixels
+     * @see TextInfo#getBbox()
+     */
+    public void setBbox(final int index, final float left, final float top,
+            final float right, final float bottom) {
+        checkIndex(index);
+        if (views != null && views[index] != null) {
+            throw new IllegalStateException("Bbox of text chunk " + index
+                    + " cannot be changed after its TextInfo is created");
+        }
+        if (bboxes == null) {
+            bboxes = new float[texts.length * COORDINATES];
+        }
+        setCoordinates(bboxes, index, left, top, right, bottom);
+        flags[index] |= HAS_BBOX;
+    }
+
+    /**
+     * Gets text of the text chunk.
+     *
+     * @param index index of the text chunk
+     * @return text
+     */
+    public String getText(final int index) {
+        checkIndex(index);
+        return views != null && views[index] != null
+                ? views[index].getText() : texts[index];
+    }
+
+    /**
+     * Gets confidence of the text chunk.
+     *
+     * @param index index of the text chunk
+     * @return confidence in range 0-100 or
+     * {@link TextInfo#UNKNOWN_CONFIDENCE}
+     */
+    public float getConfidence(final int index) {
+        checkIndex(index);
+        return views != null && views[index] != null
+                ? views[index].getConfidence() : confidences[index];
+    }
+
+    /**
+     * Checks if the text chunk has bbox rectangle.
+     *
+     * @param index index of the text chunk
+     * @return true if bbox rectangle is set
+     * @see TextInfo#getBboxRect()
+     */
+    public boolean hasBboxRect(final int index) {
+        checkIndex(index);
+        return views != null && views[index] != null
+                ? views[index].getBboxRect() != null
+                : (flags[index] & HAS_RECT) != 0;
+    }
+
+    /**
+     * Gets left coordinate of the bbox rectangle in points.
+     *
+     * @param index index of the text chunk which has bbox rectangle
+     * @return left coordinate
+     */
+    public float getLeft(final int index) {
+        checkIndex(index);
+        return views != null && views[index] != null
+                ? views[index].getBboxRect().getLeft()
+                : rects[index * COORDINATES];
+    }
+
+    /**
+     * Gets bottom coordinate of the bbox rectangle in points.
+     *
+     * @param index index of the text chunk which has bbox rectangle
+     * @return bottom coordinate
+     */
+    public float getBottom(final int index) {
+        checkIndex(index);
+        return views != null && views[index] != null
+                ? views[index].getBboxRect().getBottom()
+                : rects[index * COORDINATES + 1];
+    }
+
+    /**
+     * Gets right coordinate of the bbox rectangle in points.
+     *
+     * @param index index of the text chunk which has bbox rectangle
+     * @return right coordinate
+     */
+    public float getRight(final int index) {
+        checkIndex(index);
+        // calculated the same way as Rectangle does
+        return views != null && views[index] != null
+                ? views[index].getBboxRect().getRight()
+                : rects[index * COORDINATES] + rects[index * COORDINATES + 2];
+    }
+
+    /**
+     * Gets top coordinate of the bbox rectangle in points.
+     *
+     * @param index index of the text chunk which has bbox rectangle
+     * @return top coordinate
+     */
+    public float getTop(final int index) {
+        checkIndex(index);
+        return views != null && views[index] != null
+                ? views[index].getBboxRect().getTop()
+                : rects[index * COORDINATES + 1]
+                        + rects[index * COORDINATES + 3];
+    }
+
+    /**
+     * Checks if the text chunk has legacy bbox coordinates.
+     *
+     * @param index index of the text chunk
+     * @return true if legacy bbox is set
+     * @see TextInfo#getBbox()
+     */
+    @SuppressWarnings("deprecation")
+    public boolean hasBbox(final int index) {
+        checkIndex(index);
+        return views != null && views[index] != null
+                ? !views[index].getBbox().isEmpty()
+                : (flags[index] & HAS_BBOX) != 0;
+    }
+
+    /**
+     * Gets legacy bbox coordinate of the text chunk.
+     *
+     * @param index index of the text chunk
+     * @param coordinate index of the coordinate: 0 - left, 1 - top,
+     *                   2 - right, 3 - bottom
+     * @return coordinate in pixels
+     * @see TextInfo#getBbox()
+     */
+    @SuppressWarnings("deprecation")
+    public float getBboxCoordinate(final int index, final int coordinate) {
+        checkIndex(index);
+        if (views != null && views[index] != null) {
+            return views[index].getBbox().get(coordinate);
+        }
+        if ((flags[index] & HAS_BBOX) == 0 || coordinate < 0
+                || coordinate >= COORDINATES) {
+            throw new IndexOutOfBoundsException("Bbox coordinate "
+                    + coordinate + " of text chunk " + index);
+        }
+        return bboxes[index * COORDINATES + coordinate];
+    }
+
+    /**
+     * Gets x, y, width and height of the bbox rectangle exactly as they
+     * were set.
+     *
+     * @param index index of the text chunk which has bbox rectangle
+     * @param rect array of at least 4 elements to put coordinates to
+     */
+    void getRect(final int index, final float[] rect) {
+        checkIndex(index);
+        if (views != null && views[index] != null) {
+            final Rectangle bboxRect = views[index].getBboxRect();
+            rect[0] = bboxRect.getX();
+            rect[1] = bboxRect.getY();
+            rect[2] = bboxRect.getWidth();
+            rect[3] = bboxRect.getHeight();
+        } else {
+            System.arraycopy(rects, index * COORDINATES, rect, 0,
+                    COORDINATES);
+        }
+    }
+
+    /**
+     * Checks if the text chunk can be represented by primitive columns:
+     * its legacy bbox, if any, has exactly 4 coordinates.
+     *
+     * @param index index of the text chunk
+     * @return true if the text chunk is regular
+     */
+    @SuppressWarnings("deprecation")
+    boolean isRegular(final int index) {
+        checkIndex(index);
+        if (views == null || views[index] == null) {
+            return true;
+        }
+        final int bboxSize = views[index].getBbox().size();
+        return bboxSize == 0 || bboxSize == COORDINATES;
+    }
+
+    /**
+     * Gets {@link TextInfo} view of the text chunk, it is created on the
+     * first request.
+     *
+     * @param index index of the text chunk
+     * @return {@link TextInfo} of the text chunk
+     */
+    @Override
+    public TextInfo get(final int index) {
+        checkIndex(index);
+        if (views == null) {
+            views = new TextInfo[texts.length];
+        }
+        if (views[index] == null) {
+            views[index] = createView(index);
+        }
+        return views[index];
+    }
+
+    /**
+     * Replaces text chunk with given {@link TextInfo}, the element is
+     * kept as is and is read by primitive accessors.
+     *
+     * @param index index of the text chunk
+     * @param element {@link TextInfo} to set
+     * @return previous {@link TextInfo}
+     */
+    @Override
+    public TextInfo set(final int index, final TextInfo element) {
+        final TextInfo previous = get(index);
+        texts[index] = null;
+        flags[index] = 0;
+        views[index] = element;
+        return previous;
+    }
+
+    /**
+     * Inserts given {@link TextInfo}, the element is kept as is and is
+     * read by primitive accessors.
+     *
+     * @param index index to insert the element at
+     * @param element {@link TextInfo} to insert
+     */
+    @Override
+    public void add(final int index, final TextInfo element) {
+        if (index < 0 || index > size) {
+            throw new IndexOutOfBoundsException("Index: " + index
+                    + ", Size: " + size);
+        }
+        ensureCapacity(size + 1);
+        if (views == null) {
+            views = new TextInfo[texts.length];
+        }
+        shift(index, index + 1, size - index);
+        ++size;
+        ++modCount;
+        texts[index] = null;
+        flags[index] = 0;
+        views[index] = element;
+    }
+
+    /**
+     * Removes text chunk.
+     *
+     * @param index index of the text chunk
+     * @return removed {@link TextInfo}
+     */
+    @Override
+    public TextInfo remove(final int index) {
+        final TextInfo removed = get(index);
+        shift(index + 1, index, size - index - 1);
+        --size;
+        ++modCount;
+        texts[size] = null;
+        views[size] = null;
+        return removed;
+    }
+
+    /**
+     * Removes all text chunks.
+     */
+    @Override
+    public void clear() {
+        Arrays.fill(texts, 0, size, null);
+        if (views != null) {
+            Arrays.fill(views, 0, size, null);
+        }
+        size = 0;
+        ++modCount;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Adds copy of the text chunk from the list.
+     *
+     * @param textInfos source {@link java.util.List}
+     * @param index index of the text chunk in the source list
+     */
+    @SuppressWarnings("deprecation")
+    private void addCopy(final List<TextInfo> textInfos, final int index) {
+        if (textInfos instanceof TextInfoList) {
+            final TextInfoList source = (TextInfoList) textInfos;
+            if (source.views == null || source.views[index] == null) {
+                final int copyIndex = addChunk(source.texts[index],
+                        source.confidences[index]);
+                flags[copyIndex] = source.flags[index];
+                System.arraycopy(source.rects, index * COORDINATES,
+                        rects, copyIndex * COORDINATES, COORDINATES);
+                if ((source.flags[index] & HAS_BBOX) != 0) {
+                    if (bboxes == null) {
+                        bboxes = new float[texts.length * COORDINATES];
+                    }
+                    System.arraycopy(source.bboxes, index * COORDINATES,
+                            bboxes, copyIndex * COORDINATES, COORDINATES);
+                }
+                return;
+            }
+        }
+        final TextInfo textInfo = textInfos.get(index);
+        final Rectangle rect = textInfo.getBboxRect();
+        final List<Float> bbox = textInfo.getBbox();
+        if (bbox.isEmpty() || bbox.size() == COORDINATES) {
+            final int copyIndex = addChunk(textInfo.getText(),
+                    textInfo.getConfidence());
+            if (rect != null) {
+                flags[copyIndex] = HAS_RECT;
+                setCoordinates(rects, copyIndex, rect.getX(), rect.getY(),
+                        rect.getWidth(), rect.getHeight());
+            }
+            if (!bbox.isEmpty()) {
+                setBbox(copyIndex, bbox.get(0), bbox.get(1), bbox.get(2),
+                        bbox.get(3));
+            }
+        } else {
+            // bboxes of unusual size are kept in TextInfo
+            final TextInfo copy = new TextInfo(textInfo.getText(),
+                    rect == null ? null : new Rectangle(rect), bbox);
+            if (rect == null) {
+                copy.setBbox(bbox);
+            }
+            copy.setConfidence(textInfo.getConfidence());
+            add(copy);
+        }
+    }
+
+    /**
+     * Adds text chunk without bboxes.
+     *
+     * @param text recognized text
+     * @param confidence confidence of the text chunk
+     * @return index of the added text chunk
+     */
+    private int addChunk(final String text, final float confidence) {
+        ensureCapacity(size + 1);
+        final int index = size++;
+        ++modCount;
+        texts[index] = text;
+        confidences[index] = confidence;
+        flags[index] = 0;
+        if (views != null) {
+            views[index] = null;
+        }
+        return index;
+    }
+
+    /**
+     * Creates {@link TextInfo} view of the text chunk.
+     *
+     * @param index index of the text chunk
+     * @return {@link TextInfo} of the text chunk
+     */
+    @SuppressWarnings("deprecation")
+    private TextInfo createView(final int index) {
+        final int offset = index * COORDINATES;
+        final Rectangle rect = (flags[index] & HAS_RECT) == 0 ? null
+                : new Rectangle(rects[offset], rects[offset + 1],
+                        rects[offset + 2], rects[offset + 3]);
+        final List<Float> bbox = (flags[index] & HAS_BBOX) == 0 ? null
+                : Arrays.<Float>asList(bboxes[offset], bboxes[offset + 1],
+                        bboxes[offset + 2], bboxes[offset + 3]);
+        final TextInfo textInfo;
+        if (rect != null && bbox != null) {
+            textInfo = new TextInfo(texts[index], rect, bbox);
+        } else {
+            textInfo = new TextInfo();
+            textInfo.setText(texts[index]);
+            if (rect != null) {
+                textInfo.setBboxRect(rect);
+            } else if (bbox != null) {
+                textInfo.setBbox(bbox);
+            }
+        }
+        textInfo.setConfidence(confidences[index]);
+        return textInfo;
+    }
+
+    /**
+     * Moves text chunks within internal arrays.
+     *
+     * @param from index of the first moved text chunk
+     * @param to new index of the first moved text chunk
+     * @param count number of moved text chunks
+     */
+    private void shift(final int from, final int to, final int count) {
+        if (count <= 0) {
+            return;
+        }
+        System.arraycopy(texts, from, texts, to, count);
+        System.arraycopy(confidences, from, confidences, to, count);
+        System.arraycopy(flags, from, flags, to, count);
+        System.arraycopy(rects, from * COORDINATES, rects, to * COORDINATES,
+                count * COORDINATES);
+        if (bboxes != null) {
+            System.arraycopy(bboxes, from * COORDINATES, bboxes,
+                    to * COORDINATES, count * COORDINATES);
+        }
+        if (views != null) {
+            System.arraycopy(views, from, views, to, count);
+        }
+    }
+
+    /**
+     * Grows internal arrays if they cannot hold given number of text
+     * chunks.
+     *
+     * @param capacity required number of text chunks
+     */
+    private void ensureCapacity(final int capacity) {
+        if (capacity <= texts.length) {
+            return;
+        }
+        final int newCapacity = Math.max(capacity,
+                texts.length + (texts.length >> 1));
+        texts = Arrays.copyOf(texts, newCapacity);
+        confidences = Arrays.copyOf(confidences, newCapacity);
+        flags = Arrays.copyOf(flags, newCapacity);
+        rects = Arrays.copyOf(rects, newCapacity * COORDINATES);
+        if (bboxes != null) {
+            bboxes = Arrays.copyOf(bboxes, newCapacity * COORDINATES);
+        }
+        if (views != null) {
+            views = Arrays.copyOf(views, newCapacity);
+        }
+    }
+
+    /**
+     * Checks that the index refers to an existing text chunk.
+     *
+     * @param index index of the text chunk
+     */
+    private void checkIndex(final int index) {
+        if (index < 0 || index >= size) {
+            throw new IndexOutOfBoundsException("Index: " + index
+                    + ", Size: " + size);
+        }
+    }
+
+    /**
+     * Sets four coordinates of the text chunk.
+     *
+     * @param array array of coordinates
+     * @param index index of the text chunk
+     * @param c0 the first coordinate
+     * @param c1 the second coordinate
+     * @param c2 the third coordinate
+     * @param c3 the fourth coordinate
+     */
+    private static void setCoordinates(final float[] array, final int index,
+            final float c0, final float c1, final float c2, final float c3) {
+        final int offset = index * COORDINATES;
+        array[offset] = c0;
+        array[offset + 1] = c1;
+        array[offset + 2] = c2;
+        array[offset + 3] = c3;
+    }
+}
@@ -0,0 +1,140 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr;
+
+import com.itextpdf.io.image.ImageData;
+import com.itextpdf.io.image.ImageDataFactory;
+import com.itextpdf.io.util.MessageFormatUtil;
+
+import java.util.AbstractList;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Pages of a multi-page TIFF image as a list of
+ * {@link com.itextpdf.io.image.ImageData} which are created lazily, one page
+ * at a time, when they are requested.
+ *
+ * All the pages are created from the same bytes of the TIFF image read
+ * once, and pages are not cached, so only the page currently processed is
+ * kept in memory. Each call of {@link #get(int)} decodes the page again,
+ * hence the list is expected to be iterated once.
+ *
+ * CCITT Group 4 and JPEG compressed pages are not decoded: their compressed
+ * strips are embedded to the PDF document as they are.
+ */
+public class TiffPageImageDataList extends AbstractList<ImageData> {
+
+    /**
+     * The logger.
+     */
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(TiffPageImageDataList.class);
+
+    /**
+     * Bytes of the TIFF image.
+     */
+    private final byte[] tiffBytes;
+
+    /**
+     * Number of pages of the TIFF image.
+     */
+    private final int numberOfPages;
+
+    /**
+     * {@link IImageRotationHandler} applied to each page, may be null.
+     */
+    private final IImageRotationHandler imageRotationHandler;
+
+    /**
+     * Creates a new {@link TiffPageImageDataList} instance.
+     *
+     * @param tiffBytes bytes of the TIFF image
+     * @param numberOfPages number of pages of the TIFF image
+     * @param imageRotationHandler {@link IImageRotationHandler} to be
+     *                             applied to each page, null if rotation
+     *                             isn't required
+     */
+    public TiffPageImageDataList(final byte[] tiffBytes,
+            final int numberOfPages,
+            final IImageRotationHandler imageRotationHandler) {
+        this.tiffBytes = tiffBytes;
+        this.numberOfPages = numberOfPages;
+        this.imageRotationHandler = imageRotationHandler;
+    }
+
+    /**
+     * Creates {@link com.itextpdf.io.image.ImageData} of the requested page.
+     *
+     * @param index index of the page (starting from 0)
+     * @return {@link com.itextpdf.io.image.ImageData} of the page
+     * @throws OcrException if the page cannot be read
+     */
+    @Override
+    public ImageData get(final int index) {
+        if (index < 0 || index >= numberOfPages) {
+            throw new IndexOutOfBoundsException(String.valueOf(index));
+        }
+        return createPage(index);
+    }
+
+    /**
+     * Gets number of pages.
+     *
+     * @return number of pages of the TIFF image
+     */
+    @Override
+    public int size() {
+        return numberOfPages;
+    }
+
+    /**
+     * Decodes the requested page from the bytes of the TIFF image.
+     *
+     * @param index index of the page (starting from 0)
+     * @return {@link com.itextpdf.io.image.ImageData} of the page
+     * @throws OcrException if the page cannot be read
+     */
+    ImageData createPage(final int index) {
+        // compressed strips are embedded as they are unless the page
+        // should be rotated, which requires its pixels
+        ImageData imageData = imageRotationHandler == null
+                ? TiffStripImageData.create(tiffBytes, index + 1) : null;
+        if (imageData != null) {
+            return imageData;
+        }
+        try {
+            imageData = ImageDataFactory.createTiff(tiffBytes, true,
+                    index + 1, true);
+        } catch (com.itextpdf.io.IOException e) {
+            LOGGER.error(MessageFormatUtil.format(
+                    PdfOcrLogMessageConstant.CANNOT_READ_INPUT_IMAGE,
+                    e.getMessage()));
+            throw new OcrException(OcrException.CANNOT_READ_INPUT_IMAGE, e);
+        }
+        if (imageRotationHandler != null) {
+            imageData = imageRotationHandler.applyRotation(imageData);
+        }
+        return imageData;
+    }
+}
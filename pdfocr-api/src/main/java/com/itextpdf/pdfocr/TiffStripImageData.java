@@ -0,0 +1,278 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr;
+
+import com.itextpdf.io.codec.TIFFConstants;
+import com.itextpdf.io.codec.TIFFDirectory;
+import com.itextpdf.io.codec.TIFFField;
+import com.itextpdf.io.image.ImageData;
+import com.itextpdf.io.image.ImageDataFactory;
+import com.itextpdf.io.image.TiffImageData;
+import com.itextpdf.io.image.RawImageData;
+import com.itextpdf.io.source.RandomAccessFileOrArray;
+import com.itextpdf.io.source.RandomAccessSourceFactory;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * TIFF page whose CCITT Group 4 or JPEG compressed strips are embedded to
+ * the PDF document as they are, without decoding and encoding them again.
+ *
+ * Pages consisting of a single strip are already embedded as they are by
+ * {@link com.itextpdf.io.image.ImageDataFactory}, while pages with several
+ * strips are decoded by it. Compressed strips of a page cannot be joined
+ * into a single PDF image, so each strip is kept as a separate
+ * {@link com.itextpdf.io.image.ImageData} which should be placed in its own
+ * horizontal band of the page image.
+ */
+class TiffStripImageData extends TiffImageData {
+
+    /**
+     * Images of the strips from top to bottom.
+     */
+    private final List<ImageData> strips;
+
+    /**
+     * Creates new instance of {@link TiffStripImageData}.
+     *
+     * @param strips images of the strips from top to bottom
+     * @param page number of the page (starting from 1)
+     * @param width width of the page
+     * @param height height of the page
+     */
+    private TiffStripImageData(final List<ImageData> strips, final int page,
+            final int width, final int height) {
+        super((byte[]) null, true, page, false);
+        this.strips = Collections.unmodifiableList(strips);
+        setWidth(width);
+        setHeight(height);
+    }
+
+    /**
+     * Gets images of the strips from top to bottom.
+     *
+     * @return list of {@link com.itextpdf.io.image.ImageData}
+     */
+    List<ImageData> getStrips() {
+        return strips;
+    }
+
+    /**
+     * Creates {@link com.itextpdf.io.image.ImageData} of the TIFF page which
+     * embeds its compressed strips as they are. Only CCITT Group 4 and
+     * JPEG compressed pages with several strips are supported.
+     *
+     * @param tiffBytes bytes of the TIFF image
+     * @param page number of the page (starting from 1)
+     * @return {@link TiffStripImageData} or null if the page should be
+     * processed in the usual way
+     */
+    static TiffStripImageData create(final byte[] tiffBytes, final int page) {
+        try {
+            final TIFFDirectory dir = new TIFFDirectory(
+                    new RandomAccessFileOrArray(new RandomAccessSourceFactory()
+                            .createSource(tiffBytes)), page - 1);
+            final List<ImageData> strips = readStrips(tiffBytes, dir);
+            if (strips == null) {
+                return null;
+            }
+            final TiffStripImageData imageData = new TiffStripImageData(
+                    strips, page,
+                    (int) dir.getFieldAsLong(TIFFConstants.TIFFTAG_IMAGEWIDTH),
+                    (int) dir.getFieldAsLong(TIFFConstants.TIFFTAG_IMAGELENGTH));
+            setDpi(imageData, dir);
+            // strips are encoded separately, so they need the resolution
+            // of the page to be downsampled consistently
+            for (ImageData strip : strips) {
+                if (strip.getDpiX() <= 0) {
+                    strip.setDpi(imageData.getDpiX(), imageData.getDpiY());
+                }
+            }
+            return imageData;
+        } catch (IOException | RuntimeException e) { // NOSONAR
+            // the page is processed in the usual way
+            return null;
+        }
+    }
+
+    /**
+     * Reads compressed strips of the TIFF page.
+     *
+     * @param tiffBytes bytes of the TIFF image
+     * @param dir {@link com.itextpdf.io.codec.TIFFDirectory} of the page
+     * @return list of {@link com.itextpdf.io.image.ImageData} of the strips
+     * or null if they cannot be embedded as they are
+     */
+    private static List<ImageData> readStrips(final byte[] tiffBytes,
+            final TIFFDirectory dir) {
+        final int compression = (int) getField(dir,
+                TIFFConstants.TIFFTAG_COMPRESSION, 1);
+        final int photometric = (int) getField(dir,
+                TIFFConstants.TIFFTAG_PHOTOMETRIC, -1);
+        if ((compression != TIFFConstants.COMPRESSION_CCITTFAX4
+                && compression != TIFFConstants.COMPRESSION_JPEG)
+                || dir.isTagPresent(TIFFConstants.TIFFTAG_TILEWIDTH)
+                || getField(dir, TIFFConstants.TIFFTAG_ORIENTATION, 1) != 1
+                || getField(dir, TIFFConstants.TIFFTAG_PLANARCONFIG,
+                TIFFConstants.PLANARCONFIG_CONTIG)
+                != TIFFConstants.PLANARCONFIG_CONTIG
+                || !dir.isTagPresent(TIFFConstants.TIFFTAG_STRIPOFFSETS)
+                || !dir.isTagPresent(TIFFConstants.TIFFTAG_STRIPBYTECOUNTS)) {
+            return null;
+        }
+        final int width = (int) dir.getFieldAsLong(
+                TIFFConstants.TIFFTAG_IMAGEWIDTH);
+        final int height = (int) dir.getFieldAsLong(
+                TIFFConstants.TIFFTAG_IMAGELENGTH);
+        final int rowsPerStrip = (int) Math.min(height, getField(dir,
+                TIFFConstants.TIFFTAG_ROWSPERSTRIP, height));
+        final long[] offsets = dir.getField(TIFFConstants.TIFFTAG_STRIPOFFSETS)
+                .getAsLongs();
+        final long[] byteCounts = dir.getField(
+                TIFFConstants.TIFFTAG_STRIPBYTECOUNTS).getAsLongs();
+        if (rowsPerStrip <= 0 || offsets.length < 2
+                || offsets.length != byteCounts.length
+                || offsets.length != (height + rowsPerStrip - 1) / rowsPerStrip) {
+            return null;
+        }
+        final List<ImageData> strips = new ArrayList<>(offsets.length);
+        for (int i = 0; i < offsets.length; ++i) {
+            final int rows = Math.min(rowsPerStrip, height - i * rowsPerStrip);
+            final byte[] data = Arrays.copyOfRange(tiffBytes,
+                    (int) offsets[i], (int) (offsets[i] + byteCounts[i]));
+            final ImageData strip = compression
+                    == TIFFConstants.COMPRESSION_CCITTFAX4
+                    ? createCcittStrip(dir, data, width, rows, photometric)
+                    : createJpegStrip(dir, data, photometric);
+            if (strip == null || strip.getWidth() != width
+                    || strip.getHeight() != rows) {
+                return null;
+            }
+            strips.add(strip);
+        }
+        return strips;
+    }
+
+    /**
+     * Creates image of the CCITT Group 4 compressed strip.
+     *
+     * @param dir {@link com.itextpdf.io.codec.TIFFDirectory} of the page
+     * @param data compressed strip
+     * @param width width of the strip
+     * @param rows height of the strip
+     * @param photometric photometric interpretation of the page
+     * @return {@link com.itextpdf.io.image.ImageData} of the strip or null
+     * if it cannot be embedded as it is
+     */
+    private static ImageData createCcittStrip(final TIFFDirectory dir,
+            final byte[] data, final int width, final int rows,
+            final int photometric) {
+        if ((getField(dir, TIFFConstants.TIFFTAG_GROUP4OPTIONS, 0)
+                & TIFFConstants.GROUP4OPT_UNCOMPRESSED) != 0) {
+            return null;
+        }
+        return ImageDataFactory.create(width, rows,
+                getField(dir, TIFFConstants.TIFFTAG_FILLORDER, 1)
+                        == TIFFConstants.FILLORDER_LSB2MSB,
+                RawImageData.CCITTG4,
+                photometric == TIFFConstants.PHOTOMETRIC_MINISBLACK
+                        ? RawImageData.CCITT_BLACKIS1 : 0,
+                data, null);
+    }
+
+    /**
+     * Creates image of the JPEG compressed strip.
+     *
+     * @param dir {@link com.itextpdf.io.codec.TIFFDirectory} of the page
+     * @param data compressed strip
+     * @param photometric photometric interpretation of the page
+     * @return {@link com.itextpdf.io.image.ImageData} of the strip or null
+     * if it cannot be embedded as it is
+     */
+    private static ImageData createJpegStrip(final TIFFDirectory dir,
+            final byte[] data, final int photometric) {
+        if (photometric != TIFFConstants.PHOTOMETRIC_MINISBLACK
+                && photometric != TIFFConstants.PHOTOMETRIC_RGB
+                && photometric != TIFFConstants.PHOTOMETRIC_YCBCR) {
+            return null;
+        }
+        byte[] jpeg = data;
+        final TIFFField tables = dir.getField(TIFFConstants.TIFFTAG_JPEGTABLES);
+        if (tables != null && tables.getCount() > 4) {
+            // abbreviated stream: tables without EOI, strip without SOI
+            final byte[] tableBytes = tables.getAsBytes();
+            jpeg = new byte[tableBytes.length - 2 + data.length - 2];
+            System.arraycopy(tableBytes, 0, jpeg, 0, tableBytes.length - 2);
+            System.arraycopy(data, 2, jpeg, tableBytes.length - 2,
+                    data.length - 2);
+        }
+        final ImageData strip = ImageDataFactory.createJpeg(jpeg);
+        if (photometric == TIFFConstants.PHOTOMETRIC_RGB) {
+            // samples are not converted to YCbCr
+            strip.setColorTransform(0);
+        }
+        return strip;
+    }
+
+    /**
+     * Sets resolution of the TIFF page to the image.
+     *
+     * @param imageData {@link com.itextpdf.io.image.ImageData} of the page
+     * @param dir {@link com.itextpdf.io.codec.TIFFDirectory} of the page
+     */
+    private static void setDpi(final ImageData imageData,
+            final TIFFDirectory dir) {
+        final int unit = (int) getField(dir,
+                TIFFConstants.TIFFTAG_RESOLUTIONUNIT,
+                TIFFConstants.RESUNIT_INCH);
+        if (unit == TIFFConstants.RESUNIT_NONE
+                || !dir.isTagPresent(TIFFConstants.TIFFTAG_XRESOLUTION)
+                || !dir.isTagPresent(TIFFConstants.TIFFTAG_YRESOLUTION)) {
+            return;
+        }
+        final float multiplier =
+                unit == TIFFConstants.RESUNIT_CENTIMETER ? 2.54f : 1;
+        imageData.setDpi(
+                Math.round(dir.getFieldAsFloat(
+                        TIFFConstants.TIFFTAG_XRESOLUTION) * multiplier),
+                Math.round(dir.getFieldAsFloat(
+                        TIFFConstants.TIFFTAG_YRESOLUTION) * multiplier));
+    }
+
+    /**
+     * Gets value of the TIFF field.
+     *
+     * @param dir {@link com.itextpdf.io.codec.TIFFDirectory} of the page
+     * @param tag tag of the field
+     * @param defaultValue value returned if the field is not present
+     * @return value of the field
+     */
+    private static long getField(final TIFFDirectory dir, final int tag,
+            final long defaultValue) {
+        return dir.isTagPresent(tag) ? dir.getFieldAsLong(tag) : defaultValue;
+    }
+}
@@ -27,7 +27,16 @@ import com.itextpdf.kernel.colors.DeviceRgb;
 import com.itextpdf.kernel.font.PdfFont;
 import com.itextpdf.kernel.geom.Rectangle;
 import com.itextpdf.pdfocr.helpers.CustomOcrEngine;
+import com.itextpdf.kernel.pdf.PdfDictionary;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfIndirectReference;
+import com.itextpdf.kernel.pdf.PdfName;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.PdfWriter;
+import com.itextpdf.kernel.pdf.canvas.parser.PdfTextExtractor;
 import com.itextpdf.pdfocr.helpers.ExtractionStrategy;
+import com.itextpdf.pdfocr.helpers.ImageDataSharingOcrEngine;
+import com.itextpdf.pdfocr.helpers.PageStreamingOcrEngine;
 import com.itextpdf.pdfocr.helpers.PdfHelper;
 import com.itextpdf.test.ExtendedITextTest;
 import com.itextpdf.test.annotations.LogMessage;
@@ -36,6 +45,9 @@ import com.itextpdf.test.annotations.type.IntegrationTest;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
@@ -141,6 +153,219 @@ public class ApiTest extends ExtendedITextTest {
         Assert.assertNotNull(properties.getImageRotationHandler());
     }
 
+    @Test
+    public void testImageDataSharedByEngine() throws IOException {
+        String testName = "testImageDataSharedByEngine";
+        String pdfPath = PdfHelper.getTargetDirectory() + testName + ".pdf";
+        // input file isn't read by OcrPdfCreator if the engine shares it
+        File input = new File(PdfHelper.getImagesTestDirectory() + "nonexistent.jpg");
+
+        OcrPdfCreator ocrPdfCreator = new OcrPdfCreator(
+                new ImageDataSharingOcrEngine(PdfHelper.getDefaultImagePath()));
+        try (PdfWriter pdfWriter = PdfHelper.getPdfWriter(pdfPath)) {
+            ocrPdfCreator.createPdf(Collections.<File>singletonList(input),
+                    pdfWriter).close();
+        }
+
+        try (PdfDocument pdfDocument = new PdfDocument(new PdfReader(pdfPath))) {
+            Assert.assertEquals(1, pdfDocument.getNumberOfPages());
+            Rectangle pageSize = pdfDocument.getPage(1).getPageSize();
+            Assert.assertEquals(PdfCreatorUtil.getPoints(1148), pageSize.getWidth(), 0.1f);
+            Assert.assertEquals(PdfCreatorUtil.getPoints(464), pageSize.getHeight(), 0.1f);
+        }
+    }
+
+    @Test
+    public void testSharedImageDataIsPlacedRightAfterRecognition() throws IOException {
+        String pdfPath = PdfHelper.getTargetDirectory()
+                + "testSharedImageDataIsPlacedRightAfterRecognition.pdf";
+        File first = new File(PdfHelper.getImagesTestDirectory() + "first.jpg");
+        File second = new File(PdfHelper.getImagesTestDirectory() + "second.jpg");
+        ImageDataSharingOcrEngine engine =
+                new ImageDataSharingOcrEngine(PdfHelper.getDefaultImagePath());
+
+        OcrPdfCreator ocrPdfCreator = new OcrPdfCreator(engine);
+        try (PdfWriter pdfWriter = PdfHelper.getPdfWriter(pdfPath)) {
+            ocrPdfCreator.createPdf(Arrays.asList(first, second), pdfWriter).close();
+        }
+
+        // page images of the first image are dropped before the second
+        // image is recognized
+        Assert.assertEquals(Arrays.asList("recognized first.jpg", "placed first.jpg",
+                "recognized second.jpg", "placed second.jpg"), engine.getEvents());
+    }
+
+    @Test
+    public void testRecognizedResultsDontKeepImageData() {
+        ImageDataSharingOcrEngine engine =
+                new ImageDataSharingOcrEngine(PdfHelper.getDefaultImagePath());
+        File input = new File(PdfHelper.getDefaultImagePath());
+
+        Map<File, OcrImageResult> results = new OcrPdfCreator(engine)
+                .recognize(Collections.<File>singletonList(input));
+
+        Assert.assertNull(results.get(input).getImageData());
+        Assert.assertTrue(engine.getEvents().isEmpty());
+    }
+
+    @Test
+    public void testDuplicateImagesAreReused() throws IOException {
+        String pdfPath = PdfHelper.getTargetDirectory()
+                + "testDuplicateImagesAreReused.pdf";
+        CountingOcrEngine engine = new CountingOcrEngine();
+        createPdfFromDuplicateImages(pdfPath, engine,
+                new OcrPdfCreatorProperties().setReusingDuplicateImages(true));
+
+        Assert.assertEquals(1, engine.getCalls());
+        try (PdfDocument pdfDocument = new PdfDocument(new PdfReader(pdfPath))) {
+            Assert.assertEquals(2, pdfDocument.getNumberOfPages());
+            Assert.assertEquals(getImageReference(pdfDocument, 1),
+                    getImageReference(pdfDocument, 2));
+            Assert.assertEquals(PdfHelper.DEFAULT_TEXT, PdfTextExtractor
+                    .getTextFromPage(pdfDocument.getPage(2)).trim());
+        }
+    }
+
+    @Test
+    public void testDuplicateImagesAreNotReusedByDefault() throws IOException {
+        String pdfPath = PdfHelper.getTargetDirectory()
+                + "testDuplicateImagesAreNotReusedByDefault.pdf";
+        CountingOcrEngine engine = new CountingOcrEngine();
+        createPdfFromDuplicateImages(pdfPath, engine,
+                new OcrPdfCreatorProperties());
+
+        Assert.assertEquals(2, engine.getCalls());
+        try (PdfDocument pdfDocument = new PdfDocument(new PdfReader(pdfPath))) {
+            Assert.assertEquals(2, pdfDocument.getNumberOfPages());
+            Assert.assertNotEquals(getImageReference(pdfDocument, 1),
+                    getImageReference(pdfDocument, 2));
+        }
+    }
+
+    @Test
+    public void testPrecomputedResultsAreReused() throws IOException {
+        String pdfPath = PdfHelper.getTargetDirectory()
+                + "testPrecomputedResultsAreReused.pdf";
+        String pdfAPath = PdfHelper.getTargetDirectory()
+                + "testPrecomputedResultsAreReusedPdfA.pdf";
+        File txtFile = new File(PdfHelper.getTargetDirectory()
+                + "testPrecomputedResultsAreReused.txt");
+        File input = new File(PdfHelper.getDefaultImagePath());
+        CountingOcrEngine engine = new CountingOcrEngine();
+        OcrPdfCreator ocrPdfCreator = new OcrPdfCreator(engine,
+                new OcrPdfCreatorProperties().setPdfLang("en-US"));
+
+        Map<File, OcrImageResult> results = ocrPdfCreator.recognize(
+                Collections.<File>singletonList(input));
+        try (PdfWriter pdfWriter = PdfHelper.getPdfWriter(pdfPath)) {
+            ocrPdfCreator.createPdf(results, pdfWriter).close();
+        }
+        // results restored from the serialized form are accepted too
+        Map<File, OcrImageResult> restored = Collections.singletonMap(input,
+                new OcrImageResult(OcrResultReader.read(OcrResultWriter.write(
+                        results.get(input).getTextInfos()))));
+        try (PdfWriter pdfWriter = PdfHelper.getPdfWriter(pdfAPath)) {
+            ocrPdfCreator.createPdfA(restored, pdfWriter,
+                    PdfHelper.getRGBPdfOutputIntent()).close();
+        }
+        ocrPdfCreator.createTxtFile(results, txtFile);
+
+        Assert.assertEquals(1, engine.getCalls());
+        Assert.assertEquals(PdfHelper.DEFAULT_TEXT,
+                PdfHelper.getTextFromPdfLayer(pdfPath, null).trim());
+        Assert.assertEquals(PdfHelper.DEFAULT_TEXT,
+                PdfHelper.getTextFromPdfLayer(pdfAPath, null).trim());
+        Assert.assertEquals(PdfHelper.DEFAULT_TEXT, new String(
+                Files.readAllBytes(txtFile.toPath()), StandardCharsets.UTF_8).trim());
+    }
+
+    @Test
+    public void testOcrResultsAreSpilled() throws IOException {
+        String pdfPath = PdfHelper.getTargetDirectory()
+                + "testOcrResultsAreSpilled.pdf";
+        File spillDirectory = new File(PdfHelper.getTargetDirectory()
+                + "testOcrResultsAreSpilled");
+        OcrPdfCreator ocrPdfCreator = new OcrPdfCreator(new CustomOcrEngine(),
+                new OcrPdfCreatorProperties()
+                        .setResultSpillDirectory(spillDirectory));
+        try (PdfWriter pdfWriter = PdfHelper.getPdfWriter(pdfPath)) {
+            ocrPdfCreator.createPdf(Collections.<File>singletonList(
+                    new File(PdfHelper.getDefaultImagePath())), pdfWriter).close();
+        }
+
+        Assert.assertEquals(PdfHelper.DEFAULT_TEXT,
+                PdfHelper.getTextFromPdfLayer(pdfPath, null).trim());
+        // spill file is deleted when the document is created
+        Assert.assertEquals(0, spillDirectory.listFiles().length);
+    }
+
+    @Test
+    public void testPagesAreSpilledWhileImageIsRecognized() throws IOException {
+        String pdfPath = PdfHelper.getTargetDirectory()
+                + "testPagesAreSpilledWhileImageIsRecognized.pdf";
+        File spillDirectory = new File(PdfHelper.getTargetDirectory()
+                + "testPagesAreSpilledWhileImageIsRecognized");
+        PageStreamingOcrEngine engine = new PageStreamingOcrEngine(3,
+                spillDirectory);
+        OcrPdfCreator ocrPdfCreator = new OcrPdfCreator(engine,
+                new OcrPdfCreatorProperties()
+                        .setResultSpillDirectory(spillDirectory));
+        try (PdfWriter pdfWriter = PdfHelper.getPdfWriter(pdfPath)) {
+            ocrPdfCreator.createPdf(Collections.<File>singletonList(
+                    new File(PdfHelper.getDefaultImagePath())), pdfWriter).close();
+        }
+
+        // each page is written to the spill file once it's passed and
+        // isn't kept by the result
+        List<Long> spilledSizes = engine.getSpilledSizes();
+        Assert.assertEquals(3, spilledSizes.size());
+        Assert.assertTrue(spilledSizes.get(0) > 0);
+        Assert.assertTrue(spilledSizes.get(1) > spilledSizes.get(0));
+        Assert.assertTrue(spilledSizes.get(2) > spilledSizes.get(1));
+        Assert.assertEquals(Arrays.asList(false, false, false),
+                engine.getPagesKept());
+        Assert.assertEquals(PdfHelper.DEFAULT_TEXT,
+                PdfHelper.getTextFromPdfLayer(pdfPath, null).trim());
+        Assert.assertEquals(0, spillDirectory.listFiles().length);
+    }
+
+    private static void createPdfFromDuplicateImages(String pdfPath,
+            IOcrEngine engine, OcrPdfCreatorProperties properties)
+            throws IOException {
+        File original = new File(PdfHelper.getDefaultImagePath());
+        File duplicate = new File(PdfHelper.getTargetDirectory()
+                + "duplicate_" + PdfHelper.DEFAULT_IMAGE_NAME);
+        Files.copy(original.toPath(), duplicate.toPath(),
+                StandardCopyOption.REPLACE_EXISTING);
+        OcrPdfCreator ocrPdfCreator = new OcrPdfCreator(engine, properties);
+        try (PdfWriter pdfWriter = PdfHelper.getPdfWriter(pdfPath)) {
+            ocrPdfCreator.createPdf(Arrays.<File>asList(original, duplicate),
+                    pdfWriter).close();
+        }
+    }
+
+    private static PdfIndirectReference getImageReference(
+            PdfDocument pdfDocument, int page) {
+        PdfDictionary xObjects = pdfDocument.getPage(page).getResources()
+                .getResource(PdfName.XObject);
+        return xObjects.getAsStream(xObjects.keySet().iterator().next())
+                .getIndirectReference();
+    }
+
+    static class CountingOcrEngine extends CustomOcrEngine {
+        private int calls = 0;
+
+        @Override
+        public Map<Integer, List<TextInfo>> doImageOcr(File input) {
+            ++calls;
+            return super.doImageOcr(input);
+        }
+
+        public int getCalls() {
+            return calls;
+        }
+    }
+
     static class NotImplementedImageRotationHandler implements IImageRotationHandler {
         @Override
         public ImageData applyRotation(ImageData imageData) {
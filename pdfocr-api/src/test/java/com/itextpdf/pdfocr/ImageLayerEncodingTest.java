@@ -0,0 +1,347 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr;
+
+import com.itextpdf.io.image.ImageData;
+import com.itextpdf.kernel.geom.Rectangle;
+import com.itextpdf.kernel.pdf.PdfDictionary;
+import com.itextpdf.kernel.pdf.PdfDocument;
+import com.itextpdf.kernel.pdf.PdfName;
+import com.itextpdf.kernel.pdf.PdfReader;
+import com.itextpdf.kernel.pdf.PdfStream;
+import com.itextpdf.kernel.pdf.xobject.PdfImageXObject;
+import com.itextpdf.pdfocr.helpers.PdfHelper;
+import com.itextpdf.test.ExtendedITextTest;
+import com.itextpdf.test.annotations.LogMessage;
+import com.itextpdf.test.annotations.LogMessages;
+import com.itextpdf.test.annotations.type.IntegrationTest;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import javax.imageio.ImageIO;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(IntegrationTest.class)
+public class ImageLayerEncodingTest extends ExtendedITextTest {
+
+    @Test
+    public void testOriginalEncodingByDefault() throws IOException {
+        String pdfPath = PdfHelper.getTargetDirectory()
+                + "testOriginalEncodingByDefault.pdf";
+        PdfHelper.createPdf(pdfPath, new File(PdfHelper.getDefaultImagePath()),
+                new OcrPdfCreatorProperties());
+
+        PdfStream image = getImageXObject(pdfPath);
+        Assert.assertEquals(PdfName.DCTDecode, image.getAsName(PdfName.Filter));
+    }
+
+    @Test
+    public void testCcittEncodingOfJpegImage() throws IOException {
+        String pdfPath = PdfHelper.getTargetDirectory()
+                + "testCcittEncodingOfJpegImage.pdf";
+        PdfHelper.createPdf(pdfPath, new File(PdfHelper.getDefaultImagePath()),
+                new OcrPdfCreatorProperties()
+                        .setImageLayerEncoding(ImageLayerEncoding.CCITT_G4));
+
+        PdfStream image = getImageXObject(pdfPath);
+        Assert.assertEquals(PdfName.CCITTFaxDecode,
+                image.getAsName(PdfName.Filter));
+        Assert.assertEquals(1, image.getAsNumber(PdfName.BitsPerComponent)
+                .intValue());
+        Assert.assertEquals(1148, image.getAsNumber(PdfName.Width).intValue());
+        Assert.assertEquals(464, image.getAsNumber(PdfName.Height).intValue());
+        Assert.assertTrue(PdfHelper.getTextFromPdfLayer(pdfPath, null)
+                .contains(PdfHelper.DEFAULT_TEXT));
+    }
+
+    @Test
+    public void testCcittEncodingOfBilevelImage() throws IOException {
+        String pdfPath = PdfHelper.getTargetDirectory()
+                + "testCcittEncodingOfBilevelImage.pdf";
+        PdfHelper.createPdf(pdfPath, new File(PdfHelper.getDefaultImagePath()),
+                new OcrPdfCreatorProperties().setImageLayerEncoding(
+                        ImageLayerEncoding.CCITT_G4_IF_BILEVEL));
+
+        PdfStream image = getImageXObject(pdfPath);
+        Assert.assertEquals(PdfName.CCITTFaxDecode,
+                image.getAsName(PdfName.Filter));
+    }
+
+    @Test
+    public void testColorImageIsNotCcittEncoded() throws IOException {
+        String pdfPath = PdfHelper.getTargetDirectory()
+                + "testColorImageIsNotCcittEncoded.pdf";
+        PdfHelper.createPdf(pdfPath,
+                new File(PdfHelper.getImagesTestDirectory() + "single7x5cm.tif"),
+                new OcrPdfCreatorProperties().setImageLayerEncoding(
+                        ImageLayerEncoding.CCITT_G4_IF_BILEVEL));
+
+        PdfStream image = getImageXObject(pdfPath);
+        Assert.assertEquals(PdfName.FlateDecode,
+                image.getAsName(PdfName.Filter));
+    }
+
+    @Test
+    public void testDownsamplingToMaxDpi() throws IOException {
+        String pdfPath = PdfHelper.getTargetDirectory()
+                + "testDownsamplingToMaxDpi.pdf";
+        PdfHelper.createPdf(pdfPath, new File(PdfHelper.getDefaultImagePath()),
+                new OcrPdfCreatorProperties().setMaxImageDpi(96));
+
+        PdfStream image = getImageXObject(pdfPath);
+        Assert.assertEquals(PdfName.DCTDecode, image.getAsName(PdfName.Filter));
+        Assert.assertEquals(574, image.getAsNumber(PdfName.Width).intValue());
+        Assert.assertEquals(232, image.getAsNumber(PdfName.Height).intValue());
+        Assert.assertTrue(PdfHelper.getTextFromPdfLayer(pdfPath, null)
+                .contains(PdfHelper.DEFAULT_TEXT));
+        try (PdfDocument pdfDocument = new PdfDocument(new PdfReader(pdfPath))) {
+            Assert.assertEquals(PdfCreatorUtil.getPoints(1148),
+                    pdfDocument.getPage(1).getPageSize().getWidth(), 0.01f);
+        }
+    }
+
+    @Test
+    public void testImageWithLowerDpiIsNotDownsampled() throws IOException {
+        String pdfPath = PdfHelper.getTargetDirectory()
+                + "testImageWithLowerDpiIsNotDownsampled.pdf";
+        PdfHelper.createPdf(pdfPath, new File(PdfHelper.getDefaultImagePath()),
+                new OcrPdfCreatorProperties().setMaxImageDpi(300));
+
+        PdfStream image = getImageXObject(pdfPath);
+        Assert.assertEquals(1148, image.getAsNumber(PdfName.Width).intValue());
+    }
+
+    @Test
+    public void testGrayReductionOfColorJpeg() throws IOException {
+        String pdfPath = PdfHelper.getTargetDirectory()
+                + "testGrayReductionOfColorJpeg.pdf";
+        PdfHelper.createPdf(pdfPath,
+                new File(PdfHelper.getImagesTestDirectory() + "90_degrees_rotated.jpg"),
+                new OcrPdfCreatorProperties().setReducingImageColors(true));
+
+        PdfStream image = getImageXObject(pdfPath);
+        Assert.assertEquals(PdfName.DCTDecode, image.getAsName(PdfName.Filter));
+        Assert.assertEquals(PdfName.DeviceGray,
+                image.getAsName(PdfName.ColorSpace));
+    }
+
+    @Test
+    public void testPaletteReductionOfColorImage() throws IOException {
+        String pdfPath = PdfHelper.getTargetDirectory()
+                + "testPaletteReductionOfColorImage.pdf";
+        PdfHelper.createPdf(pdfPath,
+                new File(PdfHelper.getImagesTestDirectory() + "single7x5cm.tif"),
+                new OcrPdfCreatorProperties().setReducingImageColors(true));
+
+        PdfStream image = getImageXObject(pdfPath);
+        Assert.assertEquals(PdfName.Indexed,
+                image.getAsArray(PdfName.ColorSpace).getAsName(0));
+    }
+
+    @Test
+    public void testGrayReductionUsesLuminance() throws IOException {
+        // tinted gray gradient with too many shades for a palette
+        BufferedImage tinted = new BufferedImage(64, 4,
+                BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < tinted.getWidth(); ++x) {
+            int value = 40 + x * 2;
+            for (int y = 0; y < tinted.getHeight(); ++y) {
+                tinted.setRGB(x, y,
+                        (value + 10) << 16 | value << 8 | (value - 10));
+            }
+        }
+        File input = new File(PdfHelper.getTargetDirectory()
+                + "testGrayReductionUsesLuminance.png");
+        ImageIO.write(tinted, "png", input);
+        String pdfPath = PdfHelper.getTargetDirectory()
+                + "testGrayReductionUsesLuminance.pdf";
+        PdfHelper.createPdf(pdfPath, input,
+                new OcrPdfCreatorProperties().setReducingImageColors(true));
+
+        BufferedImage gray;
+        try (PdfDocument pdfDocument = new PdfDocument(new PdfReader(pdfPath))) {
+            PdfDictionary xObjects = pdfDocument.getPage(1).getResources()
+                    .getResource(PdfName.XObject);
+            PdfStream image = xObjects.getAsStream(
+                    xObjects.keySet().iterator().next());
+            Assert.assertEquals(PdfName.DeviceGray,
+                    image.getAsName(PdfName.ColorSpace));
+            gray = new PdfImageXObject(image).getBufferedImage();
+        }
+        Assert.assertEquals(1, gray.getRaster().getNumBands());
+        for (int x = 0; x < gray.getWidth(); ++x) {
+            int value = 40 + x * 2;
+            int luminance = ((value + 10) * 299 + value * 587
+                    + (value - 10) * 114) / 1000;
+            Assert.assertEquals(luminance,
+                    gray.getRaster().getSample(x, 0, 0));
+        }
+    }
+
+    @LogMessages(messages = {
+        @LogMessage(messageTemplate = PdfOcrLogMessageConstant.COULD_NOT_FIND_CORRESPONDING_GLYPH_TO_UNICODE_CHARACTER, count = 7)
+    })
+    @Test
+    public void testMrcEncodingOfColorImage() throws IOException {
+        String pdfPath = PdfHelper.getTargetDirectory()
+                + "testMrcEncodingOfColorImage.pdf";
+        PdfHelper.createPdf(pdfPath,
+                new File(PdfHelper.getImagesTestDirectory() + "thai.PNG"),
+                new OcrPdfCreatorProperties()
+                        .setImageLayerEncoding(ImageLayerEncoding.MRC));
+
+        try (PdfDocument pdfDocument = new PdfDocument(new PdfReader(pdfPath))) {
+            PdfDictionary xObjects = pdfDocument.getPage(1).getResources()
+                    .getResource(PdfName.XObject);
+            Assert.assertEquals(2, xObjects.size());
+            PdfStream background = null;
+            PdfStream foreground = null;
+            for (PdfName name : xObjects.keySet()) {
+                PdfStream image = xObjects.getAsStream(name);
+                if (image.containsKey(PdfName.Mask)) {
+                    foreground = image;
+                } else {
+                    background = image;
+                }
+            }
+            Assert.assertNotNull(background);
+            Assert.assertNotNull(foreground);
+            Assert.assertEquals(PdfName.DCTDecode,
+                    background.getAsName(PdfName.Filter));
+            Assert.assertEquals(423, background.getAsNumber(PdfName.Width)
+                    .intValue());
+            Assert.assertEquals(423, foreground.getAsNumber(PdfName.Width)
+                    .intValue());
+
+            PdfStream mask = foreground.getAsStream(PdfName.Mask);
+            Assert.assertTrue(mask.getAsBool(PdfName.ImageMask));
+            Assert.assertEquals(PdfName.CCITTFaxDecode,
+                    mask.getAsName(PdfName.Filter));
+            Assert.assertEquals(1267, mask.getAsNumber(PdfName.Width).intValue());
+            Assert.assertEquals(325, mask.getAsNumber(PdfName.Height).intValue());
+        }
+        Assert.assertEquals(PdfHelper.THAI_TEXT.replace(" ", ""),
+                PdfHelper.getTextFromPdfLayerUseActualText(pdfPath, null)
+                        .replace(" ", ""));
+    }
+
+    @Test
+    public void testCompressedTiffStripsAreEmbeddedAsIs() throws IOException {
+        String pdfPath = PdfHelper.getTargetDirectory()
+                + "testCompressedTiffStripsAreEmbeddedAsIs.pdf";
+        File file = new File(PdfHelper.getImagesTestDirectory()
+                + "numbers_01_g4_strips.tif");
+        PdfHelper.createPdf(pdfPath, file,
+                new OcrPdfCreatorProperties().setImageLayerEncoding(
+                        ImageLayerEncoding.CCITT_G4_IF_BILEVEL));
+
+        try (PdfDocument pdfDocument = new PdfDocument(new PdfReader(pdfPath))) {
+            PdfDictionary xObjects = pdfDocument.getPage(1).getResources()
+                    .getResource(PdfName.XObject);
+            Assert.assertEquals(9, xObjects.size());
+            int rows = 0;
+            for (PdfName name : xObjects.keySet()) {
+                PdfStream strip = xObjects.getAsStream(name);
+                Assert.assertEquals(PdfName.CCITTFaxDecode,
+                        strip.getAsName(PdfName.Filter));
+                rows += strip.getAsNumber(PdfName.Height).intValue();
+            }
+            Assert.assertEquals(464, rows);
+            Assert.assertEquals(PdfCreatorUtil.getPoints(464),
+                    pdfDocument.getPage(1).getPageSize().getHeight(), 0.01f);
+        }
+        Assert.assertTrue(PdfHelper.getTextFromPdfLayer(pdfPath, null)
+                .contains(PdfHelper.DEFAULT_TEXT));
+    }
+
+    @Test
+    public void testTiffStripsAreDownsampledToMaxDpi() throws IOException {
+        String pdfPath = PdfHelper.getTargetDirectory()
+                + "testTiffStripsAreDownsampledToMaxDpi.pdf";
+        File file = new File(PdfHelper.getImagesTestDirectory()
+                + "numbers_01_jpeg_strips.tif");
+        ImageData page = PdfCreatorUtil.getImageData(file, null).get(0);
+        PdfHelper.createPdf(pdfPath, file,
+                new OcrPdfCreatorProperties().setMaxImageDpi(24));
+
+        try (PdfDocument pdfDocument = new PdfDocument(new PdfReader(pdfPath))) {
+            PdfDictionary xObjects = pdfDocument.getPage(1).getResources()
+                    .getResource(PdfName.XObject);
+            Assert.assertEquals(29, xObjects.size());
+            for (PdfName name : xObjects.keySet()) {
+                PdfStream strip = xObjects.getAsStream(name);
+                Assert.assertTrue(strip.getAsNumber(PdfName.Width).intValue()
+                        < page.getWidth());
+            }
+            // page keeps the size of the original image
+            Assert.assertEquals(PdfCreatorUtil.getPoints(page.getHeight()),
+                    pdfDocument.getPage(1).getPageSize().getHeight(), 0.01f);
+        }
+    }
+
+    @Test
+    public void testExifRotationIsAppliedByPlacement() throws IOException {
+        String pdfPath = PdfHelper.getTargetDirectory()
+                + "testExifRotationIsAppliedByPlacement.pdf";
+        File file = new File(PdfHelper.getImagesTestDirectory()
+                + "90_degrees_rotated.jpg");
+        PdfHelper.createPdf(pdfPath, file,
+                new OcrPdfCreatorProperties().setImageRotationHandler(
+                        new PlacementImageRotationHandler()));
+
+        try (PdfDocument pdfDocument = new PdfDocument(new PdfReader(pdfPath))) {
+            Rectangle pageSize = pdfDocument.getPage(1).getPageSize();
+            Assert.assertEquals(PdfCreatorUtil.getPoints(1650),
+                    pageSize.getWidth(), 0.01f);
+            Assert.assertEquals(PdfCreatorUtil.getPoints(1275),
+                    pageSize.getHeight(), 0.01f);
+            PdfDictionary xObjects = pdfDocument.getPage(1).getResources()
+                    .getResource(PdfName.XObject);
+            PdfStream image = xObjects.getAsStream(
+                    xObjects.keySet().iterator().next());
+            Assert.assertEquals(PdfName.DCTDecode,
+                    image.getAsName(PdfName.Filter));
+            Assert.assertEquals(1275,
+                    image.getAsNumber(PdfName.Width).intValue());
+            // original jpeg is embedded without re-encoding
+            Assert.assertArrayEquals(Files.readAllBytes(file.toPath()),
+                    image.getBytes(false));
+        }
+    }
+
+    private static PdfStream getImageXObject(String pdfPath)
+            throws IOException {
+        try (PdfDocument pdfDocument = new PdfDocument(new PdfReader(pdfPath))) {
+            PdfDictionary xObjects = pdfDocument.getPage(1).getResources()
+                    .getResource(PdfName.XObject);
+            PdfStream image = xObjects.getAsStream(
+                    xObjects.keySet().iterator().next());
+            Assert.assertEquals(PdfName.Image, image.getAsName(PdfName.Subtype));
+            return image;
+        }
+    }
+}
@@ -0,0 +1,134 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr;
+
+import com.itextpdf.io.image.ImageType;
+import com.itextpdf.pdfocr.helpers.PdfHelper;
+import com.itextpdf.test.ExtendedITextTest;
+import com.itextpdf.test.annotations.LogMessage;
+import com.itextpdf.test.annotations.LogMessages;
+import com.itextpdf.test.annotations.type.UnitTest;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.ExpectedException;
+
+@Category(UnitTest.class)
+public class ImageProbeTest extends ExtendedITextTest {
+
+    @Rule
+    public ExpectedException junitExpectedException = ExpectedException.none();
+
+    @Test
+    public void probeJpegTest() {
+        File image = new File(PdfHelper.getImagesTestDirectory() + "numbers_01.jpg");
+        ImageProbe probe = ImageProbe.forFile(image);
+
+        Assert.assertEquals(ImageType.JPEG, probe.getImageType());
+        Assert.assertEquals(1, probe.getNumberOfPages());
+        Assert.assertEquals(1148, probe.getWidth());
+        Assert.assertEquals(464, probe.getHeight());
+        Assert.assertEquals(ImageProbe.DEFAULT_ORIENTATION, probe.getOrientation());
+        Assert.assertEquals(image.length(), probe.getFileSize());
+        // probe is cached until the file is modified
+        Assert.assertSame(probe, ImageProbe.forFile(image));
+    }
+
+    @Test
+    public void probeRotatedJpegTest() {
+        File image = new File(PdfHelper.getImagesTestDirectory() + "90_degrees_rotated.jpg");
+        Assert.assertEquals(6, ImageProbe.forFile(image).getOrientation());
+    }
+
+    @Test
+    public void probeTiffTest() {
+        File image = new File(PdfHelper.getImagesTestDirectory() + "single7x5cm.tif");
+        ImageProbe probe = ImageProbe.forFile(image);
+
+        Assert.assertEquals(ImageType.TIFF, probe.getImageType());
+        Assert.assertEquals(1, probe.getNumberOfPages());
+        Assert.assertTrue(probe.hasDimensions());
+        Assert.assertEquals(probe.getWidth(), probe.getPageWidth(1));
+        Assert.assertEquals(0, probe.getPageWidth(2));
+    }
+
+    @Test
+    public void probeRotatedTiffTest() throws IOException {
+        byte[] tiff = createRotatedTiff(6);
+        File image = new File(PdfHelper.getTargetDirectory() + "rotated.tif");
+        Files.write(image.toPath(), tiff);
+
+        ImageProbe probe = ImageProbe.forFile(image);
+        Assert.assertEquals(ImageType.TIFF, probe.getImageType());
+        Assert.assertEquals(2, probe.getWidth());
+        Assert.assertEquals(6, probe.getOrientation());
+        Assert.assertEquals(6, ImageProbe.readOrientation(tiff));
+    }
+
+    @LogMessages(messages = {
+            @LogMessage(messageTemplate = PdfOcrLogMessageConstant.CANNOT_READ_INPUT_IMAGE)
+    })
+    @Test
+    public void probeMissingFileTest() {
+        junitExpectedException.expect(OcrException.class);
+        junitExpectedException.expectMessage(OcrException.CANNOT_READ_INPUT_IMAGE);
+        ImageProbe.forFile(new File(PdfHelper.getImagesTestDirectory() + "missing.jpg"));
+    }
+
+    /**
+     * Creates uncompressed bilevel TIFF image of 2x1 pixels with the given
+     * orientation.
+     */
+    private static byte[] createRotatedTiff(int orientation) {
+        int[][] entries = {
+                {256, 2}, // ImageWidth
+                {257, 1}, // ImageLength
+                {258, 1}, // BitsPerSample
+                {259, 1}, // Compression
+                {262, 0}, // PhotometricInterpretation
+                {273, 122}, // StripOffsets, right after the directory
+                {274, orientation}, // Orientation
+                {278, 1}, // RowsPerStrip
+                {279, 1}, // StripByteCounts
+        };
+        ByteBuffer buffer = ByteBuffer.allocate(8 + 2 + entries.length * 12 + 4 + 1)
+                .order(ByteOrder.LITTLE_ENDIAN);
+        buffer.put((byte) 'I').put((byte) 'I').putShort((short) 42).putInt(8);
+        buffer.putShort((short) entries.length);
+        for (int[] entry : entries) {
+            // SHORT values are stored in the first two bytes of the value
+            buffer.putShort((short) entry[0]).putShort((short) 3).putInt(1)
+                    .putShort((short) entry[1]).putShort((short) 0);
+        }
+        buffer.putInt(0);
+        buffer.put((byte) 0);
+        return buffer.array();
+    }
+}
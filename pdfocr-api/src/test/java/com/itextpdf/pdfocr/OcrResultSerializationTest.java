@@ -0,0 +1,170 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr;
+
+import com.itextpdf.kernel.geom.Rectangle;
+import com.itextpdf.test.ExtendedITextTest;
+import com.itextpdf.test.annotations.type.UnitTest;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.ExpectedException;
+
+@Category(UnitTest.class)
+public class OcrResultSerializationTest extends ExtendedITextTest {
+
+    @Rule
+    public ExpectedException junitExpectedException = ExpectedException.none();
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void resultIsRestoredExactlyTest() {
+        Map<Integer, List<TextInfo>> result = new LinkedHashMap<Integer, List<TextInfo>>();
+        TextInfo word = new TextInfo("Hello", new Rectangle(10.5f, 20.25f, 30, 7.75f));
+        word.setConfidence(96);
+        TextInfo irregular = new TextInfo("wörld", new Rectangle(0.1f, -3.3f, 1e6f, 2.5f),
+                Arrays.asList(0.13333334f, 1f, 1333334f, 4.4f));
+        irregular.setConfidence(87.5f);
+        TextInfo legacy = new TextInfo();
+        legacy.setBbox(Arrays.asList(1f, 2f, 3f, 4f));
+        result.put(1, Arrays.asList(word, irregular, legacy, new TextInfo()));
+        result.put(3, Collections.<TextInfo>emptyList());
+        result.put(2, Collections.singletonList(new TextInfo("Hello", new Rectangle(1, 1))));
+
+        Map<Integer, List<TextInfo>> restored = OcrResultReader.read(OcrResultWriter.write(result));
+
+        Assert.assertEquals(Arrays.asList(1, 3, 2), new ArrayList<Integer>(restored.keySet()));
+        for (Map.Entry<Integer, List<TextInfo>> page : result.entrySet()) {
+            List<TextInfo> restoredPage = restored.get(page.getKey());
+            Assert.assertEquals(page.getValue().size(), restoredPage.size());
+            for (int i = 0; i < restoredPage.size(); ++i) {
+                assertTextInfoEquals(page.getValue().get(i), restoredPage.get(i));
+            }
+        }
+    }
+
+    @Test
+    public void repeatedTextsAndCoordinatesAreCompactTest() {
+        List<TextInfo> textInfos = new ArrayList<TextInfo>();
+        for (int i = 0; i < 1000; ++i) {
+            TextInfo textInfo = new TextInfo("word" + (i % 10),
+                    new Rectangle(i * 0.75f, 500.25f, 30, 9));
+            textInfo.setConfidence(90);
+            textInfos.add(textInfo);
+        }
+        byte[] bytes = OcrResultWriter.write(Collections.singletonMap(1, textInfos));
+
+        // flags, string reference and confidence take a byte each,
+        // quarter point coordinates take 1-2 bytes each
+        Assert.assertTrue(bytes.length <= 1000 * 11);
+        Assert.assertEquals("word7",
+                OcrResultReader.read(bytes).get(1).get(997).getText());
+    }
+
+    @Test
+    public void pagesAreStreamedTest() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        OcrResultWriter writer = new OcrResultWriter(out);
+        writer.writePage(1, Collections.singletonList(new TextInfo("first", new Rectangle(1, 1))));
+        writer.writePage(2, Collections.singletonList(new TextInfo("first", new Rectangle(2, 2))));
+        writer.finish();
+        out.write(42);
+
+        ByteArrayInputStream in = new ByteArrayInputStream(out.toByteArray());
+        OcrResultReader reader = new OcrResultReader(in);
+        Map.Entry<Integer, List<TextInfo>> page = reader.readPage();
+        Assert.assertEquals(1, (int) page.getKey());
+        page = reader.readPage();
+        Assert.assertEquals(2, (int) page.getKey());
+        Assert.assertEquals("first", page.getValue().get(0).getText());
+        Assert.assertNull(reader.readPage());
+        // data after the result isn't consumed
+        Assert.assertEquals(42, in.read());
+    }
+
+    @Test
+    public void unsupportedVersionTest() {
+        junitExpectedException.expect(OcrException.class);
+        junitExpectedException.expectMessage("unsupported format version 99");
+        byte[] bytes = OcrResultWriter.write(Collections.<Integer, List<TextInfo>>emptyMap());
+        bytes[4] = 99;
+        OcrResultReader.read(bytes);
+    }
+
+    @Test
+    public void truncatedResultTest() {
+        junitExpectedException.expect(OcrException.class);
+        junitExpectedException.expectMessage("unexpected end of data");
+        byte[] bytes = OcrResultWriter.write(Collections.singletonMap(1,
+                Collections.singletonList(new TextInfo("text", new Rectangle(1, 1)))));
+        OcrResultReader.read(Arrays.copyOf(bytes, bytes.length - 3));
+    }
+
+    @Test
+    public void corruptedTextLengthTest() {
+        junitExpectedException.expect(OcrException.class);
+        junitExpectedException.expectMessage("unexpected end of data");
+        // single text chunk whose text claims Integer.MAX_VALUE bytes
+        byte[] bytes = {'O', 'C', 'R', 'B', 1, 1, 2, 1, 0, 1,
+                (byte) 0xff, (byte) 0xff, (byte) 0xff, (byte) 0xff, 7, 'a'};
+        OcrResultReader.read(bytes);
+    }
+
+    @Test
+    public void longTextTest() {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < 20000; ++i) {
+            sb.append((char) ('a' + i % 26));
+        }
+        TextInfo textInfo = new TextInfo(sb.toString(), new Rectangle(1, 1));
+        Map<Integer, List<TextInfo>> result = OcrResultReader.read(
+                OcrResultWriter.write(Collections.singletonMap(1,
+                        Collections.singletonList(textInfo))));
+        assertTextInfoEquals(textInfo, result.get(1).get(0));
+    }
+
+    private static void assertTextInfoEquals(TextInfo expected, TextInfo actual) {
+        Assert.assertEquals(expected.getText(), actual.getText());
+        Assert.assertEquals(expected.getConfidence(), actual.getConfidence(), 0);
+        Assert.assertEquals(expected.getBbox(), actual.getBbox());
+        if (expected.getBboxRect() == null) {
+            Assert.assertNull(actual.getBboxRect());
+        } else {
+            Assert.assertEquals(expected.getBboxRect().getX(), actual.getBboxRect().getX(), 0);
+            Assert.assertEquals(expected.getBboxRect().getY(), actual.getBboxRect().getY(), 0);
+            Assert.assertEquals(expected.getBboxRect().getWidth(), actual.getBboxRect().getWidth(), 0);
+            Assert.assertEquals(expected.getBboxRect().getHeight(), actual.getBboxRect().getHeight(), 0);
+        }
+    }
+}
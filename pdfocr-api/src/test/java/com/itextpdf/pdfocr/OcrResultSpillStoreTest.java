@@ -0,0 +1,148 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr;
+
+import com.itextpdf.kernel.geom.Rectangle;
+import com.itextpdf.pdfocr.helpers.PdfHelper;
+import com.itextpdf.test.ExtendedITextTest;
+import com.itextpdf.test.annotations.type.UnitTest;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+import org.junit.rules.ExpectedException;
+
+@Category(UnitTest.class)
+public class OcrResultSpillStoreTest extends ExtendedITextTest {
+
+    @Rule
+    public ExpectedException junitExpectedException = ExpectedException.none();
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void spilledPagesAreReadBackTest() throws IOException {
+        File directory = createSpillDirectory();
+        Map<Integer, List<TextInfo>> result = new LinkedHashMap<Integer, List<TextInfo>>();
+        // small regions, so pages cross region boundaries
+        try (OcrResultSpillStore store = new OcrResultSpillStore(directory, 100)) {
+            for (int page = 1; page <= 20; ++page) {
+                TextInfoList textInfos = new TextInfoList();
+                for (int i = 0; i < page; ++i) {
+                    int index = textInfos.add("word " + page + " " + i,
+                            i, page, 10.25f, 7, i % 2 == 0 ? 90 : TextInfo.UNKNOWN_CONFIDENCE);
+                    if (i % 3 == 0) {
+                        textInfos.setBbox(index, i, 1, i + 13.67f, 9);
+                    }
+                }
+                result.put(page, textInfos);
+            }
+            TextInfo legacy = new TextInfo();
+            legacy.setBbox(Arrays.asList(1f, 2f, 3f, 4f));
+            result.put(21, Arrays.asList(legacy, new TextInfo()));
+            result.put(22, Collections.<TextInfo>emptyList());
+
+            Map<Integer, List<TextInfo>> spilled = store.spill(result);
+
+            Assert.assertTrue(store.getSize() > 100);
+            Assert.assertEquals(new ArrayList<Integer>(result.keySet()),
+                    new ArrayList<Integer>(spilled.keySet()));
+            for (Map.Entry<Integer, List<TextInfo>> page : result.entrySet()) {
+                List<TextInfo> restored = spilled.get(page.getKey());
+                Assert.assertEquals(page.getValue().size(), restored.size());
+                for (int i = 0; i < restored.size(); ++i) {
+                    TextInfo expected = page.getValue().get(i);
+                    TextInfo actual = restored.get(i);
+                    Assert.assertEquals(expected.getText(), actual.getText());
+                    Assert.assertEquals(expected.getConfidence(), actual.getConfidence(), 0);
+                    Assert.assertEquals(expected.getBbox(), actual.getBbox());
+                    Assert.assertEquals(String.valueOf(expected.getBboxRect()),
+                            String.valueOf(actual.getBboxRect()));
+                }
+            }
+        }
+        Assert.assertEquals(0, directory.listFiles().length);
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void pagesWithUnusualBboxesAreKeptInMemoryTest() throws IOException {
+        TextInfo textInfo = new TextInfo("text", Arrays.asList(1f, 2f));
+        List<TextInfo> page = Collections.singletonList(textInfo);
+        try (OcrResultSpillStore store = new OcrResultSpillStore(createSpillDirectory())) {
+            Map<Integer, List<TextInfo>> spilled = store.spill(
+                    Collections.singletonMap(1, page));
+            Assert.assertSame(page, spilled.get(1));
+            Assert.assertEquals(0, store.getSize());
+        }
+    }
+
+    @Test
+    public void pagesAreSpilledOnceTheyArePutTest() throws IOException {
+        List<TextInfo> page = Collections.singletonList(
+                new TextInfo("text", new Rectangle(1, 2, 3, 4)));
+        try (OcrResultSpillStore store = new OcrResultSpillStore(createSpillDirectory())) {
+            Map<Integer, List<TextInfo>> result = store.createResult();
+            result.put(1, page);
+            long size = store.getSize();
+            Assert.assertTrue(size > 0);
+            result.put(2, page);
+            Assert.assertEquals(2 * size, store.getSize());
+
+            Assert.assertEquals(Arrays.asList(1, 2),
+                    new ArrayList<Integer>(result.keySet()));
+            Assert.assertNotSame(page, result.get(2));
+            Assert.assertEquals("text", result.get(2).get(0).getText());
+            Assert.assertEquals(String.valueOf(page.get(0).getBboxRect()),
+                    String.valueOf(result.get(2).get(0).getBboxRect()));
+            // already spilled result isn't written once more
+            Assert.assertSame(result, store.spill(result));
+            Assert.assertEquals(2 * size, store.getSize());
+        }
+    }
+
+    @Test
+    public void closedStoreCannotBeReadTest() throws IOException {
+        junitExpectedException.expect(OcrException.class);
+        junitExpectedException.expectMessage("spill store is closed");
+        OcrResultSpillStore store = new OcrResultSpillStore(createSpillDirectory());
+        Map<Integer, List<TextInfo>> spilled = store.spill(Collections.singletonMap(1,
+                Collections.singletonList(new TextInfo("text", new Rectangle(1, 1)))));
+        store.close();
+        spilled.get(1);
+    }
+
+    private static File createSpillDirectory() {
+        return new File(PdfHelper.getTargetDirectory() + "spill"
+                + File.separator + UUID.randomUUID().toString());
+    }
+}
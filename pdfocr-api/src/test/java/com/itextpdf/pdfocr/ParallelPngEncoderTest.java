@@ -0,0 +1,153 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr;
+
+import com.itextpdf.pdfocr.helpers.PdfHelper;
+import com.itextpdf.test.ExtendedITextTest;
+import com.itextpdf.test.annotations.type.UnitTest;
+
+import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+import java.util.zip.Adler32;
+import java.util.zip.DataFormatException;
+import java.util.zip.Deflater;
+import java.util.zip.Inflater;
+import javax.imageio.ImageIO;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(UnitTest.class)
+public class ParallelPngEncoderTest extends ExtendedITextTest {
+
+    @Test
+    public void deflatedBandsFormValidZlibStreamTest()
+            throws IOException, DataFormatException {
+        byte[] data = new byte[3 * 1024 * 1024 + 17];
+        Random random = new Random(42);
+        for (int i = 0; i < data.length; ++i) {
+            // compressible data with repetitions across band boundaries
+            data[i] = (byte) (random.nextInt(8) + (i / 1000) % 3);
+        }
+        byte[] compressed = new ParallelPngEncoder(4).deflate(data);
+
+        Inflater inflater = new Inflater();
+        inflater.setInput(compressed);
+        byte[] result = new byte[data.length];
+        int length = 0;
+        while (!inflater.finished()) {
+            length += inflater.inflate(result, length, result.length - length);
+        }
+        inflater.end();
+        Assert.assertEquals(data.length, length);
+        Assert.assertArrayEquals(data, result);
+    }
+
+    @Test
+    public void compressionLevelIsKeptPerEncoderTest() throws IOException {
+        byte[] data = new byte[1024 * 1024];
+        for (int i = 0; i < data.length; ++i) {
+            data[i] = (byte) ((i / 100) % 7);
+        }
+        ParallelPngEncoder stored = new ParallelPngEncoder(2,
+                Deflater.NO_COMPRESSION);
+        ParallelPngEncoder best = new ParallelPngEncoder(2,
+                Deflater.BEST_COMPRESSION);
+
+        Assert.assertEquals(Deflater.NO_COMPRESSION,
+                stored.getCompressionLevel());
+        Assert.assertEquals(Deflater.BEST_COMPRESSION,
+                best.getCompressionLevel());
+        Assert.assertTrue(stored.deflate(data).length > data.length);
+        Assert.assertTrue(best.deflate(data).length < data.length / 10);
+        Assert.assertEquals(Deflater.DEFAULT_COMPRESSION,
+                new OcrPdfCreatorProperties().getPngEncoder()
+                        .getCompressionLevel());
+    }
+
+    @Test
+    public void defaultEncoderIsSingleThreadedTest() {
+        Assert.assertEquals(1,
+                new OcrPdfCreatorProperties().getPngEncoder().getThreads());
+
+        ParallelPngEncoder shared = new ParallelPngEncoder(4);
+        OcrPdfCreatorProperties properties =
+                new OcrPdfCreatorProperties().setPngEncoder(shared);
+        Assert.assertSame(shared, properties.getPngEncoder());
+        Assert.assertSame(shared,
+                new OcrPdfCreatorProperties(properties).getPngEncoder());
+    }
+
+    @Test
+    public void combineAdler32Test() {
+        byte[] data = "parallel png encoder".getBytes();
+        Adler32 first = new Adler32();
+        first.update(data, 0, 8);
+        Adler32 second = new Adler32();
+        second.update(data, 8, data.length - 8);
+        Adler32 whole = new Adler32();
+        whole.update(data);
+        Assert.assertEquals(whole.getValue(), ParallelPngEncoder.combineAdler32(
+                first.getValue(), second.getValue(), data.length - 8));
+    }
+
+    @Test
+    public void encodeRgbImageTest() throws IOException {
+        BufferedImage image = ImageIO.read(new File(
+                PdfHelper.getImagesTestDirectory() + "numbers_01.jpg"));
+        byte[] png = new ParallelPngEncoder(4).encode(image);
+
+        BufferedImage result = ImageIO.read(new ByteArrayInputStream(png));
+        assertSamePixels(image, result);
+    }
+
+    @Test
+    public void encodeGrayAndBinaryImagesTest() throws IOException {
+        BufferedImage image = ImageIO.read(new File(
+                PdfHelper.getImagesTestDirectory() + "numbers_01.jpg"));
+        for (int type : new int[] {BufferedImage.TYPE_BYTE_GRAY,
+                BufferedImage.TYPE_BYTE_BINARY}) {
+            BufferedImage converted = new BufferedImage(image.getWidth(),
+                    image.getHeight(), type);
+            converted.getGraphics().drawImage(image, 0, 0, null);
+            byte[] png = new ParallelPngEncoder(3).encode(converted);
+
+            BufferedImage result = ImageIO.read(new ByteArrayInputStream(png));
+            assertSamePixels(converted, result);
+        }
+    }
+
+    private static void assertSamePixels(BufferedImage expected,
+            BufferedImage actual) {
+        Assert.assertEquals(expected.getWidth(), actual.getWidth());
+        Assert.assertEquals(expected.getHeight(), actual.getHeight());
+        for (int y = 0; y < expected.getHeight(); ++y) {
+            for (int x = 0; x < expected.getWidth(); ++x) {
+                Assert.assertEquals(expected.getRGB(x, y), actual.getRGB(x, y));
+            }
+        }
+    }
+}
@@ -23,8 +23,10 @@
 package com.itextpdf.pdfocr;
 
 import com.itextpdf.io.image.ImageData;
+import com.itextpdf.io.image.ImageDataFactory;
 import com.itextpdf.io.image.ImageType;
 import com.itextpdf.io.image.JpegImageData;
+import com.itextpdf.io.image.RawImageData;
 import com.itextpdf.io.image.TiffImageData;
 import com.itextpdf.io.util.MessageFormatUtil;
 import com.itextpdf.pdfocr.helpers.PdfHelper;
@@ -35,6 +37,10 @@ import com.itextpdf.test.annotations.type.UnitTest;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
 import org.junit.Assert;
 import org.junit.Rule;
@@ -61,6 +67,73 @@ public class PdfCreatorUtilTest extends ExtendedITextTest {
         Assert.assertEquals(ImageType.TIFF, imageDate.getOriginalType());
     }
 
+    @Test
+    public void getImageDataFromTiffIsLazyTest() throws IOException {
+        File image = new File(PdfHelper.getImagesTestDirectory() + "single7x5cm.tif");
+        final byte[] bytes = Files.readAllBytes(image.toPath());
+        final List<Integer> decodedPages = new ArrayList<Integer>();
+        // counting stub: records requested pages and decodes the only page
+        // of the image instead of each of them
+        List<ImageData> images = new TiffPageImageDataList(bytes, 3, null) {
+            @Override
+            ImageData createPage(int index) {
+                decodedPages.add(index);
+                return super.createPage(0);
+            }
+        };
+
+        Assert.assertEquals(3, images.size());
+        Assert.assertTrue(decodedPages.isEmpty());
+
+        ImageData page = images.get(2);
+        Assert.assertEquals(Collections.singletonList(2), decodedPages);
+        ImageData expected = ImageDataFactory.createTiff(bytes, true, 1, true);
+        Assert.assertEquals(expected.getWidth(), page.getWidth(), 0);
+        Assert.assertEquals(expected.getHeight(), page.getHeight(), 0);
+
+        // pages may be cached, but other pages are still not decoded
+        images.get(2);
+        Assert.assertEquals(Collections.singleton(2),
+                new HashSet<Integer>(decodedPages));
+    }
+
+    @Test
+    public void getImageDataFromCcittStripsTiffTest() throws IOException {
+        File image = new File(PdfHelper.getImagesTestDirectory()
+                + "numbers_01_g4_strips.tif");
+        List<ImageData> images = PdfCreatorUtil.getImageData(image, null);
+
+        Assert.assertEquals(1, images.size());
+        Assert.assertTrue(images.get(0) instanceof TiffStripImageData);
+        TiffStripImageData imageData = (TiffStripImageData) images.get(0);
+        Assert.assertEquals(1148, imageData.getWidth(), 0);
+        Assert.assertEquals(464, imageData.getHeight(), 0);
+        Assert.assertEquals(9, imageData.getStrips().size());
+        for (ImageData strip : imageData.getStrips()) {
+            Assert.assertEquals(RawImageData.CCITTG4,
+                    ((RawImageData) strip).getTypeCcitt());
+            Assert.assertEquals(1148, strip.getWidth(), 0);
+        }
+    }
+
+    @Test
+    public void getImageDataFromJpegStripsTiffTest() throws IOException {
+        File image = new File(PdfHelper.getImagesTestDirectory()
+                + "numbers_01_jpeg_strips.tif");
+        List<ImageData> images = PdfCreatorUtil.getImageData(image, null);
+
+        Assert.assertEquals(1, images.size());
+        Assert.assertTrue(images.get(0) instanceof TiffStripImageData);
+        TiffStripImageData imageData = (TiffStripImageData) images.get(0);
+        Assert.assertEquals(29, imageData.getStrips().size());
+        float height = 0;
+        for (ImageData strip : imageData.getStrips()) {
+            Assert.assertTrue(strip instanceof JpegImageData);
+            height += strip.getHeight();
+        }
+        Assert.assertEquals(464, height, 0);
+    }
+
     @Test
     public void getImageDataFromValidMultiPagedTiffTest() throws IOException {
         File image = new File(PdfHelper.getImagesTestDirectory() + "multipage.tiff");
@@ -74,6 +147,33 @@ public class PdfCreatorUtilTest extends ExtendedITextTest {
         }
     }
 
+    @Test
+    public void inputImageDataListIsCreatedFromBytesTest() throws IOException {
+        File image = new File(PdfHelper.getImagesTestDirectory() + "single7x5cm.tif");
+        List<ImageData> images = PdfCreatorUtil.getImageData(image, null);
+        InputImageDataList shared = new InputImageDataList(
+                Files.readAllBytes(image.toPath()), null);
+
+        Assert.assertEquals(images.size(), shared.size());
+        for (int page = 0; page < images.size(); ++page) {
+            Assert.assertEquals(images.get(page).getWidth(),
+                    shared.get(page).getWidth(), 0);
+            Assert.assertEquals(images.get(page).getHeight(),
+                    shared.get(page).getHeight(), 0);
+        }
+    }
+
+    @Test
+    public void inputImageDataListDecodesNotTiffImageOnceTest() throws IOException {
+        File image = new File(PdfHelper.getImagesTestDirectory() + "numbers_01.jpg");
+        InputImageDataList shared = new InputImageDataList(
+                Files.readAllBytes(image.toPath()), null);
+
+        Assert.assertEquals(1, shared.size());
+        Assert.assertSame(shared.get(0), shared.get(0));
+        Assert.assertEquals(1148, shared.get(0).getWidth(), 0);
+    }
+
     @Test
     public void getImageDataFromValidNotTiffTest() throws IOException {
         File image = new File(PdfHelper.getImagesTestDirectory() + "numbers_01.jpg");
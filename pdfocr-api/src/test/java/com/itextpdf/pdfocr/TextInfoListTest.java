@@ -0,0 +1,112 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr;
+
+import com.itextpdf.kernel.geom.Rectangle;
+import com.itextpdf.test.ExtendedITextTest;
+import com.itextpdf.test.annotations.type.UnitTest;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Assert;
+import org.junit.Test;
+import org.junit.experimental.categories.Category;
+
+@Category(UnitTest.class)
+public class TextInfoListTest extends ExtendedITextTest {
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void primitiveTextChunksAreViewedAsTextInfosTest() {
+        TextInfoList textInfos = new TextInfoList(1);
+        int index = textInfos.add("first", 10.5f, 20, 30, 7.25f, 95);
+        textInfos.setBbox(index, 14, 100, 54, 109.67f);
+        textInfos.add("second", 1, 2, 3, 4, TextInfo.UNKNOWN_CONFIDENCE);
+
+        Assert.assertEquals(2, textInfos.size());
+        Assert.assertEquals("first", textInfos.getText(0));
+        Assert.assertEquals(40.5f, textInfos.getRight(0), 0);
+        Assert.assertEquals(27.25f, textInfos.getTop(0), 0);
+        Assert.assertEquals(109.67f, textInfos.getBboxCoordinate(0, 3), 0);
+
+        TextInfo first = textInfos.get(0);
+        Assert.assertSame(first, textInfos.get(0));
+        Assert.assertEquals("first", first.getText());
+        Assert.assertEquals(95, first.getConfidence(), 0);
+        Assert.assertEquals(new Rectangle(10.5f, 20, 30, 7.25f).toString(),
+                first.getBboxRect().toString());
+        Assert.assertEquals(Arrays.asList(14f, 100f, 54f, 109.67f), first.getBbox());
+        Assert.assertEquals(Collections.<Float>emptyList(), textInfos.get(1).getBbox());
+        Assert.assertEquals(TextInfo.UNKNOWN_CONFIDENCE, textInfos.get(1).getConfidence(), 0);
+
+        // modifications of views are visible through primitive accessors
+        first.setText("changed");
+        first.setBboxRect(new Rectangle(0, 0, 5, 5));
+        Assert.assertEquals("changed", textInfos.getText(0));
+        Assert.assertEquals(5, textInfos.getRight(0), 0);
+    }
+
+    @Test
+    public void listOperationsTest() {
+        TextInfoList textInfos = new TextInfoList();
+        textInfos.add("a", 1, 1, 1, 1, 10);
+        textInfos.add("c", 3, 3, 3, 3, 30);
+        TextInfo b = new TextInfo("b", new Rectangle(2, 2, 2, 2));
+        textInfos.add(1, b);
+
+        Assert.assertSame(b, textInfos.get(1));
+        Assert.assertEquals("c", textInfos.getText(2));
+        Assert.assertEquals(3, textInfos.getLeft(2), 0);
+        Assert.assertEquals(2, textInfos.getLeft(1), 0);
+
+        Assert.assertEquals("a", textInfos.remove(0).getText());
+        Assert.assertEquals(Arrays.asList("b", "c"), Arrays.asList(
+                textInfos.get(0).getText(), textInfos.get(1).getText()));
+        Assert.assertEquals(30, textInfos.getConfidence(1), 0);
+
+        textInfos.clear();
+        Assert.assertTrue(textInfos.isEmpty());
+    }
+
+    @Test
+    @SuppressWarnings("deprecation")
+    public void copyIsNotAffectedByOriginalTest() {
+        TextInfoList original = new TextInfoList();
+        original.add("word", 1, 2, 3, 4, 50);
+        TextInfo legacy = new TextInfo();
+        legacy.setBbox(Arrays.asList(5f, 6f, 7f, 8f));
+        List<TextInfo> mixed = Arrays.asList(original.get(0), legacy);
+
+        TextInfoList copy = TextInfoList.copyOf(mixed);
+        TextInfoList primitiveCopy = TextInfoList.copyOf(original);
+        original.get(0).setText("changed");
+
+        Assert.assertEquals("word", copy.getText(0));
+        Assert.assertEquals("word", primitiveCopy.getText(0));
+        Assert.assertEquals(50, primitiveCopy.getConfidence(0), 0);
+        Assert.assertFalse(copy.hasBboxRect(1));
+        Assert.assertEquals(8f, copy.getBboxCoordinate(1, 3), 0);
+        Assert.assertEquals(Arrays.asList(5f, 6f, 7f, 8f), copy.get(1).getBbox());
+    }
+}
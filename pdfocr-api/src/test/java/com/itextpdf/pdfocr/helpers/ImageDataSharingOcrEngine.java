@@ -0,0 +1,78 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr.helpers;
+
+import com.itextpdf.io.image.ImageData;
+import com.itextpdf.io.image.ImageDataFactory;
+import com.itextpdf.pdfocr.IImageDataSharingOcrEngine;
+import com.itextpdf.pdfocr.IImageRotationHandler;
+import com.itextpdf.pdfocr.OcrImageResult;
+import com.itextpdf.pdfocr.TextInfo;
+
+import java.io.File;
+import java.net.MalformedURLException;
+import java.util.AbstractList;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class ImageDataSharingOcrEngine extends CustomOcrEngine
+        implements IImageDataSharingOcrEngine {
+
+    private final String sharedImagePath;
+
+    private final List<String> events = new ArrayList<String>();
+
+    public ImageDataSharingOcrEngine(String sharedImagePath) {
+        this.sharedImagePath = sharedImagePath;
+    }
+
+    @Override
+    public OcrImageResult doImageOcrWithImageData(final File input,
+            IImageRotationHandler imageRotationHandler,
+            Map<Integer, List<TextInfo>> resultPages) {
+        events.add("recognized " + input.getName());
+        try {
+            final ImageData imageData = ImageDataFactory.create(sharedImagePath);
+            return new OcrImageResult(doImageOcr(input),
+                    new AbstractList<ImageData>() {
+                        @Override
+                        public ImageData get(int index) {
+                            events.add("placed " + input.getName());
+                            return imageData;
+                        }
+
+                        @Override
+                        public int size() {
+                            return 1;
+                        }
+                    });
+        } catch (MalformedURLException e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+    public List<String> getEvents() {
+        return events;
+    }
+}
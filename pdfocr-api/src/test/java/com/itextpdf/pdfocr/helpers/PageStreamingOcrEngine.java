@@ -0,0 +1,79 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr.helpers;
+
+import com.itextpdf.pdfocr.IPageStreamingOcrEngine;
+import com.itextpdf.pdfocr.TextInfo;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+public class PageStreamingOcrEngine extends CustomOcrEngine
+        implements IPageStreamingOcrEngine {
+
+    private final int numberOfPages;
+
+    private final File spillDirectory;
+
+    private final List<Long> spilledSizes = new ArrayList<Long>();
+
+    private final List<Boolean> pagesKept = new ArrayList<Boolean>();
+
+    public PageStreamingOcrEngine(int numberOfPages, File spillDirectory) {
+        this.numberOfPages = numberOfPages;
+        this.spillDirectory = spillDirectory;
+    }
+
+    @Override
+    public Map<Integer, List<TextInfo>> doImageOcrWithResultPages(File input,
+            Map<Integer, List<TextInfo>> resultPages) {
+        List<TextInfo> page = doImageOcr(input).get(1);
+        for (int i = 1; i <= numberOfPages; ++i) {
+            resultPages.put(i, page);
+            pagesKept.add(resultPages.get(i) == page);
+            spilledSizes.add(getSpilledSize());
+        }
+        return resultPages;
+    }
+
+    public List<Long> getSpilledSizes() {
+        return spilledSizes;
+    }
+
+    public List<Boolean> getPagesKept() {
+        return pagesKept;
+    }
+
+    private long getSpilledSize() {
+        long size = 0;
+        File[] files = spillDirectory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                size += file.length();
+            }
+        }
+        return size;
+    }
+}
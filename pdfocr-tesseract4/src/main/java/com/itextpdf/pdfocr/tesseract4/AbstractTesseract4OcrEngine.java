@@ -26,7 +26,12 @@ import com.itextpdf.io.image.ImageType;
 import com.itextpdf.io.util.MessageFormatUtil;
 import com.itextpdf.kernel.counter.EventCounterHandler;
 import com.itextpdf.kernel.counter.event.IMetaInfo;
+import com.itextpdf.pdfocr.IImageDataSharingOcrEngine;
+import com.itextpdf.pdfocr.IImageRotationHandler;
 import com.itextpdf.pdfocr.IOcrEngine;
+import com.itextpdf.pdfocr.IPageStreamingOcrEngine;
+import com.itextpdf.pdfocr.InputImageDataList;
+import com.itextpdf.pdfocr.OcrImageResult;
 import com.itextpdf.pdfocr.OcrPdfCreatorMetaInfo;
 import com.itextpdf.pdfocr.OcrPdfCreatorMetaInfo.PdfDocumentType;
 import com.itextpdf.pdfocr.TextInfo;
@@ -36,15 +41,18 @@ import com.itextpdf.pdfocr.tesseract4.events.PdfOcrTesseract4Event;
 import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
+import java.security.MessageDigest;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
 import org.slf4j.LoggerFactory;
 
 /**
@@ -55,7 +63,8 @@ import org.slf4j.LoggerFactory;
  * Also there are possibilities to use features of "tesseract"
  * (optical character recognition engine for various operating systems).
  */
-public abstract class AbstractTesseract4OcrEngine implements IOcrEngine, IThreadLocalMetaInfoAware {
+public abstract class AbstractTesseract4OcrEngine implements IImageDataSharingOcrEngine,
+        IPageStreamingOcrEngine, ICacheableOcrEngine, IThreadLocalMetaInfoAware {
 
     /**
      * Supported image formats.
@@ -68,12 +77,42 @@ public abstract class AbstractTesseract4OcrEngine implements IOcrEngine, IThread
     Set<UUID> processedUUID = new HashSet<>();
 
     /**
-     * Set of properties.
+     * Set of properties. The field is volatile so that properties replaced
+     * by {@link #setTesseract4OcrEngineProperties} are visible to the threads
+     * which run OCR.
      */
-    private Tesseract4OcrEngineProperties tesseract4OcrEngineProperties;
+    private volatile Tesseract4OcrEngineProperties tesseract4OcrEngineProperties;
 
     private ThreadLocal<IMetaInfo> threadLocalMetaInfo = new ThreadLocal<>();
 
+    /**
+     * Deadline (in terms of {@link System#nanoTime()}) of the input image
+     * which is currently processed by this thread, null if there is no
+     * document deadline.
+     */
+    private final ThreadLocal<Long> documentDeadline = new ThreadLocal<>();
+
+    /**
+     * Page Segmentation Mode which overrides the one set in the properties
+     * while a page is retried after its deadline expired.
+     */
+    private final ThreadLocal<Integer> pageSegModeOverride = new ThreadLocal<>();
+
+    /**
+     * Bytes of the input images read by this thread while they are
+     * recognized, so each input image is read only once, null if no image
+     * is being recognized.
+     */
+    private final ThreadLocal<Map<File, byte[]>> sharedInputBytes =
+            new ThreadLocal<>();
+
+    /**
+     * Map passed by the caller to put recognized pages of the input image
+     * to, null if the result map is created by the engine.
+     */
+    private final ThreadLocal<Map<Integer, List<TextInfo>>> resultPages =
+            new ThreadLocal<>();
+
     public AbstractTesseract4OcrEngine(
             Tesseract4OcrEngineProperties tesseract4OcrEngineProperties) {
         this.tesseract4OcrEngineProperties = tesseract4OcrEngineProperties;
@@ -162,8 +201,76 @@ public abstract class AbstractTesseract4OcrEngine implements IOcrEngine, IThread
      */
     public final Map<Integer, List<TextInfo>> doImageOcr(
             final File input) {
-        verifyImageFormatValidity(input);
-        return ((TextInfoTesseractOcrResult)processInputFiles(input, OutputFormat.HOCR)).getTextInfos();
+        return doImageOcr(input, true);
+    }
+
+    /**
+     * Reads data from the provided input image file putting text of each
+     * page to the given map right after the page is recognized. If
+     * preprocessing of images is disabled, all pages of TIFF images are
+     * recognized by tesseract at once, so they are put to the map once
+     * the whole image is recognized.
+     *
+     * @param input input image {@link java.io.File}
+     * @param resultPages {@link java.util.Map} to put recognized pages to
+     * @return the given map with all the recognized pages
+     */
+    @Override
+    public final Map<Integer, List<TextInfo>> doImageOcrWithResultPages(
+            final File input,
+            final Map<Integer, List<TextInfo>> resultPages) {
+        this.resultPages.set(resultPages);
+        try {
+            return doImageOcr(input, true);
+        } finally {
+            this.resultPages.remove();
+        }
+    }
+
+    /**
+     * Reads data from the provided input image file and returns retrieved
+     * data together with images of its pages. Page images are created from
+     * the bytes of the input image read during OCR, so the input image
+     * isn't read once more, pages of TIFF images are decoded lazily.
+     *
+     * @param input input image {@link java.io.File}
+     * @param imageRotationHandler {@link IImageRotationHandler} to be
+     *                             applied to page images, null if rotation
+     *                             isn't required
+     * @param resultPages {@link java.util.Map} to put text of each page to
+     *                    right after the page is recognized, null if the
+     *                    map should be created by the engine
+     * @return {@link OcrImageResult} with recognized text and page images
+     */
+    @Override
+    public final OcrImageResult doImageOcrWithImageData(final File input,
+            final IImageRotationHandler imageRotationHandler,
+            final Map<Integer, List<TextInfo>> resultPages) {
+        final boolean ownsSharedBytes = sharedInputBytes.get() == null;
+        if (ownsSharedBytes) {
+            sharedInputBytes.set(new HashMap<File, byte[]>());
+        }
+        try {
+            final Map<Integer, List<TextInfo>> textInfos = resultPages == null
+                    ? doImageOcr(input, true)
+                    : doImageOcrWithResultPages(input, resultPages);
+            final byte[] inputBytes;
+            try {
+                // the bytes are already read unless tesseract read the
+                // input image itself
+                inputBytes = readInputBytes(input);
+            } catch (IOException e) {
+                throw new Tesseract4OcrException(
+                        Tesseract4OcrException.CANNOT_READ_PROVIDED_IMAGE, e)
+                        .setMessageParams(input.getAbsolutePath());
+            }
+            return new OcrImageResult(textInfos,
+                    new InputImageDataList(inputBytes, imageRotationHandler));
+        } finally {
+            if (ownsSharedBytes) {
+                sharedInputBytes.remove();
+            }
+        }
     }
 
     /**
@@ -180,7 +287,7 @@ public abstract class AbstractTesseract4OcrEngine implements IOcrEngine, IThread
             final OutputFormat outputFormat) {
         String result = "";
         verifyImageFormatValidity(input);
-        ITesseractOcrResult processedData = processInputFiles(input, outputFormat);
+        ITesseractOcrResult processedData = processInputFiles(input, outputFormat, true);
         if (processedData != null) {
             if (outputFormat.equals(OutputFormat.TXT)) {
                 result = ((StringTesseractOcrResult)processedData).getData();
@@ -321,6 +428,16 @@ public abstract class AbstractTesseract4OcrEngine implements IOcrEngine, IThread
                         List<File> outputFiles, OutputFormat outputFormat,
                         int pageNumber, boolean dispatchEvent);
 
+    /**
+     * Creates a new engine of the same type and with the same engine
+     * specific settings but with given set of properties.
+     *
+     * @param tesseract4OcrEngineProperties set of properties
+     * @return created {@link AbstractTesseract4OcrEngine} instance
+     */
+    abstract AbstractTesseract4OcrEngine createEngine(
+            Tesseract4OcrEngineProperties tesseract4OcrEngineProperties);
+
     /**
      * Gets path to provided tess data directory.
      *
@@ -337,10 +454,201 @@ public abstract class AbstractTesseract4OcrEngine implements IOcrEngine, IThread
         }
     }
 
+    /**
+     * Updates the digest with the {@link Tesseract4OcrEngineProperties}
+     * which affect recognized text, including the size and modification
+     * time of the used language models and the content of user words.
+     *
+     * @param digest {@link java.security.MessageDigest} to update
+     */
+    @Override
+    public void updateConfigurationDigest(final MessageDigest digest) {
+        final Tesseract4OcrEngineProperties properties =
+                getTesseract4OcrEngineProperties();
+        final List<String> languages = properties.getLanguages().isEmpty()
+                ? Collections.<String>singletonList(
+                        properties.getDefaultLanguage())
+                : properties.getLanguages();
+        Tesseract4CachingOcrEngine.updateDigest(digest, "engine",
+                getClass().getName());
+        Tesseract4CachingOcrEngine.updateDigest(digest, "languages",
+                languages);
+        Tesseract4CachingOcrEngine.updateDigest(digest, "psm",
+                properties.getPageSegMode());
+        Tesseract4CachingOcrEngine.updateDigest(digest, "positioning",
+                properties.getTextPositioning());
+        Tesseract4CachingOcrEngine.updateDigest(digest, "txtForHocr",
+                properties.isUseTxtToImproveHocrParsing());
+        Tesseract4CachingOcrEngine.updateDigest(digest, "minConfidence",
+                properties.getMinimalConfidenceLevel());
+        Tesseract4CachingOcrEngine.updateDigest(digest, "fallbackPsm",
+                properties.getTimeoutFallbackPageSegMode());
+        Tesseract4CachingOcrEngine.updateDigest(digest, "preprocessing",
+                properties.isPreprocessingImages());
+        final ImagePreprocessingOptions preprocessing =
+                properties.getImagePreprocessingOptions();
+        if (preprocessing != null) {
+            Tesseract4CachingOcrEngine.updateDigest(digest, "tiling",
+                    preprocessing.getTileWidth() + "x"
+                            + preprocessing.getTileHeight() + ","
+                            + preprocessing.isSmoothTiling());
+        }
+        final File tessData = properties.getPathToTessData();
+        if (tessData != null) {
+            for (String language : languages) {
+                Tesseract4CachingOcrEngine.updateFileDigest(digest,
+                        "model", new File(tessData,
+                                language + ".traineddata"));
+            }
+        }
+        // cached user words file is written again if it was evicted
+        final String userWordsPath = properties.acquireUserWordsFile();
+        try {
+            if (properties.getPathToUserWordsFile() != null) {
+                // user words files are usually temporary files with random
+                // names, so their content is used
+                Tesseract4CachingOcrEngine.updateContentDigest(digest,
+                        "userWords",
+                        new File(properties.getPathToUserWordsFile()));
+            }
+        } finally {
+            UserWordsCache.release(userWordsPath);
+        }
+    }
+
+    /**
+     * Reads data from the provided input image file and returns retrieved
+     * data in the same format as {@link #doImageOcr(File)} does.
+     *
+     * @param input input image {@link java.io.File}
+     * @param dispatchEvent indicates if {@link PdfOcrTesseract4Event} needs
+     *                      to be dispatched, should be false for auxiliary
+     *                      images (e.g. cropped regions of already processed
+     *                      image)
+     * @return {@link java.util.Map} where key is {@link java.lang.Integer}
+     * representing the number of the page and value is
+     * {@link java.util.List} of {@link TextInfo} elements
+     */
+    final Map<Integer, List<TextInfo>> doImageOcr(final File input,
+            final boolean dispatchEvent) {
+        verifyImageFormatValidity(input);
+        boolean ownsSharedBytes = sharedInputBytes.get() == null;
+        if (ownsSharedBytes) {
+            sharedInputBytes.set(new HashMap<File, byte[]>());
+        }
+        try {
+            return ((TextInfoTesseractOcrResult)processInputFiles(input,
+                    OutputFormat.HOCR, dispatchEvent)).getTextInfos();
+        } finally {
+            if (ownsSharedBytes) {
+                sharedInputBytes.remove();
+            }
+        }
+    }
+
+    /**
+     * Recognizes the input image as a single page and groups recognized
+     * words by the languages tesseract used to recognize them, so that
+     * languages actually used in the image are detected by a single run
+     * of tesseract with all the languages set in the properties.
+     * {@link PdfOcrTesseract4Event} isn't dispatched.
+     *
+     * @param input input image {@link java.io.File}
+     * @return {@link java.util.Map} where key is the language and value is
+     * {@link java.util.List} of {@link TextInfo} elements containing text
+     * and confidence of the words, empty if the result cannot be read
+     */
+    Map<String, List<TextInfo>> doWordLanguagesOcr(final File input) {
+        verifyImageFormatValidity(input);
+        final File hocrFile = createTempFile(".hocr");
+        try {
+            final List<File> outputFiles =
+                    Collections.<File>singletonList(hocrFile);
+            doPageOcr(new IPageOcrTask() {
+                @Override
+                public ITesseractOcrResult run(boolean dispatch) {
+                    doTesseractOcr(input, outputFiles, OutputFormat.HOCR, 1,
+                            dispatch);
+                    return null;
+                }
+            }, false);
+            return TesseractHelper.parseWordLanguages(hocrFile);
+        } catch (IOException e) {
+            LoggerFactory.getLogger(getClass())
+                    .error(MessageFormatUtil.format(
+                            Tesseract4LogMessageConstant.CANNOT_OCR_INPUT_FILE,
+                            e.getMessage()));
+            return Collections.<String, List<TextInfo>>emptyMap();
+        } finally {
+            TesseractHelper.deleteFile(hocrFile.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Reads all the bytes of the input image. While the input image is
+     * recognized, the bytes are read only once.
+     *
+     * @param input input image {@link java.io.File}
+     * @return bytes of the input image
+     * @throws IOException if the input image cannot be read
+     */
+    byte[] readInputBytes(final File input) throws IOException {
+        Map<File, byte[]> shared = sharedInputBytes.get();
+        byte[] bytes = shared == null ? null : shared.get(input);
+        if (bytes == null) {
+            bytes = Files.readAllBytes(input.toPath());
+            if (shared != null) {
+                shared.put(input, bytes);
+            }
+        }
+        return bytes;
+    }
+
     void scheduledCheck() {
         ReflectionUtils.scheduledCheck();
     }
 
+    /**
+     * Gets timeout in milliseconds for tesseract OCR of the current page:
+     * the smallest of page timeout and time left until the document deadline.
+     *
+     * @return timeout in milliseconds, 0 means no timeout
+     * @throws Tesseract4OcrTimeoutException if the document deadline
+     * already expired
+     */
+    long getCurrentTimeout() {
+        long timeout = getTesseract4OcrEngineProperties().getPageTimeout();
+        Long deadline = documentDeadline.get();
+        if (deadline != null) {
+            long left = TimeUnit.NANOSECONDS.toMillis(
+                    deadline.longValue() - System.nanoTime());
+            if (left <= 0) {
+                Tesseract4OcrMetrics.getInstance().onDocumentTimeout();
+                throw new Tesseract4OcrTimeoutException(
+                        Tesseract4OcrException.DOCUMENT_OCR_TIMEOUT, true)
+                        .setMessageParams(String.valueOf(
+                                getTesseract4OcrEngineProperties()
+                                        .getDocumentTimeout()));
+            }
+            timeout = timeout > 0 ? Math.min(timeout, left) : left;
+        }
+        return timeout;
+    }
+
+    /**
+     * Gets Page Segmentation Mode for the current page: either the one set
+     * in the properties or the fallback one if the page is being retried
+     * after its deadline expired.
+     *
+     * @return Page Segmentation Mode, may be null
+     */
+    Integer getCurrentPageSegMode() {
+        Integer override = pageSegModeOverride.get();
+        return override != null
+                ? override
+                : getTesseract4OcrEngineProperties().getPageSegMode();
+    }
+
     void onEvent() {
         IMetaInfo metaInfo = this.getThreadLocalMetaInfo();
         if (!(metaInfo instanceof OcrPdfCreatorMetaInfo)) {
@@ -366,64 +674,89 @@ public abstract class AbstractTesseract4OcrEngine implements IOcrEngine, IThread
      * @param input input image {@link java.io.File}
      * @param outputFormat {@link OutputFormat} for the result returned
      *                                         by {@link IOcrEngine}
+     * @param dispatchEvent indicates if {@link PdfOcrTesseract4Event} needs to be dispatched
      * @return {@link ITesseractOcrResult} instance, either {@link StringTesseractOcrResult}
      *     if output format is TXT, or {@link TextInfoTesseractOcrResult} if the output format is HOCR
      */
     private ITesseractOcrResult processInputFiles(
-            final File input, final OutputFormat outputFormat) {
-        Map<Integer, List<TextInfo>> imageData =
-                new LinkedHashMap<Integer, List<TextInfo>>();
+            final File input, final OutputFormat outputFormat,
+            final boolean dispatchEvent) {
+        // the image is probed and admitted before it's decoded, nested
+        // calls for the regions of the admitted image aren't admitted again
+        final boolean admitted = Tesseract4OcrAdmissionController
+                .getInstance().admit(input);
+        boolean deadlineSet = false;
+        if (documentDeadline.get() == null
+                && getTesseract4OcrEngineProperties()
+                .getDocumentTimeout() > 0) {
+            documentDeadline.set(Long.valueOf(System.nanoTime()
+                    + TimeUnit.MILLISECONDS.toNanos(
+                            getTesseract4OcrEngineProperties()
+                                    .getDocumentTimeout())));
+            deadlineSet = true;
+        }
+        try {
+            return processPages(input, outputFormat, dispatchEvent);
+        } finally {
+            if (deadlineSet) {
+                documentDeadline.remove();
+            }
+            if (admitted) {
+                Tesseract4OcrAdmissionController.getInstance().release();
+            }
+        }
+    }
+
+    /**
+     * Performs OCR of all the pages of the provided input image file.
+     * Each page is recognized by
+     * {@link AbstractTesseract4OcrEngine#recognizePage}.
+     *
+     * @param input input image {@link java.io.File}
+     * @param outputFormat {@link OutputFormat} for the result returned
+     *                                         by {@link IOcrEngine}
+     * @param dispatchEvent indicates if {@link PdfOcrTesseract4Event} needs to be dispatched
+     * @return {@link ITesseractOcrResult} instance, either {@link StringTesseractOcrResult}
+     *     if output format is TXT, or {@link TextInfoTesseractOcrResult} if the output format is HOCR
+     */
+    ITesseractOcrResult processPages(
+            final File input, final OutputFormat outputFormat,
+            final boolean dispatchEvent) {
+        // pages are put to the map passed by the caller as soon as they
+        // are recognized, so they aren't kept until all pages are done
+        Map<Integer, List<TextInfo>> imageData = resultPages.get();
+        resultPages.remove();
+        if (imageData == null || !outputFormat.equals(OutputFormat.HOCR)) {
+            imageData = new LinkedHashMap<Integer, List<TextInfo>>();
+        }
         StringBuilder data = new StringBuilder();
-        List<File> tempFiles = new ArrayList<File>();
         ITesseractOcrResult result = null;
         try {
             // image needs to be paginated only if it's tiff
-            // or preprocessing isn't required
-            int realNumOfPages = !ImagePreprocessingUtil.isTiffImage(input)
-                    ? 1 : ImagePreprocessingUtil.getNumberOfPageTiff(input);
+            // and preprocessing is required
             int numOfPages =
                     getTesseract4OcrEngineProperties().isPreprocessingImages()
-                            ? realNumOfPages : 1;
-            int numOfFiles =
-                    getTesseract4OcrEngineProperties().isPreprocessingImages()
-                            ? 1 : realNumOfPages;
+                            && ImagePreprocessingUtil.isTiffImage(input)
+                            ? ImagePreprocessingUtil.getNumberOfPageTiff(input)
+                            : 1;
 
             for (int page = 1; page <= numOfPages; page++) {
-                String extension = outputFormat.equals(OutputFormat.HOCR)
-                        ? ".hocr" : ".txt";
-                for (int i = 0; i < numOfFiles; i++) {
-                    tempFiles.add(createTempFile(extension));
-                }
-
-                doTesseractOcr(input, tempFiles, outputFormat, page);
+                ITesseractOcrResult pageResult = recognizePage(input,
+                        outputFormat, page, dispatchEvent);
                 if (outputFormat.equals(OutputFormat.HOCR)) {
-                    List<File> tempTxtFiles = null;
-                    if (getTesseract4OcrEngineProperties().isUseTxtToImproveHocrParsing()) {
-                        tempTxtFiles = new ArrayList<>();
-                        for (int i = 0; i < numOfFiles; i++) {
-                            tempTxtFiles.add(createTempFile(".txt"));
-                        }
-                        doTesseractOcr(input, tempTxtFiles, OutputFormat.TXT, page, false);
-                    }
-                    Map<Integer, List<TextInfo>> pageData = TesseractHelper
-                            .parseHocrFile(tempFiles, tempTxtFiles,
-                                    getTesseract4OcrEngineProperties());
-
+                    Map<Integer, List<TextInfo>> pageData =
+                            ((TextInfoTesseractOcrResult) pageResult)
+                                    .getTextInfos();
                     if (getTesseract4OcrEngineProperties()
                             .isPreprocessingImages()) {
                         imageData.put(page, pageData.get(1));
                     } else {
-                        imageData = pageData;
+                        imageData.putAll(pageData);
                     }
                     result = new TextInfoTesseractOcrResult(imageData);
                 } else {
-                    for (File tmpFile : tempFiles) {
-                        if (Files.exists(
-                                java.nio.file.Paths
-                                        .get(tmpFile.getAbsolutePath()))) {
-                            data.append(TesseractHelper.readTxtFile(tmpFile));
-                        }
-                    }
+                    data.append(((StringTesseractOcrResult) pageResult)
+                            .getData());
                     result = new StringTesseractOcrResult(data.toString());
                 }
             }
@@ -432,12 +765,166 @@ public abstract class AbstractTesseract4OcrEngine implements IOcrEngine, IThread
                     .error(MessageFormatUtil.format(
                             Tesseract4LogMessageConstant.CANNOT_OCR_INPUT_FILE,
                             e.getMessage()));
+        }
+        return result;
+    }
+
+    /**
+     * Performs OCR of a single page of the provided input image file.
+     * By default temporary files are used as tesseract output, engines
+     * which are able to get results without temporary files may override
+     * this method.
+     *
+     * @param input input image {@link java.io.File}
+     * @param outputFormat {@link OutputFormat} for the result returned
+     *                                         by {@link IOcrEngine}
+     * @param pageNumber number of page to be processed
+     * @param dispatchEvent indicates if {@link PdfOcrTesseract4Event} needs to be dispatched
+     * @return {@link ITesseractOcrResult} instance, either {@link StringTesseractOcrResult}
+     *     if output format is TXT, or {@link TextInfoTesseractOcrResult} if the output format is HOCR
+     * @throws IOException if tesseract output cannot be read
+     */
+    ITesseractOcrResult recognizePage(final File input,
+            final OutputFormat outputFormat, final int pageNumber,
+            final boolean dispatchEvent) throws IOException {
+        // all the pages of tiff are recognized at once
+        // if preprocessing isn't required
+        int numOfFiles =
+                !getTesseract4OcrEngineProperties().isPreprocessingImages()
+                        && ImagePreprocessingUtil.isTiffImage(input)
+                        ? ImagePreprocessingUtil.getNumberOfPageTiff(input)
+                        : 1;
+        List<File> tempFiles = new ArrayList<File>();
+        List<File> tempTxtFiles = null;
+        try {
+            String extension = outputFormat.equals(OutputFormat.HOCR)
+                    ? ".hocr" : ".txt";
+            for (int i = 0; i < numOfFiles; i++) {
+                tempFiles.add(createTempFile(extension));
+            }
+            final List<File> outputFiles = tempFiles;
+            doPageOcr(new IPageOcrTask() {
+                @Override
+                public ITesseractOcrResult run(boolean dispatch) {
+                    doTesseractOcr(input, outputFiles, outputFormat,
+                            pageNumber, dispatch);
+                    return null;
+                }
+            }, dispatchEvent);
+            if (outputFormat.equals(OutputFormat.HOCR)) {
+                if (getTesseract4OcrEngineProperties()
+                        .isUseTxtToImproveHocrParsing()) {
+                    tempTxtFiles = new ArrayList<File>();
+                    for (int i = 0; i < numOfFiles; i++) {
+                        tempTxtFiles.add(createTempFile(".txt"));
+                    }
+                    final List<File> outputTxtFiles = tempTxtFiles;
+                    doPageOcr(new IPageOcrTask() {
+                        @Override
+                        public ITesseractOcrResult run(boolean dispatch) {
+                            doTesseractOcr(input, outputTxtFiles,
+                                    OutputFormat.TXT, pageNumber, dispatch);
+                            return null;
+                        }
+                    }, false);
+                }
+                return new TextInfoTesseractOcrResult(TesseractHelper
+                        .parseHocrFile(tempFiles, tempTxtFiles,
+                                getTesseract4OcrEngineProperties()));
+            } else {
+                StringBuilder data = new StringBuilder();
+                for (File tmpFile : tempFiles) {
+                    if (Files.exists(
+                            java.nio.file.Paths
+                                    .get(tmpFile.getAbsolutePath()))) {
+                        data.append(TesseractHelper.readTxtFile(tmpFile));
+                    }
+                }
+                return new StringTesseractOcrResult(data.toString());
+            }
         } finally {
             for (File file : tempFiles) {
                 TesseractHelper.deleteFile(file.getAbsolutePath());
             }
+            if (tempTxtFiles != null) {
+                for (File file : tempTxtFiles) {
+                    TesseractHelper.deleteFile(file.getAbsolutePath());
+                }
+            }
+        }
+    }
+
+    /**
+     * Performs OCR of a single page when {@link Tesseract4OcrScheduler}
+     * allows it. If the page deadline expires and fallback Page
+     * Segmentation Mode is set, the page is retried once with this mode.
+     *
+     * @param task OCR of the page
+     * @param dispatchEvent indicates if {@link PdfOcrTesseract4Event} needs to be dispatched
+     * @return result of the task
+     * @throws Tesseract4OcrTimeoutException if the page or the document
+     * deadline expired
+     */
+    ITesseractOcrResult doPageOcr(final IPageOcrTask task,
+            final boolean dispatchEvent) {
+        try {
+            Tesseract4OcrScheduler.getInstance().acquire();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Tesseract4OcrCancelledException(
+                    Tesseract4OcrException.OCR_CANCELLED);
+        }
+        // cached user words file isn't evicted while tesseract reads it
+        final String userWordsPath = getTesseract4OcrEngineProperties()
+                .acquireUserWordsFile();
+        try {
+            return doScheduledPageOcr(task, dispatchEvent);
+        } finally {
+            UserWordsCache.release(userWordsPath);
+            Tesseract4OcrScheduler.getInstance().release();
+        }
+    }
+
+    /**
+     * Performs OCR of a single page once its run is scheduled.
+     *
+     * @param task OCR of the page
+     * @param dispatchEvent indicates if {@link PdfOcrTesseract4Event} needs to be dispatched
+     * @return result of the task
+     * @throws Tesseract4OcrTimeoutException if the page or the document
+     * deadline expired
+     */
+    private ITesseractOcrResult doScheduledPageOcr(final IPageOcrTask task,
+            final boolean dispatchEvent) {
+        try {
+            return task.run(dispatchEvent);
+        } catch (Tesseract4OcrTimeoutException e) {
+            if (e.isDocumentTimeout()) {
+                throw e;
+            }
+            // the page may have been killed because of the document deadline
+            getCurrentTimeout();
+            Tesseract4OcrMetrics.getInstance().onPageTimeout();
+            Integer fallbackPageSegMode = getTesseract4OcrEngineProperties()
+                    .getTimeoutFallbackPageSegMode();
+            if (fallbackPageSegMode == null) {
+                throw e;
+            }
+            LoggerFactory.getLogger(getClass())
+                    .warn(MessageFormatUtil.format(
+                            Tesseract4LogMessageConstant.RETRYING_PAGE_OCR,
+                            fallbackPageSegMode));
+            pageSegModeOverride.set(fallbackPageSegMode);
+            boolean succeeded = false;
+            try {
+                ITesseractOcrResult result = task.run(false);
+                succeeded = true;
+                return result;
+            } finally {
+                pageSegModeOverride.remove();
+                Tesseract4OcrMetrics.getInstance().onTimeoutRetry(succeeded);
+            }
         }
-        return result;
     }
 
     /**
@@ -478,6 +965,22 @@ public abstract class AbstractTesseract4OcrEngine implements IOcrEngine, IThread
     interface ITesseractOcrResult {
     }
 
+    /**
+     * OCR of a single page which may be run again after its deadline expired.
+     */
+    interface IPageOcrTask {
+
+        /**
+         * Performs OCR of the page.
+         *
+         * @param dispatchEvent indicates if {@link PdfOcrTesseract4Event}
+         *                      needs to be dispatched
+         * @return result of OCR if it's available without temporary files,
+         * null otherwise
+         */
+        ITesseractOcrResult run(boolean dispatchEvent);
+    }
+
     static class StringTesseractOcrResult implements ITesseractOcrResult {
         private String data;
 
@@ -0,0 +1,163 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr.tesseract4;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+/**
+ * Reads CPU and memory limits of the container the JVM is running in
+ * from cgroup v2 or cgroup v1 file system.
+ */
+class CgroupResourceLimits {
+
+    /**
+     * Default mount point of cgroup file system.
+     */
+    static final String DEFAULT_ROOT = "/sys/fs/cgroup";
+
+    /**
+     * Value which is returned if a limit is unknown or not set.
+     */
+    static final long UNLIMITED = -1;
+
+    /**
+     * Values larger than this one are treated as "no limit" by cgroup v1.
+     */
+    private static final long CGROUP_V1_NO_LIMIT = Long.MAX_VALUE / 2;
+
+    /**
+     * Mount point of cgroup file system.
+     */
+    private final Path root;
+
+    /**
+     * Creates a new {@link CgroupResourceLimits} instance.
+     *
+     * @param root mount point of cgroup file system
+     */
+    CgroupResourceLimits(final Path root) {
+        this.root = root;
+    }
+
+    /**
+     * Creates a new {@link CgroupResourceLimits} instance for the default
+     * cgroup mount point.
+     */
+    CgroupResourceLimits() {
+        this(Paths.get(DEFAULT_ROOT));
+    }
+
+    /**
+     * Gets CPU quota as number of cores.
+     *
+     * @return number of cores or {@link #UNLIMITED} if there is no quota
+     */
+    double getCpuLimit() {
+        // cgroup v2: "<quota> <period>" or "max <period>"
+        String cpuMax = read("cpu.max");
+        if (cpuMax != null) {
+            String[] parts = cpuMax.split("\\s+");
+            if (parts.length == 2 && !"max".equals(parts[0])) {
+                return toCores(parseLong(parts[0]), parseLong(parts[1]));
+            }
+            return UNLIMITED;
+        }
+        // cgroup v1
+        return toCores(parseLong(read("cpu/cpu.cfs_quota_us")),
+                parseLong(read("cpu/cpu.cfs_period_us")));
+    }
+
+    /**
+     * Gets memory limit in bytes.
+     *
+     * @return memory limit or {@link #UNLIMITED} if there is no limit
+     */
+    long getMemoryLimit() {
+        String memoryMax = read("memory.max");
+        long limit = memoryMax != null
+                ? parseLong(memoryMax)
+                : parseLong(read("memory/memory.limit_in_bytes"));
+        return limit > CGROUP_V1_NO_LIMIT ? UNLIMITED : limit;
+    }
+
+    /**
+     * Gets current memory usage in bytes.
+     *
+     * @return memory usage or {@link #UNLIMITED} if it's unknown
+     */
+    long getMemoryUsage() {
+        String memoryCurrent = read("memory.current");
+        return memoryCurrent != null
+                ? parseLong(memoryCurrent)
+                : parseLong(read("memory/memory.usage_in_bytes"));
+    }
+
+    /**
+     * Converts CPU quota and period to number of cores.
+     */
+    private static double toCores(final long quota, final long period) {
+        if (quota <= 0 || period <= 0) {
+            return UNLIMITED;
+        }
+        return (double) quota / period;
+    }
+
+    /**
+     * Parses a number, "max" and invalid values are parsed as
+     * {@link #UNLIMITED}.
+     */
+    private static long parseLong(final String value) {
+        if (value == null) {
+            return UNLIMITED;
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return UNLIMITED;
+        }
+    }
+
+    /**
+     * Reads the first line of cgroup file.
+     *
+     * @return trimmed line or null if the file cannot be read
+     */
+    private String read(final String fileName) {
+        Path path = root.resolve(fileName);
+        if (!Files.isRegularFile(path)) {
+            return null;
+        }
+        try {
+            String content = new String(Files.readAllBytes(path),
+                    StandardCharsets.US_ASCII).trim();
+            int lineEnd = content.indexOf('\n');
+            return lineEnd < 0 ? content : content.substring(0, lineEnd).trim();
+        } catch (IOException e) {
+            return null;
+        }
+    }
+}
@@ -0,0 +1,54 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr.tesseract4;
+
+/**
+ * Enumeration of the reasons why {@link Tesseract4OcrConcurrencyController}
+ * changed concurrency limit of tesseract OCR.
+ */
+public enum ConcurrencyChangeReason {
+    /**
+     * Limit was increased to check if more parallel runs give better
+     * throughput.
+     */
+    PROBE,
+    /**
+     * Limit was decreased because throughput dropped after the previous
+     * increase.
+     */
+    THROUGHPUT_DROP,
+    /**
+     * Limit was decreased because latency of a run grew too much compared
+     * to the best observed latency.
+     */
+    LATENCY_GROWTH,
+    /**
+     * Limit was decreased to the CPU quota of the container.
+     */
+    CPU_QUOTA,
+    /**
+     * Limit was decreased because memory usage approached memory limit
+     * of the container.
+     */
+    MEMORY_PRESSURE
+}
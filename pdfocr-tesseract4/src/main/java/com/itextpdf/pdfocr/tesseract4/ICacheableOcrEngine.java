@@ -0,0 +1,45 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr.tesseract4;
+
+import com.itextpdf.pdfocr.IOcrEngine;
+
+import java.security.MessageDigest;
+
+/**
+ * {@link IOcrEngine} which is able to describe its configuration, so that
+ * {@link Tesseract4CachingOcrEngine} may store its results on disk and
+ * reuse them only while the configuration stays the same.
+ */
+public interface ICacheableOcrEngine extends IOcrEngine {
+
+    /**
+     * Updates the digest with the whole configuration of the engine which
+     * affects recognized text, including configuration of the engines it
+     * delegates to and content of the used files which may change without
+     * changing their names.
+     *
+     * @param digest {@link java.security.MessageDigest} to update
+     */
+    void updateConfigurationDigest(MessageDigest digest);
+}
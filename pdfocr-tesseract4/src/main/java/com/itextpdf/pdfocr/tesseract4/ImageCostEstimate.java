@@ -0,0 +1,88 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr.tesseract4;
+
+/**
+ * Estimated resources needed to perform OCR of an input image.
+ */
+public class ImageCostEstimate {
+
+    /**
+     * Estimated CPU time of all pages in milliseconds.
+     */
+    private final long cpuTime;
+
+    /**
+     * Estimated peak heap memory in bytes.
+     */
+    private final long peakHeapMemory;
+
+    /**
+     * Estimated peak native memory in bytes.
+     */
+    private final long peakNativeMemory;
+
+    /**
+     * Creates a new {@link ImageCostEstimate} instance.
+     *
+     * @param cpuTime estimated CPU time of all pages in milliseconds
+     * @param peakHeapMemory estimated peak heap memory in bytes
+     * @param peakNativeMemory estimated peak native memory in bytes
+     */
+    public ImageCostEstimate(final long cpuTime, final long peakHeapMemory,
+            final long peakNativeMemory) {
+        this.cpuTime = cpuTime;
+        this.peakHeapMemory = peakHeapMemory;
+        this.peakNativeMemory = peakNativeMemory;
+    }
+
+    /**
+     * Gets estimated CPU time of all pages.
+     *
+     * @return CPU time in milliseconds
+     */
+    public long getCpuTime() {
+        return cpuTime;
+    }
+
+    /**
+     * Gets estimated peak heap memory. Pages are processed one by one,
+     * so it's the memory needed for a single page.
+     *
+     * @return heap memory in bytes
+     */
+    public long getPeakHeapMemory() {
+        return peakHeapMemory;
+    }
+
+    /**
+     * Gets estimated peak native memory used by leptonica and tesseract.
+     * Pages are processed one by one, so it's the memory needed for
+     * a single page.
+     *
+     * @return native memory in bytes
+     */
+    public long getPeakNativeMemory() {
+        return peakNativeMemory;
+    }
+}
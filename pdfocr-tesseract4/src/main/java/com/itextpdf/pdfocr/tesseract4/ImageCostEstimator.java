@@ -0,0 +1,134 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr.tesseract4;
+
+import com.itextpdf.pdfocr.ImageProbe;
+
+/**
+ * Estimates resources needed to perform OCR of an input image from its
+ * {@link ImageProbe}, i.e. before the image is decoded.
+ *
+ * The estimate is linear in the number of pixels: decoded pages are kept
+ * as 32 bits per pixel images both in heap (java images) and in native
+ * memory (leptonica images) together with their grayscale and binarized
+ * copies. Default coefficients are conservative and may be tuned for
+ * a specific deployment.
+ */
+public class ImageCostEstimator {
+
+    /**
+     * CPU time of OCR per pixel in nanoseconds.
+     */
+    private double cpuTimePerPixel = 250;
+
+    /**
+     * Heap memory per pixel in bytes.
+     */
+    private double heapMemoryPerPixel = 8;
+
+    /**
+     * Native memory per pixel in bytes.
+     */
+    private double nativeMemoryPerPixel = 12;
+
+    /**
+     * Gets CPU time of OCR per pixel.
+     *
+     * @return CPU time in nanoseconds
+     */
+    public final double getCpuTimePerPixel() {
+        return cpuTimePerPixel;
+    }
+
+    /**
+     * Sets CPU time of OCR per pixel. Default value is 250 nanoseconds,
+     * i.e. about 2 seconds for A4 page scanned with 300 dpi.
+     *
+     * @param cpuTimePerPixel CPU time in nanoseconds
+     * @return the {@link ImageCostEstimator} instance
+     */
+    public final ImageCostEstimator setCpuTimePerPixel(
+            final double cpuTimePerPixel) {
+        this.cpuTimePerPixel = cpuTimePerPixel;
+        return this;
+    }
+
+    /**
+     * Gets heap memory needed per pixel.
+     *
+     * @return heap memory in bytes
+     */
+    public final double getHeapMemoryPerPixel() {
+        return heapMemoryPerPixel;
+    }
+
+    /**
+     * Sets heap memory needed per pixel. Default value is 8 bytes.
+     *
+     * @param heapMemoryPerPixel heap memory in bytes
+     * @return the {@link ImageCostEstimator} instance
+     */
+    public final ImageCostEstimator setHeapMemoryPerPixel(
+            final double heapMemoryPerPixel) {
+        this.heapMemoryPerPixel = heapMemoryPerPixel;
+        return this;
+    }
+
+    /**
+     * Gets native memory needed per pixel.
+     *
+     * @return native memory in bytes
+     */
+    public final double getNativeMemoryPerPixel() {
+        return nativeMemoryPerPixel;
+    }
+
+    /**
+     * Sets native memory needed per pixel. Default value is 12 bytes.
+     *
+     * @param nativeMemoryPerPixel native memory in bytes
+     * @return the {@link ImageCostEstimator} instance
+     */
+    public final ImageCostEstimator setNativeMemoryPerPixel(
+            final double nativeMemoryPerPixel) {
+        this.nativeMemoryPerPixel = nativeMemoryPerPixel;
+        return this;
+    }
+
+    /**
+     * Estimates resources needed to perform OCR of the probed image.
+     *
+     * @param probe {@link ImageProbe} of input image
+     * @return {@link ImageCostEstimate} instance
+     */
+    public ImageCostEstimate estimate(final ImageProbe probe) {
+        double pixels = probe.getPixelsPerPage();
+        long cpuTime = (long) Math.ceil(pixels * cpuTimePerPixel
+                * probe.getNumberOfPages() / 1000000);
+        // the whole file may be kept in memory while its page is decoded
+        long heapMemory = (long) Math.ceil(pixels * heapMemoryPerPixel)
+                + probe.getFileSize();
+        long nativeMemory = (long) Math.ceil(pixels * nativeMemoryPerPixel);
+        return new ImageCostEstimate(cpuTime, heapMemory, nativeMemory);
+    }
+}
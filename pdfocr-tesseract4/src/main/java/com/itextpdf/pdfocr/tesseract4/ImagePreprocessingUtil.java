@@ -23,14 +23,12 @@
 package com.itextpdf.pdfocr.tesseract4;
 
 import com.itextpdf.io.image.ImageType;
-import com.itextpdf.io.image.ImageTypeDetector;
-import com.itextpdf.io.image.TiffImageData;
-import com.itextpdf.io.util.UrlUtil;
-import com.itextpdf.io.source.RandomAccessFileOrArray;
-import com.itextpdf.io.source.RandomAccessSourceFactory;
 import com.itextpdf.io.util.MessageFormatUtil;
+import com.itextpdf.pdfocr.ImageProbe;
+import com.itextpdf.pdfocr.OcrException;
 
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -56,19 +54,9 @@ class ImagePreprocessingUtil {
      *
      * @param inputImage input image {@link java.io.File}
      * @return number of pages in the provided TIFF image
-     * @throws IOException if error occurred during creating a
-     * {@link com.itextpdf.io.source.IRandomAccessSource} based on a filename
-     * string
      */
-    static int getNumberOfPageTiff(final File inputImage)
-            throws IOException {
-        RandomAccessFileOrArray raf = new RandomAccessFileOrArray(
-                new RandomAccessSourceFactory()
-                        .createBestSource(
-                                inputImage.getAbsolutePath()));
-        int numOfPages = TiffImageData.getNumberOfPages(raf);
-        raf.close();
-        return numOfPages;
+    static int getNumberOfPageTiff(final File inputImage) {
+        return getImageProbe(inputImage).getNumberOfPages();
     }
 
     /**
@@ -88,20 +76,26 @@ class ImagePreprocessingUtil {
      * @return image type {@link com.itextpdf.io.image.ImageType}
      */
     static ImageType getImageType(final File inputImage) {
-        ImageType type;
+        return getImageProbe(inputImage).getImageType();
+    }
+
+    /**
+     * Gets cached {@link ImageProbe} of the input image, so its header is
+     * read only once.
+     *
+     * @param inputImage input image {@link java.io.File}
+     * @return {@link ImageProbe} of the image
+     * @throws Tesseract4OcrException if the image cannot be read
+     */
+    static ImageProbe getImageProbe(final File inputImage) {
         try {
-            type = ImageTypeDetector.detectImageType(UrlUtil.toURL(inputImage.getAbsolutePath()));
-        } catch (Exception e) { // NOSONAR
-            LoggerFactory.getLogger(ImagePreprocessingUtil.class).error(MessageFormatUtil
-                    .format(Tesseract4LogMessageConstant
-                                    .CANNOT_READ_INPUT_IMAGE,
-                            e.getMessage()));
+            return ImageProbe.forFile(inputImage);
+        } catch (OcrException e) {
+            // the error is already logged by the probe
             throw new Tesseract4OcrException(
                     Tesseract4OcrException.CANNOT_READ_PROVIDED_IMAGE)
                     .setMessageParams(inputImage.getAbsolutePath());
         }
-
-        return type;
     }
 
     /**
@@ -178,10 +172,26 @@ class ImagePreprocessingUtil {
      * @return input image as a {@link java.awt.image.BufferedImage}
      */
     static BufferedImage readImage(File inputImage) {
+        return readImage(inputImage, null);
+    }
+
+    /**
+     * Reads input image as a {@link java.awt.image.BufferedImage} from its
+     * bytes which were already read.
+     * If it is not possible to read {@link java.awt.image.BufferedImage} from
+     * the bytes, image will be read as a {@link net.sourceforge.lept4j.Pix}
+     * and then converted to {@link java.awt.image.BufferedImage}.
+     * @param inputImage original input image
+     * @param imageBytes bytes of the input image, null if they should be
+     *                   read from the file
+     * @return input image as a {@link java.awt.image.BufferedImage}
+     */
+    static BufferedImage readImage(File inputImage, byte[] imageBytes) {
         BufferedImage bufferedImage = null;
         try {
-            bufferedImage = ImagePreprocessingUtil
-                    .readImageFromFile(inputImage);
+            bufferedImage = imageBytes == null
+                    ? ImagePreprocessingUtil.readImageFromFile(inputImage)
+                    : ImageIO.read(new ByteArrayInputStream(imageBytes));
         } catch (IllegalArgumentException | IOException ex) {
             LoggerFactory.getLogger(ImagePreprocessingUtil.class).info(
                     MessageFormatUtil.format(
@@ -0,0 +1,64 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr.tesseract4;
+
+import net.sourceforge.tess4j.Tesseract1;
+
+/**
+ * {@link net.sourceforge.tess4j.Tesseract1} which recognizes the image using
+ * {@link TesseractRecognitionMonitor} if one is set.
+ */
+class MonitoredTesseract1 extends Tesseract1 implements IMonitoredTesseract {
+
+    /**
+     * Monitor of recognition, may be null.
+     */
+    private TesseractRecognitionMonitor monitor = null;
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void setMonitor(final TesseractRecognitionMonitor monitor) {
+        this.monitor = monitor;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    protected String getOCRText(final String filename, final int pageNum) {
+        if (monitor != null) {
+            // results of the monitored recognition are reused
+            // when the text is rendered
+            int result = TessBaseAPIRecognize(getHandle(),
+                    monitor.getDescriptor());
+            monitor.checkStopped();
+            if (result != 0) {
+                throw new Tesseract4OcrException(
+                        Tesseract4OcrException.TESSERACT_FAILED);
+            }
+        }
+        return super.getOCRText(filename, pageNum);
+    }
+}
@@ -0,0 +1,691 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr.tesseract4;
+
+import com.itextpdf.io.util.MessageFormatUtil;
+import com.itextpdf.kernel.counter.event.IMetaInfo;
+import com.itextpdf.pdfocr.IOcrEngine;
+import com.itextpdf.pdfocr.OcrResultReader;
+import com.itextpdf.pdfocr.OcrResultWriter;
+import com.itextpdf.pdfocr.TextInfo;
+import com.itextpdf.pdfocr.TextInfoList;
+import com.itextpdf.pdfocr.events.IThreadLocalMetaInfoAware;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.atomic.AtomicLong;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link IOcrEngine} which caches OCR results of the base engine.
+ *
+ * Results are keyed by SHA-256 hash of the input image content and of the
+ * base engine configuration described by
+ * {@link ICacheableOcrEngine#updateConfigurationDigest(MessageDigest)}:
+ * for tesseract engines, including cascade and language routing ones, all
+ * the {@link Tesseract4OcrEngineProperties} which affect recognized text
+ * are taken into account, including the size and modification time of the
+ * used language models and the content of user words. Results are kept in
+ * memory in the least recently used order and, if
+ * {@link #setCacheDirectory(File)} is set, in files of the cache directory
+ * whose total size is limited by {@link #getMaxDiskSize()}. The total size
+ * is tracked in memory, and the directory is scanned for files to evict
+ * only once the tracked size exceeds the limit. Cache files
+ * use the format of {@link OcrResultWriter}. Disk cache survives restarts
+ * of the application and may be shared by several engines, so results of
+ * engines which don't implement {@link ICacheableOcrEngine} are stored on
+ * disk only if {@link #setCacheNamespace(String)} is set.
+ *
+ * Please note that base engine configuration shouldn't be changed while
+ * OCR is in progress.
+ */
+public class Tesseract4CachingOcrEngine implements IOcrEngine,
+        IThreadLocalMetaInfoAware {
+
+    /**
+     * Default maximum number of results kept in memory.
+     */
+    public static final int DEFAULT_MAX_MEMORY_ENTRIES = 64;
+
+    /**
+     * Default maximum total size of the cache files in bytes.
+     */
+    public static final long DEFAULT_MAX_DISK_SIZE = 256L * 1024 * 1024;
+
+    /**
+     * The logger.
+     */
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(Tesseract4CachingOcrEngine.class);
+
+    /**
+     * Extension of the cache files.
+     */
+    private static final String CACHE_FILE_EXTENSION = ".ocr";
+
+    /**
+     * Algorithm used to hash images and configuration.
+     */
+    private static final String HASH_ALGORITHM = "SHA-256";
+
+    /**
+     * Size of the buffer used to hash input images.
+     */
+    private static final int HASH_BUFFER_SIZE = 64 * 1024;
+
+    /**
+     * Engine whose results are cached.
+     */
+    private final IOcrEngine baseEngine;
+
+    /**
+     * Results kept in memory in the least recently used order.
+     */
+    private final LinkedHashMap<String, Map<Integer, List<TextInfo>>> memoryCache =
+            new LinkedHashMap<String, Map<Integer, List<TextInfo>>>(16, 0.75f, true);
+
+    /**
+     * Number of results found in memory.
+     */
+    private final AtomicLong memoryHits = new AtomicLong();
+
+    /**
+     * Number of results found in the cache directory.
+     */
+    private final AtomicLong diskHits = new AtomicLong();
+
+    /**
+     * Number of results which were not found in the cache.
+     */
+    private final AtomicLong misses = new AtomicLong();
+
+    /**
+     * Maximum number of results kept in memory.
+     */
+    private int maxMemoryEntries = DEFAULT_MAX_MEMORY_ENTRIES;
+
+    /**
+     * Directory of the disk cache, null if results aren't stored on disk.
+     */
+    private File cacheDirectory;
+
+    /**
+     * Maximum total size of the cache files in bytes.
+     */
+    private long maxDiskSize = DEFAULT_MAX_DISK_SIZE;
+
+    /**
+     * Lock guarding the tracked size of the cache files.
+     */
+    private final Object diskSizeLock = new Object();
+
+    /**
+     * Cache directory whose size is tracked, null if no directory has been
+     * scanned yet.
+     */
+    private File trackedDirectory;
+
+    /**
+     * Total size of the cache files in the tracked directory in bytes as
+     * of the last scan plus the size of the files written since then.
+     */
+    private long trackedDiskSize;
+
+    /**
+     * Namespace of the cached results, null if it isn't set.
+     */
+    private String cacheNamespace;
+
+    /**
+     * Creates a new {@link Tesseract4CachingOcrEngine} instance.
+     *
+     * @param baseEngine engine whose results are cached
+     */
+    public Tesseract4CachingOcrEngine(final IOcrEngine baseEngine) {
+        this.baseEngine = baseEngine;
+    }
+
+    /**
+     * Gets engine whose results are cached.
+     *
+     * @return base {@link IOcrEngine}
+     */
+    public final IOcrEngine getBaseEngine() {
+        return baseEngine;
+    }
+
+    /**
+     * Gets maximum number of results kept in memory.
+     *
+     * @return maximum number of results
+     */
+    public final int getMaxMemoryEntries() {
+        return maxMemoryEntries;
+    }
+
+    /**
+     * Sets maximum number of results kept in memory, least recently used
+     * results are evicted first. 0 disables memory cache.
+     *
+     * @param maxMemoryEntries maximum number of results
+     * @return the {@link Tesseract4CachingOcrEngine} instance
+     */
+    public final Tesseract4CachingOcrEngine setMaxMemoryEntries(
+            final int maxMemoryEntries) {
+        synchronized (memoryCache) {
+            this.maxMemoryEntries = maxMemoryEntries;
+            trimMemoryCache();
+        }
+        return this;
+    }
+
+    /**
+     * Gets directory of the disk cache.
+     *
+     * @return cache directory, null if results aren't stored on disk
+     */
+    public final File getCacheDirectory() {
+        return cacheDirectory;
+    }
+
+    /**
+     * Sets directory of the disk cache, it is created if it doesn't exist.
+     * Results of base engines which don't implement
+     * {@link ICacheableOcrEngine} are stored on disk only if
+     * {@link #setCacheNamespace(String)} is set.
+     *
+     * @param cacheDirectory cache directory, null if results shouldn't be
+     *                       stored on disk
+     * @return the {@link Tesseract4CachingOcrEngine} instance
+     */
+    public final Tesseract4CachingOcrEngine setCacheDirectory(
+            final File cacheDirectory) {
+        this.cacheDirectory = cacheDirectory;
+        return this;
+    }
+
+    /**
+     * Gets maximum total size of the cache files.
+     *
+     * @return maximum size in bytes
+     */
+    public final long getMaxDiskSize() {
+        return maxDiskSize;
+    }
+
+    /**
+     * Sets maximum total size of the cache files, least recently used files
+     * are deleted first when it is exceeded.
+     *
+     * @param maxDiskSize maximum size in bytes
+     * @return the {@link Tesseract4CachingOcrEngine} instance
+     */
+    public final Tesseract4CachingOcrEngine setMaxDiskSize(
+            final long maxDiskSize) {
+        this.maxDiskSize = maxDiskSize;
+        return this;
+    }
+
+    /**
+     * Gets namespace of the cached results.
+     *
+     * @return cache namespace, null if it isn't set
+     */
+    public final String getCacheNamespace() {
+        return cacheNamespace;
+    }
+
+    /**
+     * Sets namespace of the cached results. Results are reused only by
+     * engines with the same namespace. Namespace is required to store
+     * results of the base engine on disk if the base engine doesn't
+     * implement {@link ICacheableOcrEngine}: in this case it should be
+     * changed whenever the configuration of the base engine is changed.
+     *
+     * @param cacheNamespace cache namespace, null if it isn't used
+     * @return the {@link Tesseract4CachingOcrEngine} instance
+     */
+    public final Tesseract4CachingOcrEngine setCacheNamespace(
+            final String cacheNamespace) {
+        this.cacheNamespace = cacheNamespace;
+        return this;
+    }
+
+    /**
+     * Gets number of results found in memory.
+     *
+     * @return number of memory hits
+     */
+    public final long getMemoryHits() {
+        return memoryHits.get();
+    }
+
+    /**
+     * Gets number of results found in the cache directory.
+     *
+     * @return number of disk hits
+     */
+    public final long getDiskHits() {
+        return diskHits.get();
+    }
+
+    /**
+     * Gets number of results which were not found in the cache, i.e.
+     * number of the base engine calls.
+     *
+     * @return number of misses
+     */
+    public final long getMisses() {
+        return misses.get();
+    }
+
+    /**
+     * Resets hit and miss counters.
+     */
+    public final void resetStatistics() {
+        memoryHits.set(0);
+        diskHits.set(0);
+        misses.set(0);
+    }
+
+    /**
+     * Removes all results kept in memory. Cache files are not deleted.
+     */
+    public final void clearMemoryCache() {
+        synchronized (memoryCache) {
+            memoryCache.clear();
+        }
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<Integer, List<TextInfo>> doImageOcr(final File input) {
+        final String key = getCacheKey(input);
+        if (key != null) {
+            Map<Integer, List<TextInfo>> result;
+            synchronized (memoryCache) {
+                result = memoryCache.get(key);
+            }
+            if (result != null) {
+                memoryHits.incrementAndGet();
+                return copy(result);
+            }
+            result = readCacheFile(key);
+            if (result != null) {
+                diskHits.incrementAndGet();
+                putToMemoryCache(key, result);
+                return copy(result);
+            }
+        }
+        misses.incrementAndGet();
+        final Map<Integer, List<TextInfo>> result = baseEngine.doImageOcr(input);
+        if (key != null && result != null) {
+            final Map<Integer, List<TextInfo>> cached = copy(result);
+            putToMemoryCache(key, cached);
+            writeCacheFile(key, cached);
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void createTxtFile(final List<File> inputImages, final File txtFile) {
+        LOGGER.info(MessageFormatUtil.format(
+                Tesseract4LogMessageConstant.START_OCR_FOR_IMAGES,
+                inputImages.size()));
+        StringBuilder content = new StringBuilder();
+        for (File inputImage : inputImages) {
+            Map<Integer, List<TextInfo>> outputMap = doImageOcr(inputImage);
+            for (List<TextInfo> pageTextInfos : outputMap.values()) {
+                for (TextInfo textInfo : pageTextInfos) {
+                    content.append(textInfo.getText());
+                    content.append(System.lineSeparator());
+                }
+                content.append(System.lineSeparator());
+            }
+        }
+        TesseractHelper.writeToTextFile(txtFile.getAbsolutePath(),
+                content.toString());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public IMetaInfo getThreadLocalMetaInfo() {
+        return baseEngine instanceof IThreadLocalMetaInfoAware
+                ? ((IThreadLocalMetaInfoAware) baseEngine)
+                .getThreadLocalMetaInfo()
+                : null;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public IThreadLocalMetaInfoAware setThreadLocalMetaInfo(
+            final IMetaInfo metaInfo) {
+        if (baseEngine instanceof IThreadLocalMetaInfoAware) {
+            ((IThreadLocalMetaInfoAware) baseEngine)
+                    .setThreadLocalMetaInfo(metaInfo);
+        }
+        return this;
+    }
+
+    /**
+     * Calculates cache key of the input image for the current
+     * configuration of the base engine.
+     *
+     * @param input input image {@link java.io.File}
+     * @return hex encoded key or null if the input image cannot be read
+     */
+    String getCacheKey(final File input) {
+        try (InputStream in = Files.newInputStream(input.toPath())) {
+            final MessageDigest digest = MessageDigest.getInstance(HASH_ALGORITHM);
+            final byte[] buffer = new byte[HASH_BUFFER_SIZE];
+            int length;
+            while ((length = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, length);
+            }
+            updateDigest(digest, "namespace", cacheNamespace);
+            if (baseEngine instanceof ICacheableOcrEngine) {
+                ((ICacheableOcrEngine) baseEngine)
+                        .updateConfigurationDigest(digest);
+            } else {
+                updateDigest(digest, "engine", baseEngine.getClass().getName());
+            }
+            final StringBuilder sb = new StringBuilder();
+            for (byte b : digest.digest()) {
+                sb.append(Character.forDigit((b >> 4) & 0xf, 16))
+                        .append(Character.forDigit(b & 0xf, 16));
+            }
+            return sb.toString();
+        } catch (IOException | NoSuchAlgorithmException e) { // NOSONAR
+            return null;
+        }
+    }
+
+    /**
+     * Updates the digest with the named configuration value.
+     *
+     * @param digest {@link java.security.MessageDigest} to update
+     * @param name name of the value
+     * @param value configuration value, may be null
+     */
+    static void updateDigest(final MessageDigest digest, final String name,
+            final Object value) {
+        // values are terminated, so adjacent values cannot be confused
+        digest.update((name + '=' + value + '\n')
+                .getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Updates the digest with path, size and modification time of the
+     * file, e.g. of a language model.
+     *
+     * @param digest {@link java.security.MessageDigest} to update
+     * @param name name of the value
+     * @param file {@link java.io.File} to describe
+     */
+    static void updateFileDigest(final MessageDigest digest,
+            final String name, final File file) {
+        updateDigest(digest, name, file.getAbsolutePath() + ':'
+                + file.length() + ':' + file.lastModified());
+    }
+
+    /**
+     * Updates the digest with the whole content of the file, e.g. of user
+     * words which are usually stored in files with generated names.
+     *
+     * @param digest {@link java.security.MessageDigest} to update
+     * @param name name of the value
+     * @param file {@link java.io.File} whose content is used
+     */
+    static void updateContentDigest(final MessageDigest digest,
+            final String name, final File file) {
+        try (InputStream in = Files.newInputStream(file.toPath())) {
+            final byte[] buffer = new byte[HASH_BUFFER_SIZE];
+            long size = 0;
+            int length;
+            while ((length = in.read(buffer)) > 0) {
+                digest.update(buffer, 0, length);
+                size += length;
+            }
+            updateDigest(digest, name, size);
+        } catch (IOException e) { // NOSONAR
+            updateDigest(digest, name, file.getAbsolutePath());
+        }
+    }
+
+    /**
+     * Checks whether results may be stored on disk: the base engine
+     * should describe its configuration or the namespace should be set.
+     *
+     * @return true if disk cache may be used
+     */
+    private boolean isDiskCacheAllowed() {
+        return baseEngine instanceof ICacheableOcrEngine
+                || cacheNamespace != null;
+    }
+
+    /**
+     * Puts result to memory cache and evicts least recently used results.
+     *
+     * @param key cache key
+     * @param result result to cache
+     */
+    private void putToMemoryCache(final String key,
+            final Map<Integer, List<TextInfo>> result) {
+        synchronized (memoryCache) {
+            memoryCache.put(key, result);
+            trimMemoryCache();
+        }
+    }
+
+    /**
+     * Evicts least recently used results exceeding the maximum number of
+     * results kept in memory.
+     */
+    private void trimMemoryCache() {
+        while (memoryCache.size() > Math.max(0, maxMemoryEntries)) {
+            memoryCache.remove(memoryCache.keySet().iterator().next());
+        }
+    }
+
+    /**
+     * Reads result from the cache directory.
+     *
+     * @param key cache key
+     * @return cached result or null if it isn't found or cannot be read
+     */
+    private Map<Integer, List<TextInfo>> readCacheFile(final String key) {
+        final File directory = cacheDirectory;
+        if (directory == null || !isDiskCacheAllowed()) {
+            return null;
+        }
+        final File file = new File(directory, key + CACHE_FILE_EXTENSION);
+        if (!file.isFile()) {
+            return null;
+        }
+        try (OcrResultReader reader = new OcrResultReader(
+                new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            final Map<Integer, List<TextInfo>> result = reader.readAll();
+            // modification time is used as the last access time
+            file.setLastModified(System.currentTimeMillis());
+            return result;
+        } catch (IOException | RuntimeException e) { // NOSONAR
+            LOGGER.info(MessageFormatUtil.format(
+                    Tesseract4LogMessageConstant.CANNOT_READ_CACHED_OCR_RESULT,
+                    file.getAbsolutePath(), e.getMessage()));
+            return null;
+        }
+    }
+
+    /**
+     * Writes result to the cache directory and deletes least recently used
+     * files if the maximum size of the cache is exceeded.
+     *
+     * @param key cache key
+     * @param result result to cache
+     */
+    private void writeCacheFile(final String key,
+            final Map<Integer, List<TextInfo>> result) {
+        final File directory = cacheDirectory;
+        if (directory == null || !isDiskCacheAllowed()) {
+            return;
+        }
+        final File file = new File(directory, key + CACHE_FILE_EXTENSION);
+        // the result is written to a temporary file first, so concurrent
+        // readers never see incomplete files
+        final File tempFile = new File(directory,
+                UUID.randomUUID().toString() + ".tmp");
+        final long replacedSize = file.length();
+        try {
+            Files.createDirectories(directory.toPath());
+            try (OcrResultWriter writer = new OcrResultWriter(
+                    Files.newOutputStream(tempFile.toPath()))) {
+                writer.writeAll(result);
+            }
+            Files.move(tempFile.toPath(), file.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING);
+        } catch (IOException | RuntimeException e) { // NOSONAR
+            LOGGER.info(MessageFormatUtil.format(
+                    Tesseract4LogMessageConstant.CANNOT_WRITE_CACHED_OCR_RESULT,
+                    file.getAbsolutePath(), e.getMessage()));
+            TesseractHelper.deleteFile(tempFile.getAbsolutePath());
+            return;
+        }
+        updateDiskSize(directory, file.length() - replacedSize);
+    }
+
+    /**
+     * Gets tracked total size of the cache files.
+     *
+     * @return size in bytes, 0 if no cache file has been written yet
+     */
+    long getTrackedDiskSize() {
+        synchronized (diskSizeLock) {
+            return trackedDiskSize;
+        }
+    }
+
+    /**
+     * Adds size of the written file to the tracked size of the cache
+     * directory. The directory is scanned only when it's used for the first
+     * time or when the tracked size exceeds the maximum size, as files of
+     * other engines sharing the directory are seen only by a scan.
+     *
+     * @param directory cache directory
+     * @param sizeDelta change of the size caused by the written file
+     */
+    private void updateDiskSize(final File directory, final long sizeDelta) {
+        synchronized (diskSizeLock) {
+            if (directory.equals(trackedDirectory)) {
+                trackedDiskSize += sizeDelta;
+                if (trackedDiskSize <= maxDiskSize) {
+                    return;
+                }
+            }
+            trackedDirectory = directory;
+            trackedDiskSize = evictCacheFiles(directory);
+        }
+    }
+
+    /**
+     * Deletes least recently used cache files until their total size
+     * doesn't exceed the maximum size.
+     *
+     * @param directory cache directory
+     * @return total size of the remaining cache files
+     */
+    private long evictCacheFiles(final File directory) {
+        final File[] files = directory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(final File file) {
+                return file.isFile()
+                        && file.getName().endsWith(CACHE_FILE_EXTENSION);
+            }
+        });
+        if (files == null) {
+            return 0;
+        }
+        long totalSize = 0;
+        for (File file : files) {
+            totalSize += file.length();
+        }
+        if (totalSize <= maxDiskSize) {
+            return totalSize;
+        }
+        Arrays.sort(files, new Comparator<File>() {
+            @Override
+            public int compare(final File f1, final File f2) {
+                return Long.compare(f1.lastModified(), f2.lastModified());
+            }
+        });
+        for (int i = 0; i < files.length && totalSize > maxDiskSize; ++i) {
+            final long size = files[i].length();
+            if (files[i].delete()) {
+                totalSize -= size;
+            }
+        }
+        return totalSize;
+    }
+
+    /**
+     * Creates deep copy of the result, so cached results aren't affected
+     * by modifications of returned ones.
+     *
+     * @param result result to copy
+     * @return copy of the result
+     */
+    private static Map<Integer, List<TextInfo>> copy(
+            final Map<Integer, List<TextInfo>> result) {
+        final Map<Integer, List<TextInfo>> copy =
+                new LinkedHashMap<Integer, List<TextInfo>>();
+        for (Map.Entry<Integer, List<TextInfo>> page : result.entrySet()) {
+            copy.put(page.getKey(), page.getValue() == null
+                    ? new TextInfoList()
+                    : TextInfoList.copyOf(page.getValue()));
+        }
+        return copy;
+    }
+}
@@ -0,0 +1,588 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr.tesseract4;
+
+import com.itextpdf.io.util.MessageFormatUtil;
+import com.itextpdf.kernel.counter.event.IMetaInfo;
+import com.itextpdf.kernel.geom.Rectangle;
+import com.itextpdf.pdfocr.IOcrEngine;
+import com.itextpdf.pdfocr.TextInfo;
+import com.itextpdf.pdfocr.events.IThreadLocalMetaInfoAware;
+
+import java.awt.Color;
+import java.awt.Graphics2D;
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link IOcrEngine} which performs OCR in two tiers.
+ *
+ * At first the whole image is recognized by the fast engine (e.g. configured
+ * with tessdata_fast models or with fewer languages). Then only those text
+ * chunks whose confidence is lower than {@link #getConfidenceThreshold()}
+ * are cropped from the image and recognized once again by the accurate
+ * engine. Cropped chunks of a page are placed one under another and
+ * recognized by a single run of tesseract, so the models are loaded once
+ * per page rather than once per chunk. The result with the higher
+ * confidence is kept, so the average cost of the page is close to the
+ * cost of the fast engine.
+ *
+ * Please note that neither of the passed engines should be used in parallel
+ * with this instance.
+ */
+public class Tesseract4CascadeOcrEngine implements ICacheableOcrEngine,
+        IThreadLocalMetaInfoAware {
+
+    /**
+     * Default confidence threshold.
+     */
+    public static final int DEFAULT_CONFIDENCE_THRESHOLD = 80;
+
+    /**
+     * The logger.
+     */
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(Tesseract4CascadeOcrEngine.class);
+
+    /**
+     * Number of pixels which are added around each cropped text chunk.
+     */
+    private static final int CROP_MARGIN = 4;
+
+    /**
+     * Page segmentation mode "assume a single uniform block of text".
+     */
+    private static final int PSM_SINGLE_BLOCK = 6;
+
+    /**
+     * Number of white pixels between text chunks recognized together.
+     */
+    private static final int CHUNK_GAP = 16;
+
+    /**
+     * Maximum height in pixels of the image of text chunks recognized
+     * together, tesseract doesn't accept images higher than 32767 pixels.
+     */
+    private static final int MAX_BATCH_HEIGHT = 8192;
+
+    /**
+     * Engine which recognizes the whole image.
+     */
+    private final AbstractTesseract4OcrEngine fastEngine;
+
+    /**
+     * Engine which recognizes low-confidence text chunks.
+     */
+    private final AbstractTesseract4OcrEngine accurateEngine;
+
+    /**
+     * Text chunks with lower confidence are recognized by the accurate engine.
+     */
+    private int confidenceThreshold;
+
+    /**
+     * Engine of the same type as accurate engine configured to recognize
+     * text chunks, created once it's needed and reused for all pages.
+     */
+    private AbstractTesseract4OcrEngine chunkEngine;
+
+    /**
+     * Creates a new {@link Tesseract4CascadeOcrEngine} instance with
+     * {@link #DEFAULT_CONFIDENCE_THRESHOLD}.
+     *
+     * @param fastEngine engine which recognizes the whole image
+     * @param accurateEngine engine which recognizes low-confidence text chunks
+     */
+    public Tesseract4CascadeOcrEngine(
+            final AbstractTesseract4OcrEngine fastEngine,
+            final AbstractTesseract4OcrEngine accurateEngine) {
+        this(fastEngine, accurateEngine, DEFAULT_CONFIDENCE_THRESHOLD);
+    }
+
+    /**
+     * Creates a new {@link Tesseract4CascadeOcrEngine} instance.
+     *
+     * @param fastEngine engine which recognizes the whole image
+     * @param accurateEngine engine which recognizes low-confidence text chunks
+     * @param confidenceThreshold text chunks with lower confidence are
+     *                            recognized by the accurate engine,
+     *                            value may vary in range of 0-100
+     */
+    public Tesseract4CascadeOcrEngine(
+            final AbstractTesseract4OcrEngine fastEngine,
+            final AbstractTesseract4OcrEngine accurateEngine,
+            final int confidenceThreshold) {
+        this.fastEngine = fastEngine;
+        this.accurateEngine = accurateEngine;
+        this.confidenceThreshold = confidenceThreshold;
+    }
+
+    /**
+     * Gets engine which recognizes the whole image.
+     *
+     * @return fast {@link AbstractTesseract4OcrEngine}
+     */
+    public final AbstractTesseract4OcrEngine getFastEngine() {
+        return fastEngine;
+    }
+
+    /**
+     * Gets engine which recognizes low-confidence text chunks.
+     *
+     * @return accurate {@link AbstractTesseract4OcrEngine}
+     */
+    public final AbstractTesseract4OcrEngine getAccurateEngine() {
+        return accurateEngine;
+    }
+
+    /**
+     * Gets confidence threshold. Text chunks with lower confidence
+     * are recognized by the accurate engine.
+     *
+     * @return confidence threshold in range of 0-100
+     */
+    public final int getConfidenceThreshold() {
+        return confidenceThreshold;
+    }
+
+    /**
+     * Sets confidence threshold. Text chunks with lower confidence
+     * are recognized by the accurate engine.
+     *
+     * @param confidenceThreshold confidence threshold in range of 0-100
+     * @return the {@link Tesseract4CascadeOcrEngine} instance
+     */
+    public final Tesseract4CascadeOcrEngine setConfidenceThreshold(
+            final int confidenceThreshold) {
+        this.confidenceThreshold = confidenceThreshold;
+        return this;
+    }
+
+    /**
+     * Updates the digest with the confidence threshold and the
+     * configuration of both fast and accurate engines.
+     *
+     * @param digest {@link java.security.MessageDigest} to update
+     */
+    @Override
+    public void updateConfigurationDigest(final MessageDigest digest) {
+        Tesseract4CachingOcrEngine.updateDigest(digest, "engine",
+                getClass().getName());
+        Tesseract4CachingOcrEngine.updateDigest(digest, "confidenceThreshold",
+                confidenceThreshold);
+        Tesseract4CachingOcrEngine.updateDigest(digest, "fast", "");
+        fastEngine.updateConfigurationDigest(digest);
+        Tesseract4CachingOcrEngine.updateDigest(digest, "accurate", "");
+        accurateEngine.updateConfigurationDigest(digest);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<Integer, List<TextInfo>> doImageOcr(final File input) {
+        final Map<Integer, List<TextInfo>> result =
+                fastEngine.doImageOcr(input);
+        for (Map.Entry<Integer, List<TextInfo>> entry : result.entrySet()) {
+            refinePage(input, entry.getKey(), entry.getValue());
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void createTxtFile(final List<File> inputImages, final File txtFile) {
+        LOGGER.info(MessageFormatUtil.format(
+                Tesseract4LogMessageConstant.START_OCR_FOR_IMAGES,
+                inputImages.size()));
+        StringBuilder content = new StringBuilder();
+        for (File inputImage : inputImages) {
+            Map<Integer, List<TextInfo>> outputMap = doImageOcr(inputImage);
+            for (List<TextInfo> pageTextInfos : outputMap.values()) {
+                for (TextInfo textInfo : pageTextInfos) {
+                    content.append(textInfo.getText());
+                    content.append(System.lineSeparator());
+                }
+                content.append(System.lineSeparator());
+            }
+        }
+        TesseractHelper.writeToTextFile(txtFile.getAbsolutePath(),
+                content.toString());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public IMetaInfo getThreadLocalMetaInfo() {
+        return fastEngine.getThreadLocalMetaInfo();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public IThreadLocalMetaInfoAware setThreadLocalMetaInfo(
+            final IMetaInfo metaInfo) {
+        fastEngine.setThreadLocalMetaInfo(metaInfo);
+        return this;
+    }
+
+    /**
+     * Recognizes low-confidence text chunks of the page once again
+     * using accurate engine.
+     *
+     * @param input input image {@link java.io.File}
+     * @param page number of the page (starting from 1)
+     * @param pageTextInfos text chunks recognized by fast engine
+     */
+    private void refinePage(final File input, final int page,
+            final List<TextInfo> pageTextInfos) {
+        final List<TextInfo> textChunks = selectTextChunks(pageTextInfos);
+        if (textChunks.isEmpty()) {
+            return;
+        }
+        final BufferedImage pageImage = TesseractOcrUtil.readImagePage(input,
+                page - 1, fastEngine.getTesseract4OcrEngineProperties()
+                        .isPreprocessingImages());
+        if (pageImage == null) {
+            return;
+        }
+        final AbstractTesseract4OcrEngine engine = getChunkEngine();
+        ChunkBatch batch = new ChunkBatch();
+        for (TextInfo textInfo : textChunks) {
+            final BufferedImage chunkImage = cropTextInfo(pageImage, textInfo);
+            if (chunkImage == null) {
+                continue;
+            }
+            if (!batch.add(textInfo, chunkImage)) {
+                refineBatch(engine, batch);
+                batch = new ChunkBatch();
+                batch.add(textInfo, chunkImage);
+            }
+        }
+        if (!batch.isEmpty()) {
+            refineBatch(engine, batch);
+        }
+    }
+
+    /**
+     * Recognizes text chunks of the batch by a single run of accurate
+     * engine and replaces text of the chunks whose accurate result is more
+     * confident.
+     *
+     * @param engine engine configured to recognize text chunks
+     * @param batch text chunks to be refined
+     */
+    private void refineBatch(final AbstractTesseract4OcrEngine engine,
+            final ChunkBatch batch) {
+        final String batchPath = TesseractOcrUtil.getTempFilePath(
+                UUID.randomUUID().toString(), ".png");
+        try {
+            TesseractOcrUtil.saveImageToTempPngFile(batchPath,
+                    batch.createImage());
+            batch.merge(engine.doImageOcr(new File(batchPath), false));
+        } catch (Tesseract4OcrException e) {
+            LOGGER.warn(MessageFormatUtil.format(
+                    Tesseract4LogMessageConstant.CANNOT_REFINE_TEXT_CHUNKS,
+                    batch.size(), e.getMessage()));
+        } finally {
+            TesseractHelper.deleteFile(batchPath);
+        }
+    }
+
+    /**
+     * Selects text chunks which have to be recognized by accurate engine.
+     *
+     * @param pageTextInfos text chunks of the page recognized by fast engine
+     * @return {@link java.util.List} of low-confidence text chunks
+     */
+    List<TextInfo> selectTextChunks(final List<TextInfo> pageTextInfos) {
+        final List<TextInfo> textChunks = new ArrayList<TextInfo>();
+        for (TextInfo textInfo : pageTextInfos) {
+            if (isRefinementNeeded(textInfo)) {
+                textChunks.add(textInfo);
+            }
+        }
+        return textChunks;
+    }
+
+    /**
+     * Checks whether text chunk has to be recognized by accurate engine.
+     */
+    private boolean isRefinementNeeded(final TextInfo textInfo) {
+        return textInfo.getBboxRect() != null
+                && textInfo.getConfidence() != TextInfo.UNKNOWN_CONFIDENCE
+                && textInfo.getConfidence() < confidenceThreshold;
+    }
+
+    /**
+     * Gets engine of the same type as accurate engine which is used to
+     * recognize text chunks. The engine is created once, so that it's
+     * reused for all the pages. Accurate engine itself isn't
+     * reconfigured, so that it may be safely used while pages are refined.
+     *
+     * @return engine for text chunk recognition
+     */
+    private AbstractTesseract4OcrEngine getChunkEngine() {
+        if (chunkEngine == null) {
+            chunkEngine = accurateEngine.createEngine(createChunkProperties(
+                    accurateEngine.getTesseract4OcrEngineProperties()));
+        }
+        if (accurateEngine instanceof Tesseract4LibOcrEngine) {
+            // cancellation token is set per thread
+            ((Tesseract4LibOcrEngine) chunkEngine)
+                    .setThreadLocalCancellationToken(
+                            ((Tesseract4LibOcrEngine) accurateEngine)
+                                    .getThreadLocalCancellationToken());
+        }
+        return chunkEngine;
+    }
+
+    /**
+     * Creates properties which are used by accurate engine to recognize
+     * text chunks placed one under another.
+     *
+     * @param properties original properties of accurate engine
+     * @return properties for text chunk recognition
+     */
+    private Tesseract4OcrEngineProperties createChunkProperties(
+            final Tesseract4OcrEngineProperties properties) {
+        final Tesseract4OcrEngineProperties chunkProperties =
+                new Tesseract4OcrEngineProperties(properties);
+        chunkProperties.setPageSegMode(PSM_SINGLE_BLOCK);
+        chunkProperties.setTextPositioning(TextPositioning.BY_LINES);
+        chunkProperties.setMinimalConfidenceLevel(0);
+        return chunkProperties;
+    }
+
+    /**
+     * Crops text chunk from the page image.
+     *
+     * @param pageImage image of the page the chunk belongs to
+     * @param textInfo text chunk to be cropped
+     * @return cropped image or null if text chunk bbox is empty
+     */
+    static BufferedImage cropTextInfo(final BufferedImage pageImage,
+            final TextInfo textInfo) {
+        final Rectangle bbox = textInfo.getBboxRect();
+        final int imageHeight = pageImage.getHeight();
+        final int left = Math.max(0, (int) Math.floor(
+                TesseractHelper.toPixels(bbox.getLeft())) - CROP_MARGIN);
+        final int right = Math.min(pageImage.getWidth(), (int) Math.ceil(
+                TesseractHelper.toPixels(bbox.getRight())) + CROP_MARGIN);
+        final int top = Math.max(0, imageHeight - (int) Math.ceil(
+                TesseractHelper.toPixels(bbox.getTop())) - CROP_MARGIN);
+        final int bottom = Math.min(imageHeight, imageHeight - (int) Math.floor(
+                TesseractHelper.toPixels(bbox.getBottom())) + CROP_MARGIN);
+        if (right <= left || bottom <= top) {
+            return null;
+        }
+        // copy the region so that the whole page raster isn't written
+        final BufferedImage chunkImage = new BufferedImage(right - left,
+                bottom - top, BufferedImage.TYPE_INT_RGB);
+        final Graphics2D graphics = chunkImage.createGraphics();
+        try {
+            graphics.drawImage(pageImage.getSubimage(left, top,
+                    right - left, bottom - top), 0, 0, null);
+        } finally {
+            graphics.dispose();
+        }
+        return chunkImage;
+    }
+
+    /**
+     * Low-confidence text chunks of a page which are recognized by a single
+     * run of accurate engine: cropped chunks are placed one under another
+     * separated by white space, so that each of them is recognized as a
+     * separate line.
+     */
+    static final class ChunkBatch {
+
+        /**
+         * Text chunks of the batch.
+         */
+        private final List<TextInfo> textInfos = new ArrayList<TextInfo>();
+
+        /**
+         * Cropped images of the text chunks.
+         */
+        private final List<BufferedImage> images =
+                new ArrayList<BufferedImage>();
+
+        /**
+         * Top of each text chunk in the batch image in pixels.
+         */
+        private final List<Integer> tops = new ArrayList<Integer>();
+
+        /**
+         * Width of the batch image in pixels.
+         */
+        private int width = 0;
+
+        /**
+         * Height of the batch image in pixels.
+         */
+        private int height = CHUNK_GAP;
+
+        /**
+         * Adds text chunk to the batch unless the batch image becomes too
+         * high. A chunk is always added to an empty batch.
+         *
+         * @param textInfo text chunk
+         * @param image cropped image of the text chunk
+         * @return true if the text chunk was added
+         */
+        boolean add(final TextInfo textInfo, final BufferedImage image) {
+            final int chunkHeight = image.getHeight() + CHUNK_GAP;
+            if (!textInfos.isEmpty()
+                    && height + chunkHeight > MAX_BATCH_HEIGHT) {
+                return false;
+            }
+            textInfos.add(textInfo);
+            images.add(image);
+            tops.add(Integer.valueOf(height));
+            width = Math.max(width, image.getWidth() + 2 * CHUNK_GAP);
+            height += chunkHeight;
+            return true;
+        }
+
+        /**
+         * Checks if there are no text chunks in the batch.
+         *
+         * @return true if the batch is empty
+         */
+        boolean isEmpty() {
+            return textInfos.isEmpty();
+        }
+
+        /**
+         * Gets number of text chunks in the batch.
+         *
+         * @return number of text chunks
+         */
+        int size() {
+            return textInfos.size();
+        }
+
+        /**
+         * Creates image with all the text chunks of the batch.
+         *
+         * @return batch image
+         */
+        BufferedImage createImage() {
+            final BufferedImage image = new BufferedImage(width, height,
+                    BufferedImage.TYPE_INT_RGB);
+            final Graphics2D graphics = image.createGraphics();
+            try {
+                graphics.setColor(Color.WHITE);
+                graphics.fillRect(0, 0, width, height);
+                for (int i = 0; i < images.size(); ++i) {
+                    graphics.drawImage(images.get(i), CHUNK_GAP,
+                            tops.get(i).intValue(), null);
+                }
+            } finally {
+                graphics.dispose();
+            }
+            return image;
+        }
+
+        /**
+         * Assigns recognized text to the text chunks by vertical position
+         * and replaces text of the chunks whose recognized text is more
+         * confident.
+         *
+         * @param result result of recognition of the batch image
+         */
+        void merge(final Map<Integer, List<TextInfo>> result) {
+            final StringBuilder[] texts = new StringBuilder[textInfos.size()];
+            final float[] confidenceTotals = new float[textInfos.size()];
+            final int[] confidenceCounts = new int[textInfos.size()];
+            for (List<TextInfo> resultTextInfos : result.values()) {
+                for (TextInfo resultTextInfo : resultTextInfos) {
+                    final int index = findTextChunk(resultTextInfo);
+                    if (index < 0) {
+                        continue;
+                    }
+                    if (texts[index] == null) {
+                        texts[index] = new StringBuilder();
+                    } else {
+                        texts[index].append(' ');
+                    }
+                    texts[index].append(resultTextInfo.getText());
+                    if (resultTextInfo.getConfidence()
+                            != TextInfo.UNKNOWN_CONFIDENCE) {
+                        confidenceTotals[index] +=
+                                resultTextInfo.getConfidence();
+                        confidenceCounts[index]++;
+                    }
+                }
+            }
+            for (int i = 0; i < textInfos.size(); ++i) {
+                if (texts[i] == null || texts[i].length() == 0
+                        || confidenceCounts[i] == 0) {
+                    continue;
+                }
+                final float confidence =
+                        confidenceTotals[i] / confidenceCounts[i];
+                if (confidence > textInfos.get(i).getConfidence()) {
+                    textInfos.get(i).setText(texts[i].toString());
+                    textInfos.get(i).setConfidence(confidence);
+                }
+            }
+        }
+
+        /**
+         * Finds text chunk which contains vertical center of the recognized
+         * text.
+         *
+         * @param resultTextInfo recognized text of the batch image
+         * @return index of the text chunk or -1 if there is no such chunk
+         */
+        private int findTextChunk(final TextInfo resultTextInfo) {
+            final Rectangle bbox = resultTextInfo.getBboxRect();
+            if (bbox == null) {
+                return -1;
+            }
+            final float center = height - TesseractHelper.toPixels(
+                    bbox.getBottom() + bbox.getHeight() / 2);
+            for (int i = 0; i < textInfos.size(); ++i) {
+                final int top = tops.get(i).intValue();
+                if (center >= top
+                        && center < top + images.get(i).getHeight()) {
+                    return i;
+                }
+            }
+            return -1;
+        }
+    }
+}
@@ -25,14 +25,21 @@ package com.itextpdf.pdfocr.tesseract4;
 import com.itextpdf.io.util.MessageFormatUtil;
 
 import java.awt.image.BufferedImage;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.security.MessageDigest;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
-import java.util.UUID;
+import java.util.Map;
+import java.util.regex.Pattern;
 
 import com.itextpdf.pdfocr.tesseract4.events.PdfOcrTesseract4Event;
 import net.sourceforge.lept4j.Pix;
@@ -54,6 +61,29 @@ public class Tesseract4ExecutableOcrEngine extends AbstractTesseract4OcrEngine {
      */
     private String pathToExecutable;
 
+    /**
+     * Pattern for matching ASCII string.
+     */
+    private static final Pattern ASCII_STRING_PATTERN = Pattern.compile("^[\\u0000-\\u007F]*$");
+
+    /**
+     * Name of the input image which makes tesseract read the image
+     * from its standard input.
+     */
+    private static final String STANDARD_INPUT = "stdin";
+
+    /**
+     * Name of the output file which makes tesseract write the result
+     * to its standard output.
+     */
+    private static final String STANDARD_OUTPUT = "stdout";
+
+    /**
+     * Indicates if image is passed to tesseract through its standard input
+     * and results are read from its standard output.
+     */
+    private boolean streamingResults = false;
+
     /**
      * Creates a new {@link Tesseract4ExecutableOcrEngine} instance.
      *
@@ -86,6 +116,20 @@ public class Tesseract4ExecutableOcrEngine extends AbstractTesseract4OcrEngine {
         return pathToExecutable;
     }
 
+    /**
+     * Updates the digest with the {@link Tesseract4OcrEngineProperties}
+     * and the path to tesseract executable, as different installations of
+     * tesseract may recognize text differently.
+     *
+     * @param digest {@link java.security.MessageDigest} to update
+     */
+    @Override
+    public void updateConfigurationDigest(final MessageDigest digest) {
+        super.updateConfigurationDigest(digest);
+        Tesseract4CachingOcrEngine.updateDigest(digest, "executable",
+                getPathToExecutable());
+    }
+
     /**
      * Sets path to tesseract executable.
      * By default it's assumed that "tesseract" already exists in the "PATH".
@@ -96,6 +140,40 @@ public class Tesseract4ExecutableOcrEngine extends AbstractTesseract4OcrEngine {
         pathToExecutable = path;
     }
 
+    /**
+     * Checks if image is passed to tesseract through its standard input
+     * and results are read from its standard output.
+     *
+     * @return true if no temporary files are used for OCR, false by default
+     */
+    public final boolean isStreamingResults() {
+        return streamingResults;
+    }
+
+    /**
+     * Sets if image (or preprocessed image encoded in memory) has to be
+     * passed to tesseract through its standard input and results have to be
+     * read from its standard output, so no temporary files are created.
+     *
+     * @param streamingResults true if no temporary files should be used
+     * @return the {@link Tesseract4ExecutableOcrEngine} instance
+     */
+    public final Tesseract4ExecutableOcrEngine setStreamingResults(
+            final boolean streamingResults) {
+        this.streamingResults = streamingResults;
+        return this;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    AbstractTesseract4OcrEngine createEngine(
+            final Tesseract4OcrEngineProperties tesseract4OcrEngineProperties) {
+        return new Tesseract4ExecutableOcrEngine(getPathToExecutable(),
+                tesseract4OcrEngineProperties)
+                .setStreamingResults(isStreamingResults());
+    }
+
     /**
      * Performs tesseract OCR using command line tool for the selected page
      * of input image (by default 1st).
@@ -117,7 +195,7 @@ public class Tesseract4ExecutableOcrEngine extends AbstractTesseract4OcrEngine {
             final List<File> outputFiles, final OutputFormat outputFormat,
             final int pageNumber, final boolean dispatchEvent) {
         scheduledCheck();
-        List<String> params = new ArrayList<String>();
+        List<String> params;
         String execPath = null;
         String imagePath = null;
         String workingDirectory = null;
@@ -137,15 +215,14 @@ public class Tesseract4ExecutableOcrEngine extends AbstractTesseract4OcrEngine {
                 }
             }
             checkTesseractInstalled(execPath);
-            // path to tess data
-            addTessData(params);
 
             // validate languages before preprocessing started
             validateLanguages(getTesseract4OcrEngineProperties()
                     .getLanguages());
 
             // preprocess input file if needed
-            imagePath = preprocessImage(inputImage, pageNumber);
+            imagePath = preprocessImage(inputImage, pageNumber,
+                    outputFiles.get(0));
 
             // get the input file parent directory as working directory
             // as tesseract cannot parse non ascii characters in input path
@@ -154,31 +231,22 @@ public class Tesseract4ExecutableOcrEngine extends AbstractTesseract4OcrEngine {
             workingDirectory = imageParentDir.replace("file:///", replacement)
                     .replace("file:/", replacement);
 
-            // input file
-            addInputFile(params, imagePath);
-            // output file
-            addOutputFile(params, outputFiles.get(0), outputFormat,
-                    imagePath);
-            // page segmentation mode
-            addPageSegMode(params);
-            // add user words if needed
-            addUserWords(params, imagePath);
-            // required languages
-            addLanguages(params);
-
-            addOutputFormat(params, outputFormat);
-
-            addPreserveInterwordSpaces(params);
-
-            // set default user defined dpi
-            addDefaultDpi(params);
+            params = createCommandParams(new File(imagePath).getName(),
+                    getOutputFileName(outputFiles.get(0), outputFormat,
+                            imagePath),
+                    imagePath, outputFormat);
 
             if (dispatchEvent) {
                 onEvent();
             }
 
             // run tesseract process
-            TesseractHelper.runCommand(execPath, params, workingDirectory);
+            TesseractHelper.runCommand(execPath, params, workingDirectory,
+                    getCurrentTimeout(), getProcessEnvironment());
+        } catch (Tesseract4OcrTimeoutException e) {
+            LoggerFactory.getLogger(getClass())
+                    .error(e.getMessage());
+            throw e;
         } catch (Tesseract4OcrException e) {
             LoggerFactory.getLogger(getClass())
                     .error(e.getMessage());
@@ -187,7 +255,10 @@ public class Tesseract4ExecutableOcrEngine extends AbstractTesseract4OcrEngine {
             try {
                 if (imagePath != null
                         && !inputImage.getAbsolutePath().equals(imagePath)) {
-                    TesseractHelper.deleteFile(imagePath);
+                    // preprocessed image or link is the only file
+                    // in its job directory
+                    TesseractOcrUtil.deleteTempDirectory(
+                            new File(imagePath).getParentFile());
                 }
             } catch (SecurityException e) {
                 LoggerFactory.getLogger(getClass())
@@ -195,161 +266,351 @@ public class Tesseract4ExecutableOcrEngine extends AbstractTesseract4OcrEngine {
                                 Tesseract4LogMessageConstant.CANNOT_DELETE_FILE,
                                 imagePath, e.getMessage()));
             }
-            try {
-                if (getTesseract4OcrEngineProperties()
-                        .getPathToUserWordsFile() != null
-                        && getTesseract4OcrEngineProperties().isUserWordsFileTemporary()) {
-                    TesseractHelper.deleteFile(
-                            getTesseract4OcrEngineProperties()
-                                    .getPathToUserWordsFile());
-                }
-            } catch (SecurityException e) {
-                LoggerFactory.getLogger(getClass())
-                        .error(MessageFormatUtil.format(
-                                Tesseract4LogMessageConstant.CANNOT_DELETE_FILE,
-                                getTesseract4OcrEngineProperties()
-                                        .getPathToUserWordsFile(),
-                                e.getMessage()));
-            }
         }
     }
 
     /**
-     * Sets hocr output format.
-     *
-     * @param command result command as list of strings
+     * {@inheritDoc}
      */
-    private void setHocrOutput(final List<String> command) {
-        command.add("-c");
-        command.add("tessedit_create_hocr=1");
+    @Override
+    ITesseractOcrResult recognizePage(final File input,
+            final OutputFormat outputFormat, final int pageNumber,
+            final boolean dispatchEvent) throws IOException {
+        if (!isStreamingResults()) {
+            return super.recognizePage(input, outputFormat, pageNumber,
+                    dispatchEvent);
+        }
+        return doPageOcr(new IPageOcrTask() {
+            @Override
+            public ITesseractOcrResult run(boolean dispatch) {
+                return doTesseractOcr(input, outputFormat, pageNumber,
+                        dispatch);
+            }
+        }, dispatchEvent);
     }
 
     /**
-     * Sets preserve_interword_spaces option.
+     * Performs tesseract OCR using command line tool for the selected page
+     * of input image passing the image through the standard input and
+     * reading the result from the standard output of tesseract process.
      *
-     * @param command result command as list of strings
+     * @param inputImage input image {@link java.io.File}
+     * @param outputFormat selected {@link OutputFormat} for tesseract
+     * @param pageNumber number of page to be processed
+     * @param dispatchEvent indicates if {@link PdfOcrTesseract4Event} needs to be dispatched
+     * @return {@link ITesseractOcrResult} instance, either {@link StringTesseractOcrResult}
+     *     if output format is TXT, or {@link TextInfoTesseractOcrResult} if the output format is HOCR
      */
-    private void addPreserveInterwordSpaces(final List<String> command) {
-        if (getTesseract4OcrEngineProperties().isUseTxtToImproveHocrParsing()) {
-            command.add("-c");
-            command.add("preserve_interword_spaces=1");
+    private ITesseractOcrResult doTesseractOcr(final File inputImage,
+            final OutputFormat outputFormat, final int pageNumber,
+            final boolean dispatchEvent) {
+        scheduledCheck();
+        try {
+            if (getPathToExecutable() == null
+                    || getPathToExecutable().isEmpty()) {
+                throw new Tesseract4OcrException(
+                        Tesseract4OcrException
+                                .CANNOT_FIND_PATH_TO_TESSERACT_EXECUTABLE);
+            }
+            checkTesseractInstalled(isWindows()
+                    ? addQuotes(getPathToExecutable())
+                    : getPathToExecutable());
+            validateLanguages(getTesseract4OcrEngineProperties()
+                    .getLanguages());
+
+            List<String> txt = null;
+            if (outputFormat == OutputFormat.HOCR
+                    && getTesseract4OcrEngineProperties()
+                    .isUseTxtToImproveHocrParsing()) {
+                String txtResult = ((StringTesseractOcrResult) doTesseractOcr(
+                        inputImage, OutputFormat.TXT, pageNumber, false))
+                        .getData();
+                txt = Arrays.<String>asList(txtResult.split("\\r?\\n"));
+            }
+
+            // image bytes are read before the process is started
+            // to fail early if the image cannot be read
+            byte[] image = readImageBytes(inputImage, pageNumber);
+
+            List<String> command = new ArrayList<String>();
+            command.add(getPathToExecutable());
+            command.addAll(createCommandParams(STANDARD_INPUT,
+                    STANDARD_OUTPUT, null, outputFormat));
+
+            if (dispatchEvent) {
+                onEvent();
+            }
+
+            return runStreamingCommand(command, image, outputFormat, txt);
+        } catch (Tesseract4OcrTimeoutException
+                | Tesseract4OcrCancelledException e) {
+            LoggerFactory.getLogger(getClass())
+                    .error(e.getMessage());
+            throw e;
+        } catch (IOException e) {
+            LoggerFactory.getLogger(getClass())
+                    .error(MessageFormatUtil.format(
+                            Tesseract4LogMessageConstant
+                                    .CANNOT_READ_INPUT_IMAGE,
+                            e.getMessage()));
+            throw new Tesseract4OcrException(
+                    Tesseract4OcrException.TESSERACT_FAILED, e);
+        } catch (Tesseract4OcrException e) {
+            LoggerFactory.getLogger(getClass())
+                    .error(e.getMessage());
+            throw new Tesseract4OcrException(e.getMessage(), e);
         }
     }
 
     /**
-     * Add output format.
+     * Runs tesseract process writing the image to its standard input and
+     * parsing its standard output.
      *
-     * @param command result command as list of strings
-     * @param outputFormat output format
+     * Standard output is parsed by the current thread as it's produced,
+     * standard input and standard error are handled by separate threads so
+     * that the process is never blocked on them.
+     *
+     * @param command command to be run
+     * @param image image bytes
+     * @param outputFormat selected {@link OutputFormat} for tesseract
+     * @param txt lines of txt result used to improve hocr parsing, may be null
+     * @return {@link ITesseractOcrResult} instance
+     * @throws Tesseract4OcrException if tesseract process failed
      */
-    private void addOutputFormat(final List<String> command, OutputFormat outputFormat) {
-        if (outputFormat == OutputFormat.HOCR) {
-            setHocrOutput(command);
+    private ITesseractOcrResult runStreamingCommand(final List<String> command,
+            final byte[] image, final OutputFormat outputFormat,
+            final List<String> txt) throws Tesseract4OcrException {
+        Process process = null;
+        try {
+            ProcessBuilder processBuilder =
+                    TesseractHelper.createProcessBuilder(command);
+            processBuilder.environment().putAll(getProcessEnvironment());
+            process = processBuilder.start();
+            TesseractHelper.ProcessWatchdog watchdog =
+                    TesseractHelper.watch(process, getCurrentTimeout());
+            final ByteArrayOutputStream errors = new ByteArrayOutputStream();
+            final Thread errorsReader = TesseractHelper.startStreamReader(
+                    process.getErrorStream(), errors);
+            TesseractHelper.startStreamReader(new ByteArrayInputStream(image),
+                    process.getOutputStream(), true);
+            ITesseractOcrResult result;
+            int exitCode;
+            try {
+                result = readStreamingResult(process.getInputStream(),
+                        outputFormat, txt);
+                exitCode = process.waitFor();
+            } finally {
+                // if the process was killed on timeout, output is broken
+                // and the timeout is reported instead
+                watchdog.stop();
+            }
+            errorsReader.join();
+            if (exitCode != 0) {
+                LoggerFactory.getLogger(getClass())
+                        .error(MessageFormatUtil.format(
+                                Tesseract4LogMessageConstant.COMMAND_FAILED,
+                                String.join(" ", command) + ": "
+                                        + new String(errors.toByteArray(),
+                                        StandardCharsets.UTF_8)));
+                throw new Tesseract4OcrException(
+                        Tesseract4OcrException.TESSERACT_FAILED);
+            }
+            return result;
+        } catch (IOException e) {
+            LoggerFactory.getLogger(getClass())
+                    .error(MessageFormatUtil.format(
+                            Tesseract4LogMessageConstant.COMMAND_FAILED,
+                            e.getMessage()));
+            throw new Tesseract4OcrException(
+                    Tesseract4OcrException.TESSERACT_FAILED, e);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Tesseract4OcrCancelledException(
+                    Tesseract4OcrException.OCR_CANCELLED);
+        } finally {
+            if (process != null && process.isAlive()) {
+                TesseractHelper.destroyProcessTree(process);
+            }
         }
     }
 
     /**
-     * Add path to user-words file for tesseract executable.
+     * Reads the result of tesseract from its standard output until the
+     * stream is closed.
      *
-     * @param command result command as list of strings
+     * @param output standard output of tesseract process
+     * @param outputFormat selected {@link OutputFormat} for tesseract
+     * @param txt lines of txt result used to improve hocr parsing, may be null
+     * @return {@link ITesseractOcrResult} instance
+     * @throws IOException if the output cannot be read
      */
-    private void addUserWords(final List<String> command,
-            final String imgPath) {
-        if (getTesseract4OcrEngineProperties().getPathToUserWordsFile() != null
-                && !getTesseract4OcrEngineProperties()
-                .getPathToUserWordsFile().isEmpty()) {
-            File userWordsFile = new File(getTesseract4OcrEngineProperties()
-                    .getPathToUserWordsFile());
-            // Workaround for a non-ASCII characters in path
-            // Currently works only if the user words (or output files) reside in the same directory as the input image
-            // Leaves only a filename in this case, otherwise - absolute path to output file
-            String filePath = areEqualParentDirectories(imgPath,
-                    userWordsFile.getAbsolutePath())
-                    ? userWordsFile.getName()
-                    : userWordsFile.getAbsolutePath();
-
-            command.add("--user-words");
-            command.add(addQuotes(filePath));
-            command.add("--oem");
-            command.add("0");
+    private ITesseractOcrResult readStreamingResult(final InputStream output,
+            final OutputFormat outputFormat, final List<String> txt)
+            throws IOException {
+        if (outputFormat == OutputFormat.HOCR) {
+            return new TextInfoTesseractOcrResult(TesseractHelper.parseHocr(
+                    output, txt, getTesseract4OcrEngineProperties()));
+        } else {
+            ByteArrayOutputStream data = new ByteArrayOutputStream();
+            TesseractHelper.copy(output, data);
+            return new StringTesseractOcrResult(
+                    new String(data.toByteArray(), StandardCharsets.UTF_8));
         }
     }
 
     /**
-     * Set default DPI for image.
+     * Gets environment variables to be set for tesseract process:
+     * <code>OMP_THREAD_LIMIT</code> if the run is scheduled by
+     * {@link Tesseract4OcrScheduler}.
      *
-     * @param command result command as list of strings
+     * @return {@link java.util.Map} of environment variables
      */
-    private void addDefaultDpi(final List<String> command) {
-        command.add("-c");
-        command.add("user_defined_dpi=300");
+    private Map<String, String> getProcessEnvironment() {
+        int threads = Tesseract4OcrScheduler.getInstance()
+                .getCurrentJobThreads();
+        if (threads > 0) {
+            return Collections.<String, String>singletonMap(
+                    Tesseract4OcrScheduler.OMP_THREAD_LIMIT,
+                    String.valueOf(threads));
+        }
+        return Collections.<String, String>emptyMap();
     }
 
     /**
-     * Adds path to tess data to the command list.
+     * Reads image bytes to be passed to tesseract: either the original
+     * image bytes or preprocessed page encoded in memory.
      *
-     * @param command result command as list of strings
+     * @param inputImage input image {@link java.io.File}
+     * @param pageNumber number of page to be processed
+     * @return image bytes
+     * @throws IOException if image cannot be read
      */
-    private void addTessData(final List<String> command) {
-        command.add("--tessdata-dir");
-        command.add(addQuotes(getTessData()));
+    private byte[] readImageBytes(final File inputImage, final int pageNumber)
+            throws IOException {
+        if (getTesseract4OcrEngineProperties().isPreprocessingImages()) {
+            Pix pix = ImagePreprocessingUtil
+                    .preprocessImage(inputImage, pageNumber,
+                            getTesseract4OcrEngineProperties().getImagePreprocessingOptions());
+            try {
+                return TesseractOcrUtil.convertPixToPngBytes(pix);
+            } finally {
+                TesseractOcrUtil.destroyPix(pix);
+            }
+        }
+        return readInputBytes(inputImage);
     }
 
     /**
-     * Adds selected Page Segmentation Mode as parameter.
+     * Sets preserve_interword_spaces option.
      *
      * @param command result command as list of strings
      */
-    private void addPageSegMode(final List<String> command) {
-        if (getTesseract4OcrEngineProperties().getPageSegMode() != null) {
+    private void addPreserveInterwordSpaces(final List<String> command) {
+        if (getTesseract4OcrEngineProperties().isUseTxtToImproveHocrParsing()) {
             command.add("-c");
-            command.add("tessedit_pageseg_mode=" + getTesseract4OcrEngineProperties().getPageSegMode());
+            command.add("preserve_interword_spaces=1");
         }
     }
 
     /**
-     * Add list of selected languages concatenated to a string as parameter.
+     * Set default DPI for image.
      *
      * @param command result command as list of strings
      */
-    private void addLanguages(final List<String> command) {
-        if (getTesseract4OcrEngineProperties().getLanguages().size() > 0) {
-            command.add("-l");
-            command.add(getLanguagesAsString());
-        }
+    private void addDefaultDpi(final List<String> command) {
+        command.add("-c");
+        command.add("user_defined_dpi=300");
     }
 
     /**
-     * Adds path to the input image file.
+     * Creates arguments of tesseract command. The same arguments are used
+     * both if the image and the result are passed through temporary files
+     * and through standard streams of tesseract process.
      *
-     * @param command result command as list of strings
-     * @param imagePath path to the input image file as string
+     * @param input name of the input image file or {@link #STANDARD_INPUT}
+     * @param output base name of the output file or {@link #STANDARD_OUTPUT}
+     * @param imagePath path to the input image file, null if the image is
+     *                  passed through standard input
+     * @param outputFormat selected {@link OutputFormat} for tesseract
+     * @return {@link java.util.List} of arguments, paths are quoted if
+     * temporary files are used as they are joined to a command line
      */
-    private void addInputFile(final List<String> command,
-            final String imagePath) {
-        command.add(addQuotes(new File(imagePath).getName()));
+    List<String> createCommandParams(final String input, final String output,
+            final String imagePath, final OutputFormat outputFormat) {
+        final boolean quoted = imagePath != null;
+        List<String> command = new ArrayList<String>();
+        command.add("--tessdata-dir");
+        command.add(quote(getTessData(), quoted));
+        command.add(quote(input, quoted));
+        command.add(quote(output, quoted));
+        if (getCurrentPageSegMode() != null) {
+            command.add("-c");
+            command.add("tessedit_pageseg_mode=" + getCurrentPageSegMode());
+        }
+        String userWordsPath = getTesseract4OcrEngineProperties()
+                .getPathToUserWordsFile();
+        if (userWordsPath != null && !userWordsPath.isEmpty()) {
+            File userWordsFile = new File(userWordsPath);
+            // Workaround for a non-ASCII characters in path
+            // Currently works only if the user words (or output files) reside in the same directory as the input image
+            // Leaves only a filename in this case, otherwise - absolute path to output file
+            String filePath = imagePath != null
+                    && areEqualParentDirectories(imagePath,
+                    userWordsFile.getAbsolutePath())
+                    ? userWordsFile.getName()
+                    : userWordsFile.getAbsolutePath();
+            command.add("--user-words");
+            command.add(quote(filePath, quoted));
+            command.add("--oem");
+            command.add(String.valueOf(
+                    TesseractOcrUtil.getOcrEngineMode(userWordsPath)));
+        }
+        if (getTesseract4OcrEngineProperties().getLanguages().size() > 0) {
+            command.add("-l");
+            command.add(getLanguagesAsString());
+        }
+        if (outputFormat == OutputFormat.HOCR) {
+            command.add("-c");
+            command.add("tessedit_create_hocr=1");
+            command.add("-c");
+            command.add("tessedit_create_txt=0");
+        }
+        addPreserveInterwordSpaces(command);
+        // set default user defined dpi
+        addDefaultDpi(command);
+        return command;
     }
 
     /**
-     * Adds path to temporary output file with result.
+     * Gets base name of temporary output file with result which is passed
+     * to tesseract.
      *
-     * @param command result command as list of strings
      * @param outputFile output file with result
      * @param outputFormat selected {@link OutputFormat} for tesseract
+     * @param inputImagePath path to the input image file
+     * @return base name of the output file
      */
-    private void addOutputFile(final List<String> command,
-            final File outputFile, final OutputFormat outputFormat,
-            final String inputImagePath) {
+    private String getOutputFileName(final File outputFile,
+            final OutputFormat outputFormat, final String inputImagePath) {
         String extension = outputFormat.equals(OutputFormat.HOCR)
                 ? ".hocr" : ".txt";
         try {
             // Workaround for a non-ASCII characters in path
             // Currently works only if the user words (or output files) reside in the same directory as the input image
             // Leaves only a filename in this case, otherwise - absolute path to output file
-            String filePath = areEqualParentDirectories(inputImagePath,
-                    outputFile.getAbsolutePath())
-                    ? outputFile.getName()
-                    : outputFile.getAbsolutePath();
+            final String imageDirectory =
+                    TesseractOcrUtil.getParentDirectory(inputImagePath);
+            String filePath;
+            if (areEqualParentDirectories(inputImagePath,
+                    outputFile.getAbsolutePath())) {
+                filePath = outputFile.getName();
+            } else if (imageDirectory != null && areEqualParentDirectories(
+                    imageDirectory, outputFile.getAbsolutePath())) {
+                // image was placed to a job directory next to output file
+                filePath = ".." + File.separator + outputFile.getName();
+            } else {
+                filePath = outputFile.getAbsolutePath();
+            }
             String fileName = new String(
                     filePath.toCharArray(), 0,
                     filePath.indexOf(extension));
@@ -357,13 +618,24 @@ public class Tesseract4ExecutableOcrEngine extends AbstractTesseract4OcrEngine {
                     MessageFormatUtil.format(
                             Tesseract4LogMessageConstant.CREATED_TEMPORARY_FILE,
                             outputFile.getAbsolutePath()));
-            command.add(addQuotes(fileName));
+            return fileName;
         } catch (Exception e) { // NOSONAR
             throw new Tesseract4OcrException(Tesseract4OcrException
                     .TESSERACT_FAILED);
         }
     }
 
+    /**
+     * Surrounds given string with quotes if it's required.
+     *
+     * @param value string to be wrapped into quotes
+     * @param quoted true if the string has to be wrapped
+     * @return wrapped or original string
+     */
+    private String quote(final String value, final boolean quoted) {
+        return quoted ? addQuotes(value) : value;
+    }
+
     /**
      * Surrounds given string with quotes.
      *
@@ -382,19 +654,32 @@ public class Tesseract4ExecutableOcrEngine extends AbstractTesseract4OcrEngine {
     /**
      * Preprocess given image if it is needed.
      *
+     * If no preprocessing is needed and the original image can be passed
+     * to tesseract as is, its path is returned. Otherwise preprocessed image
+     * or a link to (or a copy of) the original image is created in a new
+     * directory created by {@link TesseractOcrUtil#createTempDirectory()},
+     * which has to be deleted once the image is processed.
+     *
      * @param inputImage original input image {@link java.io.File}
      * @param pageNumber number of page to be OCRed
+     * @param outputFile output file with result
      * @return path to output image as {@link java.lang.String}
      * @throws Tesseract4OcrException if preprocessing cannot be done or file
      * is invalid
      */
     private String preprocessImage(final File inputImage,
-            final int pageNumber) throws Tesseract4OcrException {
-        String tmpFileName = TesseractOcrUtil
-                .getTempFilePath(UUID.randomUUID().toString(),
-                        getExtension(inputImage));
+            final int pageNumber, final File outputFile)
+            throws Tesseract4OcrException {
         String path = inputImage.getAbsolutePath();
+        if (!getTesseract4OcrEngineProperties().isPreprocessingImages()
+                && canPassImageAsIs(inputImage, outputFile)) {
+            return path;
+        }
+        File jobDirectory = null;
         try {
+            jobDirectory = TesseractOcrUtil.createTempDirectory();
+            String tmpFileName = new File(jobDirectory,
+                    "image" + getExtension(inputImage)).getAbsolutePath();
             if (getTesseract4OcrEngineProperties().isPreprocessingImages()) {
                 Pix pix = ImagePreprocessingUtil
                         .preprocessImage(inputImage, pageNumber,
@@ -410,7 +695,7 @@ public class Tesseract4ExecutableOcrEngine extends AbstractTesseract4OcrEngine {
             }
             if (!getTesseract4OcrEngineProperties().isPreprocessingImages()
                     || !Files.exists(Paths.get(tmpFileName))) {
-                TesseractOcrUtil.createTempFileCopy(path, tmpFileName);
+                TesseractOcrUtil.createTempFileLink(path, tmpFileName);
             }
             if (Files.exists(Paths.get(tmpFileName))) {
                 path = tmpFileName;
@@ -421,10 +706,45 @@ public class Tesseract4ExecutableOcrEngine extends AbstractTesseract4OcrEngine {
                             Tesseract4LogMessageConstant
                                     .CANNOT_READ_INPUT_IMAGE,
                             e.getMessage()));
+        } finally {
+            if (path.equals(inputImage.getAbsolutePath())) {
+                TesseractOcrUtil.deleteTempDirectory(jobDirectory);
+            }
         }
         return path;
     }
 
+    /**
+     * Checks whether the original image can be passed to tesseract as is,
+     * i.e. all the paths which are added to the command contain only ASCII
+     * characters and no quotes, and the image is readable.
+     *
+     * @param inputImage original input image {@link java.io.File}
+     * @param outputFile output file with result
+     * @return true if the original image can be passed to tesseract
+     */
+    private boolean canPassImageAsIs(final File inputImage,
+            final File outputFile) {
+        final String userWordsPath = getTesseract4OcrEngineProperties()
+                .getPathToUserWordsFile();
+        return isSafePath(inputImage.getAbsolutePath())
+                && isSafePath(outputFile.getAbsolutePath())
+                && (userWordsPath == null
+                || isSafePath(new File(userWordsPath).getAbsolutePath()))
+                && Files.isReadable(inputImage.toPath());
+    }
+
+    /**
+     * Checks whether the path can be passed to tesseract command.
+     *
+     * @param path path to check
+     * @return true if the path contains only ASCII characters and no quotes
+     */
+    private static boolean isSafePath(final String path) {
+        return ASCII_STRING_PATTERN.matcher(path).matches()
+                && path.indexOf('"') < 0 && path.indexOf('\'') < 0;
+    }
+
     /**
      * Check whether tesseract executable is installed on the machine and
      * provided path to tesseract executable is correct.
@@ -0,0 +1,463 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr.tesseract4;
+
+import com.itextpdf.io.util.MessageFormatUtil;
+import com.itextpdf.kernel.counter.event.IMetaInfo;
+import com.itextpdf.pdfocr.IOcrEngine;
+import com.itextpdf.pdfocr.TextInfo;
+import com.itextpdf.pdfocr.events.IThreadLocalMetaInfoAware;
+
+import java.awt.image.BufferedImage;
+import java.io.File;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * {@link IOcrEngine} which recognizes each page using only the languages
+ * which are actually used on it.
+ *
+ * Languages which are set in the properties of the base engine are treated
+ * as candidates. Before recognition a sample band of each page is recognized
+ * once with all the candidate languages, and the words of the sample are
+ * grouped by the languages tesseract chose for them. The page is then
+ * recognized by an engine configured with at most
+ * {@link #getMaxLanguagesPerPage()} languages with the best confidence.
+ * Engines are created once per set of languages and reused, so their
+ * models stay loaded between pages and documents.
+ *
+ * Please note that this class isn't thread-safe and the base engine
+ * shouldn't be used in parallel with this instance.
+ */
+public class Tesseract4LanguageRoutingOcrEngine implements ICacheableOcrEngine,
+        IThreadLocalMetaInfoAware {
+
+    /**
+     * Default maximum number of languages a page is recognized with.
+     */
+    public static final int DEFAULT_MAX_LANGUAGES_PER_PAGE = 2;
+
+    /**
+     * Default maximum difference between the confidence of the best
+     * language and the confidence of an additional language.
+     */
+    public static final float DEFAULT_ADDITIONAL_LANGUAGE_MARGIN = 10;
+
+    /**
+     * The logger.
+     */
+    private static final Logger LOGGER = LoggerFactory
+            .getLogger(Tesseract4LanguageRoutingOcrEngine.class);
+
+    /**
+     * Images lower than this value (in pixels) are sampled entirely.
+     */
+    private static final int MIN_SAMPLED_IMAGE_HEIGHT = 300;
+
+    /**
+     * Part of the page height which is used as a sample.
+     */
+    private static final float SAMPLE_HEIGHT_RATIO = 1f / 3;
+
+    /**
+     * Minimal part of the recognized text of the sample (by length) which
+     * a language has to be used for to be selected.
+     */
+    private static final float MIN_LANGUAGE_SHARE = 0.1f;
+
+    /**
+     * Engine whose properties are used to create routed engines.
+     */
+    private final AbstractTesseract4OcrEngine baseEngine;
+
+    /**
+     * Warm engines by languages they were created for.
+     */
+    private final Map<String, AbstractTesseract4OcrEngine> engines =
+            new HashMap<String, AbstractTesseract4OcrEngine>();
+
+    /**
+     * Maximum number of languages a page is recognized with.
+     */
+    private int maxLanguagesPerPage = DEFAULT_MAX_LANGUAGES_PER_PAGE;
+
+    /**
+     * Maximum difference between the confidence of the best language
+     * and the confidence of an additional language.
+     */
+    private float additionalLanguageMargin = DEFAULT_ADDITIONAL_LANGUAGE_MARGIN;
+
+    /**
+     * Creates a new {@link Tesseract4LanguageRoutingOcrEngine} instance.
+     *
+     * @param baseEngine engine whose properties (including candidate
+     *                   languages) are used for recognition
+     */
+    public Tesseract4LanguageRoutingOcrEngine(
+            final AbstractTesseract4OcrEngine baseEngine) {
+        this.baseEngine = baseEngine;
+    }
+
+    /**
+     * Gets engine whose properties are used for recognition.
+     *
+     * @return base {@link AbstractTesseract4OcrEngine}
+     */
+    public final AbstractTesseract4OcrEngine getBaseEngine() {
+        return baseEngine;
+    }
+
+    /**
+     * Gets maximum number of languages a page is recognized with.
+     *
+     * @return maximum number of languages per page
+     */
+    public final int getMaxLanguagesPerPage() {
+        return maxLanguagesPerPage;
+    }
+
+    /**
+     * Sets maximum number of languages a page is recognized with.
+     *
+     * @param maxLanguagesPerPage maximum number of languages per page
+     * @return the {@link Tesseract4LanguageRoutingOcrEngine} instance
+     */
+    public final Tesseract4LanguageRoutingOcrEngine setMaxLanguagesPerPage(
+            final int maxLanguagesPerPage) {
+        this.maxLanguagesPerPage = maxLanguagesPerPage;
+        return this;
+    }
+
+    /**
+     * Gets maximum difference between the confidence of the best language
+     * and the confidence of an additional language for the latter one to be
+     * used for the page recognition.
+     *
+     * @return margin in range of 0-100
+     */
+    public final float getAdditionalLanguageMargin() {
+        return additionalLanguageMargin;
+    }
+
+    /**
+     * Sets maximum difference between the confidence of the best language
+     * and the confidence of an additional language for the latter one to be
+     * used for the page recognition.
+     *
+     * @param additionalLanguageMargin margin in range of 0-100
+     * @return the {@link Tesseract4LanguageRoutingOcrEngine} instance
+     */
+    public final Tesseract4LanguageRoutingOcrEngine setAdditionalLanguageMargin(
+            final float additionalLanguageMargin) {
+        this.additionalLanguageMargin = additionalLanguageMargin;
+        return this;
+    }
+
+    /**
+     * Updates the digest with the routing settings and the configuration
+     * of the base engine, from which the engines for the detected
+     * languages are created.
+     *
+     * @param digest {@link java.security.MessageDigest} to update
+     */
+    @Override
+    public void updateConfigurationDigest(final MessageDigest digest) {
+        Tesseract4CachingOcrEngine.updateDigest(digest, "engine",
+                getClass().getName());
+        Tesseract4CachingOcrEngine.updateDigest(digest, "maxLanguagesPerPage",
+                maxLanguagesPerPage);
+        Tesseract4CachingOcrEngine.updateDigest(digest,
+                "additionalLanguageMargin", additionalLanguageMargin);
+        baseEngine.updateConfigurationDigest(digest);
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public Map<Integer, List<TextInfo>> doImageOcr(final File input) {
+        final List<String> candidates = baseEngine
+                .getTesseract4OcrEngineProperties().getLanguages();
+        if (candidates.size() <= 1) {
+            return baseEngine.doImageOcr(input);
+        }
+        final int numOfPages = getNumberOfPages(input);
+        final List<List<String>> pageLanguages = new ArrayList<List<String>>();
+        boolean isSameForAllPages = true;
+        for (int page = 1; page <= numOfPages; page++) {
+            pageLanguages.add(detectPageLanguages(input, page, candidates));
+            isSameForAllPages = isSameForAllPages
+                    && pageLanguages.get(0).equals(pageLanguages.get(page - 1));
+        }
+        if (isSameForAllPages) {
+            return getEngine(pageLanguages.get(0)).doImageOcr(input);
+        }
+        // pages are split to separate images to be recognized
+        // with different languages
+        final Map<Integer, List<TextInfo>> result =
+                new LinkedHashMap<Integer, List<TextInfo>>();
+        for (int page = 1; page <= numOfPages; page++) {
+            final String pagePath = TesseractOcrUtil.getTempFilePath(
+                    UUID.randomUUID().toString(), ".png");
+            try {
+                TesseractOcrUtil.saveImageToTempPngFile(pagePath,
+                        TesseractOcrUtil.getImagePage(input, page - 1));
+                final Map<Integer, List<TextInfo>> pageResult =
+                        getEngine(pageLanguages.get(page - 1))
+                                .doImageOcr(new File(pagePath));
+                final List<TextInfo> pageTextInfos = pageResult.get(1);
+                result.put(page, pageTextInfos == null
+                        ? new ArrayList<TextInfo>() : pageTextInfos);
+            } finally {
+                TesseractHelper.deleteFile(pagePath);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public void createTxtFile(final List<File> inputImages, final File txtFile) {
+        LOGGER.info(MessageFormatUtil.format(
+                Tesseract4LogMessageConstant.START_OCR_FOR_IMAGES,
+                inputImages.size()));
+        StringBuilder content = new StringBuilder();
+        for (File inputImage : inputImages) {
+            Map<Integer, List<TextInfo>> outputMap = doImageOcr(inputImage);
+            for (List<TextInfo> pageTextInfos : outputMap.values()) {
+                for (TextInfo textInfo : pageTextInfos) {
+                    content.append(textInfo.getText());
+                    content.append(System.lineSeparator());
+                }
+                content.append(System.lineSeparator());
+            }
+        }
+        TesseractHelper.writeToTextFile(txtFile.getAbsolutePath(),
+                content.toString());
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public IMetaInfo getThreadLocalMetaInfo() {
+        return baseEngine.getThreadLocalMetaInfo();
+    }
+
+    /**
+     * {@inheritDoc}
+     */
+    @Override
+    public IThreadLocalMetaInfoAware setThreadLocalMetaInfo(
+            final IMetaInfo metaInfo) {
+        baseEngine.setThreadLocalMetaInfo(metaInfo);
+        return this;
+    }
+
+    /**
+     * Gets engine configured with the given languages and the rest of
+     * the base engine properties. Engines are created on the first request
+     * and reused afterwards.
+     *
+     * @param languages {@link java.util.List} of languages
+     * @return {@link AbstractTesseract4OcrEngine} for given languages
+     */
+    AbstractTesseract4OcrEngine getEngine(final List<String> languages) {
+        final Tesseract4OcrEngineProperties baseProperties =
+                baseEngine.getTesseract4OcrEngineProperties();
+        if (languages.equals(baseProperties.getLanguages())) {
+            return baseEngine;
+        }
+        final Tesseract4OcrEngineProperties properties =
+                new Tesseract4OcrEngineProperties(baseProperties);
+        properties.setLanguages(new ArrayList<String>(languages));
+        final String key = String.join("+", languages);
+        AbstractTesseract4OcrEngine engine = engines.get(key);
+        if (engine == null) {
+            engine = baseEngine.createEngine(properties);
+            engines.put(key, engine);
+        } else {
+            // base engine properties could have been changed
+            engine.setTesseract4OcrEngineProperties(properties);
+        }
+        engine.setThreadLocalMetaInfo(baseEngine.getThreadLocalMetaInfo());
+        return engine;
+    }
+
+    /**
+     * Detects languages of the page using its sample.
+     *
+     * @param input input image {@link java.io.File}
+     * @param page number of the page (starting from 1)
+     * @param candidates {@link java.util.List} of candidate languages
+     * @return {@link java.util.List} of languages ordered by confidence
+     */
+    List<String> detectPageLanguages(final File input, final int page,
+            final List<String> candidates) {
+        final BufferedImage sample = createSample(TesseractOcrUtil
+                .readImagePage(input, page - 1, baseEngine
+                        .getTesseract4OcrEngineProperties()
+                        .isPreprocessingImages()));
+        if (sample == null) {
+            LOGGER.warn(MessageFormatUtil.format(
+                    Tesseract4LogMessageConstant.CANNOT_DETECT_PAGE_LANGUAGES,
+                    page));
+            return candidates;
+        }
+        final String samplePath = TesseractOcrUtil.getTempFilePath(
+                UUID.randomUUID().toString(), ".png");
+        try {
+            TesseractOcrUtil.saveImageToTempPngFile(samplePath, sample);
+            // base engine is configured with all the candidate languages
+            final Map<String, Float> scores = scoreLanguages(baseEngine
+                    .doWordLanguagesOcr(new File(samplePath)));
+            final List<String> selected = selectLanguages(candidates, scores);
+            if (selected.isEmpty()) {
+                LOGGER.warn(MessageFormatUtil.format(
+                        Tesseract4LogMessageConstant
+                                .CANNOT_DETECT_PAGE_LANGUAGES, page));
+                return candidates;
+            }
+            LOGGER.info(MessageFormatUtil.format(
+                    Tesseract4LogMessageConstant.PAGE_LANGUAGES_DETECTED,
+                    page, String.join("+", selected)));
+            return selected;
+        } finally {
+            TesseractHelper.deleteFile(samplePath);
+        }
+    }
+
+    /**
+     * Selects languages with the best confidence.
+     *
+     * @param languages {@link java.util.List} of checked languages
+     * @param scores confidence of the sample recognition for each language,
+     *               languages without score aren't selected
+     * @return {@link java.util.List} of selected languages ordered by
+     * confidence, empty if the sample contains no recognized text
+     */
+    List<String> selectLanguages(final List<String> languages,
+            final Map<String, Float> scores) {
+        final List<String> sorted = new ArrayList<String>();
+        for (String language : languages) {
+            if (scores.containsKey(language)
+                    && scores.get(language) != TextInfo.UNKNOWN_CONFIDENCE) {
+                sorted.add(language);
+            }
+        }
+        Collections.sort(sorted, new Comparator<String>() {
+            @Override
+            public int compare(final String first, final String second) {
+                return Float.compare(scores.get(second), scores.get(first));
+            }
+        });
+        final List<String> selected = new ArrayList<String>();
+        for (String language : sorted) {
+            if (selected.size() >= Math.max(1, maxLanguagesPerPage)
+                    || (!selected.isEmpty() && scores.get(language)
+                    < scores.get(selected.get(0)) - additionalLanguageMargin)) {
+                break;
+            }
+            selected.add(language);
+        }
+        return selected;
+    }
+
+    /**
+     * Scores languages which tesseract used for the words of the sample.
+     *
+     * @param words words of the sample grouped by their languages
+     * @return average confidence of the words of each language weighted by
+     * their length or {@link TextInfo#UNKNOWN_CONFIDENCE} if the language
+     * is used for less than {@link #MIN_LANGUAGE_SHARE} of the text
+     */
+    static Map<String, Float> scoreLanguages(
+            final Map<String, List<TextInfo>> words) {
+        final Map<String, Float> confidenceTotals = new HashMap<String, Float>();
+        final Map<String, Integer> lengths = new HashMap<String, Integer>();
+        int totalLength = 0;
+        for (Map.Entry<String, List<TextInfo>> entry : words.entrySet()) {
+            float confidenceTotal = 0;
+            int length = 0;
+            for (TextInfo textInfo : entry.getValue()) {
+                if (textInfo.getConfidence() != TextInfo.UNKNOWN_CONFIDENCE) {
+                    final int textLength = textInfo.getText().trim().length();
+                    confidenceTotal += textInfo.getConfidence() * textLength;
+                    length += textLength;
+                }
+            }
+            confidenceTotals.put(entry.getKey(), confidenceTotal);
+            lengths.put(entry.getKey(), length);
+            totalLength += length;
+        }
+        final Map<String, Float> scores = new HashMap<String, Float>();
+        for (String language : words.keySet()) {
+            final int length = lengths.get(language);
+            scores.put(language, length == 0
+                    || length < totalLength * MIN_LANGUAGE_SHARE
+                    ? TextInfo.UNKNOWN_CONFIDENCE
+                    : confidenceTotals.get(language) / length);
+        }
+        return scores;
+    }
+
+    /**
+     * Creates a sample band from the middle of the page.
+     *
+     * @param pageImage page image
+     * @return sample image or null if page image is null
+     */
+    private static BufferedImage createSample(final BufferedImage pageImage) {
+        if (pageImage == null
+                || pageImage.getHeight() < MIN_SAMPLED_IMAGE_HEIGHT) {
+            return pageImage;
+        }
+        final int height = Math.max(MIN_SAMPLED_IMAGE_HEIGHT,
+                (int) (pageImage.getHeight() * SAMPLE_HEIGHT_RATIO));
+        return pageImage.getSubimage(0,
+                (pageImage.getHeight() - height) / 2,
+                pageImage.getWidth(), height);
+    }
+
+    /**
+     * Gets number of pages of the input image.
+     *
+     * @param input input image {@link java.io.File}
+     * @return number of pages
+     */
+    private static int getNumberOfPages(final File input) {
+        return ImagePreprocessingUtil.isTiffImage(input)
+                ? ImagePreprocessingUtil.getNumberOfPageTiff(input) : 1;
+    }
+}
@@ -58,6 +58,12 @@ public class Tesseract4LibOcrEngine extends AbstractTesseract4OcrEngine {
      */
     private ITesseract tesseractInstance = null;
 
+    /**
+     * Cancellation token of OCR performed by the current thread.
+     */
+    private final ThreadLocal<Tesseract4OcrCancellationToken>
+            threadLocalCancellationToken = new ThreadLocal<>();
+
     /**
      * Pattern for matching ASCII string.
      */
@@ -85,6 +91,35 @@ public class Tesseract4LibOcrEngine extends AbstractTesseract4OcrEngine {
         return tesseractInstance;
     }
 
+    /**
+     * Gets cancellation token of OCR performed by the current thread.
+     *
+     * @return {@link Tesseract4OcrCancellationToken} instance or null
+     * if it isn't set
+     */
+    public Tesseract4OcrCancellationToken getThreadLocalCancellationToken() {
+        return threadLocalCancellationToken.get();
+    }
+
+    /**
+     * Sets cancellation token of OCR performed by the current thread.
+     * Recognition is stopped and {@link Tesseract4OcrCancelledException}
+     * is thrown once the token is cancelled.
+     *
+     * @param cancellationToken {@link Tesseract4OcrCancellationToken}
+     *                          instance or null to remove the token
+     * @return the {@link Tesseract4LibOcrEngine} instance
+     */
+    public Tesseract4LibOcrEngine setThreadLocalCancellationToken(
+            final Tesseract4OcrCancellationToken cancellationToken) {
+        if (cancellationToken == null) {
+            threadLocalCancellationToken.remove();
+        } else {
+            threadLocalCancellationToken.set(cancellationToken);
+        }
+        return this;
+    }
+
     /**
      * Initializes instance of tesseract if it haven't been already
      * initialized or it have been disposed and sets all the required
@@ -129,10 +164,18 @@ public class Tesseract4LibOcrEngine extends AbstractTesseract4OcrEngine {
 
         TesseractOcrUtil.setTesseractProperties(getTesseractInstance(),
                 getTessData(), getLanguagesAsString(),
-                getTesseract4OcrEngineProperties().getPageSegMode(),
+                getCurrentPageSegMode(),
                 getTesseract4OcrEngineProperties().getPathToUserWordsFile());
     }
 
+    /**
+     * {@inheritDoc}
+     */
+    AbstractTesseract4OcrEngine createEngine(
+            final Tesseract4OcrEngineProperties tesseract4OcrEngineProperties) {
+        return new Tesseract4LibOcrEngine(tesseract4OcrEngineProperties);
+    }
+
     /**
      * Performs tesseract OCR using wrapper for Tesseract OCR API for the selected page
      * of input image (by default 1st).
@@ -155,11 +198,25 @@ public class Tesseract4LibOcrEngine extends AbstractTesseract4OcrEngine {
             final int pageNumber, final boolean dispatchEvent) {
         scheduledCheck();
         try {
+            long timeout = getCurrentTimeout();
+            Tesseract4OcrCancellationToken cancellationToken =
+                    getThreadLocalCancellationToken();
+            if (cancellationToken != null && cancellationToken.isCancelled()) {
+                throw new Tesseract4OcrCancelledException(
+                        Tesseract4OcrException.OCR_CANCELLED);
+            }
             // check tess data path for non ASCII characters
             validateTessDataPath(getTessData());
             validateLanguages(getTesseract4OcrEngineProperties()
                     .getLanguages());
             initializeTesseract(outputFormat);
+            if (getTesseractInstance() instanceof IMonitoredTesseract) {
+                ((IMonitoredTesseract) getTesseractInstance()).setMonitor(
+                        timeout > 0 || cancellationToken != null
+                                ? new TesseractRecognitionMonitor(timeout,
+                                        cancellationToken)
+                                : null);
+            }
             if (dispatchEvent) {
                 onEvent();
             }
@@ -197,21 +254,23 @@ public class Tesseract4LibOcrEngine extends AbstractTesseract4OcrEngine {
                     }
                 }
             }
+        } catch (Tesseract4OcrTimeoutException
+                | Tesseract4OcrCancelledException e) {
+            LoggerFactory.getLogger(getClass())
+                    .error(e.getMessage());
+            throw e;
         } catch (Tesseract4OcrException e) {
             LoggerFactory.getLogger(getClass())
                     .error(e.getMessage());
             throw new Tesseract4OcrException(e.getMessage(), e);
         } finally {
+            if (getTesseractInstance() instanceof IMonitoredTesseract) {
+                ((IMonitoredTesseract) getTesseractInstance())
+                        .setMonitor(null);
+            }
             if (tesseractInstance != null) {
                 TesseractOcrUtil.disposeTesseractInstance(tesseractInstance);
             }
-            if (getTesseract4OcrEngineProperties().getPathToUserWordsFile()
-                    != null
-                    && getTesseract4OcrEngineProperties().isUserWordsFileTemporary()) {
-                TesseractHelper.deleteFile(
-                        getTesseract4OcrEngineProperties()
-                                .getPathToUserWordsFile());
-            }
         }
     }
 
@@ -248,7 +307,8 @@ public class Tesseract4LibOcrEngine extends AbstractTesseract4OcrEngine {
         try {
             initializeTesseract(outputFormat);
             TesseractOcrUtil util = new TesseractOcrUtil();
-            util.initializeImagesListFromTiff(inputImage);
+            util.initializeImagesListFromTiff(readInputBytes(inputImage),
+                    inputImage);
             int numOfPages = util.getListOfPages().size();
             for (int i = 0; i < numOfPages; i++) {
                 String result = util.getOcrResultAsString(
@@ -257,7 +317,7 @@ public class Tesseract4LibOcrEngine extends AbstractTesseract4OcrEngine {
                         outputFormat);
                 resultList.add(result);
             }
-        } catch (TesseractException e) {
+        } catch (TesseractException | IOException e) {
             String msg = MessageFormatUtil
                     .format(Tesseract4LogMessageConstant.TESSERACT_FAILED,
                             e.getMessage());
@@ -298,13 +358,17 @@ public class Tesseract4LibOcrEngine extends AbstractTesseract4OcrEngine {
                         outputFormat);
             }
             if (result == null) {
+                // bytes are shared with other passes over the same image
                 BufferedImage bufferedImage = ImagePreprocessingUtil
-                        .readImage(inputImage);
+                        .readImage(inputImage, readInputBytes(inputImage));
                 if (bufferedImage != null) {
                     try {
                         result = new TesseractOcrUtil()
                                 .getOcrResultAsString(getTesseractInstance(),
                                         bufferedImage, outputFormat);
+                    } catch (Tesseract4OcrTimeoutException
+                            | Tesseract4OcrCancelledException e) {
+                        throw e;
                     } catch (Exception e) { // NOSONAR
                         LoggerFactory.getLogger(getClass())
                                 .info(MessageFormatUtil.format(
@@ -320,6 +384,9 @@ public class Tesseract4LibOcrEngine extends AbstractTesseract4OcrEngine {
                                     inputImage, outputFormat);
                 }
             }
+        } catch (Tesseract4OcrTimeoutException
+                | Tesseract4OcrCancelledException e) {
+            throw e;
         } catch (Exception e) { // NOSONAR
             LoggerFactory.getLogger(getClass())
                     .error(MessageFormatUtil
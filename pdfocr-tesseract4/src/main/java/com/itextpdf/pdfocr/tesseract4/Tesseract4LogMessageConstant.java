@@ -75,6 +75,26 @@ public class Tesseract4LogMessageConstant {
             "Cannot read image metadata {0}";
     public static final String UNSUPPORTED_EXIF_ORIENTATION_VALUE =
             "Unsuppoted EXIF Orientation value {0}. 1 is used by default";
+    public static final String CANNOT_REFINE_TEXT_CHUNKS =
+            "Cannot refine {0} low-confidence text chunks: {1}";
+    public static final String CANNOT_LINK_FILE =
+            "Cannot create link to file {0}: {1}";
+    public static final String CANNOT_DETECT_PAGE_LANGUAGES =
+            "Cannot detect languages of page {0}. All languages will be used";
+    public static final String PAGE_LANGUAGES_DETECTED =
+            "Page {0} will be recognized using languages: {1}";
+    public static final String TESSERACT_PROCESS_KILLED =
+            "Tesseract process was killed as it exceeded the deadline of {0} ms";
+    public static final String CANNOT_KILL_PROCESS_TREE =
+            "Cannot kill processes spawned by tesseract process {0}: {1}";
+    public static final String RETRYING_PAGE_OCR =
+            "Tesseract OCR of page exceeded the deadline. Retrying with page segmentation mode {0}";
+    public static final String CONCURRENCY_LIMIT_CHANGED =
+            "Concurrency limit of tesseract OCR changed from {0} to {1}: {2}";
+    public static final String CANNOT_READ_CACHED_OCR_RESULT =
+            "Cannot read cached OCR result {0}: {1}";
+    public static final String CANNOT_WRITE_CACHED_OCR_RESULT =
+            "Cannot write OCR result to cache {0}: {1}";
 
 
     private Tesseract4LogMessageConstant() {
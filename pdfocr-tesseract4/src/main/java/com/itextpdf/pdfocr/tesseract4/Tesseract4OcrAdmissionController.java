@@ -0,0 +1,456 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr.tesseract4;
+
+import com.itextpdf.pdfocr.ImageProbe;
+
+import java.io.File;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Admission control of input images shared by all tesseract engines.
+ *
+ * Before an input image is decoded, its header is probed using
+ * {@link ImageProbe} and resources needed for its OCR are estimated by
+ * {@link ImageCostEstimator}. The image is rejected with
+ * {@link Tesseract4OcrException} if it exceeds one of the per image limits
+ * (this also protects from decompression bombs), queued until its estimated
+ * memory fits into heap and native memory budgets, or admitted.
+ *
+ * All the limits and budgets are disabled by default.
+ */
+public final class Tesseract4OcrAdmissionController {
+
+    /**
+     * The singleton instance.
+     */
+    private static final Tesseract4OcrAdmissionController INSTANCE =
+            new Tesseract4OcrAdmissionController();
+
+    /**
+     * Estimate of the image admitted for the current thread, null if
+     * the current thread doesn't process an admitted image.
+     */
+    private final ThreadLocal<ImageCostEstimate> currentEstimate =
+            new ThreadLocal<>();
+
+    /**
+     * Estimator of OCR resources.
+     */
+    private ImageCostEstimator costEstimator = new ImageCostEstimator();
+
+    /**
+     * Maximal number of pixels per page, 0 means no limit.
+     */
+    private long maxPixelsPerPage = 0;
+
+    /**
+     * Maximal number of pages, 0 means no limit.
+     */
+    private int maxPages = 0;
+
+    /**
+     * Maximal estimated CPU time of an image in milliseconds,
+     * 0 means no limit.
+     */
+    private long maxCpuTime = 0;
+
+    /**
+     * Heap memory budget of all admitted images in bytes, 0 means no budget.
+     */
+    private long heapBudget = 0;
+
+    /**
+     * Native memory budget of all admitted images in bytes,
+     * 0 means no budget.
+     */
+    private long nativeBudget = 0;
+
+    /**
+     * Maximal time in milliseconds an image may wait in the queue,
+     * 0 means no limit.
+     */
+    private long maxQueueTime = 0;
+
+    /**
+     * Heap memory reserved by the admitted images.
+     */
+    private long reservedHeap = 0;
+
+    /**
+     * Native memory reserved by the admitted images.
+     */
+    private long reservedNative = 0;
+
+    /**
+     * Number of images waiting in the queue.
+     */
+    private int queuedImages = 0;
+
+    /**
+     * Creates new instance of {@link Tesseract4OcrAdmissionController}.
+     */
+    private Tesseract4OcrAdmissionController() {
+    }
+
+    /**
+     * Gets the singleton instance.
+     *
+     * @return {@link Tesseract4OcrAdmissionController} instance
+     */
+    public static Tesseract4OcrAdmissionController getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Gets estimator of OCR resources.
+     *
+     * @return {@link ImageCostEstimator} instance
+     */
+    public synchronized ImageCostEstimator getCostEstimator() {
+        return costEstimator;
+    }
+
+    /**
+     * Sets estimator of OCR resources.
+     *
+     * @param costEstimator {@link ImageCostEstimator} instance
+     * @return the {@link Tesseract4OcrAdmissionController} instance
+     */
+    public synchronized Tesseract4OcrAdmissionController setCostEstimator(
+            final ImageCostEstimator costEstimator) {
+        this.costEstimator = costEstimator;
+        return this;
+    }
+
+    /**
+     * Gets maximal number of pixels per page.
+     *
+     * @return number of pixels, 0 if there is no limit
+     */
+    public synchronized long getMaxPixelsPerPage() {
+        return maxPixelsPerPage;
+    }
+
+    /**
+     * Sets maximal number of pixels per page. Images with larger pages
+     * are rejected. Default value is 0 which means that there is no limit.
+     *
+     * @param maxPixelsPerPage number of pixels
+     * @return the {@link Tesseract4OcrAdmissionController} instance
+     */
+    public synchronized Tesseract4OcrAdmissionController setMaxPixelsPerPage(
+            final long maxPixelsPerPage) {
+        this.maxPixelsPerPage = maxPixelsPerPage;
+        return this;
+    }
+
+    /**
+     * Gets maximal number of pages of an image.
+     *
+     * @return number of pages, 0 if there is no limit
+     */
+    public synchronized int getMaxPages() {
+        return maxPages;
+    }
+
+    /**
+     * Sets maximal number of pages of an image. Images with more pages are
+     * rejected. Default value is 0 which means that there is no limit.
+     *
+     * @param maxPages number of pages
+     * @return the {@link Tesseract4OcrAdmissionController} instance
+     */
+    public synchronized Tesseract4OcrAdmissionController setMaxPages(
+            final int maxPages) {
+        this.maxPages = maxPages;
+        return this;
+    }
+
+    /**
+     * Gets maximal estimated CPU time of an image.
+     *
+     * @return CPU time in milliseconds, 0 if there is no limit
+     */
+    public synchronized long getMaxCpuTime() {
+        return maxCpuTime;
+    }
+
+    /**
+     * Sets maximal estimated CPU time of an image. Images with larger
+     * estimate are rejected. Default value is 0 which means that there is
+     * no limit.
+     *
+     * @param maxCpuTime CPU time in milliseconds
+     * @return the {@link Tesseract4OcrAdmissionController} instance
+     */
+    public synchronized Tesseract4OcrAdmissionController setMaxCpuTime(
+            final long maxCpuTime) {
+        this.maxCpuTime = maxCpuTime;
+        return this;
+    }
+
+    /**
+     * Gets heap memory budget of all admitted images.
+     *
+     * @return budget in bytes, 0 if there is no budget
+     */
+    public synchronized long getHeapBudget() {
+        return heapBudget;
+    }
+
+    /**
+     * Sets heap memory budget of all admitted images. Images wait in the
+     * queue while their estimate doesn't fit into the budget and are
+     * rejected if it doesn't fit into the empty budget. Default value is 0
+     * which means that there is no budget.
+     *
+     * @param heapBudget budget in bytes
+     * @return the {@link Tesseract4OcrAdmissionController} instance
+     */
+    public synchronized Tesseract4OcrAdmissionController setHeapBudget(
+            final long heapBudget) {
+        this.heapBudget = heapBudget;
+        notifyAll();
+        return this;
+    }
+
+    /**
+     * Gets native memory budget of all admitted images.
+     *
+     * @return budget in bytes, 0 if there is no budget
+     */
+    public synchronized long getNativeBudget() {
+        return nativeBudget;
+    }
+
+    /**
+     * Sets native memory budget of all admitted images. Images wait in the
+     * queue while their estimate doesn't fit into the budget and are
+     * rejected if it doesn't fit into the empty budget. Default value is 0
+     * which means that there is no budget.
+     *
+     * @param nativeBudget budget in bytes
+     * @return the {@link Tesseract4OcrAdmissionController} instance
+     */
+    public synchronized Tesseract4OcrAdmissionController setNativeBudget(
+            final long nativeBudget) {
+        this.nativeBudget = nativeBudget;
+        notifyAll();
+        return this;
+    }
+
+    /**
+     * Gets maximal time an image may wait in the queue.
+     *
+     * @return time in milliseconds, 0 if there is no limit
+     */
+    public synchronized long getMaxQueueTime() {
+        return maxQueueTime;
+    }
+
+    /**
+     * Sets maximal time an image may wait in the queue. The image is
+     * rejected once the time expires. Default value is 0 which means that
+     * there is no limit.
+     *
+     * @param maxQueueTime time in milliseconds
+     * @return the {@link Tesseract4OcrAdmissionController} instance
+     */
+    public synchronized Tesseract4OcrAdmissionController setMaxQueueTime(
+            final long maxQueueTime) {
+        this.maxQueueTime = maxQueueTime;
+        return this;
+    }
+
+    /**
+     * Gets heap memory reserved by the admitted images.
+     *
+     * @return memory in bytes
+     */
+    public synchronized long getReservedHeap() {
+        return reservedHeap;
+    }
+
+    /**
+     * Gets native memory reserved by the admitted images.
+     *
+     * @return memory in bytes
+     */
+    public synchronized long getReservedNative() {
+        return reservedNative;
+    }
+
+    /**
+     * Gets number of images waiting in the queue.
+     *
+     * @return number of queued images
+     */
+    public synchronized int getQueuedImages() {
+        return queuedImages;
+    }
+
+    /**
+     * Admits provided input image for the current thread: the image is
+     * either rejected, or the method waits until it fits into memory budgets.
+     * Nothing happens if admission control is disabled or the current
+     * thread already processes an admitted image (e.g. a nested call for
+     * a cropped region of the admitted image).
+     *
+     * @param input input image {@link java.io.File}
+     * @return true if the image was admitted by this call, in this case
+     * {@link #release()} has to be called once the image is processed
+     * @throws Tesseract4OcrException if the image is rejected
+     */
+    boolean admit(final File input) {
+        if (currentEstimate.get() != null || !isEnabled()) {
+            return false;
+        }
+        ImageProbe probe = ImagePreprocessingUtil.getImageProbe(input);
+        if (!probe.hasDimensions()) {
+            // nothing can be estimated without image header
+            reject(Tesseract4OcrException.CANNOT_READ_PROVIDED_IMAGE,
+                    input.getAbsolutePath());
+        }
+        ImageCostEstimate estimate;
+        synchronized (this) {
+            estimate = costEstimator.estimate(probe);
+            checkLimits(probe, estimate);
+            waitForBudget(estimate);
+            reservedHeap += estimate.getPeakHeapMemory();
+            reservedNative += estimate.getPeakNativeMemory();
+        }
+        Tesseract4OcrMetrics.getInstance().onImageAdmitted();
+        currentEstimate.set(estimate);
+        return true;
+    }
+
+    /**
+     * Returns memory reserved by the image admitted for the current thread
+     * to the budgets. Has to be called only by the caller whose
+     * {@link #admit(File)} call returned true, so that nested calls don't
+     * release the image of the outer one.
+     */
+    void release() {
+        ImageCostEstimate estimate = currentEstimate.get();
+        if (estimate == null) {
+            return;
+        }
+        currentEstimate.remove();
+        synchronized (this) {
+            reservedHeap -= estimate.getPeakHeapMemory();
+            reservedNative -= estimate.getPeakNativeMemory();
+            notifyAll();
+        }
+    }
+
+    /**
+     * Checks if any limit or budget is set.
+     */
+    private synchronized boolean isEnabled() {
+        return maxPixelsPerPage > 0 || maxPages > 0 || maxCpuTime > 0
+                || heapBudget > 0 || nativeBudget > 0;
+    }
+
+    /**
+     * Rejects the image if it exceeds one of the limits.
+     */
+    private void checkLimits(final ImageProbe probe,
+            final ImageCostEstimate estimate) {
+        if (maxPixelsPerPage > 0
+                && probe.getPixelsPerPage() > maxPixelsPerPage) {
+            reject(Tesseract4OcrException.IMAGE_PAGE_IS_TOO_LARGE,
+                    probe.getPixelsPerPage(), maxPixelsPerPage);
+        }
+        if (maxPages > 0 && probe.getNumberOfPages() > maxPages) {
+            reject(Tesseract4OcrException.IMAGE_HAS_TOO_MANY_PAGES,
+                    probe.getNumberOfPages(), maxPages);
+        }
+        if (maxCpuTime > 0 && estimate.getCpuTime() > maxCpuTime) {
+            reject(Tesseract4OcrException.IMAGE_OCR_IS_TOO_LONG,
+                    estimate.getCpuTime(), maxCpuTime);
+        }
+        if (heapBudget > 0 && estimate.getPeakHeapMemory() > heapBudget) {
+            reject(Tesseract4OcrException.IMAGE_EXCEEDS_MEMORY_BUDGET,
+                    estimate.getPeakHeapMemory(), heapBudget);
+        }
+        if (nativeBudget > 0
+                && estimate.getPeakNativeMemory() > nativeBudget) {
+            reject(Tesseract4OcrException.IMAGE_EXCEEDS_MEMORY_BUDGET,
+                    estimate.getPeakNativeMemory(), nativeBudget);
+        }
+    }
+
+    /**
+     * Waits until the estimate fits into memory budgets.
+     */
+    private void waitForBudget(final ImageCostEstimate estimate) {
+        if (fitsIntoBudgets(estimate)) {
+            return;
+        }
+        Tesseract4OcrMetrics.getInstance().onImageQueued();
+        long deadline = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(maxQueueTime);
+        queuedImages++;
+        try {
+            while (!fitsIntoBudgets(estimate)) {
+                long left = TimeUnit.NANOSECONDS.toMillis(
+                        deadline - System.nanoTime());
+                if (maxQueueTime > 0 && left <= 0) {
+                    reject(Tesseract4OcrException.IMAGE_ADMISSION_TIMEOUT,
+                            maxQueueTime);
+                }
+                wait(maxQueueTime > 0 ? left : 0);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new Tesseract4OcrCancelledException(
+                    Tesseract4OcrException.OCR_CANCELLED);
+        } finally {
+            queuedImages--;
+        }
+    }
+
+    /**
+     * Checks if the estimate fits into memory budgets now.
+     */
+    private boolean fitsIntoBudgets(final ImageCostEstimate estimate) {
+        return (heapBudget <= 0
+                || reservedHeap + estimate.getPeakHeapMemory() <= heapBudget)
+                && (nativeBudget <= 0 || reservedNative
+                + estimate.getPeakNativeMemory() <= nativeBudget);
+    }
+
+    /**
+     * Rejects the image.
+     */
+    private static void reject(final String message, final Object... params) {
+        Tesseract4OcrMetrics.getInstance().onImageRejected();
+        String[] messageParams = new String[params.length];
+        for (int i = 0; i < params.length; i++) {
+            messageParams[i] = String.valueOf(params[i]);
+        }
+        throw new Tesseract4OcrException(message)
+                .setMessageParams(messageParams);
+    }
+}
@@ -0,0 +1,57 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr.tesseract4;
+
+/**
+ * Token which allows to cancel OCR performed by
+ * {@link Tesseract4LibOcrEngine} from another thread.
+ *
+ * The token is passed to the engine using
+ * {@link Tesseract4LibOcrEngine#setThreadLocalCancellationToken(Tesseract4OcrCancellationToken)}
+ * and is checked by tesseract while words are recognized. Once the token
+ * is cancelled, recognition is stopped and
+ * {@link Tesseract4OcrCancelledException} is thrown.
+ */
+public class Tesseract4OcrCancellationToken {
+
+    /**
+     * Indicates if OCR is cancelled.
+     */
+    private volatile boolean cancelled = false;
+
+    /**
+     * Cancels OCR which uses this token.
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    /**
+     * Checks if OCR which uses this token is cancelled.
+     *
+     * @return true if {@link #cancel()} was called
+     */
+    public boolean isCancelled() {
+        return cancelled;
+    }
+}
@@ -0,0 +1,395 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr.tesseract4;
+
+import com.itextpdf.io.util.MessageFormatUtil;
+
+import org.slf4j.LoggerFactory;
+
+/**
+ * Controller which tunes core budget of {@link Tesseract4OcrScheduler}
+ * at runtime.
+ *
+ * Throughput (pages per second) and average latency of the runs are
+ * measured in windows of {@link #getWindowSize()} finished runs. After each
+ * window the limit is adjusted using additive increase/multiplicative
+ * decrease: it's increased by one job while throughput grows and latency
+ * stays close to the best observed one, and it's multiplied by
+ * {@link #getDecreaseFactor()} once throughput drops, latency grows
+ * or memory usage approaches memory limit of the container. The limit
+ * never exceeds CPU quota of the container.
+ *
+ * Current limit and the number of changes per
+ * {@link ConcurrencyChangeReason} are exposed by
+ * {@link Tesseract4OcrMetrics}.
+ */
+public final class Tesseract4OcrConcurrencyController {
+
+    /**
+     * Limits of the container.
+     */
+    private final CgroupResourceLimits resourceLimits;
+
+    /**
+     * Minimal limit.
+     */
+    private int minLimit = 1;
+
+    /**
+     * Maximal limit, container CPU quota is applied on top of it.
+     */
+    private int maxLimit = Runtime.getRuntime().availableProcessors();
+
+    /**
+     * Number of finished runs after which the limit is adjusted.
+     */
+    private int windowSize = 8;
+
+    /**
+     * Allowed ratio of average latency to the best observed one.
+     */
+    private double latencyTolerance = 2;
+
+    /**
+     * Ratio of used memory to memory limit which triggers decrease.
+     */
+    private double memoryThreshold = 0.9;
+
+    /**
+     * Factor the limit is multiplied by when it's decreased.
+     */
+    private double decreaseFactor = 0.75;
+
+    /**
+     * Current limit, 0 until the controller is started.
+     */
+    private int limit = 0;
+
+    /**
+     * Reason of the last change of the limit.
+     */
+    private ConcurrencyChangeReason lastChangeReason = null;
+
+    /**
+     * Start of the current window in terms of {@link System#nanoTime()}.
+     */
+    private long windowStart;
+
+    /**
+     * Number of runs finished in the current window.
+     */
+    private int windowJobs = 0;
+
+    /**
+     * Sum of latencies of runs finished in the current window.
+     */
+    private long windowLatency = 0;
+
+    /**
+     * Throughput of the previous window.
+     */
+    private double previousThroughput = 0;
+
+    /**
+     * Best average latency of all windows.
+     */
+    private double bestLatency = 0;
+
+    /**
+     * Creates a new {@link Tesseract4OcrConcurrencyController} instance
+     * which reads container limits from the default cgroup mount point.
+     */
+    public Tesseract4OcrConcurrencyController() {
+        this(new CgroupResourceLimits());
+    }
+
+    /**
+     * Creates a new {@link Tesseract4OcrConcurrencyController} instance.
+     *
+     * @param resourceLimits limits of the container
+     */
+    Tesseract4OcrConcurrencyController(
+            final CgroupResourceLimits resourceLimits) {
+        this.resourceLimits = resourceLimits;
+    }
+
+    /**
+     * Gets minimal core budget.
+     *
+     * @return minimal limit
+     */
+    public synchronized int getMinLimit() {
+        return minLimit;
+    }
+
+    /**
+     * Sets minimal core budget. Default value is 1.
+     *
+     * @param minLimit minimal limit
+     * @return the {@link Tesseract4OcrConcurrencyController} instance
+     */
+    public synchronized Tesseract4OcrConcurrencyController setMinLimit(
+            final int minLimit) {
+        this.minLimit = Math.max(1, minLimit);
+        return this;
+    }
+
+    /**
+     * Gets maximal core budget. CPU quota of the container is applied on
+     * top of it.
+     *
+     * @return maximal limit
+     */
+    public synchronized int getMaxLimit() {
+        return maxLimit;
+    }
+
+    /**
+     * Sets maximal core budget. CPU quota of the container is applied on
+     * top of it. Default value is {@link Runtime#availableProcessors()}.
+     *
+     * @param maxLimit maximal limit
+     * @return the {@link Tesseract4OcrConcurrencyController} instance
+     */
+    public synchronized Tesseract4OcrConcurrencyController setMaxLimit(
+            final int maxLimit) {
+        this.maxLimit = Math.max(1, maxLimit);
+        return this;
+    }
+
+    /**
+     * Gets number of finished runs after which the limit is adjusted.
+     *
+     * @return window size
+     */
+    public synchronized int getWindowSize() {
+        return windowSize;
+    }
+
+    /**
+     * Sets number of finished runs after which the limit is adjusted.
+     * Default value is 8.
+     *
+     * @param windowSize window size
+     * @return the {@link Tesseract4OcrConcurrencyController} instance
+     */
+    public synchronized Tesseract4OcrConcurrencyController setWindowSize(
+            final int windowSize) {
+        this.windowSize = Math.max(1, windowSize);
+        return this;
+    }
+
+    /**
+     * Gets allowed ratio of average latency to the best observed one.
+     *
+     * @return latency tolerance
+     */
+    public synchronized double getLatencyTolerance() {
+        return latencyTolerance;
+    }
+
+    /**
+     * Sets allowed ratio of average latency to the best observed one.
+     * The limit is decreased if the ratio is exceeded. Default value is 2.
+     *
+     * @param latencyTolerance latency tolerance
+     * @return the {@link Tesseract4OcrConcurrencyController} instance
+     */
+    public synchronized Tesseract4OcrConcurrencyController setLatencyTolerance(
+            final double latencyTolerance) {
+        this.latencyTolerance = latencyTolerance;
+        return this;
+    }
+
+    /**
+     * Gets ratio of used memory to memory limit of the container
+     * which triggers decrease of the limit.
+     *
+     * @return memory threshold
+     */
+    public synchronized double getMemoryThreshold() {
+        return memoryThreshold;
+    }
+
+    /**
+     * Sets ratio of used memory to memory limit of the container
+     * which triggers decrease of the limit. Default value is 0.9.
+     *
+     * @param memoryThreshold memory threshold
+     * @return the {@link Tesseract4OcrConcurrencyController} instance
+     */
+    public synchronized Tesseract4OcrConcurrencyController setMemoryThreshold(
+            final double memoryThreshold) {
+        this.memoryThreshold = memoryThreshold;
+        return this;
+    }
+
+    /**
+     * Gets factor the limit is multiplied by when it's decreased.
+     *
+     * @return decrease factor
+     */
+    public synchronized double getDecreaseFactor() {
+        return decreaseFactor;
+    }
+
+    /**
+     * Sets factor the limit is multiplied by when it's decreased.
+     * Default value is 0.75.
+     *
+     * @param decreaseFactor decrease factor between 0 and 1
+     * @return the {@link Tesseract4OcrConcurrencyController} instance
+     */
+    public synchronized Tesseract4OcrConcurrencyController setDecreaseFactor(
+            final double decreaseFactor) {
+        this.decreaseFactor = decreaseFactor;
+        return this;
+    }
+
+    /**
+     * Gets current core budget.
+     *
+     * @return current limit, 0 if the controller isn't started
+     */
+    public synchronized int getConcurrencyLimit() {
+        return limit;
+    }
+
+    /**
+     * Gets reason of the last change of the limit.
+     *
+     * @return {@link ConcurrencyChangeReason} or null if the limit
+     * wasn't changed yet
+     */
+    public synchronized ConcurrencyChangeReason getLastChangeReason() {
+        return lastChangeReason;
+    }
+
+    /**
+     * Starts the controller: the limit is set to the maximal one.
+     *
+     * @param now current time in terms of {@link System#nanoTime()}
+     * @return initial limit
+     */
+    synchronized int start(final long now) {
+        limit = Math.max(minLimit, getEffectiveMaxLimit());
+        Tesseract4OcrMetrics.getInstance().onConcurrencyLimitChanged(limit,
+                null);
+        windowStart = now;
+        windowJobs = 0;
+        windowLatency = 0;
+        previousThroughput = 0;
+        bestLatency = 0;
+        return limit;
+    }
+
+    /**
+     * Records a finished run and adjusts the limit if the window is full.
+     *
+     * @param latency duration of the run in nanoseconds
+     * @param now current time in terms of {@link System#nanoTime()}
+     * @param step number of cores taken by a single run
+     * @return true if the limit was changed
+     */
+    synchronized boolean onJobFinished(final long latency, final long now,
+            final int step) {
+        windowJobs++;
+        windowLatency += latency;
+        if (windowJobs < windowSize) {
+            return false;
+        }
+        double throughput = windowJobs / Math.max(1e-9, (now - windowStart) / 1e9);
+        double averageLatency = (double) windowLatency / windowJobs;
+        windowStart = now;
+        windowJobs = 0;
+        windowLatency = 0;
+
+        int maxAllowed = Math.max(minLimit, getEffectiveMaxLimit());
+        ConcurrencyChangeReason reason = null;
+        int newLimit = limit;
+        if (isMemoryPressure()) {
+            reason = ConcurrencyChangeReason.MEMORY_PRESSURE;
+            newLimit = decrease(limit);
+        } else if (limit > maxAllowed) {
+            reason = ConcurrencyChangeReason.CPU_QUOTA;
+            newLimit = maxAllowed;
+        } else if (bestLatency > 0
+                && averageLatency > bestLatency * latencyTolerance) {
+            reason = ConcurrencyChangeReason.LATENCY_GROWTH;
+            newLimit = decrease(limit);
+        } else if (lastChangeReason == ConcurrencyChangeReason.PROBE
+                && throughput < previousThroughput) {
+            reason = ConcurrencyChangeReason.THROUGHPUT_DROP;
+            newLimit = decrease(limit);
+        } else if (limit + step <= maxAllowed) {
+            reason = ConcurrencyChangeReason.PROBE;
+            newLimit = limit + step;
+        }
+        bestLatency = bestLatency > 0
+                ? Math.min(bestLatency, averageLatency) : averageLatency;
+        previousThroughput = throughput;
+        if (newLimit == limit) {
+            // the last probe is only judged by the next window
+            if (lastChangeReason == ConcurrencyChangeReason.PROBE) {
+                lastChangeReason = null;
+            }
+            return false;
+        }
+        LoggerFactory.getLogger(getClass()).info(MessageFormatUtil.format(
+                Tesseract4LogMessageConstant.CONCURRENCY_LIMIT_CHANGED,
+                limit, newLimit, reason));
+        limit = newLimit;
+        lastChangeReason = reason;
+        Tesseract4OcrMetrics.getInstance().onConcurrencyLimitChanged(limit,
+                reason);
+        return true;
+    }
+
+    /**
+     * Gets maximal limit taking CPU quota of the container into account.
+     */
+    private int getEffectiveMaxLimit() {
+        double cpuLimit = resourceLimits.getCpuLimit();
+        return cpuLimit > 0
+                ? Math.min(maxLimit, Math.max(1, (int) Math.floor(cpuLimit)))
+                : maxLimit;
+    }
+
+    /**
+     * Checks if memory usage approached memory limit of the container.
+     */
+    private boolean isMemoryPressure() {
+        long memoryLimit = resourceLimits.getMemoryLimit();
+        long memoryUsage = resourceLimits.getMemoryUsage();
+        return memoryLimit > 0 && memoryUsage > 0
+                && memoryUsage >= memoryLimit * memoryThreshold;
+    }
+
+    /**
+     * Multiplicatively decreases given limit.
+     */
+    private int decrease(final int value) {
+        return Math.max(minLimit, Math.min(value - 1,
+                (int) Math.floor(value * decreaseFactor)));
+    }
+}
@@ -30,13 +30,8 @@ import com.itextpdf.pdfocr.OcrEngineProperties;
 import java.io.ByteArrayInputStream;
 import java.io.ByteArrayOutputStream;
 import java.io.File;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
-import java.io.InputStreamReader;
-import java.io.OutputStreamWriter;
-import java.io.Reader;
-import java.nio.charset.StandardCharsets;
 import java.util.List;
 import org.slf4j.LoggerFactory;
 
@@ -80,9 +75,22 @@ public class Tesseract4OcrEngineProperties extends OcrEngineProperties {
     private String pathToUserWordsFile = null;
 
     /**
-     * Indicates if user words file is temporary and has to be removed.
+     * Language of the user words set by {@link #setUserWords}.
      */
-    private boolean isUserWordsFileTemporary = false;
+    private String userWordsLanguage = null;
+
+    /**
+     * Content of the user words set by {@link #setUserWords}, it's kept
+     * to write the cached file again if it was evicted from the cache,
+     * see {@link #acquireUserWordsFile()}.
+     */
+    private byte[] userWords = null;
+
+    /**
+     * Directory where user words files are cached, null means that
+     * the default directory in the system temporary directory is used.
+     */
+    private File userWordsCacheDirectory = null;
 
     /**
      * Used to make HOCR recognition result more precise.
@@ -105,6 +113,26 @@ public class Tesseract4OcrEngineProperties extends OcrEngineProperties {
      */
     private int minimalConfidenceLevel;
 
+    /**
+     * Maximum time in milliseconds tesseract may spend on a single page.
+     * Default value is 0 which means that there is no limit.
+     */
+    private long pageTimeout;
+
+    /**
+     * Maximum time in milliseconds tesseract may spend on a single input
+     * image (all its pages). Default value is 0 which means that there is
+     * no limit.
+     */
+    private long documentTimeout;
+
+    /**
+     * Page Segmentation Mode which is used to retry OCR of a page once
+     * after its deadline expired. Default value is null which means that
+     * the page isn't retried.
+     */
+    private Integer timeoutFallbackPageSegMode = null;
+
     /**
      * Creates a new {@link Tesseract4OcrEngineProperties} instance.
      */
@@ -124,9 +152,15 @@ public class Tesseract4OcrEngineProperties extends OcrEngineProperties {
         this.pageSegMode = other.pageSegMode;
         this.textPositioning = other.textPositioning;
         this.pathToUserWordsFile = other.pathToUserWordsFile;
+        this.userWordsLanguage = other.userWordsLanguage;
+        this.userWords = other.userWords;
+        this.userWordsCacheDirectory = other.userWordsCacheDirectory;
         this.useTxtToImproveHocrParsing = other.useTxtToImproveHocrParsing;
         this.imagePreprocessingOptions = other.imagePreprocessingOptions;
         this.minimalConfidenceLevel = other.minimalConfidenceLevel;
+        this.pageTimeout = other.pageTimeout;
+        this.documentTimeout = other.documentTimeout;
+        this.timeoutFallbackPageSegMode = other.timeoutFallbackPageSegMode;
     }
 
     /**
@@ -258,7 +292,7 @@ public class Tesseract4OcrEngineProperties extends OcrEngineProperties {
 
     /**
      * Using provided list of words there will be created
-     * temporary file containing words (one per line) which
+     * cached file containing words (one per line) which
      * ends with a new line character. Train data for provided language
      * should exist in specified tess data directory.
      *
@@ -303,10 +337,11 @@ public class Tesseract4OcrEngineProperties extends OcrEngineProperties {
 
     /**
      * Using provided input stream there will be created
-     * temporary file (with name 'language.user-words')
-     * containing words (one per line) which ends with
-     * a new line character. Train data for provided language
-     * should exist in specified tess data directory.
+     * file (with name 'language.hash.user-words') in the user words
+     * cache directory containing words (one per line) which ends with
+     * a new line character. The file is reused for the same language
+     * and words and isn't removed after OCR. Train data for provided
+     * language should exist in specified tess data directory.
      *
      * NOTE:
      * User words dictionary doesn't work properly in tesseract4
@@ -334,18 +369,12 @@ public class Tesseract4OcrEngineProperties extends OcrEngineProperties {
                         .setMessageParams(language);
             }
         }
-        String userWordsFileName = TesseractOcrUtil.getTempFilePath(language,
-                "." + DEFAULT_USER_WORDS_SUFFIX);
-        try (OutputStreamWriter writer =
-                new FileWriter(userWordsFileName)) {
-            Reader reader = new InputStreamReader(inputStream,
-                    StandardCharsets.UTF_8);
-            int data;
-            while ((data = reader.read()) != -1) {
-                writer.write(data);
-            }
-            writer.write(System.lineSeparator());
-            setPathToUserWordsFile(userWordsFileName, true);
+        try {
+            final byte[] content = UserWordsCache.readUserWords(inputStream);
+            pathToUserWordsFile = UserWordsCache.register(
+                    getUserWordsCacheDirectoryOrDefault(), language, content);
+            userWordsLanguage = language;
+            userWords = content;
         } catch (IOException e) {
             setPathToUserWordsFile(null);
             LoggerFactory.getLogger(getClass())
@@ -370,6 +399,33 @@ public class Tesseract4OcrEngineProperties extends OcrEngineProperties {
         return pathToUserWordsFile;
     }
 
+    /**
+     * Acquires the cached user words file set by {@link #setUserWords} for
+     * the time of OCR, so that it isn't evicted from the cache while
+     * tesseract reads it. The file is written again if it was evicted
+     * since the user words were set. Acquired file has to be released by
+     * {@link UserWordsCache#release(String)}.
+     *
+     * @return path to the acquired user words file or null if user words
+     * weren't set by {@link #setUserWords} or the file cannot be written
+     */
+    final String acquireUserWordsFile() {
+        if (userWords == null) {
+            return null;
+        }
+        try {
+            return UserWordsCache.acquire(
+                    new File(pathToUserWordsFile).getParentFile(),
+                    userWordsLanguage, userWords);
+        } catch (IOException e) {
+            LoggerFactory.getLogger(getClass())
+                    .warn(MessageFormatUtil.format(
+                            Tesseract4LogMessageConstant.CANNOT_USE_USER_WORDS,
+                            e.getMessage()));
+            return null;
+        }
+    }
+
     /**
      * Sets path to the user words file.
      *
@@ -383,31 +439,37 @@ public class Tesseract4OcrEngineProperties extends OcrEngineProperties {
      */
     final Tesseract4OcrEngineProperties setPathToUserWordsFile(
             String pathToUserWordsFile) {
-        return setPathToUserWordsFile(pathToUserWordsFile, false);
+        this.pathToUserWordsFile = pathToUserWordsFile;
+        this.userWordsLanguage = null;
+        this.userWords = null;
+        return this;
     }
 
     /**
-     * Sets path to the user words file.
+     * Gets directory where files with user words are cached.
      *
-     * @param pathToUserWordsFile path to user words file
-     *                        as {@link java.lang.String}
-     * @param isTempFile indicates if user words file is temporary and has to be removed
-     * @return the {@link Tesseract4OcrEngineProperties} instance
+     * @return cache directory as {@link java.io.File} or null if the
+     * default directory in the system temporary directory is used
      */
-    final Tesseract4OcrEngineProperties setPathToUserWordsFile(
-            String pathToUserWordsFile, boolean isTempFile) {
-        this.pathToUserWordsFile = pathToUserWordsFile;
-        this.isUserWordsFileTemporary = isTempFile;
-        return this;
+    public final File getUserWordsCacheDirectory() {
+        return userWordsCacheDirectory;
     }
 
     /**
-     * Indicates if user words file is temporary and has to be removed.
+     * Sets directory where files with user words are cached. The same
+     * list of user words is written to this directory only once and
+     * reused by all the engines until it's evicted from the cache.
      *
-     * @return true if the file is temporary, otherwise false.
+     * @param userWordsCacheDirectory cache directory as
+     *                                {@link java.io.File}, null means that
+     *                                the default directory in the system
+     *                                temporary directory is used
+     * @return the {@link Tesseract4OcrEngineProperties} instance
      */
-    final boolean isUserWordsFileTemporary() {
-        return isUserWordsFileTemporary;
+    public final Tesseract4OcrEngineProperties setUserWordsCacheDirectory(
+            final File userWordsCacheDirectory) {
+        this.userWordsCacheDirectory = userWordsCacheDirectory;
+        return this;
     }
 
     /**
@@ -477,5 +539,99 @@ public class Tesseract4OcrEngineProperties extends OcrEngineProperties {
         return this;
     }
 
+    /**
+     * Gets maximum time in milliseconds tesseract may spend on a single page.
+     * If the deadline expires, tesseract process is killed and
+     * {@link Tesseract4OcrTimeoutException} is thrown.
+     * Default value is 0 which means that there is no limit.
+     *
+     * NOTE:
+     * {@link Tesseract4LibOcrEngine} checks the deadline while words are
+     * recognized, so page layout analysis isn't interrupted.
+     *
+     * @return page timeout in milliseconds
+     */
+    public final long getPageTimeout() {
+        return pageTimeout;
+    }
+
+    /**
+     * Sets maximum time in milliseconds tesseract may spend on a single page.
+     * If the deadline expires, tesseract process is killed and
+     * {@link Tesseract4OcrTimeoutException} is thrown.
+     * Default value is 0 which means that there is no limit.
+     *
+     * @param pageTimeout page timeout in milliseconds
+     * @return the {@link Tesseract4OcrEngineProperties} instance
+     */
+    public final Tesseract4OcrEngineProperties setPageTimeout(
+            final long pageTimeout) {
+        this.pageTimeout = pageTimeout;
+        return this;
+    }
+
+    /**
+     * Gets maximum time in milliseconds tesseract may spend on a single
+     * input image (all its pages). If the deadline expires, tesseract process
+     * is killed and {@link Tesseract4OcrTimeoutException} is thrown.
+     * Default value is 0 which means that there is no limit.
+     *
+     * @return document timeout in milliseconds
+     */
+    public final long getDocumentTimeout() {
+        return documentTimeout;
+    }
+
+    /**
+     * Sets maximum time in milliseconds tesseract may spend on a single
+     * input image (all its pages). If the deadline expires, tesseract process
+     * is killed and {@link Tesseract4OcrTimeoutException} is thrown.
+     * Default value is 0 which means that there is no limit.
+     *
+     * @param documentTimeout document timeout in milliseconds
+     * @return the {@link Tesseract4OcrEngineProperties} instance
+     */
+    public final Tesseract4OcrEngineProperties setDocumentTimeout(
+            final long documentTimeout) {
+        this.documentTimeout = documentTimeout;
+        return this;
+    }
+
+    /**
+     * Gets Page Segmentation Mode which is used to retry OCR of a page once
+     * after its deadline expired. The retry has the same page deadline
+     * and is limited by the document deadline.
+     * Default value is null which means that the page isn't retried.
+     *
+     * @return fallback Page Segmentation Mode
+     */
+    public final Integer getTimeoutFallbackPageSegMode() {
+        return timeoutFallbackPageSegMode;
+    }
+
+    /**
+     * Sets Page Segmentation Mode which is used to retry OCR of a page once
+     * after its deadline expired (e.g. 6 which treats the image as a single
+     * uniform block of text and skips page layout analysis).
+     * Default value is null which means that the page isn't retried.
+     *
+     * @param timeoutFallbackPageSegMode fallback Page Segmentation Mode
+     * @return the {@link Tesseract4OcrEngineProperties} instance
+     */
+    public final Tesseract4OcrEngineProperties setTimeoutFallbackPageSegMode(
+            final Integer timeoutFallbackPageSegMode) {
+        this.timeoutFallbackPageSegMode = timeoutFallbackPageSegMode;
+        return this;
+    }
 
+    /**
+     * Gets directory where files with user words are cached.
+     *
+     * @return set cache directory or the default one if it isn't set
+     */
+    private File getUserWordsCacheDirectoryOrDefault() {
+        return userWordsCacheDirectory != null
+                ? userWordsCacheDirectory
+                : UserWordsCache.getDefaultCacheDirectory();
+    }
 }
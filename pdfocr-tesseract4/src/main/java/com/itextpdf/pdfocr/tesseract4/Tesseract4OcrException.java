@@ -52,6 +52,22 @@ public class Tesseract4OcrException extends OcrException {
                     + "to a valid directory";
     public static final String PATH_TO_TESS_DATA_DIRECTORY_CONTAINS_NON_ASCII_CHARACTERS =
             "Path to tess data should contain only ASCII characters";
+    public static final String PAGE_OCR_TIMEOUT =
+            "Tesseract OCR of page exceeded the deadline of {0} ms";
+    public static final String DOCUMENT_OCR_TIMEOUT =
+            "Tesseract OCR of input image exceeded the deadline of {0} ms";
+    public static final String OCR_CANCELLED =
+            "Tesseract OCR was cancelled";
+    public static final String IMAGE_PAGE_IS_TOO_LARGE =
+            "Page of input image has {0} pixels which exceeds the limit of {1}";
+    public static final String IMAGE_HAS_TOO_MANY_PAGES =
+            "Input image has {0} pages which exceeds the limit of {1}";
+    public static final String IMAGE_OCR_IS_TOO_LONG =
+            "Estimated OCR time of input image {0} ms exceeds the limit of {1} ms";
+    public static final String IMAGE_EXCEEDS_MEMORY_BUDGET =
+            "Estimated memory of input image {0} bytes exceeds the budget of {1} bytes";
+    public static final String IMAGE_ADMISSION_TIMEOUT =
+            "Input image wasn't admitted to OCR within {0} ms";
 
     /**
      * Creates a new TesseractException.
@@ -0,0 +1,290 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr.tesseract4;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Counters of tesseract OCR events which are useful for monitoring
+ * of the OCR service, shared by all tesseract engines.
+ */
+public final class Tesseract4OcrMetrics {
+
+    /**
+     * The singleton instance.
+     */
+    private static final Tesseract4OcrMetrics INSTANCE =
+            new Tesseract4OcrMetrics();
+
+    /**
+     * Number of pages whose deadline expired.
+     */
+    private final AtomicLong pageTimeouts = new AtomicLong();
+
+    /**
+     * Number of input images whose deadline expired.
+     */
+    private final AtomicLong documentTimeouts = new AtomicLong();
+
+    /**
+     * Number of tesseract processes killed by the watchdog.
+     */
+    private final AtomicLong killedProcesses = new AtomicLong();
+
+    /**
+     * Number of pages retried with fallback settings after a timeout.
+     */
+    private final AtomicLong timeoutRetries = new AtomicLong();
+
+    /**
+     * Number of retried pages which were successfully recognized.
+     */
+    private final AtomicLong successfulTimeoutRetries = new AtomicLong();
+
+    /**
+     * Number of input images admitted to OCR.
+     */
+    private final AtomicLong admittedImages = new AtomicLong();
+
+    /**
+     * Number of input images which waited in the admission queue.
+     */
+    private final AtomicLong queuedImages = new AtomicLong();
+
+    /**
+     * Number of input images rejected by admission control.
+     */
+    private final AtomicLong rejectedImages = new AtomicLong();
+
+    /**
+     * Current concurrency limit set by
+     * {@link Tesseract4OcrConcurrencyController}.
+     */
+    private final AtomicLong concurrencyLimit = new AtomicLong();
+
+    /**
+     * Number of concurrency limit changes per reason.
+     */
+    private final Map<ConcurrencyChangeReason, AtomicLong> concurrencyChanges =
+            new EnumMap<>(ConcurrencyChangeReason.class);
+
+    /**
+     * Creates new instance of {@link Tesseract4OcrMetrics}.
+     */
+    private Tesseract4OcrMetrics() {
+        for (ConcurrencyChangeReason reason : ConcurrencyChangeReason.values()) {
+            concurrencyChanges.put(reason, new AtomicLong());
+        }
+    }
+
+    /**
+     * Gets the singleton instance.
+     *
+     * @return {@link Tesseract4OcrMetrics} instance
+     */
+    public static Tesseract4OcrMetrics getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Gets number of pages whose deadline expired.
+     *
+     * @return number of page timeouts
+     */
+    public long getPageTimeouts() {
+        return pageTimeouts.get();
+    }
+
+    /**
+     * Gets number of input images whose deadline expired.
+     *
+     * @return number of document timeouts
+     */
+    public long getDocumentTimeouts() {
+        return documentTimeouts.get();
+    }
+
+    /**
+     * Gets number of tesseract processes killed by the watchdog.
+     *
+     * @return number of killed processes
+     */
+    public long getKilledProcesses() {
+        return killedProcesses.get();
+    }
+
+    /**
+     * Gets number of pages retried with fallback settings after a timeout.
+     *
+     * @return number of retries
+     */
+    public long getTimeoutRetries() {
+        return timeoutRetries.get();
+    }
+
+    /**
+     * Gets number of retried pages which were successfully recognized.
+     *
+     * @return number of successful retries
+     */
+    public long getSuccessfulTimeoutRetries() {
+        return successfulTimeoutRetries.get();
+    }
+
+    /**
+     * Gets number of input images admitted to OCR by
+     * {@link Tesseract4OcrAdmissionController}.
+     *
+     * @return number of admitted images
+     */
+    public long getAdmittedImages() {
+        return admittedImages.get();
+    }
+
+    /**
+     * Gets number of input images which waited in the admission queue.
+     *
+     * @return number of queued images
+     */
+    public long getQueuedImages() {
+        return queuedImages.get();
+    }
+
+    /**
+     * Gets number of input images rejected by
+     * {@link Tesseract4OcrAdmissionController}.
+     *
+     * @return number of rejected images
+     */
+    public long getRejectedImages() {
+        return rejectedImages.get();
+    }
+
+    /**
+     * Gets current concurrency limit set by
+     * {@link Tesseract4OcrConcurrencyController}.
+     *
+     * @return concurrency limit, 0 if it isn't controlled
+     */
+    public long getConcurrencyLimit() {
+        return concurrencyLimit.get();
+    }
+
+    /**
+     * Gets number of concurrency limit changes made for given reason.
+     *
+     * @param reason {@link ConcurrencyChangeReason} of the changes
+     * @return number of changes
+     */
+    public long getConcurrencyChanges(final ConcurrencyChangeReason reason) {
+        return concurrencyChanges.get(reason).get();
+    }
+
+    /**
+     * Resets all the counters.
+     */
+    public void reset() {
+        pageTimeouts.set(0);
+        documentTimeouts.set(0);
+        killedProcesses.set(0);
+        timeoutRetries.set(0);
+        successfulTimeoutRetries.set(0);
+        admittedImages.set(0);
+        queuedImages.set(0);
+        rejectedImages.set(0);
+        for (AtomicLong changes : concurrencyChanges.values()) {
+            changes.set(0);
+        }
+    }
+
+    /**
+     * Records page timeout.
+     */
+    void onPageTimeout() {
+        pageTimeouts.incrementAndGet();
+    }
+
+    /**
+     * Records document timeout.
+     */
+    void onDocumentTimeout() {
+        documentTimeouts.incrementAndGet();
+    }
+
+    /**
+     * Records tesseract process killed by the watchdog.
+     */
+    void onProcessKilled() {
+        killedProcesses.incrementAndGet();
+    }
+
+    /**
+     * Records retry of a page after timeout.
+     *
+     * @param succeeded true if the page was recognized
+     */
+    void onTimeoutRetry(final boolean succeeded) {
+        timeoutRetries.incrementAndGet();
+        if (succeeded) {
+            successfulTimeoutRetries.incrementAndGet();
+        }
+    }
+
+    /**
+     * Records admitted input image.
+     */
+    void onImageAdmitted() {
+        admittedImages.incrementAndGet();
+    }
+
+    /**
+     * Records input image which waits in the admission queue.
+     */
+    void onImageQueued() {
+        queuedImages.incrementAndGet();
+    }
+
+    /**
+     * Records rejected input image.
+     */
+    void onImageRejected() {
+        rejectedImages.incrementAndGet();
+    }
+
+    /**
+     * Records change of the concurrency limit.
+     *
+     * @param limit new limit
+     * @param reason {@link ConcurrencyChangeReason} of the change,
+     *               null if the limit is initialized
+     */
+    void onConcurrencyLimitChanged(final int limit,
+            final ConcurrencyChangeReason reason) {
+        concurrencyLimit.set(limit);
+        if (reason != null) {
+            concurrencyChanges.get(reason).incrementAndGet();
+        }
+    }
+}
@@ -0,0 +1,297 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr.tesseract4;
+
+/**
+ * Scheduler which limits the number of concurrent tesseract OCR runs
+ * according to a global budget of CPU cores shared by all tesseract
+ * engines.
+ *
+ * Each run takes {@link #getThreadsPerJob()} cores of the budget and waits
+ * until they are available. Tesseract processes started by
+ * {@link Tesseract4ExecutableOcrEngine} get <code>OMP_THREAD_LIMIT</code>
+ * environment variable set to the same number of threads, so many single
+ * threaded runs or a few multithreaded runs fill the machine without
+ * oversubscribing it.
+ *
+ * NOTE:
+ * {@link Tesseract4LibOcrEngine} runs tesseract in the JVM process whose
+ * OpenMP settings are read once when the library is loaded, so
+ * <code>OMP_THREAD_LIMIT</code> has to be set for the JVM itself, the
+ * scheduler only limits the number of concurrent runs.
+ *
+ * Scheduling is disabled by default. Core budget may be either set
+ * manually or tuned at runtime by {@link Tesseract4OcrConcurrencyController}.
+ */
+public final class Tesseract4OcrScheduler {
+
+    /**
+     * Name of environment variable limiting OpenMP threads of a process.
+     */
+    static final String OMP_THREAD_LIMIT = "OMP_THREAD_LIMIT";
+
+    /**
+     * The singleton instance.
+     */
+    private static final Tesseract4OcrScheduler INSTANCE =
+            new Tesseract4OcrScheduler();
+
+    /**
+     * Number of threads of the run performed by the current thread,
+     * null if the current thread doesn't perform a scheduled run.
+     */
+    private final ThreadLocal<Integer> currentJobThreads = new ThreadLocal<>();
+
+    /**
+     * Number of {@link #acquire()} calls of the current thread which
+     * haven't been released yet, null if there are none. Nested runs share
+     * the cores of the outermost run which are returned only once all the
+     * runs are released.
+     */
+    private final ThreadLocal<Integer> holdCount = new ThreadLocal<>();
+
+    /**
+     * Start time of the run performed by the current thread in terms of
+     * {@link System#nanoTime()}.
+     */
+    private final ThreadLocal<Long> currentJobStart = new ThreadLocal<>();
+
+    /**
+     * Controller which tunes core budget, may be null.
+     */
+    private volatile Tesseract4OcrConcurrencyController concurrencyController;
+
+    /**
+     * Number of cores which may be used by all runs, 0 means that
+     * scheduling is disabled.
+     */
+    private int coreBudget = 0;
+
+    /**
+     * Number of threads used by a single run.
+     */
+    private int threadsPerJob = 1;
+
+    /**
+     * Number of cores used by the running jobs.
+     */
+    private int usedCores = 0;
+
+    /**
+     * Number of running jobs.
+     */
+    private int runningJobs = 0;
+
+    /**
+     * Creates new instance of {@link Tesseract4OcrScheduler}.
+     */
+    private Tesseract4OcrScheduler() {
+    }
+
+    /**
+     * Gets the singleton instance.
+     *
+     * @return {@link Tesseract4OcrScheduler} instance
+     */
+    public static Tesseract4OcrScheduler getInstance() {
+        return INSTANCE;
+    }
+
+    /**
+     * Gets number of cores which may be used by all tesseract runs.
+     *
+     * @return core budget, 0 if scheduling is disabled
+     */
+    public synchronized int getCoreBudget() {
+        return coreBudget;
+    }
+
+    /**
+     * Sets number of cores which may be used by all tesseract runs
+     * (e.g. {@link Runtime#availableProcessors()}).
+     * Default value is 0 which means that scheduling is disabled.
+     *
+     * @param coreBudget core budget, 0 to disable scheduling
+     * @return the {@link Tesseract4OcrScheduler} instance
+     */
+    public synchronized Tesseract4OcrScheduler setCoreBudget(
+            final int coreBudget) {
+        this.coreBudget = Math.max(0, coreBudget);
+        notifyAll();
+        return this;
+    }
+
+    /**
+     * Gets controller which tunes core budget at runtime.
+     *
+     * @return {@link Tesseract4OcrConcurrencyController} instance or null
+     * if core budget is set manually
+     */
+    public Tesseract4OcrConcurrencyController getConcurrencyController() {
+        return concurrencyController;
+    }
+
+    /**
+     * Sets controller which tunes core budget at runtime. The controller
+     * is started immediately and its initial limit is set as core budget.
+     *
+     * @param concurrencyController {@link Tesseract4OcrConcurrencyController}
+     *                              instance or null to set core budget
+     *                              manually
+     * @return the {@link Tesseract4OcrScheduler} instance
+     */
+    public Tesseract4OcrScheduler setConcurrencyController(
+            final Tesseract4OcrConcurrencyController concurrencyController) {
+        this.concurrencyController = concurrencyController;
+        if (concurrencyController != null) {
+            setCoreBudget(concurrencyController.start(System.nanoTime()));
+        }
+        return this;
+    }
+
+    /**
+     * Gets number of threads used by a single tesseract run.
+     *
+     * @return number of threads
+     */
+    public synchronized int getThreadsPerJob() {
+        return threadsPerJob;
+    }
+
+    /**
+     * Sets number of threads used by a single tesseract run.
+     * Default value is 1 which gives the best throughput when many images
+     * are processed concurrently.
+     *
+     * @param threadsPerJob number of threads, at least 1
+     * @return the {@link Tesseract4OcrScheduler} instance
+     */
+    public synchronized Tesseract4OcrScheduler setThreadsPerJob(
+            final int threadsPerJob) {
+        this.threadsPerJob = Math.max(1, threadsPerJob);
+        notifyAll();
+        return this;
+    }
+
+    /**
+     * Gets number of cores used by the running tesseract runs.
+     *
+     * @return number of used cores
+     */
+    public synchronized int getUsedCores() {
+        return usedCores;
+    }
+
+    /**
+     * Gets number of running tesseract runs.
+     *
+     * @return number of running jobs
+     */
+    public synchronized int getRunningJobs() {
+        return runningJobs;
+    }
+
+    /**
+     * Waits until the cores needed by a tesseract run are available
+     * and takes them for the current thread. No cores are taken if
+     * scheduling is disabled or the current thread already performs a run:
+     * nested runs use the cores of the outermost one. Each call has to be
+     * followed by {@link #release()}.
+     *
+     * @throws InterruptedException if the current thread is interrupted
+     * while waiting
+     */
+    void acquire() throws InterruptedException {
+        Integer holds = holdCount.get();
+        if (holds != null) {
+            holdCount.set(Integer.valueOf(holds.intValue() + 1));
+            return;
+        }
+        int threads = 0;
+        synchronized (this) {
+            while (coreBudget > 0) {
+                threads = Math.min(threadsPerJob, coreBudget);
+                if (usedCores + threads <= coreBudget) {
+                    usedCores += threads;
+                    runningJobs++;
+                    break;
+                }
+                threads = 0;
+                wait();
+            }
+        }
+        if (threads > 0) {
+            currentJobThreads.set(Integer.valueOf(threads));
+            currentJobStart.set(Long.valueOf(System.nanoTime()));
+        }
+        holdCount.set(Integer.valueOf(1));
+    }
+
+    /**
+     * Releases the run of the current thread. The cores taken by the
+     * outermost run are returned to the budget once all the nested runs
+     * are released.
+     */
+    void release() {
+        Integer holds = holdCount.get();
+        if (holds == null) {
+            return;
+        }
+        if (holds.intValue() > 1) {
+            holdCount.set(Integer.valueOf(holds.intValue() - 1));
+            return;
+        }
+        holdCount.remove();
+        Integer threads = currentJobThreads.get();
+        if (threads == null) {
+            return;
+        }
+        long start = currentJobStart.get().longValue();
+        currentJobThreads.remove();
+        currentJobStart.remove();
+        int step;
+        synchronized (this) {
+            usedCores -= threads.intValue();
+            runningJobs--;
+            step = Math.min(threadsPerJob, coreBudget);
+            notifyAll();
+        }
+        Tesseract4OcrConcurrencyController controller = concurrencyController;
+        long now = System.nanoTime();
+        if (controller != null
+                && controller.onJobFinished(now - start, now, step)) {
+            setCoreBudget(controller.getConcurrencyLimit());
+        }
+    }
+
+    /**
+     * Gets number of threads which may be used by the tesseract run
+     * performed by the current thread.
+     *
+     * @return number of threads, 0 if the run isn't scheduled
+     */
+    int getCurrentJobThreads() {
+        Integer threads = currentJobThreads.get();
+        return threads == null ? 0 : threads.intValue();
+    }
+}
@@ -26,18 +26,23 @@ import com.itextpdf.io.util.MessageFormatUtil;
 import com.itextpdf.io.util.SystemUtil;
 import com.itextpdf.kernel.geom.Rectangle;
 import com.itextpdf.pdfocr.TextInfo;
+import com.itextpdf.pdfocr.TextInfoList;
 import com.itextpdf.styledxmlparser.jsoup.Jsoup;
 import com.itextpdf.styledxmlparser.jsoup.nodes.Document;
 import com.itextpdf.styledxmlparser.jsoup.nodes.Element;
 import com.itextpdf.styledxmlparser.jsoup.nodes.Node;
 import com.itextpdf.styledxmlparser.jsoup.select.Elements;
 
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
+import java.lang.reflect.Field;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.util.ArrayList;
@@ -46,6 +51,11 @@ import java.util.Collections;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
 import java.util.regex.Matcher;
 import java.util.regex.Pattern;
 import org.slf4j.Logger;
@@ -56,12 +66,32 @@ import org.slf4j.LoggerFactory;
  */
 public class TesseractHelper {
 
+    /**
+     * Executor which kills tesseract processes exceeding their timeout.
+     */
+    private static final ScheduledExecutorService WATCHDOG_EXECUTOR =
+            Executors.newSingleThreadScheduledExecutor(new ThreadFactory() {
+                @Override
+                public Thread newThread(final Runnable runnable) {
+                    Thread thread = new Thread(runnable,
+                            "pdfocr-tesseract-watchdog");
+                    thread.setDaemon(true);
+                    return thread;
+                }
+            });
+
     /**
      * The logger.
      */
     private static final Logger LOGGER = LoggerFactory
             .getLogger(TesseractHelper.class);
 
+    /**
+     * Path to the setsid utility which starts tesseract processes in
+     * process groups of their own, null if it isn't available.
+     */
+    private static final String SETSID_PATH = findSetsid();
+
     /**
      * Patterns for matching hOCR element bboxes.
      */
@@ -100,6 +130,7 @@ public class TesseractHelper {
     private static final String OCRX_WORD = "ocrx_word";
     private static final String TITLE = "title";
     private static final String X_WCONF = "x_wconf";
+    private static final String LANG = "lang";
 
 
     /**
@@ -170,30 +201,12 @@ public class TesseractHelper {
                     && Files.exists(
                     java.nio.file.Paths
                             .get(inputFile.getAbsolutePath()))) {
-                FileInputStream fileInputStream =
-                        new FileInputStream(inputFile.getAbsolutePath());
-                Document doc = Jsoup.parse(fileInputStream,
-                        java.nio.charset.StandardCharsets.UTF_8.name(),
-                        inputFile.getAbsolutePath());
-                Elements pages = doc.getElementsByClass(OCR_PAGE);
-
-                for (Element page : pages) {
-                    String[] pageNum = page.id().split(PAGE_PREFIX_PATTERN);
-                    int pageNumber = Integer
-                            .parseInt(pageNum[pageNum.length - 1]);
-                    final List<TextInfo> textData = getTextData(page,
-                            tesseract4OcrEngineProperties,
-                            txt,
+                try (FileInputStream fileInputStream =
+                        new FileInputStream(inputFile.getAbsolutePath())) {
+                    parseHocr(fileInputStream, inputFile.getAbsolutePath(),
+                            txt, tesseract4OcrEngineProperties, imageData,
                             unparsedBBoxes);
-                    if (textData.size() > 0) {
-                        if (imageData.containsKey(pageNumber)) {
-                            pageNumber = Collections.max(imageData.keySet())
-                                    + 1;
-                        }
-                        imageData.put(pageNumber, textData);
-                    }
                 }
-                fileInputStream.close();
             }
         }
         for (Node node : unparsedBBoxes.values()) {
@@ -205,6 +218,80 @@ public class TesseractHelper {
         return imageData;
     }
 
+    /**
+     * Parses hocr read from the provided stream, retrieves text, and
+     * returns data in the same format as {@link #parseHocrFile}.
+     * The stream is read until its end, so it can be a stream which
+     * is still being written (e.g. output of tesseract process).
+     *
+     * @param inputStream input stream with hocr
+     * @param txt lines of the same result in txt format used to make hocr
+     *            recognition result more precise, may be null
+     * @param tesseract4OcrEngineProperties {@link Tesseract4OcrEngineProperties}
+     * @return {@link java.util.Map} where key is {@link java.lang.Integer}
+     * representing the number of the page and value is
+     * {@link java.util.List} of {@link TextInfo} elements where each
+     * {@link TextInfo} element contains a word or a line and its 4
+     * coordinates(bbox)
+     * @throws IOException if error occurred during reading the stream
+     */
+    static Map<Integer, List<TextInfo>> parseHocr(
+            final InputStream inputStream, final List<String> txt,
+            final Tesseract4OcrEngineProperties tesseract4OcrEngineProperties)
+            throws IOException {
+        Map<Integer, List<TextInfo>> imageData =
+                new LinkedHashMap<Integer, List<TextInfo>>();
+        Map<String, Node> unparsedBBoxes = new LinkedHashMap<>();
+        parseHocr(inputStream, "", txt, tesseract4OcrEngineProperties,
+                imageData, unparsedBBoxes);
+        for (Node node : unparsedBBoxes.values()) {
+            LOGGER.warn(MessageFormatUtil.format(
+                    Tesseract4LogMessageConstant.CANNOT_PARSE_NODE_BBOX,
+                    node.toString()
+            ));
+        }
+        return imageData;
+    }
+
+    /**
+     * Parses hocr file and groups its words by the languages tesseract
+     * used to recognize them. Language of a word is taken from its
+     * <code>lang</code> attribute or from the closest enclosing element
+     * which has it.
+     *
+     * @param hocrFile hocr {@link java.io.File}
+     * @return {@link java.util.Map} where key is the language and value is
+     * {@link java.util.List} of {@link TextInfo} elements containing text
+     * and confidence of the words without their bboxes
+     * @throws IOException if the file cannot be read
+     */
+    static Map<String, List<TextInfo>> parseWordLanguages(
+            final File hocrFile) throws IOException {
+        final Map<String, List<TextInfo>> words =
+                new LinkedHashMap<String, List<TextInfo>>();
+        final Document doc;
+        try (FileInputStream fileInputStream =
+                new FileInputStream(hocrFile.getAbsolutePath())) {
+            doc = Jsoup.parse(fileInputStream,
+                    java.nio.charset.StandardCharsets.UTF_8.name(),
+                    hocrFile.getAbsolutePath());
+        }
+        for (Element word : doc.getElementsByClass(OCRX_WORD)) {
+            final String language = getLanguage(word);
+            if (language == null) {
+                continue;
+            }
+            final TextInfo textInfo = new TextInfo();
+            textInfo.setText(word.text());
+            textInfo.setConfidence(getWordConfidence(word));
+            if (!words.containsKey(language)) {
+                words.put(language, new ArrayList<TextInfo>());
+            }
+            words.get(language).add(textInfo);
+        }
+        return words;
+    }
+
     /**
      * Get and align (if needed) bbox of the element.
      */
@@ -404,10 +491,76 @@ public class TesseractHelper {
     static void runCommand(final String execPath,
                            final List<String> paramsList,
                            final String workingDirPath) throws Tesseract4OcrException {
+        runCommand(execPath, paramsList, workingDirPath, 0);
+    }
+
+    /**
+     * Runs given command from the specific working directory and kills
+     * the process if it doesn't finish in time.
+     *
+     * @param execPath path to the executable
+     * @param paramsList {@link java.util.List} of command line arguments
+     * @param workingDirPath path to the working directory
+     * @param timeout timeout in milliseconds, 0 means no timeout
+     * @throws Tesseract4OcrException if provided command failed
+     * @throws Tesseract4OcrTimeoutException if process was killed on timeout
+     */
+    static void runCommand(final String execPath,
+                           final List<String> paramsList,
+                           final String workingDirPath,
+                           final long timeout) throws Tesseract4OcrException {
+        runCommand(execPath, paramsList, workingDirPath, timeout,
+                Collections.<String, String>emptyMap());
+    }
+
+    /**
+     * Runs given command from the specific working directory with
+     * additional environment variables and kills the process if it doesn't
+     * finish in time.
+     *
+     * @param execPath path to the executable
+     * @param paramsList {@link java.util.List} of command line arguments
+     * @param workingDirPath path to the working directory
+     * @param timeout timeout in milliseconds, 0 means no timeout
+     * @param environment {@link java.util.Map} of environment variables
+     *                    to be set for the process
+     * @throws Tesseract4OcrException if provided command failed
+     * @throws Tesseract4OcrTimeoutException if process was killed on timeout
+     */
+    static void runCommand(final String execPath,
+                           final List<String> paramsList,
+                           final String workingDirPath,
+                           final long timeout,
+                           final Map<String, String> environment)
+            throws Tesseract4OcrException {
+        String params = String.join(" ", paramsList);
         try {
-            String params = String.join(" ", paramsList);
-            boolean cmdSucceeded = SystemUtil
-                    .runProcessAndWait(execPath, params, workingDirPath);
+            boolean cmdSucceeded;
+            if (timeout <= 0 && environment.isEmpty()) {
+                cmdSucceeded = SystemUtil
+                        .runProcessAndWait(execPath, params, workingDirPath);
+            } else {
+                List<String> command = new ArrayList<String>();
+                command.add(removeQuotes(execPath));
+                for (String param : paramsList) {
+                    command.add(removeQuotes(param));
+                }
+                ProcessBuilder processBuilder = createProcessBuilder(command)
+                        .redirectErrorStream(true);
+                if (workingDirPath != null) {
+                    processBuilder.directory(new File(workingDirPath));
+                }
+                processBuilder.environment().putAll(environment);
+                Process process = processBuilder.start();
+                ProcessWatchdog watchdog = watch(process, timeout);
+                try {
+                    startStreamReader(process.getInputStream(),
+                            new ByteArrayOutputStream());
+                    cmdSucceeded = process.waitFor() == 0;
+                } finally {
+                    watchdog.stop();
+                }
+            }
 
             if (!cmdSucceeded) {
                 LOGGER.error(MessageFormatUtil
@@ -427,6 +580,330 @@ public class TesseractHelper {
         }
     }
 
+    /**
+     * Creates {@link java.lang.ProcessBuilder} for the given command. On
+     * POSIX systems which provide <code>setsid</code> utility the command
+     * is started in a new process group, so that
+     * {@link #destroyProcessTree(Process)} kills the processes it spawns
+     * too.
+     *
+     * @param command command to be run
+     * @return {@link java.lang.ProcessBuilder} instance
+     */
+    static ProcessBuilder createProcessBuilder(final List<String> command) {
+        if (SETSID_PATH == null) {
+            return new ProcessBuilder(command);
+        }
+        final List<String> groupCommand = new ArrayList<String>();
+        groupCommand.add(SETSID_PATH);
+        groupCommand.addAll(command);
+        return new ProcessBuilder(groupCommand);
+    }
+
+    /**
+     * Forcibly destroys the process together with the processes it
+     * spawned. On Windows the process tree is killed by
+     * <code>taskkill /T /F</code>, on POSIX systems the process group of
+     * a process created by {@link #createProcessBuilder(List)} is killed.
+     *
+     * Please note that only the process itself is destroyed if its id
+     * cannot be obtained (Windows with Java 8) or if the process wasn't
+     * started in a group of its own (POSIX systems without
+     * <code>setsid</code>, e.g. macOS).
+     *
+     * @param process process to be destroyed
+     */
+    static void destroyProcessTree(final Process process) {
+        final long pid = getProcessId(process);
+        final boolean isWindows = isWindows();
+        if (pid > 0 && (isWindows || SETSID_PATH != null)) {
+            final ProcessBuilder killer = isWindows
+                    ? new ProcessBuilder("taskkill", "/T", "/F", "/PID",
+                    String.valueOf(pid))
+                    : new ProcessBuilder("kill", "-KILL", "--",
+                    "-" + pid);
+            try {
+                final Process killerProcess =
+                        killer.redirectErrorStream(true).start();
+                startStreamReader(killerProcess.getInputStream(),
+                        new ByteArrayOutputStream());
+                killerProcess.waitFor(ProcessWatchdog.KILL_WAIT_TIMEOUT,
+                        TimeUnit.MILLISECONDS);
+            } catch (IOException e) {
+                LOGGER.warn(MessageFormatUtil.format(
+                        Tesseract4LogMessageConstant.CANNOT_KILL_PROCESS_TREE,
+                        String.valueOf(pid), e.getMessage()));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        process.destroyForcibly();
+    }
+
+    /**
+     * Starts watching given process: the process and the processes it
+     * spawned are forcibly destroyed if it's still running when timeout
+     * expires, see {@link #destroyProcessTree(Process)}.
+     *
+     * @param process process to be watched
+     * @param timeout timeout in milliseconds, 0 means no timeout
+     * @return {@link ProcessWatchdog} which has to be stopped once the
+     * process is finished
+     */
+    static ProcessWatchdog watch(final Process process, final long timeout) {
+        final ProcessWatchdog watchdog = new ProcessWatchdog(process, timeout);
+        if (timeout > 0) {
+            watchdog.future = WATCHDOG_EXECUTOR.schedule(watchdog, timeout,
+                    TimeUnit.MILLISECONDS);
+        }
+        return watchdog;
+    }
+
+    /**
+     * Starts a daemon thread which copies given input stream to the
+     * output stream.
+     *
+     * @param inputStream stream to read from
+     * @param outputStream stream to write to
+     * @return started thread
+     */
+    static Thread startStreamReader(final InputStream inputStream,
+            final OutputStream outputStream) {
+        return startStreamReader(inputStream, outputStream, false);
+    }
+
+    /**
+     * Starts a daemon thread which copies given input stream to the
+     * output stream.
+     *
+     * @param inputStream stream to read from
+     * @param outputStream stream to write to
+     * @param closeOutput indicates if output stream needs to be closed
+     *                    once the input stream is copied
+     * @return started thread
+     */
+    static Thread startStreamReader(final InputStream inputStream,
+            final OutputStream outputStream, final boolean closeOutput) {
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    copy(inputStream, outputStream);
+                    if (closeOutput) {
+                        outputStream.close();
+                    }
+                } catch (IOException e) { // NOSONAR
+                    // the stream is closed once the process is destroyed
+                }
+            }
+        });
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
+    /**
+     * Copies given input stream to the output stream.
+     *
+     * @param inputStream stream to read from
+     * @param outputStream stream to write to
+     * @throws IOException if stream cannot be read or written
+     */
+    static void copy(final InputStream inputStream,
+            final OutputStream outputStream) throws IOException {
+        byte[] buffer = new byte[8192];
+        int read;
+        while ((read = inputStream.read(buffer)) != -1) {
+            outputStream.write(buffer, 0, read);
+        }
+    }
+
+    /**
+     * Gets id of the process using <code>Process.pid()</code> method
+     * available since Java 9 or <code>pid</code> field of POSIX process
+     * implementation of Java 8.
+     *
+     * @return process id or -1 if it cannot be obtained
+     */
+    private static long getProcessId(final Process process) {
+        try {
+            return ((Number) Process.class.getMethod("pid")
+                    .invoke(process)).longValue();
+        } catch (Exception e) { // NOSONAR
+            // Java 8, try the field of the implementation
+        }
+        try {
+            final Field field =
+                    process.getClass().getDeclaredField("pid");
+            field.setAccessible(true);
+            return field.getInt(process);
+        } catch (Exception e) { // NOSONAR
+            return -1;
+        }
+    }
+
+    /**
+     * Checks if current os is Windows.
+     */
+    private static boolean isWindows() {
+        String os = System.getProperty("os.name") == null
+                ? System.getProperty("OS") : System.getProperty("os.name");
+        return os != null && os.toLowerCase().contains("win");
+    }
+
+    /**
+     * Finds setsid utility on POSIX systems.
+     *
+     * @return path to setsid or null if it isn't available
+     */
+    private static String findSetsid() {
+        if (isWindows()) {
+            return null;
+        }
+        for (String path : new String[] {"/usr/bin/setsid", "/bin/setsid"}) {
+            if (new File(path).canExecute()) {
+                return path;
+            }
+        }
+        return null;
+    }
+
+    /**
+     * Removes quotes which surround command line argument.
+     */
+    private static String removeQuotes(final String value) {
+        if (value.length() >= 2
+                && (value.startsWith("'") && value.endsWith("'")
+                || value.startsWith("\"") && value.endsWith("\""))) {
+            return value.substring(1, value.length() - 1);
+        }
+        return value;
+    }
+
+    /**
+     * Kills watched process once its timeout expires.
+     */
+    static final class ProcessWatchdog implements Runnable {
+
+        /**
+         * Time in milliseconds to wait for the killed process to exit.
+         */
+        private static final long KILL_WAIT_TIMEOUT = 5000;
+
+        /**
+         * Watched process.
+         */
+        private final Process process;
+
+        /**
+         * Timeout in milliseconds.
+         */
+        private final long timeout;
+
+        /**
+         * Indicates if the process was killed.
+         */
+        private volatile boolean killed = false;
+
+        /**
+         * Indicates if the watchdog was stopped, guarded by this instance.
+         */
+        private boolean stopped = false;
+
+        /**
+         * Scheduled kill of the process.
+         */
+        private ScheduledFuture<?> future;
+
+        /**
+         * Creates new instance of {@link ProcessWatchdog}.
+         *
+         * @param process watched process
+         * @param timeout timeout in milliseconds
+         */
+        ProcessWatchdog(final Process process, final long timeout) {
+            this.process = process;
+            this.timeout = timeout;
+        }
+
+        /**
+         * Kills the process if it's still running and the watchdog
+         * wasn't stopped.
+         */
+        @Override
+        public synchronized void run() {
+            if (!stopped && process.isAlive()) {
+                killed = true;
+                destroyProcessTree(process);
+                try {
+                    process.waitFor(KILL_WAIT_TIMEOUT, TimeUnit.MILLISECONDS);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+                // process is counted only once it's actually gone
+                if (!process.isAlive()) {
+                    Tesseract4OcrMetrics.getInstance().onProcessKilled();
+                }
+                LOGGER.error(MessageFormatUtil.format(
+                        Tesseract4LogMessageConstant.TESSERACT_PROCESS_KILLED,
+                        timeout));
+            }
+        }
+
+        /**
+         * Stops watching the process.
+         *
+         * @throws Tesseract4OcrTimeoutException if the process was killed
+         */
+        void stop() {
+            if (future != null) {
+                future.cancel(false);
+            }
+            // cancel doesn't wait for the running kill, so the monitor is
+            // used to wait until the process is killed and the kill is
+            // recorded
+            synchronized (this) {
+                stopped = true;
+            }
+            if (killed) {
+                throw new Tesseract4OcrTimeoutException(
+                        Tesseract4OcrException.PAGE_OCR_TIMEOUT, false)
+                        .setMessageParams(String.valueOf(timeout));
+            }
+        }
+    }
+
+    /**
+     * Parses hocr document from the stream and adds text infos of its
+     * pages to the image data.
+     */
+    private static void parseHocr(final InputStream inputStream,
+            final String baseUri, final List<String> txt,
+            final Tesseract4OcrEngineProperties tesseract4OcrEngineProperties,
+            final Map<Integer, List<TextInfo>> imageData,
+            final Map<String, Node> unparsedBBoxes) throws IOException {
+        Document doc = Jsoup.parse(inputStream,
+                java.nio.charset.StandardCharsets.UTF_8.name(), baseUri);
+        Elements pages = doc.getElementsByClass(OCR_PAGE);
+
+        for (Element page : pages) {
+            String[] pageNum = page.id().split(PAGE_PREFIX_PATTERN);
+            int pageNumber = Integer
+                    .parseInt(pageNum[pageNum.length - 1]);
+            final List<TextInfo> textData = getTextData(page,
+                    tesseract4OcrEngineProperties,
+                    txt,
+                    unparsedBBoxes);
+            if (textData.size() > 0) {
+                if (imageData.containsKey(pageNumber)) {
+                    pageNumber = Collections.max(imageData.keySet())
+                            + 1;
+                }
+                imageData.put(pageNumber, textData);
+            }
+        }
+    }
+
     /**
      * Gets list of text infos from hocr page.
      */
@@ -460,27 +937,23 @@ public class TesseractHelper {
                                               List<String> txt,
                                               Rectangle pageBbox,
                                               Map<String, Node> unparsedBBoxes) {
-        List<TextInfo> textData = new ArrayList<TextInfo>();
+        final TextInfoList textData = new TextInfoList();
         for (Element lineOrCaption : pageObjects) {
             if (!lineOrCaption.text().isEmpty() && isElementConfident(lineOrCaption,
                     tesseract4OcrEngineProperties.getMinimalConfidenceLevel())) {
                 String hocrLineInTxt = findHocrLineInTxt(lineOrCaption, txt);
                 if (tesseract4OcrEngineProperties.getTextPositioning() == TextPositioning.BY_WORDS
                         || tesseract4OcrEngineProperties.getTextPositioning() == TextPositioning.BY_WORDS_AND_LINES) {
-                    for (TextInfo ti : getTextDataForWords(lineOrCaption,
+                    addTextDataForWords(textData, lineOrCaption,
                             hocrLineInTxt,
                             tesseract4OcrEngineProperties.getTextPositioning(),
                             pageBbox,
-                            unparsedBBoxes)) {
-                        textData.add(ti);
-                    }
+                            unparsedBBoxes);
                 } else {
-                    for (TextInfo ti : getTextDataForLines(lineOrCaption,
+                    addTextDataForLines(textData, lineOrCaption,
                             hocrLineInTxt,
                             pageBbox,
-                            unparsedBBoxes)) {
-                        textData.add(ti);
-                    }
+                            unparsedBBoxes);
                 }
             }
         }
@@ -495,50 +968,82 @@ public class TesseractHelper {
         if (minimalConfidenceLevel == 0) {
             return true;
         } else {
-            int wconfTotal = 0;
-            int wconfCount = 0;
-            for (Node node : lineOrCaption.childNodes()) {
-                if (node instanceof Element) {
-                    String title = ((Element)node).attr(TITLE);
-                    Matcher matcher = WCONF_PATTERN.matcher(title);
-                    if (matcher.matches()) {
-                        String wconf = null;
-                        try {
-                            wconf = matcher.group(1);
-                        } catch (Exception e) {
-                            //No need to do anything here
-                        }
-                        if (wconf != null) {
-                            wconf = wconf.replaceAll(X_WCONF, "").trim();
-                            wconfTotal += Integer.parseInt(wconf);
-                            wconfCount++;
-                        }
-                    }
+            final float confidence = getLineConfidence(lineOrCaption);
+            return confidence == TextInfo.UNKNOWN_CONFIDENCE
+                    || confidence >= minimalConfidenceLevel;
+        }
+    }
+
+    /**
+     * Gets average confidence of the words within <code>lineOrCaption</code>.
+     *
+     * @return average confidence or {@link TextInfo#UNKNOWN_CONFIDENCE}
+     * if none of the words has x_wconf property
+     */
+    private static float getLineConfidence(Element lineOrCaption) {
+        int wconfTotal = 0;
+        int wconfCount = 0;
+        for (Node node : lineOrCaption.childNodes()) {
+            if (node instanceof Element) {
+                final float wconf = getWordConfidence((Element) node);
+                if (wconf != TextInfo.UNKNOWN_CONFIDENCE) {
+                    wconfTotal += (int) wconf;
+                    wconfCount++;
                 }
             }
-            if (wconfCount > 0) {
-                return wconfTotal / wconfCount >= minimalConfidenceLevel;
-            } else {
-                return true;
+        }
+        return wconfCount > 0
+                ? (float) wconfTotal / wconfCount
+                : TextInfo.UNKNOWN_CONFIDENCE;
+    }
+
+    /**
+     * Gets language of the element from its lang attribute or from the
+     * closest enclosing element which has it.
+     *
+     * @return language or null if neither of the elements has it
+     */
+    private static String getLanguage(Element element) {
+        for (Node current = element; current != null;
+                current = current.parent()) {
+            if (current.hasAttr(LANG)) {
+                return current.attr(LANG);
             }
         }
+        return null;
+    }
+
+    /**
+     * Gets confidence of the word from its x_wconf property.
+     *
+     * @return word confidence or {@link TextInfo#UNKNOWN_CONFIDENCE}
+     * if the word doesn't have x_wconf property
+     */
+    private static float getWordConfidence(Element word) {
+        Matcher matcher = WCONF_PATTERN.matcher(word.attr(TITLE));
+        if (matcher.matches()) {
+            String wconf = matcher.group(1).replaceAll(X_WCONF, "").trim();
+            return Integer.parseInt(wconf);
+        }
+        return TextInfo.UNKNOWN_CONFIDENCE;
     }
 
     /**
-     * Gets list of words represented by text infos from hocr line.
+     * Adds words of hocr line to the list of text infos.
      */
-    private static List<TextInfo> getTextDataForWords(Element lineOrCaption,
-                                                      String txtLine,
-                                                      TextPositioning textPositioning,
-                                                      Rectangle pageBbox,
-                                                      Map<String, Node> unparsedBBoxes) {
-        List<TextInfo> textData = new ArrayList<TextInfo>();
+    private static void addTextDataForWords(TextInfoList textData,
+                                            Element lineOrCaption,
+                                            String txtLine,
+                                            TextPositioning textPositioning,
+                                            Rectangle pageBbox,
+                                            Map<String, Node> unparsedBBoxes) {
         if (txtLine == null) {
             for (Element word : lineOrCaption.getElementsByClass(OCRX_WORD)) {
                 final Rectangle bboxRect = getAlignedBBox(word,
                         textPositioning, pageBbox,
                         unparsedBBoxes);
-                addToTextData(textData, word.text(), bboxRect, pageBbox);
+                addToTextData(textData, word.text(), bboxRect, pageBbox,
+                        getWordConfidence(word));
             }
         } else {
             List<TextInfo> textInfos = new ArrayList<>();
@@ -549,8 +1054,10 @@ public class TesseractHelper {
                 final Rectangle bboxRect = getAlignedBBox(word,
                         textPositioning, pageBbox,
                         unparsedBBoxes);
-                textInfos.add(new TextInfo(word.text(),
-                        bboxRect));
+                final TextInfo wordTextInfo = new TextInfo(word.text(),
+                        bboxRect);
+                wordTextInfo.setConfidence(getWordConfidence(word));
+                textInfos.add(wordTextInfo);
                 if (lineItems[0].replaceAll(NEW_LINE_OR_SPACE_PATTERN, "")
                         .equals(getTextInfosText(textInfos).replaceAll(SPACE_PATTERN, ""))) {
                     lineItems = Arrays.copyOfRange(lineItems, 1, lineItems.length);
@@ -559,52 +1066,57 @@ public class TesseractHelper {
                 }
             }
         }
-        return textData;
     }
 
     /**
-     * Gets list of lines represented by text infos from hocr line.
+     * Adds hocr line to the list of text infos.
      */
-    private static List<TextInfo> getTextDataForLines(Element lineOrCaption,
-                                                      String txtLine,
-                                                      Rectangle pageBbox,
-                                                      Map<String, Node> unparsedBBoxes) {
-        List<TextInfo> textData = new ArrayList<TextInfo>();
+    private static void addTextDataForLines(TextInfoList textData,
+                                            Element lineOrCaption,
+                                            String txtLine,
+                                            Rectangle pageBbox,
+                                            Map<String, Node> unparsedBBoxes) {
         final Rectangle bboxRect = getAlignedBBox(lineOrCaption,
                 TextPositioning.BY_LINES, pageBbox,
                 unparsedBBoxes);
+        final float confidence = getLineConfidence(lineOrCaption);
         if (txtLine == null) {
-            addToTextData(textData, lineOrCaption.text(), bboxRect, pageBbox);
+            addToTextData(textData, lineOrCaption.text(), bboxRect, pageBbox,
+                    confidence);
         } else {
-            addToTextData(textData, txtLine, bboxRect, pageBbox);
+            addToTextData(textData, txtLine, bboxRect, pageBbox, confidence);
         }
-        return textData;
     }
 
     /**
      * Add text chunk represented by text and bbox to list of text infos.
+     * Coordinates are kept as primitives, {@link TextInfo} is created only
+     * when it is requested.
      */
-    private static void addToTextData(List<TextInfo> textData,
+    private static void addToTextData(TextInfoList textData,
                                       String text,
                                       Rectangle bboxRect,
-                                      Rectangle pageBbox) {
-        final List<Float> bbox = Arrays.asList(toPixels(bboxRect.getLeft()),
+                                      Rectangle pageBbox,
+                                      float confidence) {
+        final int index = textData.add(text, bboxRect.getX(),
+                bboxRect.getY(), bboxRect.getWidth(), bboxRect.getHeight(),
+                confidence);
+        textData.setBbox(index, toPixels(bboxRect.getLeft()),
                 toPixels(pageBbox.getTop() - bboxRect.getTop()),
                 toPixels(bboxRect.getRight()),
                 toPixels(pageBbox.getTop() - bboxRect.getBottom()));
-        final TextInfo textInfo = new TextInfo(text, bboxRect, bbox);
-        textData.add(textInfo);
     }
 
     /**
      * Add text chunk represented by text info to list of text infos.
      */
-    private static void addToTextData(List<TextInfo> textData,
+    private static void addToTextData(TextInfoList textData,
                                       TextInfo textInfo,
                                       Rectangle pageBbox) {
         String text = textInfo.getText();
         Rectangle bboxRect = textInfo.getBboxRect();
-        addToTextData(textData, text, bboxRect, pageBbox);
+        addToTextData(textData, text, bboxRect, pageBbox,
+                textInfo.getConfidence());
     }
 
     /**
@@ -626,6 +1138,17 @@ public class TesseractHelper {
      */
     private static TextInfo mergeTextInfos(List<TextInfo> textInfos) {
         TextInfo textInfo = new TextInfo(textInfos.get(0));
+        float confidenceTotal = 0;
+        int confidenceCount = 0;
+        for (TextInfo part : textInfos) {
+            if (part.getConfidence() != TextInfo.UNKNOWN_CONFIDENCE) {
+                confidenceTotal += part.getConfidence();
+                confidenceCount++;
+            }
+        }
+        textInfo.setConfidence(confidenceCount > 0
+                ? confidenceTotal / confidenceCount
+                : TextInfo.UNKNOWN_CONFIDENCE);
         for (int i = 1; i < textInfos.size(); i++) {
             textInfo.setText(textInfo.getText() + textInfos.get(i).getText());
             Rectangle leftBBox = textInfo.getBboxRect();
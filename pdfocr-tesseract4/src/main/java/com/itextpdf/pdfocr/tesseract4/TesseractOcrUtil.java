@@ -25,13 +25,14 @@ package com.itextpdf.pdfocr.tesseract4;
 import com.itextpdf.io.image.ImageData;
 import com.itextpdf.io.image.ImageDataFactory;
 import com.itextpdf.io.util.MessageFormatUtil;
+import com.itextpdf.pdfocr.ImageProbe;
+import com.itextpdf.pdfocr.ParallelPngEncoder;
 
 import com.ochafik.lang.jnaerator.runtime.NativeSize;
 import com.ochafik.lang.jnaerator.runtime.NativeSizeByReference;
 import com.sun.jna.ptr.PointerByReference;
 import java.awt.image.BufferedImage;
 import java.io.ByteArrayInputStream;
-import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.IOException;
@@ -49,8 +50,6 @@ import net.sourceforge.lept4j.ILeptonica;
 import net.sourceforge.lept4j.Leptonica;
 import net.sourceforge.lept4j.Pix;
 import net.sourceforge.tess4j.ITesseract;
-import net.sourceforge.tess4j.Tesseract;
-import net.sourceforge.tess4j.Tesseract1;
 import net.sourceforge.tess4j.TesseractException;
 import org.apache.commons.imaging.ImageReadException;
 import org.apache.commons.imaging.Imaging;
@@ -73,6 +72,18 @@ class TesseractOcrUtil {
     private static final Logger LOGGER = LoggerFactory
             .getLogger(TesseractOcrUtil.class);
 
+    /**
+     * {@link ParallelPngEncoder} used to encode intermediate images passed
+     * to tesseract. It is never reconfigured, so it may be shared.
+     */
+    private static final ParallelPngEncoder PNG_ENCODER =
+            new ParallelPngEncoder(Runtime.getRuntime().availableProcessors());
+
+    /**
+     * Prefix of the directories created for temporary files of OCR jobs.
+     */
+    private static final String TEMP_DIRECTORY_PREFIX = "pdfocr";
+
 
     /**
      * Rotation constants.
@@ -86,6 +97,13 @@ class TesseractOcrUtil {
     private static final int EXIF_ROTATION_180 = 3;
     private static final int EXIF_ROTATION_270 = 8;
 
+    /**
+     * OCR Engine Mode constants: legacy engine only and default
+     * (based on what is available).
+     */
+    static final int OEM_TESSERACT_ONLY = 0;
+    static final int OEM_DEFAULT = 3;
+
 
     /**
      * List of pages of the image that is being processed.
@@ -278,7 +296,21 @@ class TesseractOcrUtil {
         if (pageSegMode != null) {
             tesseractInstance.setPageSegMode(pageSegMode);
         }
-        tesseractInstance.setOcrEngineMode(userWordsFilePath != null ? 0 : 3);
+        tesseractInstance.setOcrEngineMode(
+                getOcrEngineMode(userWordsFilePath));
+    }
+
+    /**
+     * Gets OCR Engine Mode used by tesseract. User words are supported
+     * only by the legacy engine, so it's used if user words are provided,
+     * otherwise the default mode (based on what is available) is used.
+     *
+     * @param userWordsFilePath path to a file with user words, may be null
+     * @return OCR Engine Mode
+     */
+    static int getOcrEngineMode(final String userWordsFilePath) {
+        return userWordsFilePath != null && !userWordsFilePath.isEmpty()
+                ? OEM_TESSERACT_ONLY : OEM_DEFAULT;
     }
 
     /**
@@ -306,9 +338,9 @@ class TesseractOcrUtil {
             final String userWordsFilePath) {
         try {
             if (isWindows) {
-                return new Tesseract1();
+                return new MonitoredTesseract1();
             } else {
-                return new Tesseract();
+                return new MonitoredTesseract();
             }
         } catch (LinkageError e) {
             throw new Tesseract4OcrException(isWindows ?
@@ -351,19 +383,10 @@ class TesseractOcrUtil {
     static BufferedImage convertPixToImage(final Pix pix)
             throws IOException {
         if (pix != null) {
-            Leptonica instance = Leptonica.INSTANCE;
             BufferedImage bi = null;
-            PointerByReference pdata = new PointerByReference();
-            try {
-                NativeSizeByReference psize = new NativeSizeByReference();
-                instance.pixWriteMem(pdata, psize, pix, ILeptonica.IFF_PNG);
-                byte[] b = pdata.getValue().getByteArray(0,
-                        psize.getValue().intValue());
-                try (InputStream in = new ByteArrayInputStream(b)) {
-                    bi = ImageIO.read(in);
-                }
-            } finally {
-                instance.lept_free(pdata.getValue());
+            try (InputStream in = new ByteArrayInputStream(
+                    convertPixToPngBytes(pix))) {
+                bi = ImageIO.read(in);
             }
             return bi;
         } else {
@@ -371,6 +394,27 @@ class TesseractOcrUtil {
         }
     }
 
+    /**
+     * Encodes Leptonica {@link net.sourceforge.lept4j.Pix} to
+     * {@link net.sourceforge.lept4j.ILeptonica#IFF_PNG} image format
+     * in memory.
+     *
+     * @param pix input {@link net.sourceforge.lept4j.Pix} object
+     * @return PNG encoded image as byte array
+     */
+    static byte[] convertPixToPngBytes(final Pix pix) {
+        Leptonica instance = Leptonica.INSTANCE;
+        PointerByReference pdata = new PointerByReference();
+        try {
+            NativeSizeByReference psize = new NativeSizeByReference();
+            instance.pixWriteMem(pdata, psize, pix, ILeptonica.IFF_PNG);
+            return pdata.getValue().getByteArray(0,
+                    psize.getValue().intValue());
+        } finally {
+            instance.lept_free(pdata.getValue());
+        }
+    }
+
     /**
      * Gets path to temp file in current system temporary directory.
      *
@@ -421,6 +465,40 @@ class TesseractOcrUtil {
         return img;
     }
 
+    /**
+     * Reads the page of the input image in the same way as it is seen by
+     * tesseract, so coordinates of the recognized text correspond to the
+     * pixels of the returned image.
+     *
+     * @param inputFile input image
+     * @param page requested image page (starting from 0)
+     * @param applyRotation if true, rotation from image metadata is applied
+     *                      to non-TIFF images as it is done on preprocessing
+     * @return requested image page as a {@link java.awt.image.BufferedImage}
+     * or null if it cannot be read
+     */
+    static BufferedImage readImagePage(final File inputFile, final int page,
+            final boolean applyRotation) {
+        if (ImagePreprocessingUtil.isTiffImage(inputFile)) {
+            return getImagePage(inputFile, page);
+        }
+        if (applyRotation) {
+            Pix pix = readPix(inputFile);
+            if (pix != null) {
+                try {
+                    return convertPixToImage(pix);
+                } catch (IOException e) {
+                    LOGGER.info(MessageFormatUtil.format(
+                            Tesseract4LogMessageConstant.CANNOT_READ_INPUT_IMAGE,
+                            e.getMessage()));
+                } finally {
+                    destroyPix(pix);
+                }
+            }
+        }
+        return ImagePreprocessingUtil.readImage(inputFile);
+    }
+
     /**
      * Saves passed {@link java.awt.image.BufferedImage} to given path
      *
@@ -432,7 +510,8 @@ class TesseractOcrUtil {
             final BufferedImage image) {
         if (image != null) {
             try {
-                ImageIO.write(image, "png", new File(tmpFileName));
+                Files.write(Paths.get(tmpFileName),
+                        PNG_ENCODER.encode(image));
             } catch (Exception e) { // NOSONAR
                 LOGGER.error(MessageFormatUtil.format(
                         Tesseract4LogMessageConstant.CANNOT_PROCESS_IMAGE,
@@ -475,6 +554,76 @@ class TesseractOcrUtil {
                 StandardCopyOption.REPLACE_EXISTING);
     }
 
+    /**
+     * Creates a new directory for the temporary files of a single OCR job
+     * in the system temporary directory. The directory is accessible only
+     * by its owner (where the file system supports it), so files created
+     * in it cannot be replaced or redirected by other users of the shared
+     * temporary directory.
+     *
+     * @return created directory
+     * @throws IOException if the directory cannot be created
+     */
+    static File createTempDirectory() throws IOException {
+        return Files.createTempDirectory(TEMP_DIRECTORY_PREFIX).toFile();
+    }
+
+    /**
+     * Deletes directory created by {@link #createTempDirectory()} together
+     * with the files in it.
+     *
+     * @param directory directory to be deleted, null is ignored
+     */
+    static void deleteTempDirectory(final File directory) {
+        if (directory == null) {
+            return;
+        }
+        final File[] files = directory.listFiles();
+        if (files != null) {
+            for (File file : files) {
+                TesseractHelper.deleteFile(file.getAbsolutePath());
+            }
+        }
+        TesseractHelper.deleteFile(directory.getAbsolutePath());
+    }
+
+    /**
+     * Creates temporary link to the input file to avoid issue with tesseract
+     * and different encodings in the path without copying image bytes.
+     * Hard link is created if possible, otherwise symbolic link and if none
+     * of them is supported by the file system the file is copied.
+     * Destination should be placed in a directory created by
+     * {@link #createTempDirectory()}.
+     *
+     * @param src path to the source image
+     * @param dst destination path
+     */
+    static void createTempFileLink(final String src, final String dst)
+            throws IOException {
+        final Path source = Paths.get(src).toAbsolutePath();
+        final Path destination = Paths.get(dst);
+        Files.deleteIfExists(destination);
+        try {
+            Files.createLink(destination, source);
+            return;
+        } catch (IOException | UnsupportedOperationException
+                | SecurityException e) {
+            LOGGER.debug(MessageFormatUtil.format(
+                    Tesseract4LogMessageConstant.CANNOT_LINK_FILE,
+                    src, e.getMessage()));
+        }
+        try {
+            Files.createSymbolicLink(destination, source);
+            return;
+        } catch (IOException | UnsupportedOperationException
+                | SecurityException e) {
+            LOGGER.debug(MessageFormatUtil.format(
+                    Tesseract4LogMessageConstant.CANNOT_LINK_FILE,
+                    src, e.getMessage()));
+        }
+        createTempFileCopy(src, dst);
+    }
+
     /**
      * Returns parent directory for the passed path.
      *
@@ -508,6 +657,28 @@ class TesseractOcrUtil {
         }
     }
 
+    /**
+     * Retrieves list of pages from bytes of provided image which were
+     * already read as list of {@link java.awt.image.BufferedImage}, one per
+     * page and updates this list for the image using {@link #setListOfPages}
+     * method.
+     *
+     * @param imageBytes bytes of the input image
+     * @param inputFile input image {@link java.io.File}
+     */
+    void initializeImagesListFromTiff(final byte[] imageBytes,
+            final File inputFile) {
+        try {
+            setListOfPages(Imaging.getAllBufferedImages(imageBytes));
+        } catch (Exception e) { // NOSONAR
+            LOGGER.error(MessageFormatUtil.format(
+                    Tesseract4LogMessageConstant
+                            .CANNOT_RETRIEVE_PAGES_FROM_IMAGE,
+                    inputFile.getAbsolutePath(),
+                    e.getMessage()));
+        }
+    }
+
     /**
      * Gets list of page of processing image as list of
      * {@link java.awt.image.BufferedImage}, one per page.
@@ -614,9 +785,7 @@ class TesseractOcrUtil {
      */
     static Pix readPix(final BufferedImage image) {
         try {
-            ByteArrayOutputStream baos = new ByteArrayOutputStream();
-            ImageIO.write(image, "png", baos);
-            return readPix(baos.toByteArray());
+            return readPix(PNG_ENCODER.encode(image));
         } catch (IOException e) {
             LOGGER.error(MessageFormatUtil.format(
                     Tesseract4LogMessageConstant.CANNOT_READ_INPUT_IMAGE,
@@ -634,7 +803,11 @@ class TesseractOcrUtil {
      */
     static Pix readPix(final File inputFile) {
         try {
-            return readPix(Files.readAllBytes(inputFile.toPath()));
+            Pix pix = readPixFromMemory(
+                    Files.readAllBytes(inputFile.toPath()));
+            // rotation is taken from the cached probe of the file, so
+            // metadata isn't parsed from the whole image again
+            return pix == null ? null : rotate(pix, detectRotation(inputFile));
         } catch (IOException e) {
             LOGGER.error(MessageFormatUtil.format(
                     Tesseract4LogMessageConstant.CANNOT_READ_INPUT_IMAGE,
@@ -651,21 +824,33 @@ class TesseractOcrUtil {
      * @return Pix result {@link net.sourceforge.lept4j.Pix}
      */
     static Pix readPix(final byte[] imageBytes) {
-        Pix pix = null;
+        Pix pix = readPixFromMemory(imageBytes);
+        if (pix != null) {
+            int rotation = detectRotation(imageBytes);
+            pix = rotate(pix, rotation);
+        }
+        return pix;
+    }
+
+    /**
+     * Read {@link net.sourceforge.lept4j.Pix} from byte array without
+     * applying rotation.
+     *
+     * @param imageBytes to read from
+     * @return Pix result {@link net.sourceforge.lept4j.Pix} or null if it
+     * cannot be read
+     */
+    private static Pix readPixFromMemory(final byte[] imageBytes) {
         try {
             ByteBuffer bb = ByteBuffer.wrap(imageBytes);
             NativeSize size = new NativeSize(imageBytes.length);
-            pix = Leptonica.INSTANCE.pixReadMem(bb, size);
+            return Leptonica.INSTANCE.pixReadMem(bb, size);
         } catch (Exception e) {
             LOGGER.error(MessageFormatUtil.format(
                     Tesseract4LogMessageConstant.CANNOT_READ_INPUT_IMAGE,
                     e.getMessage()));
+            return null;
         }
-        if (pix != null) {
-            int rotation = detectRotation(imageBytes);
-            pix = rotate(pix, rotation);
-        }
-        return pix;
     }
 
     /**
@@ -676,7 +861,8 @@ class TesseractOcrUtil {
      */
     static int detectRotation(final File file) {
         try {
-            return detectRotation(Files.readAllBytes(file.toPath()));
+            return getRotationFromOrientation(
+                    ImageProbe.forFile(file).getOrientation());
         } catch (Exception e) {
             LOGGER.error(MessageFormatUtil.format(
                     Tesseract4LogMessageConstant.CANNOT_READ_INPUT_IMAGE,
@@ -735,26 +921,35 @@ class TesseractOcrUtil {
             if (item instanceof TiffImageMetadata.TiffMetadataItem &&
                     "Orientation".equals(((TiffImageMetadata.TiffMetadataItem) item).getKeyword())) {
                 int orientation = Integer.parseInt(((TiffImageMetadata.TiffMetadataItem) item).getText());
-                switch (orientation) {
-                    case EXIF_ROTATION_0:
-                        return ROTATION_0;
-                    case EXIF_ROTATION_90:
-                        return ROTATION_90;
-                    case EXIF_ROTATION_180:
-                        return ROTATION_180;
-                    case EXIF_ROTATION_270:
-                        return ROTATION_270;
-                    default:
-                        LOGGER.warn(MessageFormatUtil.format(
-                                Tesseract4LogMessageConstant.UNSUPPORTED_EXIF_ORIENTATION_VALUE,
-                                orientation));
-                        return ROTATION_0;
-                }
+                return getRotationFromOrientation(orientation);
             }
         }
         return ROTATION_0;
     }
 
+    /**
+     * Converts EXIF orientation to rotation.
+     * @param orientation EXIF orientation
+     * @return rotation
+     */
+    static int getRotationFromOrientation(final int orientation) {
+        switch (orientation) {
+            case EXIF_ROTATION_0:
+                return ROTATION_0;
+            case EXIF_ROTATION_90:
+                return ROTATION_90;
+            case EXIF_ROTATION_180:
+                return ROTATION_180;
+            case EXIF_ROTATION_270:
+                return ROTATION_270;
+            default:
+                LOGGER.warn(MessageFormatUtil.format(
+                        Tesseract4LogMessageConstant.UNSUPPORTED_EXIF_ORIENTATION_VALUE,
+                        orientation));
+                return ROTATION_0;
+        }
+    }
+
     /**
      * Rotates image by specified angle.
      *
@@ -780,10 +975,18 @@ class TesseractOcrUtil {
      * Detects and applies rotation to image.
      *
      * @param imageData source image to rotate if needed
-     * @return rotated image, if rotation differs from 0
+     * @return rotated image, if rotation differs from 0, otherwise
+     * the original image which isn't encoded again
      */
     static ImageData applyRotation(final ImageData imageData) {
-        Pix pix = readPix(imageData.getData());
+        final int rotation = detectRotation(imageData);
+        if (rotation == ROTATION_0) {
+            return imageData;
+        }
+        Pix pix = readPixFromMemory(imageData.getData());
+        if (pix != null) {
+            pix = rotate(pix, rotation);
+        }
         if (pix == null) {
             return imageData;
         } else {
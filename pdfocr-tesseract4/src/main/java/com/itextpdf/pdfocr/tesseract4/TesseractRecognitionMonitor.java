@@ -0,0 +1,139 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr.tesseract4;
+
+import com.sun.jna.Pointer;
+import java.util.concurrent.TimeUnit;
+import net.sourceforge.tess4j.ITessAPI;
+
+/**
+ * Monitor of tesseract recognition which stops it once the deadline expires
+ * or {@link Tesseract4OcrCancellationToken} is cancelled.
+ *
+ * Both conditions are checked by the cancel callback of
+ * {@link net.sourceforge.tess4j.ITessAPI.ETEXT_DESC} which tesseract calls
+ * for each recognized word. Native deadline of the descriptor isn't used:
+ * fields following the callback are laid out differently in tess4j and
+ * in tesseract 4, so they are left zeroed.
+ */
+final class TesseractRecognitionMonitor {
+
+    /**
+     * Timeout in milliseconds, 0 means no timeout.
+     */
+    private final long timeout;
+
+    /**
+     * Deadline in terms of {@link System#nanoTime()}.
+     */
+    private final long deadline;
+
+    /**
+     * Cancellation token, may be null.
+     */
+    private final Tesseract4OcrCancellationToken cancellationToken;
+
+    /**
+     * Monitor passed to tesseract.
+     */
+    private final ITessAPI.ETEXT_DESC descriptor;
+
+    /**
+     * Callback referenced by the descriptor. It's kept in a field so that
+     * it isn't garbage collected while tesseract may call it.
+     */
+    private final ITessAPI.CANCEL_FUNC cancelFunction;
+
+    /**
+     * Indicates if recognition was stopped because the deadline expired.
+     */
+    private volatile boolean deadlineExceeded = false;
+
+    /**
+     * Indicates if recognition was stopped because of cancellation.
+     */
+    private volatile boolean cancelled = false;
+
+    /**
+     * Creates a new {@link TesseractRecognitionMonitor} instance.
+     *
+     * @param timeout timeout in milliseconds, 0 means no timeout
+     * @param cancellationToken cancellation token, may be null
+     */
+    TesseractRecognitionMonitor(final long timeout,
+            final Tesseract4OcrCancellationToken cancellationToken) {
+        this.timeout = timeout;
+        this.deadline = System.nanoTime()
+                + TimeUnit.MILLISECONDS.toNanos(timeout);
+        this.cancellationToken = cancellationToken;
+        this.cancelFunction = new ITessAPI.CANCEL_FUNC() {
+            @Override
+            public boolean invoke(final Pointer cancelThis, final int words) {
+                return isStopRequested();
+            }
+        };
+        this.descriptor = new ITessAPI.ETEXT_DESC();
+        this.descriptor.cancel = cancelFunction;
+    }
+
+    /**
+     * Gets monitor to be passed to tesseract.
+     *
+     * @return {@link net.sourceforge.tess4j.ITessAPI.ETEXT_DESC} instance
+     */
+    ITessAPI.ETEXT_DESC getDescriptor() {
+        return descriptor;
+    }
+
+    /**
+     * Checks if recognition needs to be stopped.
+     *
+     * @return true if the token is cancelled or the deadline expired
+     */
+    boolean isStopRequested() {
+        if (cancellationToken != null && cancellationToken.isCancelled()) {
+            cancelled = true;
+        } else if (timeout > 0 && System.nanoTime() - deadline >= 0) {
+            deadlineExceeded = true;
+        }
+        return cancelled || deadlineExceeded;
+    }
+
+    /**
+     * Throws an exception if recognition was stopped by this monitor.
+     *
+     * @throws Tesseract4OcrCancelledException if recognition was cancelled
+     * @throws Tesseract4OcrTimeoutException if the deadline expired
+     */
+    void checkStopped() {
+        if (cancelled) {
+            throw new Tesseract4OcrCancelledException(
+                    Tesseract4OcrException.OCR_CANCELLED);
+        }
+        if (deadlineExceeded) {
+            throw new Tesseract4OcrTimeoutException(
+                    Tesseract4OcrException.PAGE_OCR_TIMEOUT, false)
+                    .setMessageParams(String.valueOf(timeout));
+        }
+    }
+}
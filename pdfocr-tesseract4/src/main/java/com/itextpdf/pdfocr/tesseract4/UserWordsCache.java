@@ -0,0 +1,260 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr.tesseract4;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+/**
+ * Registry of user words files.
+ *
+ * Each list of user words is stored once in the cache directory under
+ * a name derived from the language and the hash of its content, so the
+ * same list provided again (for another engine, page or document) reuses
+ * the existing file instead of writing and deleting a temporary one.
+ *
+ * At most {@link #MAX_REGISTERED_FILES} files are kept: once the limit is
+ * exceeded, the least recently registered files are removed. Files which
+ * are acquired by running OCR are never removed, they are evicted only
+ * once they are released, so the cache may temporarily exceed the limit.
+ */
+final class UserWordsCache {
+
+    /**
+     * Maximum number of user words files kept in cache directories.
+     */
+    static final int MAX_REGISTERED_FILES = 64;
+
+    /**
+     * Name of the default cache directory inside the system temporary
+     * directory.
+     */
+    private static final String CACHE_DIRECTORY_NAME = "pdfocr-user-words";
+
+    /**
+     * Number of OCR runs using each registered user words file by their
+     * absolute paths in access order.
+     */
+    private static final Map<String, Integer> REGISTERED_FILES =
+            new LinkedHashMap<String, Integer>(16, 0.75f, true);
+
+    /**
+     * Creates new instance of {@link UserWordsCache}.
+     */
+    private UserWordsCache() {
+    }
+
+    /**
+     * Gets directory where user words files are stored if no other
+     * directory is set in {@link Tesseract4OcrEngineProperties}.
+     *
+     * @return default cache directory
+     */
+    static File getDefaultCacheDirectory() {
+        return new File(System.getProperty("java.io.tmpdir"),
+                CACHE_DIRECTORY_NAME);
+    }
+
+    /**
+     * Registers user words for the given language in the given directory.
+     * File is written only if the same content hasn't been registered yet.
+     *
+     * @param directory cache directory
+     * @param language language as {@link java.lang.String}
+     * @param content user words as returned by {@link #readUserWords}
+     * @return path to the user words file
+     * @throws IOException if user words cannot be written
+     */
+    static String register(final File directory, final String language,
+            final byte[] content) throws IOException {
+        return register(directory, language, content, 0);
+    }
+
+    /**
+     * Registers user words for the given language in the given directory
+     * and marks the file as used until {@link #release(String)} is called,
+     * so that it isn't removed while tesseract reads it. File is written
+     * again if it was removed since it was registered.
+     *
+     * @param directory cache directory
+     * @param language language as {@link java.lang.String}
+     * @param content user words as returned by {@link #readUserWords}
+     * @return path to the user words file
+     * @throws IOException if user words cannot be written
+     */
+    static String acquire(final File directory, final String language,
+            final byte[] content) throws IOException {
+        return register(directory, language, content, 1);
+    }
+
+    /**
+     * Releases the user words file acquired by
+     * {@link #acquire(File, String, byte[])}. Released file may be removed
+     * if the cache exceeds its limit.
+     *
+     * @param path path to the user words file, null is ignored
+     */
+    static void release(final String path) {
+        if (path == null) {
+            return;
+        }
+        synchronized (REGISTERED_FILES) {
+            final Integer users = REGISTERED_FILES.get(path);
+            if (users != null && users.intValue() > 0) {
+                REGISTERED_FILES.put(path, Integer.valueOf(users.intValue() - 1));
+            }
+            evictUnusedFiles();
+        }
+    }
+
+    /**
+     * Registers user words and adds users of the file.
+     *
+     * @param directory cache directory
+     * @param language language as {@link java.lang.String}
+     * @param content user words as returned by {@link #readUserWords}
+     * @param newUsers number of users to add
+     * @return path to the user words file
+     * @throws IOException if user words cannot be written
+     */
+    private static String register(final File directory, final String language,
+            final byte[] content, final int newUsers) throws IOException {
+        final String key = language + "." + getHash(content);
+        final File userWordsFile = new File(directory, key + "."
+                + Tesseract4OcrEngineProperties.DEFAULT_USER_WORDS_SUFFIX)
+                .getAbsoluteFile();
+        synchronized (REGISTERED_FILES) {
+            final Integer users = REGISTERED_FILES.get(userWordsFile.getPath());
+            if (users == null || !userWordsFile.exists()) {
+                writeUserWords(directory, key, userWordsFile, content);
+            }
+            REGISTERED_FILES.put(userWordsFile.getPath(), Integer.valueOf(
+                    (users == null ? 0 : users.intValue()) + newUsers));
+            evictUnusedFiles();
+        }
+        return userWordsFile.getPath();
+    }
+
+    /**
+     * Removes the least recently registered files which aren't used while
+     * the number of registered files exceeds the limit.
+     * Has to be called holding the lock of {@link #REGISTERED_FILES}.
+     */
+    private static void evictUnusedFiles() {
+        int excess = REGISTERED_FILES.size() - MAX_REGISTERED_FILES;
+        final Iterator<Map.Entry<String, Integer>> iterator =
+                REGISTERED_FILES.entrySet().iterator();
+        while (excess > 0 && iterator.hasNext()) {
+            final Map.Entry<String, Integer> entry = iterator.next();
+            if (entry.getValue().intValue() == 0) {
+                TesseractHelper.deleteFile(entry.getKey());
+                iterator.remove();
+                excess--;
+            }
+        }
+    }
+
+    /**
+     * Reads user words and appends a new line character to them.
+     *
+     * @param inputStream custom user words as {@link java.io.InputStream}
+     * @return UTF-8 encoded user words
+     * @throws IOException if user words cannot be read
+     */
+    static byte[] readUserWords(final InputStream inputStream)
+            throws IOException {
+        final StringBuilder userWords = new StringBuilder();
+        final Reader reader = new InputStreamReader(inputStream,
+                StandardCharsets.UTF_8);
+        final char[] buffer = new char[4096];
+        int read;
+        while ((read = reader.read(buffer)) != -1) {
+            userWords.append(buffer, 0, read);
+        }
+        userWords.append(System.lineSeparator());
+        return userWords.toString().getBytes(StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Writes user words file unless the file with the same content
+     * already exists (e.g. it was written by another process).
+     *
+     * @param directory cache directory
+     * @param key key of the user words
+     * @param userWordsFile user words file
+     * @param content user words
+     * @throws IOException if user words cannot be written
+     */
+    private static void writeUserWords(final File directory, final String key,
+            final File userWordsFile, final byte[] content)
+            throws IOException {
+        if (userWordsFile.exists()
+                && userWordsFile.length() == content.length) {
+            return;
+        }
+        Files.createDirectories(directory.toPath());
+        // file is written aside and moved so that other engines
+        // never see a partially written file
+        final File tempFile = File.createTempFile(key, ".tmp", directory);
+        try {
+            Files.write(tempFile.toPath(), content);
+            Files.move(tempFile.toPath(), userWordsFile.toPath(),
+                    StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+        } finally {
+            Files.deleteIfExists(tempFile.toPath());
+        }
+    }
+
+    /**
+     * Gets hex encoded SHA-256 hash of the content.
+     *
+     * @param content content to be hashed
+     * @return hash as {@link java.lang.String}
+     */
+    private static String getHash(final byte[] content) {
+        try {
+            final byte[] hash = MessageDigest.getInstance("SHA-256")
+                    .digest(content);
+            final StringBuilder hex = new StringBuilder();
+            for (byte b : hash) {
+                hex.append(String.format("%02x", b & 0xff));
+            }
+            return hex.toString();
+        } catch (NoSuchAlgorithmException e) {
+            // every java platform is required to support SHA-256
+            throw new IllegalStateException(e);
+        }
+    }
+}
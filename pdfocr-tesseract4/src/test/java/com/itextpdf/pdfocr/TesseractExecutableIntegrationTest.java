@@ -22,15 +22,19 @@
  */
 package com.itextpdf.pdfocr;
 
+import com.itextpdf.io.util.MessageFormatUtil;
 import com.itextpdf.pdfocr.tesseract4.Tesseract4ExecutableOcrEngine;
 import com.itextpdf.pdfocr.tesseract4.Tesseract4LogMessageConstant;
 import com.itextpdf.pdfocr.tesseract4.Tesseract4OcrEngineProperties;
 import com.itextpdf.pdfocr.tesseract4.Tesseract4OcrException;
+import com.itextpdf.pdfocr.tesseract4.Tesseract4OcrMetrics;
+import com.itextpdf.pdfocr.tesseract4.Tesseract4OcrTimeoutException;
 import com.itextpdf.test.annotations.LogMessage;
 import com.itextpdf.test.annotations.LogMessages;
 import com.itextpdf.test.annotations.type.IntegrationTest;
 
 import java.io.File;
+import org.junit.Assert;
 import org.junit.Rule;
 import org.junit.Test;
 import org.junit.experimental.categories.Category;
@@ -83,4 +87,48 @@ public class TesseractExecutableIntegrationTest extends IntegrationTestHelper {
         File file = new File(TEST_IMAGES_DIRECTORY + "spanish_01.jpg");
         getTextFromPdf(new Tesseract4ExecutableOcrEngine("path\\to\\executable\\", new Tesseract4OcrEngineProperties()), file);
     }
+
+    @Test
+    public void testStreamingResultsAreSameAsFileResults() {
+        File file = new File(TEST_IMAGES_DIRECTORY + "numbers_01.jpg");
+        Tesseract4OcrEngineProperties properties = new Tesseract4OcrEngineProperties();
+        properties.setPathToTessData(getTessDataDirectory());
+        Tesseract4ExecutableOcrEngine tesseractExecutableReader =
+                new Tesseract4ExecutableOcrEngine(properties);
+        String expected = getTextFromPdf(tesseractExecutableReader, file);
+
+        tesseractExecutableReader.setStreamingResults(true);
+        Assert.assertEquals(expected, getTextFromPdf(tesseractExecutableReader, file));
+    }
+
+    @LogMessages(messages = {
+        @LogMessage(messageTemplate =
+                Tesseract4LogMessageConstant.TESSERACT_PROCESS_KILLED, count = 1),
+        @LogMessage(messageTemplate =
+                Tesseract4OcrException.PAGE_OCR_TIMEOUT, count = 1)
+    })
+    @Test
+    public void testTesseractIsKilledOnPageTimeout() {
+        File file = new File(TEST_IMAGES_DIRECTORY + "numbers_01.jpg");
+        Tesseract4OcrEngineProperties properties = new Tesseract4OcrEngineProperties();
+        properties.setPathToTessData(getTessDataDirectory());
+        properties.setPageTimeout(1);
+        long killedProcesses = Tesseract4OcrMetrics.getInstance()
+                .getKilledProcesses();
+        Tesseract4OcrTimeoutException exception = null;
+        try {
+            getTextFromPdf(new Tesseract4ExecutableOcrEngine(properties), file);
+        } catch (Tesseract4OcrTimeoutException e) {
+            exception = e;
+        }
+
+        Assert.assertNotNull(exception);
+        Assert.assertFalse(exception.isDocumentTimeout());
+        Assert.assertEquals(MessageFormatUtil.format(
+                Tesseract4OcrException.PAGE_OCR_TIMEOUT, 1),
+                exception.getMessage());
+        // killed process is counted only once it has exited
+        Assert.assertEquals(killedProcesses + 1,
+                Tesseract4OcrMetrics.getInstance().getKilledProcesses());
+    }
 }
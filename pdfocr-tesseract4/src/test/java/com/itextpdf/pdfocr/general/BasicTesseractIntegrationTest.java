@@ -38,6 +38,9 @@ import com.itextpdf.pdfocr.OcrPdfCreatorProperties;
 import com.itextpdf.pdfocr.TextInfo;
 import com.itextpdf.pdfocr.tesseract4.AbstractTesseract4OcrEngine;
 import com.itextpdf.pdfocr.tesseract4.OutputFormat;
+import com.itextpdf.pdfocr.tesseract4.Tesseract4CascadeOcrEngine;
+import com.itextpdf.pdfocr.tesseract4.Tesseract4ExecutableOcrEngine;
+import com.itextpdf.pdfocr.tesseract4.Tesseract4LibOcrEngine;
 import com.itextpdf.pdfocr.tesseract4.Tesseract4LogMessageConstant;
 import com.itextpdf.pdfocr.tesseract4.Tesseract4OcrEngineProperties;
 import com.itextpdf.pdfocr.tesseract4.Tesseract4OcrException;
@@ -125,6 +128,32 @@ public abstract class BasicTesseractIntegrationTest extends IntegrationTestHelpe
                 realOutputHocr.equals(expectedOutput2));
     }
 
+    @Test
+    public void testNoisyImageWithCascadeEngine() {
+        String path = TEST_IMAGES_DIRECTORY + "tèst/noisy_01.png";
+        String expectedOutput1 = "Noisyimage to test Tesseract OCR";
+        String expectedOutput2 = "Noisy image to test Tesseract OCR";
+
+        Tesseract4OcrEngineProperties properties =
+                new Tesseract4OcrEngineProperties(
+                        tesseractReader.getTesseract4OcrEngineProperties());
+        AbstractTesseract4OcrEngine accurateReader =
+                tesseractReader instanceof Tesseract4LibOcrEngine
+                        ? (AbstractTesseract4OcrEngine) new Tesseract4LibOcrEngine(properties)
+                        : new Tesseract4ExecutableOcrEngine(properties);
+        // threshold of 100 makes all text chunks to be recognized twice
+        Tesseract4CascadeOcrEngine cascadeReader =
+                new Tesseract4CascadeOcrEngine(tesseractReader, accurateReader, 100);
+
+        Map<Integer, List<TextInfo>> data = cascadeReader.doImageOcr(new File(path));
+        for (TextInfo textInfo : data.get(1)) {
+            Assert.assertTrue(textInfo.getConfidence() >= 0);
+        }
+        String realOutputHocr = getTextFromPage(data.get(1));
+        Assert.assertTrue(realOutputHocr.equals(expectedOutput1) ||
+                realOutputHocr.equals(expectedOutput2));
+    }
+
     @Test
     public void testPantoneImage() {
         String filePath = TEST_IMAGES_DIRECTORY + "pantone_blue.jpg";
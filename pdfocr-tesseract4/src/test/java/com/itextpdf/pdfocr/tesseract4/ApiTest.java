@@ -32,7 +32,10 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import org.junit.Assert;
@@ -149,4 +152,102 @@ public class ApiTest extends IntegrationTestHelper {
         Assert.assertEquals(136.0f, (float)textInfo.getBbox().get(3), 0.1);
     }
 
+    @Test
+    public void testLanguageRoutingScoresWordLanguages() throws IOException {
+        File hocrFile = new File(TEST_DOCUMENTS_DIRECTORY + "word_languages.hocr");
+        Map<String, List<TextInfo>> words = TesseractHelper.parseWordLanguages(hocrFile);
+
+        Assert.assertEquals(Arrays.<String>asList("deu", "spa", "chi_sim"),
+                new ArrayList<String>(words.keySet()));
+        Assert.assertEquals(7, words.get("deu").size());
+        Assert.assertEquals("el", words.get("spa").get(0).getText());
+
+        Map<String, Float> scores = Tesseract4LanguageRoutingOcrEngine.scoreLanguages(words);
+        Assert.assertEquals(91f, scores.get("deu"), 0.01f);
+        Assert.assertEquals(TextInfo.UNKNOWN_CONFIDENCE, scores.get("spa"), 0);
+        Assert.assertEquals(32.14f, scores.get("chi_sim"), 0.01f);
+
+        Tesseract4LanguageRoutingOcrEngine engine = new Tesseract4LanguageRoutingOcrEngine(
+                new Tesseract4ExecutableOcrEngine(new Tesseract4OcrEngineProperties()));
+        Assert.assertEquals(Collections.<String>singletonList("deu"),
+                engine.selectLanguages(Arrays.<String>asList("spa", "chi_sim", "deu", "tha"), scores));
+    }
+
+    @Test
+    public void testLanguageRoutingDetectsPageLanguages() {
+        Tesseract4OcrEngineProperties properties = new Tesseract4OcrEngineProperties()
+                .setPathToTessData(getTessDataDirectory());
+        properties.setLanguages(Arrays.<String>asList("chi_sim", "deu", "tha"));
+        Tesseract4LanguageRoutingOcrEngine engine = new Tesseract4LanguageRoutingOcrEngine(
+                new Tesseract4ExecutableOcrEngine(properties));
+        File imgFile = new File(TEST_IMAGES_DIRECTORY + "german_01.jpg");
+
+        Assert.assertEquals(Collections.<String>singletonList("deu"),
+                engine.detectPageLanguages(imgFile, 1, properties.getLanguages()));
+    }
+
+    @Test
+    public void testLanguageRoutingSelectsLanguages() {
+        Tesseract4LanguageRoutingOcrEngine engine = new Tesseract4LanguageRoutingOcrEngine(
+                new Tesseract4ExecutableOcrEngine(new Tesseract4OcrEngineProperties()));
+        List<String> languages = Arrays.<String>asList("eng", "deu", "fra", "spa");
+        Map<String, Float> scores = new HashMap<String, Float>();
+        scores.put("eng", 70f);
+        scores.put("deu", 91f);
+        scores.put("fra", 85f);
+        scores.put("spa", TextInfo.UNKNOWN_CONFIDENCE);
+
+        Assert.assertEquals(Arrays.<String>asList("deu", "fra"),
+                engine.selectLanguages(languages, scores));
+
+        engine.setAdditionalLanguageMargin(5);
+        Assert.assertEquals(Collections.<String>singletonList("deu"),
+                engine.selectLanguages(languages, scores));
+
+        engine.setAdditionalLanguageMargin(100).setMaxLanguagesPerPage(3);
+        Assert.assertEquals(Arrays.<String>asList("deu", "fra", "eng"),
+                engine.selectLanguages(languages, scores));
+
+        scores.put("eng", TextInfo.UNKNOWN_CONFIDENCE);
+        scores.put("deu", TextInfo.UNKNOWN_CONFIDENCE);
+        scores.put("fra", TextInfo.UNKNOWN_CONFIDENCE);
+        Assert.assertTrue(engine.selectLanguages(languages, scores).isEmpty());
+    }
+
+    @Test
+    public void testStreamingAndFileCommandsShareParams() {
+        Tesseract4OcrEngineProperties properties =
+                new Tesseract4OcrEngineProperties()
+                        .setPathToTessData(getTessDataDirectory())
+                        .setUseTxtToImproveHocrParsing(true);
+        properties.setLanguages(Collections.<String>singletonList("eng"));
+        properties.setPathToUserWordsFile(new File(getTargetDirectory(),
+                "eng.user-words").getAbsolutePath());
+        Tesseract4ExecutableOcrEngine engine =
+                new Tesseract4ExecutableOcrEngine(properties);
+        String imagePath = new File(TEST_IMAGES_DIRECTORY, "numbers_01.jpg")
+                .getAbsolutePath();
+
+        List<String> streamParams = engine.createCommandParams("stdin",
+                "stdout", null, OutputFormat.HOCR);
+        List<String> fileParams = engine.createCommandParams(
+                "numbers_01.jpg", "output", imagePath, OutputFormat.HOCR);
+
+        Assert.assertEquals(streamParams.size(), fileParams.size());
+        for (int i = 0; i < streamParams.size(); i++) {
+            String fileParam = fileParams.get(i).replaceAll("^['\"]|['\"]$", "");
+            if ("stdin".equals(streamParams.get(i))) {
+                Assert.assertEquals("numbers_01.jpg", fileParam);
+            } else if ("stdout".equals(streamParams.get(i))) {
+                Assert.assertEquals("output", fileParam);
+            } else {
+                Assert.assertEquals(streamParams.get(i), fileParam);
+            }
+        }
+        Assert.assertTrue(streamParams.contains("--user-words"));
+        Assert.assertTrue(streamParams.contains(
+                String.valueOf(TesseractOcrUtil.OEM_TESSERACT_ONLY)));
+        Assert.assertTrue(streamParams.contains("tessedit_create_hocr=1"));
+        Assert.assertTrue(streamParams.contains("preserve_interword_spaces=1"));
+    }
 }
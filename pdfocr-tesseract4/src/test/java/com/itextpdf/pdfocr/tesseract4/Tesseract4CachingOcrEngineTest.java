@@ -0,0 +1,309 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr.tesseract4;
+
+import com.itextpdf.kernel.geom.Rectangle;
+import com.itextpdf.pdfocr.IOcrEngine;
+import com.itextpdf.pdfocr.IntegrationTestHelper;
+import com.itextpdf.pdfocr.TextInfo;
+
+import java.io.File;
+import java.io.FileFilter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class Tesseract4CachingOcrEngineTest extends IntegrationTestHelper {
+
+    @Test
+    public void testResultIsCachedInMemory() {
+        CountingOcrEngine baseEngine = new CountingOcrEngine();
+        Tesseract4CachingOcrEngine engine = new Tesseract4CachingOcrEngine(baseEngine);
+        File image = new File(TEST_IMAGES_DIRECTORY + "numbers_01.jpg");
+
+        Map<Integer, List<TextInfo>> first = engine.doImageOcr(image);
+        first.get(1).get(0).setText("modified");
+        Map<Integer, List<TextInfo>> second = engine.doImageOcr(image);
+
+        Assert.assertEquals(1, baseEngine.calls);
+        Assert.assertEquals(1, engine.getMisses());
+        Assert.assertEquals(1, engine.getMemoryHits());
+        Assert.assertEquals("numbers_01.jpg", second.get(1).get(0).getText());
+        Assert.assertEquals(new Rectangle(1, 2, 3, 4).toString(),
+                second.get(1).get(0).getBboxRect().toString());
+        Assert.assertEquals(0.5f, second.get(1).get(0).getConfidence(), 0);
+    }
+
+    @Test
+    public void testLeastRecentlyUsedResultIsEvictedFromMemory() {
+        CountingOcrEngine baseEngine = new CountingOcrEngine();
+        Tesseract4CachingOcrEngine engine = new Tesseract4CachingOcrEngine(baseEngine)
+                .setMaxMemoryEntries(1);
+        File image1 = new File(TEST_IMAGES_DIRECTORY + "numbers_01.jpg");
+        File image2 = new File(TEST_IMAGES_DIRECTORY + "spanish_01.jpg");
+
+        engine.doImageOcr(image1);
+        engine.doImageOcr(image2);
+        engine.doImageOcr(image2);
+        engine.doImageOcr(image1);
+
+        Assert.assertEquals(3, baseEngine.calls);
+        Assert.assertEquals(1, engine.getMemoryHits());
+    }
+
+    @Test
+    public void testResultIsCachedOnDisk() {
+        File cacheDirectory = createCacheDirectory();
+        File image = new File(TEST_IMAGES_DIRECTORY + "numbers_01.jpg");
+        CountingOcrEngine baseEngine = new CountingOcrEngine();
+        new Tesseract4CachingOcrEngine(baseEngine)
+                .setCacheDirectory(cacheDirectory)
+                .setCacheNamespace("counting")
+                .doImageOcr(image);
+
+        // new engine doesn't have the result in memory
+        Tesseract4CachingOcrEngine engine = new Tesseract4CachingOcrEngine(baseEngine)
+                .setCacheDirectory(cacheDirectory)
+                .setCacheNamespace("counting");
+        Map<Integer, List<TextInfo>> result = engine.doImageOcr(image);
+
+        Assert.assertEquals(1, baseEngine.calls);
+        Assert.assertEquals(1, engine.getDiskHits());
+        Assert.assertEquals(2, result.get(1).size());
+        Assert.assertEquals("numbers_01.jpg", result.get(1).get(0).getText());
+        Assert.assertEquals(new Rectangle(1, 2, 3, 4).toString(),
+                result.get(1).get(0).getBboxRect().toString());
+        Assert.assertEquals(0.5f, result.get(1).get(0).getConfidence(), 0);
+        Assert.assertNull(result.get(1).get(1).getText());
+        Assert.assertEquals(Arrays.asList(5f, 6f, 7f, 8f),
+                result.get(1).get(1).getBbox());
+    }
+
+    @Test
+    public void testCacheFilesAreEvictedBySize() {
+        File cacheDirectory = createCacheDirectory();
+        CountingOcrEngine baseEngine = new CountingOcrEngine();
+        Tesseract4CachingOcrEngine engine = new Tesseract4CachingOcrEngine(baseEngine)
+                .setCacheDirectory(cacheDirectory)
+                .setCacheNamespace("counting")
+                .setMaxMemoryEntries(0);
+        engine.doImageOcr(new File(TEST_IMAGES_DIRECTORY + "numbers_01.jpg"));
+        File[] files = getCacheFiles(cacheDirectory);
+        Assert.assertEquals(1, files.length);
+
+        engine.setMaxDiskSize(files[0].length());
+        engine.doImageOcr(new File(TEST_IMAGES_DIRECTORY + "spanish_01.jpg"));
+
+        Assert.assertEquals(1, getCacheFiles(cacheDirectory).length);
+        Assert.assertEquals(2, baseEngine.calls);
+    }
+
+    @Test
+    public void testCacheDirectoryIsNotScannedBelowMaxSize() throws IOException {
+        File cacheDirectory = createCacheDirectory();
+        Tesseract4CachingOcrEngine engine = new Tesseract4CachingOcrEngine(
+                new CountingOcrEngine())
+                .setCacheDirectory(cacheDirectory)
+                .setCacheNamespace("counting")
+                .setMaxMemoryEntries(0);
+        engine.doImageOcr(new File(TEST_IMAGES_DIRECTORY + "numbers_01.jpg"));
+        File[] files = getCacheFiles(cacheDirectory);
+        long size = files[0].length();
+        Assert.assertEquals(size, engine.getTrackedDiskSize());
+
+        // deleted file isn't noticed as the size is tracked in memory
+        Files.delete(files[0].toPath());
+        engine.doImageOcr(new File(TEST_IMAGES_DIRECTORY + "spanish_01.jpg"));
+        long trackedSize = size + getCacheFiles(cacheDirectory)[0].length();
+        Assert.assertEquals(trackedSize, engine.getTrackedDiskSize());
+
+        // once the limit is exceeded the directory is scanned again
+        engine.setMaxDiskSize(trackedSize);
+        engine.doImageOcr(new File(TEST_IMAGES_DIRECTORY + "numbers_01.jpg"));
+        long actualSize = 0;
+        for (File file : getCacheFiles(cacheDirectory)) {
+            actualSize += file.length();
+        }
+        Assert.assertEquals(actualSize, engine.getTrackedDiskSize());
+        Assert.assertEquals(2, getCacheFiles(cacheDirectory).length);
+    }
+
+    @Test
+    public void testResultIsNotCachedOnDiskWithoutNamespace() {
+        File cacheDirectory = createCacheDirectory();
+        cacheDirectory.mkdirs();
+        File image = new File(TEST_IMAGES_DIRECTORY + "numbers_01.jpg");
+        CountingOcrEngine baseEngine = new CountingOcrEngine();
+        new Tesseract4CachingOcrEngine(baseEngine)
+                .setCacheDirectory(cacheDirectory)
+                .doImageOcr(image);
+        Tesseract4CachingOcrEngine engine = new Tesseract4CachingOcrEngine(baseEngine)
+                .setCacheDirectory(cacheDirectory);
+        engine.doImageOcr(image);
+
+        Assert.assertEquals(0, getCacheFiles(cacheDirectory).length);
+        Assert.assertEquals(2, baseEngine.calls);
+        Assert.assertEquals(0, engine.getDiskHits());
+    }
+
+    @Test
+    public void testCacheKeyDependsOnNamespace() {
+        File image = new File(TEST_IMAGES_DIRECTORY + "numbers_01.jpg");
+        Tesseract4CachingOcrEngine engine = new Tesseract4CachingOcrEngine(
+                new CountingOcrEngine()).setCacheNamespace("first");
+        String key = engine.getCacheKey(image);
+
+        engine.setCacheNamespace("second");
+        Assert.assertNotEquals(key, engine.getCacheKey(image));
+        engine.setCacheNamespace("first");
+        Assert.assertEquals(key, engine.getCacheKey(image));
+    }
+
+    @Test
+    public void testCacheKeyDependsOnUserWords() {
+        File image = new File(TEST_IMAGES_DIRECTORY + "numbers_01.jpg");
+        Tesseract4OcrEngineProperties properties = new Tesseract4OcrEngineProperties()
+                .setPathToTessData(getTessDataDirectory())
+                .setUserWordsCacheDirectory(createCacheDirectory());
+        Tesseract4CachingOcrEngine engine = new Tesseract4CachingOcrEngine(
+                new Tesseract4ExecutableOcrEngine(properties));
+        properties.setUserWords("eng", Arrays.asList("one", "two"));
+        String key = engine.getCacheKey(image);
+
+        properties.setUserWords("eng", Arrays.asList("one", "three"));
+        Assert.assertNotEquals(key, engine.getCacheKey(image));
+        properties.setUserWords("eng", Arrays.asList("one", "two"));
+        Assert.assertEquals(key, engine.getCacheKey(image));
+    }
+
+    @Test
+    public void testCacheKeyDependsOnCascadeEngines() {
+        File image = new File(TEST_IMAGES_DIRECTORY + "numbers_01.jpg");
+        Tesseract4OcrEngineProperties accurateProperties =
+                new Tesseract4OcrEngineProperties()
+                        .setPathToTessData(getTessDataDirectory());
+        Tesseract4CascadeOcrEngine cascadeEngine = new Tesseract4CascadeOcrEngine(
+                new Tesseract4ExecutableOcrEngine(new Tesseract4OcrEngineProperties()
+                        .setPathToTessData(getTessDataDirectory())),
+                new Tesseract4ExecutableOcrEngine(accurateProperties));
+        Tesseract4CachingOcrEngine engine = new Tesseract4CachingOcrEngine(
+                cascadeEngine);
+        String key = engine.getCacheKey(image);
+
+        accurateProperties.setPageSegMode(6);
+        Assert.assertNotEquals(key, engine.getCacheKey(image));
+        accurateProperties.setPageSegMode(3);
+        Assert.assertEquals(key, engine.getCacheKey(image));
+        cascadeEngine.setConfidenceThreshold(50);
+        Assert.assertNotEquals(key, engine.getCacheKey(image));
+    }
+
+    @Test
+    public void testCacheKeyDependsOnLanguageRoutingEngine() {
+        File image = new File(TEST_IMAGES_DIRECTORY + "numbers_01.jpg");
+        Tesseract4OcrEngineProperties properties = new Tesseract4OcrEngineProperties()
+                .setPathToTessData(getTessDataDirectory());
+        Tesseract4LanguageRoutingOcrEngine routingEngine =
+                new Tesseract4LanguageRoutingOcrEngine(
+                        new Tesseract4ExecutableOcrEngine(properties));
+        Tesseract4CachingOcrEngine engine = new Tesseract4CachingOcrEngine(
+                routingEngine);
+        String key = engine.getCacheKey(image);
+
+        properties.setLanguages(Arrays.asList("eng", "spa"));
+        Assert.assertNotEquals(key, engine.getCacheKey(image));
+        properties.setLanguages(Collections.<String>emptyList());
+        Assert.assertEquals(key, engine.getCacheKey(image));
+        routingEngine.setMaxLanguagesPerPage(1);
+        Assert.assertNotEquals(key, engine.getCacheKey(image));
+    }
+
+    @Test
+    public void testCacheKeyDependsOnEngineProperties() {
+        File image = new File(TEST_IMAGES_DIRECTORY + "numbers_01.jpg");
+        Tesseract4OcrEngineProperties properties = new Tesseract4OcrEngineProperties()
+                .setPathToTessData(getTessDataDirectory());
+        Tesseract4CachingOcrEngine engine = new Tesseract4CachingOcrEngine(
+                new Tesseract4ExecutableOcrEngine(properties));
+        String key = engine.getCacheKey(image);
+
+        Assert.assertEquals(key, engine.getCacheKey(image));
+        Assert.assertNotEquals(key, engine.getCacheKey(
+                new File(TEST_IMAGES_DIRECTORY + "spanish_01.jpg")));
+        properties.setLanguages(Collections.<String>singletonList("spa"));
+        Assert.assertNotEquals(key, engine.getCacheKey(image));
+        properties.setLanguages(Collections.<String>emptyList());
+        Assert.assertEquals(key, engine.getCacheKey(image));
+        properties.setPageSegMode(6);
+        Assert.assertNotEquals(key, engine.getCacheKey(image));
+        properties.setPageSegMode(3);
+        Assert.assertEquals(key, engine.getCacheKey(image));
+        properties.setTextPositioning(TextPositioning.BY_WORDS);
+        Assert.assertNotEquals(key, engine.getCacheKey(image));
+    }
+
+    private static File createCacheDirectory() {
+        return new File(getTargetDirectory() + "ocrcache" + File.separator
+                + UUID.randomUUID().toString());
+    }
+
+    private static File[] getCacheFiles(File cacheDirectory) {
+        return cacheDirectory.listFiles(new FileFilter() {
+            @Override
+            public boolean accept(File file) {
+                return file.getName().endsWith(".ocr");
+            }
+        });
+    }
+
+    private static class CountingOcrEngine implements IOcrEngine {
+        private int calls;
+
+        @Override
+        public Map<Integer, List<TextInfo>> doImageOcr(File input) {
+            ++calls;
+            TextInfo textInfo = new TextInfo(input.getName(), new Rectangle(1, 2, 3, 4));
+            textInfo.setConfidence(0.5f);
+            TextInfo legacyTextInfo = new TextInfo();
+            legacyTextInfo.setBbox(Arrays.asList(5f, 6f, 7f, 8f));
+            List<TextInfo> textInfos = new ArrayList<TextInfo>();
+            textInfos.add(textInfo);
+            textInfos.add(legacyTextInfo);
+            Map<Integer, List<TextInfo>> result = new HashMap<Integer, List<TextInfo>>();
+            result.put(1, textInfos);
+            return result;
+        }
+
+        @Override
+        public void createTxtFile(List<File> inputImages, File txtFile) {
+        }
+    }
+}
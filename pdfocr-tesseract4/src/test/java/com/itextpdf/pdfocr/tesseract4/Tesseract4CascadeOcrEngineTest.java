@@ -0,0 +1,204 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr.tesseract4;
+
+import com.itextpdf.kernel.geom.Rectangle;
+import com.itextpdf.pdfocr.IntegrationTestHelper;
+import com.itextpdf.pdfocr.TextInfo;
+
+import java.awt.image.BufferedImage;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class Tesseract4CascadeOcrEngineTest extends IntegrationTestHelper {
+
+    @Test
+    public void testTextChunkIsCroppedWithMargin() {
+        BufferedImage pageImage = new BufferedImage(400, 300,
+                BufferedImage.TYPE_INT_RGB);
+        pageImage.setRGB(40, 80, 0xff0000);
+        // 40-120 px horizontally and 80-100 px from the top of the image
+        TextInfo textInfo = new TextInfo("text",
+                new Rectangle(30, 150, 60, 15));
+
+        BufferedImage chunkImage = Tesseract4CascadeOcrEngine
+                .cropTextInfo(pageImage, textInfo);
+
+        Assert.assertNotNull(chunkImage);
+        Assert.assertEquals(88, chunkImage.getWidth());
+        Assert.assertEquals(28, chunkImage.getHeight());
+        Assert.assertEquals(0xff0000, chunkImage.getRGB(4, 4) & 0xffffff);
+        Assert.assertEquals(0, chunkImage.getRGB(5, 5) & 0xffffff);
+    }
+
+    @Test
+    public void testCroppedTextChunkIsClippedByImage() {
+        BufferedImage pageImage = new BufferedImage(400, 300,
+                BufferedImage.TYPE_INT_RGB);
+        TextInfo textInfo = new TextInfo("text",
+                new Rectangle(0, 0, 30, 15));
+
+        BufferedImage chunkImage = Tesseract4CascadeOcrEngine
+                .cropTextInfo(pageImage, textInfo);
+
+        Assert.assertNotNull(chunkImage);
+        Assert.assertEquals(44, chunkImage.getWidth());
+        Assert.assertEquals(24, chunkImage.getHeight());
+    }
+
+    @Test
+    public void testTextChunkOutsideOfImageIsNotCropped() {
+        BufferedImage pageImage = new BufferedImage(400, 300,
+                BufferedImage.TYPE_INT_RGB);
+        TextInfo textInfo = new TextInfo("text",
+                new Rectangle(400, 100, 30, 15));
+
+        Assert.assertNull(Tesseract4CascadeOcrEngine
+                .cropTextInfo(pageImage, textInfo));
+    }
+
+    @Test
+    public void testOnlyLowConfidenceTextChunksAreSelected() {
+        Tesseract4ExecutableOcrEngine engine = new Tesseract4ExecutableOcrEngine(
+                new Tesseract4OcrEngineProperties());
+        Tesseract4CascadeOcrEngine cascadeEngine =
+                new Tesseract4CascadeOcrEngine(engine, engine, 80);
+        TextInfo lowConfidence = createTextInfo("low",
+                new Rectangle(10, 10, 30, 15), 50);
+        TextInfo highConfidence = createTextInfo("high",
+                new Rectangle(10, 30, 30, 15), 90);
+        TextInfo unknownConfidence = new TextInfo("unknown",
+                new Rectangle(10, 50, 30, 15));
+        TextInfo withoutBbox = new TextInfo();
+        withoutBbox.setConfidence(10);
+
+        List<TextInfo> textChunks = cascadeEngine.selectTextChunks(
+                Arrays.asList(lowConfidence, highConfidence,
+                        unknownConfidence, withoutBbox));
+
+        Assert.assertEquals(Collections.singletonList(lowConfidence),
+                textChunks);
+    }
+
+    @Test
+    public void testTextChunksArePlacedOneUnderAnother() {
+        Tesseract4CascadeOcrEngine.ChunkBatch batch =
+                new Tesseract4CascadeOcrEngine.ChunkBatch();
+        BufferedImage first = createChunkImage(100, 20, 0xff0000);
+        BufferedImage second = createChunkImage(60, 30, 0x00ff00);
+
+        Assert.assertTrue(batch.add(new TextInfo(), first));
+        Assert.assertTrue(batch.add(new TextInfo(), second));
+        BufferedImage image = batch.createImage();
+
+        // chunks are separated by 16 px of white space
+        Assert.assertEquals(132, image.getWidth());
+        Assert.assertEquals(98, image.getHeight());
+        Assert.assertEquals(0xffffff, image.getRGB(15, 15) & 0xffffff);
+        Assert.assertEquals(0xff0000, image.getRGB(16, 16) & 0xffffff);
+        Assert.assertEquals(0xffffff, image.getRGB(16, 36) & 0xffffff);
+        Assert.assertEquals(0x00ff00, image.getRGB(16, 52) & 0xffffff);
+        Assert.assertEquals(0xffffff, image.getRGB(76, 52) & 0xffffff);
+    }
+
+    @Test
+    public void testBatchImageHeightIsLimited() {
+        Tesseract4CascadeOcrEngine.ChunkBatch batch =
+                new Tesseract4CascadeOcrEngine.ChunkBatch();
+
+        Assert.assertTrue(batch.add(new TextInfo(),
+                createChunkImage(10, 5000, 0)));
+        Assert.assertFalse(batch.add(new TextInfo(),
+                createChunkImage(10, 5000, 0)));
+        Assert.assertEquals(1, batch.size());
+        // a chunk is always added to an empty batch
+        Assert.assertTrue(new Tesseract4CascadeOcrEngine.ChunkBatch()
+                .add(new TextInfo(), createChunkImage(10, 9000, 0)));
+    }
+
+    @Test
+    public void testRecognizedTextIsMergedByPosition() {
+        Tesseract4CascadeOcrEngine.ChunkBatch batch =
+                new Tesseract4CascadeOcrEngine.ChunkBatch();
+        TextInfo improved = createTextInfo("improved",
+                new Rectangle(10, 10, 30, 15), 40);
+        TextInfo worse = createTextInfo("worse", new Rectangle(10, 30, 30, 15), 60);
+        TextInfo unrecognized = createTextInfo("unrecognized",
+                new Rectangle(10, 50, 30, 15), 50);
+        // chunks are placed at 16-36, 52-82 and 98-118 px of 134 px high image
+        batch.add(improved, createChunkImage(100, 20, 0));
+        batch.add(worse, createChunkImage(100, 30, 0));
+        batch.add(unrecognized, createChunkImage(100, 20, 0));
+
+        Map<Integer, List<TextInfo>> result = Collections.singletonMap(1,
+                Arrays.asList(
+                        createResultTextInfo("new", 20, 32, 90),
+                        createResultTextInfo("text", 24, 30, 70),
+                        createResultTextInfo("noise", 40, 48, 99),
+                        createResultTextInfo("bad", 60, 70, 30)));
+        batch.merge(result);
+
+        Assert.assertEquals("new text", improved.getText());
+        Assert.assertEquals(80, improved.getConfidence(), 0.001);
+        Assert.assertEquals("worse", worse.getText());
+        Assert.assertEquals(60, worse.getConfidence(), 0);
+        Assert.assertEquals("unrecognized", unrecognized.getText());
+        Assert.assertEquals(50, unrecognized.getConfidence(), 0);
+    }
+
+    private static BufferedImage createChunkImage(int width, int height,
+            int rgb) {
+        BufferedImage image = new BufferedImage(width, height,
+                BufferedImage.TYPE_INT_RGB);
+        for (int x = 0; x < width; ++x) {
+            for (int y = 0; y < height; ++y) {
+                image.setRGB(x, y, rgb);
+            }
+        }
+        return image;
+    }
+
+    /**
+     * Creates recognized text chunk of 134 px high batch image which spans
+     * given pixels from the top of the image.
+     */
+    private static TextInfo createResultTextInfo(String text, int top,
+            int bottom, float confidence) {
+        return createTextInfo(text, new Rectangle(
+                TesseractHelper.toPoints(10),
+                TesseractHelper.toPoints(134 - bottom),
+                TesseractHelper.toPoints(50),
+                TesseractHelper.toPoints(bottom - top)), confidence);
+    }
+
+    private static TextInfo createTextInfo(String text, Rectangle bbox,
+            float confidence) {
+        TextInfo textInfo = new TextInfo(text, bbox);
+        textInfo.setConfidence(confidence);
+        return textInfo;
+    }
+}
@@ -0,0 +1,120 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr.tesseract4;
+
+import com.itextpdf.io.util.MessageFormatUtil;
+import com.itextpdf.pdfocr.ImageProbe;
+import com.itextpdf.pdfocr.IntegrationTestHelper;
+
+import java.io.File;
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class Tesseract4OcrAdmissionControllerTest extends IntegrationTestHelper {
+
+    @Rule
+    public ExpectedException junitExpectedException = ExpectedException.none();
+
+    @After
+    public void resetAdmissionController() {
+        Tesseract4OcrAdmissionController.getInstance().setMaxPixelsPerPage(0)
+                .setMaxPages(0).setMaxCpuTime(0).setHeapBudget(0)
+                .setNativeBudget(0).setMaxQueueTime(0);
+    }
+
+    @Test
+    public void testImageProbe() {
+        ImageProbe probe = ImageProbe.forFile(
+                new File(TEST_IMAGES_DIRECTORY + "numbers_01.jpg"));
+        Assert.assertEquals(1148, probe.getWidth());
+        Assert.assertEquals(464, probe.getHeight());
+        Assert.assertEquals(1, probe.getNumberOfPages());
+
+        ImageCostEstimate estimate = new ImageCostEstimator().estimate(probe);
+        Assert.assertEquals(1148L * 464 * 12, estimate.getPeakNativeMemory());
+    }
+
+    @Test
+    public void testLargePageIsRejected() {
+        junitExpectedException.expect(Tesseract4OcrException.class);
+        junitExpectedException.expectMessage(MessageFormatUtil.format(
+                Tesseract4OcrException.IMAGE_PAGE_IS_TOO_LARGE,
+                "532672", "1000"));
+        Tesseract4OcrAdmissionController.getInstance().setMaxPixelsPerPage(1000);
+        Tesseract4LibOcrEngine engine = new Tesseract4LibOcrEngine(
+                new Tesseract4OcrEngineProperties());
+        engine.doImageOcr(new File(TEST_IMAGES_DIRECTORY + "numbers_01.jpg"));
+    }
+
+    @Test
+    public void testImageWaitsForMemoryBudget() throws InterruptedException {
+        final File input = new File(TEST_IMAGES_DIRECTORY + "numbers_01.jpg");
+        final Tesseract4OcrAdmissionController controller =
+                Tesseract4OcrAdmissionController.getInstance()
+                        .setHeapBudget(2 * 1148 * 464 * 8);
+        controller.admit(input);
+        long reserved = controller.getReservedHeap();
+        Assert.assertTrue(reserved > 1148 * 464 * 8);
+
+        final AtomicBoolean admitted = new AtomicBoolean(false);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                controller.admit(input);
+                admitted.set(true);
+                controller.release();
+            }
+        });
+        thread.start();
+        thread.join(200);
+        Assert.assertFalse(admitted.get());
+        Assert.assertEquals(1, controller.getQueuedImages());
+
+        controller.release();
+        thread.join(5000);
+        Assert.assertTrue(admitted.get());
+        Assert.assertEquals(0, controller.getReservedHeap());
+        Assert.assertEquals(0, controller.getQueuedImages());
+    }
+
+    @Test
+    public void testNestedAdmissionDoesNotReleaseOuterImage() {
+        File input = new File(TEST_IMAGES_DIRECTORY + "numbers_01.jpg");
+        Tesseract4OcrAdmissionController controller =
+                Tesseract4OcrAdmissionController.getInstance()
+                        .setHeapBudget(2 * 1148 * 464 * 8);
+        Assert.assertTrue(controller.admit(input));
+        long reserved = controller.getReservedHeap();
+
+        // e.g. a cropped region of the admitted image
+        Assert.assertFalse(controller.admit(input));
+        Assert.assertEquals(reserved, controller.getReservedHeap());
+
+        controller.release();
+        Assert.assertEquals(0, controller.getReservedHeap());
+    }
+}
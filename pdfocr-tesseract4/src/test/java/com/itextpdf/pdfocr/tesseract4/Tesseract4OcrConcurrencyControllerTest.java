@@ -0,0 +1,109 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr.tesseract4;
+
+import com.itextpdf.pdfocr.IntegrationTestHelper;
+
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class Tesseract4OcrConcurrencyControllerTest extends IntegrationTestHelper {
+
+    private static final long MS = TimeUnit.MILLISECONDS.toNanos(1);
+
+    @Test
+    public void testLimitIsBoundedByCpuQuota() throws IOException {
+        Path cgroup = createCgroup("cpu.max", "200000 100000");
+        Tesseract4OcrConcurrencyController controller =
+                new Tesseract4OcrConcurrencyController(new CgroupResourceLimits(cgroup))
+                        .setMaxLimit(8);
+        Assert.assertEquals(2, controller.start(0));
+        Assert.assertEquals(2, Tesseract4OcrMetrics.getInstance().getConcurrencyLimit());
+
+        Files.write(cgroup.resolve("cpu.max"), "max 100000".getBytes(StandardCharsets.US_ASCII));
+        Assert.assertEquals(8, controller.start(0));
+    }
+
+    @Test
+    public void testLimitIsAdjustedByAimd() throws IOException {
+        Path cgroup = createCgroup(null, null);
+        Tesseract4OcrConcurrencyController controller =
+                new Tesseract4OcrConcurrencyController(new CgroupResourceLimits(cgroup))
+                        .setMaxLimit(4).setWindowSize(2);
+        long now = 0;
+        Assert.assertEquals(4, controller.start(now));
+
+        // baseline window, the limit is already maximal
+        Assert.assertFalse(controller.onJobFinished(10 * MS, now += 10 * MS, 1));
+        Assert.assertFalse(controller.onJobFinished(10 * MS, now += 10 * MS, 1));
+
+        Assert.assertFalse(controller.onJobFinished(50 * MS, now += 50 * MS, 1));
+        Assert.assertTrue(controller.onJobFinished(50 * MS, now += 50 * MS, 1));
+        Assert.assertEquals(3, controller.getConcurrencyLimit());
+        Assert.assertEquals(ConcurrencyChangeReason.LATENCY_GROWTH,
+                controller.getLastChangeReason());
+
+        Assert.assertFalse(controller.onJobFinished(10 * MS, now += 10 * MS, 1));
+        Assert.assertTrue(controller.onJobFinished(10 * MS, now += 10 * MS, 1));
+        Assert.assertEquals(4, controller.getConcurrencyLimit());
+        Assert.assertEquals(ConcurrencyChangeReason.PROBE, controller.getLastChangeReason());
+
+        Assert.assertFalse(controller.onJobFinished(15 * MS, now += 15 * MS, 1));
+        Assert.assertTrue(controller.onJobFinished(15 * MS, now += 15 * MS, 1));
+        Assert.assertEquals(3, controller.getConcurrencyLimit());
+        Assert.assertEquals(ConcurrencyChangeReason.THROUGHPUT_DROP,
+                controller.getLastChangeReason());
+    }
+
+    @Test
+    public void testLimitIsDecreasedOnMemoryPressure() throws IOException {
+        Path cgroup = createCgroup("memory.max", "1000");
+        Files.write(cgroup.resolve("memory.current"), "950".getBytes(StandardCharsets.US_ASCII));
+        Tesseract4OcrConcurrencyController controller =
+                new Tesseract4OcrConcurrencyController(new CgroupResourceLimits(cgroup))
+                        .setMaxLimit(8).setWindowSize(1);
+        long changes = Tesseract4OcrMetrics.getInstance()
+                .getConcurrencyChanges(ConcurrencyChangeReason.MEMORY_PRESSURE);
+        controller.start(0);
+
+        Assert.assertTrue(controller.onJobFinished(10 * MS, 10 * MS, 1));
+        Assert.assertEquals(6, controller.getConcurrencyLimit());
+        Assert.assertEquals(ConcurrencyChangeReason.MEMORY_PRESSURE,
+                controller.getLastChangeReason());
+        Assert.assertEquals(changes + 1, Tesseract4OcrMetrics.getInstance()
+                .getConcurrencyChanges(ConcurrencyChangeReason.MEMORY_PRESSURE));
+    }
+
+    private static Path createCgroup(String fileName, String content) throws IOException {
+        Path cgroup = Files.createTempDirectory("cgroup");
+        if (fileName != null) {
+            Files.write(cgroup.resolve(fileName), content.getBytes(StandardCharsets.US_ASCII));
+        }
+        return cgroup;
+    }
+}
@@ -0,0 +1,138 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr.tesseract4;
+
+import com.itextpdf.pdfocr.IntegrationTestHelper;
+
+import java.util.concurrent.atomic.AtomicBoolean;
+import org.junit.After;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class Tesseract4OcrSchedulerTest extends IntegrationTestHelper {
+
+    @After
+    public void resetScheduler() {
+        Tesseract4OcrScheduler.getInstance().setCoreBudget(0).setThreadsPerJob(1);
+    }
+
+    @Test
+    public void testRunsAreLimitedByCoreBudget() throws InterruptedException {
+        final Tesseract4OcrScheduler scheduler = Tesseract4OcrScheduler.getInstance()
+                .setCoreBudget(3).setThreadsPerJob(2);
+        scheduler.acquire();
+        Assert.assertEquals(2, scheduler.getCurrentJobThreads());
+        Assert.assertEquals(2, scheduler.getUsedCores());
+        Assert.assertEquals(1, scheduler.getRunningJobs());
+
+        final AtomicBoolean acquired = new AtomicBoolean(false);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    scheduler.acquire();
+                    acquired.set(true);
+                    scheduler.release();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        thread.start();
+        thread.join(200);
+        Assert.assertFalse(acquired.get());
+
+        scheduler.release();
+        thread.join(5000);
+        Assert.assertTrue(acquired.get());
+        Assert.assertEquals(0, scheduler.getCurrentJobThreads());
+        Assert.assertEquals(0, scheduler.getUsedCores());
+        Assert.assertEquals(0, scheduler.getRunningJobs());
+    }
+
+    @Test
+    public void testNestedRunsShareCoresOfOutermostRun() throws InterruptedException {
+        final Tesseract4OcrScheduler scheduler = Tesseract4OcrScheduler.getInstance()
+                .setCoreBudget(2).setThreadsPerJob(2);
+        scheduler.acquire();
+        // nested runs of the same thread don't take more cores
+        scheduler.acquire();
+        scheduler.acquire();
+        Assert.assertEquals(2, scheduler.getUsedCores());
+        Assert.assertEquals(1, scheduler.getRunningJobs());
+
+        final AtomicBoolean acquired = new AtomicBoolean(false);
+        Thread thread = new Thread(new Runnable() {
+            @Override
+            public void run() {
+                try {
+                    scheduler.acquire();
+                    acquired.set(true);
+                    scheduler.release();
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        });
+        thread.start();
+
+        // releasing nested runs doesn't free the cores of the outer run
+        scheduler.release();
+        scheduler.release();
+        thread.join(200);
+        Assert.assertFalse(acquired.get());
+        Assert.assertEquals(2, scheduler.getCurrentJobThreads());
+        Assert.assertEquals(2, scheduler.getUsedCores());
+
+        scheduler.release();
+        thread.join(5000);
+        Assert.assertTrue(acquired.get());
+        Assert.assertEquals(0, scheduler.getCurrentJobThreads());
+        Assert.assertEquals(0, scheduler.getUsedCores());
+        Assert.assertEquals(0, scheduler.getRunningJobs());
+    }
+
+    @Test
+    public void testRunStartedBeforeSchedulingIsEnabledIsNotReleased()
+            throws InterruptedException {
+        Tesseract4OcrScheduler scheduler = Tesseract4OcrScheduler.getInstance();
+        scheduler.acquire();
+        scheduler.setCoreBudget(2).setThreadsPerJob(1);
+        // nested run uses the outer run which took no cores
+        scheduler.acquire();
+        Assert.assertEquals(0, scheduler.getUsedCores());
+        scheduler.release();
+        scheduler.release();
+        Assert.assertEquals(0, scheduler.getUsedCores());
+        Assert.assertEquals(0, scheduler.getRunningJobs());
+    }
+
+    @Test
+    public void testRunsAreNotScheduledByDefault() throws InterruptedException {
+        Tesseract4OcrScheduler scheduler = Tesseract4OcrScheduler.getInstance();
+        scheduler.acquire();
+        Assert.assertEquals(0, scheduler.getCurrentJobThreads());
+        Assert.assertEquals(0, scheduler.getRunningJobs());
+        scheduler.release();
+    }
+}
@@ -22,7 +22,17 @@
  */
 package com.itextpdf.pdfocr.tesseract4;
 
+import com.itextpdf.test.annotations.LogMessage;
+import com.itextpdf.test.annotations.LogMessages;
 import com.itextpdf.test.annotations.type.IntegrationTest;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Assume;
+import org.junit.Test;
 import org.junit.experimental.categories.Category;
 
 @Category(IntegrationTest.class)
@@ -31,4 +41,30 @@ public class TesseractHelperExecutableTest extends TesseractHelperTest {
         super(ReaderType.EXECUTABLE);
     }
 
+    @LogMessages(messages = {
+            @LogMessage(messageTemplate = Tesseract4LogMessageConstant.TESSERACT_PROCESS_KILLED)
+    })
+    @Test
+    public void testWatchdogKillsSpawnedProcesses()
+            throws IOException, InterruptedException {
+        Assume.assumeFalse(tesseractReader.isWindows());
+        // child process keeps standard output open if it survives the kill
+        Process process = TesseractHelper.createProcessBuilder(Arrays.<String>asList(
+                "sh", "-c", "sleep 60 & echo started; wait")).start();
+        InputStream output = process.getInputStream();
+        Assert.assertEquals('s', output.read());
+        TesseractHelper.ProcessWatchdog watchdog = TesseractHelper.watch(process, 100);
+        Thread outputReader = TesseractHelper.startStreamReader(output,
+                new ByteArrayOutputStream());
+        process.waitFor();
+        try {
+            watchdog.stop();
+            Assert.fail("Process should be killed on timeout");
+        } catch (Tesseract4OcrTimeoutException e) {
+            Assert.assertFalse(process.isAlive());
+        }
+        outputReader.join(5000);
+        Assert.assertFalse(outputReader.isAlive());
+    }
+
 }
@@ -34,8 +34,11 @@ import java.io.FileInputStream;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.nio.file.Paths;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermissions;
 import javax.imageio.ImageIO;
 import net.sourceforge.lept4j.Pix;
+import net.sourceforge.tess4j.Tesseract;
 import net.sourceforge.tess4j.TesseractException;
 import org.junit.Assert;
 import org.junit.Test;
@@ -240,4 +243,61 @@ public class TesseractOcrUtilTest extends IntegrationTestHelper {
         Assert.assertEquals(0, rotation);
     }
 
+    @Test
+    public void testTempFileLinkToNonAsciiPath() throws IOException {
+        String path = TEST_IMAGES_DIRECTORY + "tèst/noisy_01.png";
+        File jobDirectory = TesseractOcrUtil.createTempDirectory();
+        String tmpFileName = new File(jobDirectory, "link.png").getAbsolutePath();
+
+        TesseractOcrUtil.createTempFileLink(path, tmpFileName);
+        Assert.assertArrayEquals(Files.readAllBytes(Paths.get(path)),
+                Files.readAllBytes(Paths.get(tmpFileName)));
+
+        TesseractOcrUtil.deleteTempDirectory(jobDirectory);
+        Assert.assertFalse(Files.exists(Paths.get(tmpFileName)));
+        Assert.assertFalse(jobDirectory.exists());
+        Assert.assertTrue(Files.exists(Paths.get(path)));
+    }
+
+    @Test
+    public void testTempDirectoryIsCreatedPerJob() throws IOException {
+        File firstDirectory = TesseractOcrUtil.createTempDirectory();
+        File secondDirectory = TesseractOcrUtil.createTempDirectory();
+        try {
+            Assert.assertTrue(firstDirectory.isDirectory());
+            Assert.assertNotEquals(firstDirectory, secondDirectory);
+            PosixFileAttributeView view = Files.getFileAttributeView(
+                    firstDirectory.toPath(), PosixFileAttributeView.class);
+            if (view != null) {
+                Assert.assertEquals(PosixFilePermissions.fromString("rwx------"),
+                        view.readAttributes().permissions());
+            }
+        } finally {
+            TesseractOcrUtil.deleteTempDirectory(firstDirectory);
+            TesseractOcrUtil.deleteTempDirectory(secondDirectory);
+        }
+    }
+
+    @Test
+    public void testLegacyEngineModeIsUsedForUserWords() {
+        final int[] ocrEngineMode = new int[1];
+        Tesseract tesseract = new Tesseract() {
+            @Override
+            public void setOcrEngineMode(int ocrEngineMode1) {
+                ocrEngineMode[0] = ocrEngineMode1;
+            }
+        };
+
+        TesseractOcrUtil.setTesseractProperties(tesseract,
+                getTessDataDirectory().getAbsolutePath(), "eng", 3,
+                "eng.user-words");
+        Assert.assertEquals(TesseractOcrUtil.OEM_TESSERACT_ONLY,
+                ocrEngineMode[0]);
+
+        TesseractOcrUtil.setTesseractProperties(tesseract,
+                getTessDataDirectory().getAbsolutePath(), "eng", 3, null);
+        Assert.assertEquals(TesseractOcrUtil.OEM_DEFAULT, ocrEngineMode[0]);
+        Assert.assertEquals(TesseractOcrUtil.OEM_DEFAULT,
+                TesseractOcrUtil.getOcrEngineMode(""));
+    }
 }
@@ -0,0 +1,62 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr.tesseract4;
+
+import com.itextpdf.io.util.MessageFormatUtil;
+import com.itextpdf.pdfocr.IntegrationTestHelper;
+
+import org.junit.Assert;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.ExpectedException;
+
+public class TesseractRecognitionMonitorTest extends IntegrationTestHelper {
+
+    @Rule
+    public ExpectedException junitExpectedException = ExpectedException.none();
+
+    @Test
+    public void testRecognitionIsStoppedOnCancellation() {
+        junitExpectedException.expect(Tesseract4OcrCancelledException.class);
+        junitExpectedException.expectMessage(Tesseract4OcrException.OCR_CANCELLED);
+        Tesseract4OcrCancellationToken token = new Tesseract4OcrCancellationToken();
+        TesseractRecognitionMonitor monitor = new TesseractRecognitionMonitor(0, token);
+        Assert.assertFalse(monitor.getDescriptor().cancel.invoke(null, 0));
+        monitor.checkStopped();
+
+        token.cancel();
+        Assert.assertTrue(monitor.getDescriptor().cancel.invoke(null, 1));
+        monitor.checkStopped();
+    }
+
+    @Test
+    public void testRecognitionIsStoppedOnDeadline() throws InterruptedException {
+        junitExpectedException.expect(Tesseract4OcrTimeoutException.class);
+        junitExpectedException.expectMessage(MessageFormatUtil.format(
+                Tesseract4OcrException.PAGE_OCR_TIMEOUT, 1));
+        TesseractRecognitionMonitor monitor = new TesseractRecognitionMonitor(1, null);
+        Thread.sleep(10);
+        Assert.assertTrue(monitor.isStopRequested());
+        monitor.checkStopped();
+    }
+}
@@ -0,0 +1,139 @@
+/*
+    This file is part of the iText (R) project.
+    Copyright (c) 1998-2021 iText Group NV
+    Authors: iText Software.
+
+    This program is offered under a commercial and under the AGPL license.
+    For commercial licensing, contact us at https://itextpdf.com/sales.  For AGPL licensing, see below.
+
+    AGPL licensing:
+    This program is free software: you can redistribute it and/or modify
+    it under the terms of the GNU Affero General Public License as published by
+    the Free Software Foundation, either version 3 of the License, or
+    (at your option) any later version.
+
+    This program is distributed in the hope that it will be useful,
+    but WITHOUT ANY WARRANTY; without even the implied warranty of
+    MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+    GNU Affero General Public License for more details.
+
+    You should have received a copy of the GNU Affero General Public License
+    along with this program.  If not, see <https://www.gnu.org/licenses/>.
+ */
+package com.itextpdf.pdfocr.tesseract4;
+
+import com.itextpdf.pdfocr.IntegrationTestHelper;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import org.junit.Assert;
+import org.junit.Test;
+
+public class UserWordsCacheTest extends IntegrationTestHelper {
+
+    private static final File CACHE_DIRECTORY = new File(
+            getTargetDirectory(), "userWordsCache");
+
+    @Test
+    public void testSameUserWordsAreRegisteredOnce() throws IOException {
+        String path1 = UserWordsCache.register(CACHE_DIRECTORY, "eng",
+                readUserWords("word1\nword2"));
+        File file = new File(path1);
+        long lastModified = file.lastModified();
+        String path2 = UserWordsCache.register(CACHE_DIRECTORY, "eng",
+                readUserWords("word1\nword2"));
+
+        Assert.assertEquals(path1, path2);
+        Assert.assertTrue(path1.endsWith(".user-words"));
+        Assert.assertEquals(lastModified, file.lastModified());
+        Assert.assertEquals("word1\nword2" + System.lineSeparator(),
+                new String(Files.readAllBytes(Paths.get(path1)), StandardCharsets.UTF_8));
+    }
+
+    @Test
+    public void testDifferentUserWordsAreRegisteredSeparately() throws IOException {
+        String path1 = UserWordsCache.register(CACHE_DIRECTORY, "eng",
+                readUserWords("word1"));
+        String path2 = UserWordsCache.register(CACHE_DIRECTORY, "eng",
+                readUserWords("word2"));
+        String path3 = UserWordsCache.register(CACHE_DIRECTORY, "fra",
+                readUserWords("word1"));
+
+        Assert.assertNotEquals(path1, path2);
+        Assert.assertNotEquals(path1, path3);
+        Assert.assertTrue(new File(path1).exists());
+        Assert.assertTrue(new File(path2).exists());
+        Assert.assertTrue(new File(path3).exists());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedFileIsEvicted() throws IOException {
+        String first = UserWordsCache.register(CACHE_DIRECTORY, "eng",
+                readUserWords("evicted"));
+        String second = UserWordsCache.register(CACHE_DIRECTORY, "eng",
+                readUserWords("kept"));
+        for (int i = 0; i < UserWordsCache.MAX_REGISTERED_FILES - 1; i++) {
+            // the second file is used again so it isn't evicted
+            UserWordsCache.register(CACHE_DIRECTORY, "eng",
+                    readUserWords("kept"));
+            UserWordsCache.register(CACHE_DIRECTORY, "eng",
+                    readUserWords("word" + i));
+        }
+
+        Assert.assertFalse(new File(first).exists());
+        Assert.assertTrue(new File(second).exists());
+    }
+
+    @Test
+    public void testEvictedUserWordsFileIsWrittenAgain() throws IOException {
+        File directory = new File(CACHE_DIRECTORY, "properties");
+        Tesseract4OcrEngineProperties properties =
+                new Tesseract4OcrEngineProperties()
+                        .setUserWordsCacheDirectory(directory);
+        properties.setUserWords("eng", Arrays.<String>asList("word1", "word2"));
+        String path = properties.getPathToUserWordsFile();
+        Assert.assertEquals(directory.getAbsoluteFile(),
+                new File(path).getParentFile());
+
+        Files.delete(Paths.get(path));
+
+        Tesseract4OcrEngineProperties copy =
+                new Tesseract4OcrEngineProperties(properties);
+        // getter doesn't write the file
+        Assert.assertEquals(path, copy.getPathToUserWordsFile());
+        Assert.assertFalse(new File(path).exists());
+
+        String acquired = copy.acquireUserWordsFile();
+        UserWordsCache.release(acquired);
+        Assert.assertEquals(path, acquired);
+        Assert.assertTrue(new File(path).exists());
+    }
+
+    @Test
+    public void testAcquiredFileIsNotEvicted() throws IOException {
+        String acquired = UserWordsCache.acquire(CACHE_DIRECTORY, "eng",
+                readUserWords("acquired"));
+        for (int i = 0; i < UserWordsCache.MAX_REGISTERED_FILES; i++) {
+            UserWordsCache.register(CACHE_DIRECTORY, "eng",
+                    readUserWords("other" + i));
+        }
+        Assert.assertTrue(new File(acquired).exists());
+
+        UserWordsCache.release(acquired);
+        for (int i = 0; i < UserWordsCache.MAX_REGISTERED_FILES; i++) {
+            UserWordsCache.register(CACHE_DIRECTORY, "eng",
+                    readUserWords("next" + i));
+        }
+        Assert.assertFalse(new File(acquired).exists());
+    }
+
+    private static byte[] readUserWords(String userWords) throws IOException {
+        return UserWordsCache.readUserWords(new ByteArrayInputStream(
+                userWords.getBytes(StandardCharsets.UTF_8)));
+    }
+}